@@ -280,6 +280,85 @@ public class PluginDataStoreClassLoader extends URLClassLoader {
 		return pluginDataStoreFactoryList;
 	}
 	
+	/**
+	 * Load the command classes listed in the jar file manifests, using the plugin index to avoid opening jar files.
+	 * @param pluginIndex plugin index, which reads the jar file manifest only if the jar file is not indexed or has changed
+	 */
+	@SuppressWarnings("rawtypes")
+	public List<Class> loadCommandClasses ( TSToolPluginIndex pluginIndex ) throws ClassNotFoundException {
+		String routine = getClass().getSimpleName() + ".loadCommandClasses";
+		List<Class> pluginCommandList = new ArrayList<>();
+		for ( URL pluginClassURL : getURLs() ) {
+			try {
+				for ( String commandClassToLoad : pluginIndex.getEntry(pluginClassURL).getCommandClassList() ) {
+					pluginCommandList.add(loadIndexedClass(routine, "command", commandClassToLoad));
+				}
+			}
+			catch ( IOException ioe ) {
+				Message.printWarning(3,routine,"Error loading plugin commands from \"" + pluginClassURL + "\"");
+			}
+		}
+		return pluginCommandList;
+	}
+
+	/**
+	 * Load the datastore classes listed in the jar file manifests, using the plugin index to avoid opening jar files.
+	 * @param pluginIndex plugin index, which reads the jar file manifest only if the jar file is not indexed or has changed
+	 */
+	@SuppressWarnings("rawtypes")
+	public List<Class> loadDataStoreClasses ( TSToolPluginIndex pluginIndex ) throws ClassNotFoundException {
+		String routine = getClass().getSimpleName() + ".loadDataStoreClasses";
+		List<Class> pluginDataStoreList = new ArrayList<>();
+		for ( URL pluginClassURL : getURLs() ) {
+			try {
+				String dataStoreClassToLoad = pluginIndex.getEntry(pluginClassURL).getDataStoreClass();
+				if ( !dataStoreClassToLoad.isEmpty() ) {
+					pluginDataStoreList.add(loadIndexedClass(routine, "datastore", dataStoreClassToLoad));
+				}
+			}
+			catch ( IOException ioe ) {
+				Message.printWarning(3,routine,"Error loading plugin datastore from \"" + pluginClassURL + "\"");
+			}
+		}
+		return pluginDataStoreList;
+	}
+
+	/**
+	 * Load the datastore factory classes listed in the jar file manifests, using the plugin index to avoid opening jar files.
+	 * @param pluginIndex plugin index, which reads the jar file manifest only if the jar file is not indexed or has changed
+	 */
+	@SuppressWarnings("rawtypes")
+	public List<Class> loadDataStoreFactoryClasses ( TSToolPluginIndex pluginIndex ) throws ClassNotFoundException {
+		String routine = getClass().getSimpleName() + ".loadDataStoreFactoryClasses";
+		List<Class> pluginDataStoreFactoryList = new ArrayList<>();
+		for ( URL pluginClassURL : getURLs() ) {
+			try {
+				String dataStoreFactoryClassToLoad = pluginIndex.getEntry(pluginClassURL).getDataStoreFactoryClass();
+				if ( !dataStoreFactoryClassToLoad.isEmpty() ) {
+					pluginDataStoreFactoryList.add(loadIndexedClass(routine, "datastore factory", dataStoreFactoryClassToLoad));
+				}
+			}
+			catch ( IOException ioe ) {
+				Message.printWarning(3,routine,"Error loading plugin datastore factory from \"" + pluginClassURL + "\"");
+			}
+		}
+		return pluginDataStoreFactoryList;
+	}
+
+	/**
+	 * Load a class listed in the plugin index.
+	 * @param routine calling routine, for messages
+	 * @param classType class type, for messages
+	 * @param className class to load
+	 */
+	private Class<?> loadIndexedClass ( String routine, String classType, String className ) throws ClassNotFoundException {
+		Message.printStatus(2, routine, "Trying to load " + classType + " class \"" + className + "\"");
+		// This class is an instance of URLClassLoader so can run the super-class loadClass()
+		Class<?> loadedClass = loadClass(className);
+		Message.printStatus(2, routine, "Loaded " + classType + " class \"" + className + "\"");
+		return loadedClass;
+	}
+
 	// This method was added to support dependency loading
 	/**
 	 * Override the ClassLoader.loadClass() method, thereby allowing control of class loading before the parent class loader
@@ -0,0 +1,402 @@
+// TSToolBatchServer - run command files that are placed in a hot folder, using a pool of workers
+
+/* NoticeStart
+
+TSTool
+TSTool is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+TSTool is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TSTool is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TSTool.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package DWR.DMI.tstool;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import rti.tscommandprocessor.core.TSCommandFileRunner;
+import RTi.Util.IO.Command;
+import RTi.Util.IO.CommandStatusProvider;
+import RTi.Util.IO.CommandStatusType;
+import RTi.Util.IO.CommandStatusUtil;
+import RTi.Util.IO.IOUtil;
+import RTi.Util.Message.Message;
+import RTi.Util.Time.StopWatch;
+
+/**
+Batch server that runs command files placed in a hot folder.
+Each worker uses its own TSCommandFileRunner (and therefore its own TSCommandProcessor and datastore connections),
+so that several command files can run at the same time without sharing processor state.
+The runners are created by the caller (see TSToolMain) because opening HydroBase and datastores requires
+the session and plugin information that is managed there.
+The hot folder is watched with TSToolBatchServerHotFolderWatcher, which only returns command files that are completely written.
+Ready command files are queued as TSToolBatchServerJob, ordered by priority and then arrival time.
+Job start and finish are recorded in a TSToolBatchServerJournal so that a restarted server does not run a job twice.
+A file named "stop" in the hot folder causes the server to finish running jobs and return.
+*/
+public class TSToolBatchServer
+{
+
+/**
+Extension used to rename a command file that was interrupted by a server stop, so that it is not run again.
+*/
+public static final String INTERRUPTED_EXTENSION = ".interrupted";
+
+/**
+Extension used to rename a command file when an unexpected error prevented the job from finishing normally.
+*/
+public static final String FAILED_EXTENSION = ".failed";
+
+/**
+Hot folder that is checked for command files.
+*/
+private File hotFolder = null;
+
+/**
+Journal of jobs that have been run.
+*/
+private TSToolBatchServerJournal journal = null;
+
+/**
+Runners that are not currently running a command file.
+A worker takes a runner when a job starts and returns it when the job is complete.
+*/
+private BlockingQueue<TSCommandFileRunner> idleRunnerQueue = null;
+
+/**
+Number of workers, which is the same as the number of runners.
+*/
+private int workerCount = 1;
+
+/**
+Executor that runs the jobs, sized to the number of workers.
+*/
+private ExecutorService executor = null;
+
+/**
+Jobs that are ready to run, in priority and arrival order.
+This is only accessed from the thread that calls run().
+*/
+private PriorityQueue<TSToolBatchServerJob> jobQueue = new PriorityQueue<>();
+
+/**
+Absolute paths of command files that are queued or have been handed to a worker and have not been removed
+from the hot folder yet.  This ensures that a file is not started a second time while it is still running.
+*/
+private Set<String> inProcessFileSet = ConcurrentHashMap.newKeySet();
+
+/**
+Maximum milliseconds to wait for a hot folder event before checking again.
+*/
+private long waitMilliseconds = 1000;
+
+/**
+Construct the batch server.
+@param hotFolder the hot folder that is checked for command files
+@param journalFile the journal file used to record jobs
+@param runnerList list of runners, one per worker, each with HydroBase and datastores already opened
+*/
+public TSToolBatchServer ( File hotFolder, File journalFile, List<TSCommandFileRunner> runnerList )
+{
+	if ( (runnerList == null) || runnerList.isEmpty() ) {
+		throw new IllegalArgumentException ( "At least one command file runner is required for the batch server." );
+	}
+	this.hotFolder = hotFolder;
+	this.journal = new TSToolBatchServerJournal(journalFile);
+	this.workerCount = runnerList.size();
+	this.idleRunnerQueue = new LinkedBlockingQueue<>(runnerList);
+	this.executor = Executors.newFixedThreadPool(this.workerCount);
+}
+
+/**
+Remove the files for a job from the hot folder:  the command file, ready marker file, and priority file.
+@param commandFile command file for the job
+*/
+private void deleteJobFiles ( File commandFile )
+{	String routine = getClass().getSimpleName() + ".deleteJobFiles";
+	if ( !commandFile.delete() ) {
+		Message.printWarning ( 2, routine, "Unable to remove command file \"" + commandFile + "\" from hot folder." );
+	}
+	File readyMarkerFile = TSToolBatchServerHotFolderWatcher.getReadyMarkerFile(commandFile);
+	if ( readyMarkerFile.exists() ) {
+		readyMarkerFile.delete();
+	}
+	File priorityFile = TSToolBatchServerJob.getPriorityFile(commandFile);
+	if ( priorityFile.exists() ) {
+		priorityFile.delete();
+	}
+}
+
+/**
+Return the number of workers.
+@return the number of workers
+*/
+public int getWorkerCount ()
+{
+	return this.workerCount;
+}
+
+/**
+Add ready jobs to the job queue, skipping jobs that are already queued or running and jobs that the journal
+indicates were already run.  Jobs for command files that cannot be read are returned to the watcher to try again.
+@param watcher the hot folder watcher that returned the ready jobs
+@param readyJobs jobs for command files that are ready to run
+*/
+private void queueJobs ( TSToolBatchServerHotFolderWatcher watcher, List<TSToolBatchServerJob> readyJobs )
+{	String routine = getClass().getSimpleName() + ".queueJobs";
+	for ( TSToolBatchServerJob job : readyJobs ) {
+		File f = job.getCommandFile();
+		String commandFileFull = f.getAbsolutePath();
+		if ( this.inProcessFileSet.contains(commandFileFull) ) {
+			// Already queued or being run by a worker
+			continue;
+		}
+		// Make sure the file exists and is readable
+		if ( !f.exists() ) {
+			continue;
+		}
+		if ( !f.canRead() ) {
+			// May be locked by the program that copied the file so try again later
+			Message.printStatus(2, routine, "Command file " + job + " cannot be read.  Will try again.");
+			watcher.retryJob(job);
+			continue;
+		}
+		if ( this.journal.isJobDone(job) ) {
+			// The job finished before the server stopped but the command file was not removed
+			Message.printStatus(2, routine, "Command file " + job + " was already run (from journal).  Removing without running again.");
+			deleteJobFiles ( f );
+			continue;
+		}
+		this.inProcessFileSet.add(commandFileFull);
+		this.jobQueue.add(job);
+		Message.printStatus(2, routine, "Queued command file " + job + ", " + this.jobQueue.size() + " jobs are queued.");
+	}
+}
+
+/**
+Rename command files for jobs that were interrupted by a previous stop of the batch server,
+so that they remain available for review but are not run again.
+*/
+private void renameInterruptedJobs ()
+{	String routine = getClass().getSimpleName() + ".renameInterruptedJobs";
+	for ( File f : this.journal.closeUnfinishedJobs() ) {
+		File renamed = new File(f.getPath() + INTERRUPTED_EXTENSION);
+		if ( f.renameTo(renamed) ) {
+			Message.printWarning ( 2, routine, "Renamed interrupted command file to \"" + renamed + "\"." );
+		}
+		else {
+			Message.printWarning ( 2, routine, "Unable to rename interrupted command file \"" + f + "\"." );
+		}
+	}
+}
+
+/**
+Run the batch server, watching the hot folder until a file named "stop" is found.
+Jobs that are running when the stop file is found are allowed to complete before returning.
+Jobs that are queued but not started remain in the hot folder and will be run when the server is restarted.
+*/
+public void run ()
+throws IOException, InterruptedException
+{	String routine = getClass().getSimpleName() + ".run";
+	Message.printStatus ( 2, routine, "Running batch server with " + this.workerCount + " workers on hot folder \"" +
+		this.hotFolder + "\", journal \"" + this.journal.getJournalFile() + "\"." );
+	TSToolBatchServerHotFolderWatcher watcher = new TSToolBatchServerHotFolderWatcher(this.hotFolder);
+	try {
+		// Read the journal and close out jobs that were interrupted by the previous stop, before scanning the hot folder
+		this.journal.open();
+		renameInterruptedJobs();
+		// Opening the watcher scans files that are already in the hot folder
+		watcher.open();
+		while ( true ) {
+			TSCommandFileRunner runner = null;
+			List<TSToolBatchServerJob> readyJobs = null;
+			if ( this.jobQueue.isEmpty() ) {
+				// Wait for command files that are completely written
+				readyJobs = watcher.getReadyJobs(this.waitMilliseconds);
+			}
+			else {
+				// Jobs are waiting so wait for a worker, then check for new jobs without waiting,
+				// so that a job with a higher priority that just arrived is run first
+				runner = this.idleRunnerQueue.poll(this.waitMilliseconds, TimeUnit.MILLISECONDS);
+				readyJobs = watcher.getReadyJobs(0);
+			}
+			if ( watcher.isStopFound() ) {
+				if ( runner != null ) {
+					this.idleRunnerQueue.add(runner);
+				}
+				Message.printStatus ( 1, routine, "Stopping batch server because file named \"stop\" was found in hot folder." );
+				break;
+			}
+			queueJobs ( watcher, readyJobs );
+			// Start as many jobs as there are idle workers
+			if ( runner == null ) {
+				runner = this.idleRunnerQueue.poll();
+			}
+			while ( (runner != null) && !this.jobQueue.isEmpty() ) {
+				startJob ( runner, this.jobQueue.poll() );
+				runner = this.idleRunnerQueue.poll();
+			}
+			if ( runner != null ) {
+				// Not needed so return to the idle queue
+				this.idleRunnerQueue.add(runner);
+			}
+		}
+	}
+	finally {
+		watcher.close();
+		// Let running jobs finish
+		this.executor.shutdown();
+		while ( !this.executor.awaitTermination(1, TimeUnit.MINUTES) ) {
+			Message.printStatus ( 2, routine, "Waiting for running command file(s) to complete." );
+		}
+		if ( !this.jobQueue.isEmpty() ) {
+			Message.printStatus ( 2, routine, "" + this.jobQueue.size() + " queued command file(s) were not run and remain in the hot folder." );
+		}
+		this.journal.close();
+		File stopFile = new File(this.hotFolder, "stop");
+		if ( !stopFile.delete() ) {
+			// Try again in case the case of the file name is different
+			for ( File f : IOUtil.getFilesMatchingPattern(this.hotFolder.getAbsolutePath(), "*", true) ) {
+				if ( f.getName().equalsIgnoreCase("stop") ) {
+					f.delete();
+				}
+			}
+		}
+	}
+}
+
+/**
+Run a single job with a runner, called from a worker thread.
+Datastores that are opened on first use and that the command file uses are opened before the command file is read.
+The command file is removed from the hot folder when done and the runner is returned to the idle queue.
+@param runner the runner that is reserved for the job
+@param job the job to run
+*/
+void runJob ( TSCommandFileRunner runner, TSToolBatchServerJob job )
+{	String routine = getClass().getSimpleName() + ".runJob";
+	File f = job.getCommandFile();
+	String commandFileFull = f.getAbsolutePath();
+	StopWatch sw = new StopWatch();
+	sw.start();
+	boolean finishRecorded = false;
+	try {
+		this.journal.recordStart(job);
+		int exitStatus = 0;
+		// Open the command file...
+		boolean runDiscoveryOnLoad = false;
+		boolean readOk = false;
+		try {
+			Message.printStatus( 1, routine, "Running command file in batch server mode:  \"" + commandFileFull + "\"" );
+			// Open datastores that are used by the command file if they are opened on first use
+			TSToolLazyDataStores.openReferenced ( runner.getProcessor(), f );
+			runner.readCommandFile ( commandFileFull, runDiscoveryOnLoad );
+			readOk = true;
+		}
+		catch ( Exception e ) {
+			Message.printWarning ( 1, routine, "Error reading command file \"" + commandFileFull + "\".  Unable to run commands." );
+			Message.printWarning ( 1, routine, e );
+			exitStatus = 1;
+		}
+		// Run the command file..
+		int warningCount = 0;
+		int failureCount = 0;
+		if ( readOk ) {
+			try {
+				// The following will throw an exception if there are any errors running.
+				runner.runCommands();
+			}
+			catch ( Exception e ) {
+				Message.printWarning ( 1, routine, "Error running command file \"" + commandFileFull + "\"." );
+				Message.printWarning ( 1, routine, e );
+				exitStatus = 1;
+			}
+			// Count the commands with warning and failure as the highest severity
+			for ( Command command : runner.getProcessor().getCommands() ) {
+				if ( command instanceof CommandStatusProvider ) {
+					CommandStatusType severity = CommandStatusUtil.getHighestSeverity((CommandStatusProvider)command);
+					if ( severity.equals(CommandStatusType.FAILURE) ) {
+						++failureCount;
+					}
+					else if ( severity.equals(CommandStatusType.WARNING) ) {
+						++warningCount;
+					}
+				}
+			}
+		}
+		sw.stop();
+		// Record the finish before removing the files so that a restart after a failure removes the files
+		// rather than running the job again
+		this.journal.recordFinish(job, exitStatus, warningCount, failureCount, (long)sw.getMilliseconds());
+		finishRecorded = true;
+		deleteJobFiles ( f );
+		Message.printStatus( 2, routine, "Finished command file \"" + commandFileFull + "\" in " + sw.getMilliseconds() +
+			" ms, exit status " + exitStatus + ", " + warningCount + " warnings, " + failureCount + " failures." );
+	}
+	catch ( Throwable t ) {
+		// Should not happen but make sure the worker is not lost
+		Message.printWarning ( 1, routine, "Unexpected error processing command file \"" + commandFileFull + "\"." );
+		Message.printWarning ( 1, routine, t );
+		if ( !finishRecorded ) {
+			// The watcher will not return the file again so record the failure and move the file aside,
+			// rather than leaving it in the hot folder until the server is restarted
+			try {
+				sw.stop();
+				this.journal.recordFinish(job, 1, 0, 0, (long)sw.getMilliseconds());
+			}
+			catch ( Throwable t2 ) {
+				Message.printWarning ( 2, routine, "Unable to record failure of command file \"" + commandFileFull + "\" in journal." );
+			}
+		}
+		if ( f.exists() ) {
+			File renamed = new File(f.getPath() + FAILED_EXTENSION);
+			if ( f.renameTo(renamed) ) {
+				Message.printWarning ( 2, routine, "Renamed failed command file to \"" + renamed + "\"." );
+				TSToolBatchServerHotFolderWatcher.getReadyMarkerFile(f).delete();
+				TSToolBatchServerJob.getPriorityFile(f).delete();
+			}
+			else {
+				Message.printWarning ( 2, routine, "Unable to rename failed command file \"" + f + "\"." );
+			}
+		}
+	}
+	finally {
+		// Remove from the in-process set only after the file is deleted so it is not picked up again
+		this.inProcessFileSet.remove(commandFileFull);
+		this.idleRunnerQueue.add(runner);
+	}
+}
+
+/**
+Start a job on a worker.
+@param runner the idle runner to use for the job
+@param job the job to start
+*/
+private void startJob ( TSCommandFileRunner runner, TSToolBatchServerJob job )
+{	String routine = getClass().getSimpleName() + ".startJob";
+	Message.printStatus(2, routine, "Starting command file " + job + " (" +
+		this.idleRunnerQueue.size() + " of " + this.workerCount + " workers idle, " + this.jobQueue.size() + " jobs queued).");
+	this.executor.submit(() -> runJob(runner, job));
+}
+
+}
@@ -0,0 +1,385 @@
+// TSToolBatchServerHotFolderWatcher - watch the batch server hot folder for command files that are ready to run
+
+/* NoticeStart
+
+TSTool
+TSTool is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+TSTool is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TSTool is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TSTool.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package DWR.DMI.tstool;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import RTi.Util.Message.Message;
+
+/**
+Watch the batch server hot folder for command files that are ready to run.
+Ready command files are returned as TSToolBatchServerJob, which determines the priority and ordering.
+A WatchService is used so that the folder is not listed repeatedly.
+The full folder is only listed when the watcher is opened and when the WatchService indicates that events were lost (overflow).
+A command file is considered ready to run when:
+<ol>
+<li> a marker file with the same name and ".ready" appended exists (e.g., "job.tstool.ready"), or</li>
+<li> the file size and modification time have not changed for the stable time period
+(to avoid running a file that is still being copied into the hot folder).</li>
+</ol>
+This class is used by TSToolBatchServer from a single thread and is not thread-safe.
+*/
+public class TSToolBatchServerHotFolderWatcher
+{
+
+/**
+Extension appended to a command file name to indicate that the command file is completely written.
+*/
+public static final String READY_MARKER_EXTENSION = ".ready";
+
+/**
+Hot folder that is watched.
+*/
+private Path hotFolder = null;
+
+/**
+Watch service for the hot folder.
+*/
+private WatchService watchService = null;
+
+/**
+Command files that have been detected but are not yet ready to run, in the order detected.
+*/
+private Map<Path,PendingFile> pendingFileMap = new LinkedHashMap<>();
+
+/**
+Indicates whether a file named "stop" has been found in the hot folder.
+*/
+private boolean stopFound = false;
+
+/**
+Milliseconds that a command file size and modification time must be unchanged before the file is considered complete.
+*/
+private long stableMilliseconds = 1000;
+
+/**
+Construct the watcher.  Call open() to start watching.
+@param hotFolder the batch server hot folder
+*/
+public TSToolBatchServerHotFolderWatcher ( File hotFolder )
+{
+	this.hotFolder = hotFolder.getAbsoluteFile().toPath();
+}
+
+/**
+Add or update a pending command file.
+@param path path to the command file
+@param arrivalTime time that the file arrived in the hot folder (milliseconds)
+*/
+private void addPendingFile ( Path path, long arrivalTime )
+{
+	PendingFile pendingFile = this.pendingFileMap.get(path);
+	if ( pendingFile == null ) {
+		this.pendingFileMap.put(path, new PendingFile(arrivalTime));
+	}
+	else {
+		// File was modified so it must be stable again before it is run
+		pendingFile.lastChangeTime = System.currentTimeMillis();
+	}
+}
+
+/**
+Close the watcher.
+*/
+public void close ()
+{
+	if ( this.watchService != null ) {
+		try {
+			this.watchService.close();
+		}
+		catch ( IOException e ) {
+			// Ignore - should not happen
+		}
+	}
+}
+
+/**
+Return the list of jobs for command files that are ready to run and remove them from the pending list.
+If no files are ready, wait for hot folder events up to the requested time.
+@param waitMilliseconds maximum number of milliseconds to wait for a hot folder event when no files are ready
+@return list of jobs for command files that are ready to run, guaranteed non-null
+*/
+public List<TSToolBatchServerJob> getReadyJobs ( long waitMilliseconds )
+throws InterruptedException
+{
+	List<TSToolBatchServerJob> readyJobs = checkPendingFiles();
+	if ( !readyJobs.isEmpty() || this.stopFound ) {
+		return readyJobs;
+	}
+	// If files are pending, only wait long enough to check whether they have become stable
+	long wait = waitMilliseconds;
+	if ( !this.pendingFileMap.isEmpty() ) {
+		wait = Math.min(wait, Math.max(50, this.stableMilliseconds/2));
+	}
+	WatchKey key = null;
+	try {
+		key = this.watchService.poll(wait, TimeUnit.MILLISECONDS);
+	}
+	catch ( ClosedWatchServiceException e ) {
+		return readyJobs;
+	}
+	while ( key != null ) {
+		processWatchKey(key);
+		// Process other events that are already available without waiting
+		key = this.watchService.poll();
+	}
+	return checkPendingFiles();
+}
+
+/**
+Check the pending command files and return jobs for those that are ready to run, removing them from the pending list.
+@return list of jobs for command files that are ready to run
+*/
+private List<TSToolBatchServerJob> checkPendingFiles ()
+{	String routine = getClass().getSimpleName() + ".checkPendingFiles";
+	List<TSToolBatchServerJob> readyJobs = new ArrayList<>();
+	long now = System.currentTimeMillis();
+	Iterator<Map.Entry<Path,PendingFile>> it = this.pendingFileMap.entrySet().iterator();
+	while ( it.hasNext() ) {
+		Map.Entry<Path,PendingFile> entry = it.next();
+		Path path = entry.getKey();
+		PendingFile pendingFile = entry.getValue();
+		File f = path.toFile();
+		if ( !f.exists() ) {
+			// File was removed before it was run
+			it.remove();
+			continue;
+		}
+		if ( now < pendingFile.retryTime ) {
+			// File could not be read when last ready so wait before trying again
+			continue;
+		}
+		if ( getReadyMarkerFile(f).exists() ) {
+			Message.printStatus(2, routine, "Command file \"" + f + "\" has ready marker file.");
+			readyJobs.add(new TSToolBatchServerJob(f, pendingFile.arrivalTime));
+			it.remove();
+			continue;
+		}
+		long size = f.length();
+		long lastModified = f.lastModified();
+		if ( (size != pendingFile.size) || (lastModified != pendingFile.lastModified) ) {
+			// Still changing
+			pendingFile.size = size;
+			pendingFile.lastModified = lastModified;
+			pendingFile.lastChangeTime = now;
+		}
+		else if ( (now - pendingFile.lastChangeTime) >= this.stableMilliseconds ) {
+			Message.printStatus(2, routine, "Command file \"" + f + "\" size is stable (" + size + " bytes).");
+			readyJobs.add(new TSToolBatchServerJob(f, pendingFile.arrivalTime));
+			it.remove();
+		}
+	}
+	return readyJobs;
+}
+
+/**
+Return the ready marker file for a command file.
+@param commandFile command file
+@return the marker file that indicates the command file is completely written
+*/
+public static File getReadyMarkerFile ( File commandFile )
+{
+	return new File(commandFile.getPath() + READY_MARKER_EXTENSION);
+}
+
+/**
+Indicate whether a file named "stop" was found in the hot folder.
+@return true if the stop file was found
+*/
+public boolean isStopFound ()
+{
+	return this.stopFound;
+}
+
+/**
+Indicate whether a path is a command file.
+@param path path to check
+@return true if the path is a command file (*.tstool)
+*/
+private boolean isCommandFile ( Path path )
+{
+	return path.getFileName().toString().toUpperCase().endsWith(".TSTOOL");
+}
+
+/**
+Open the watcher, which registers with the WatchService and does a full scan of the hot folder
+so that files that existed before the server started are processed.
+*/
+public void open ()
+throws IOException
+{	String routine = getClass().getSimpleName() + ".open";
+	this.watchService = FileSystems.getDefault().newWatchService();
+	// Register before scanning so that files created during the scan are not missed
+	this.hotFolder.register(this.watchService,
+		StandardWatchEventKinds.ENTRY_CREATE,
+		StandardWatchEventKinds.ENTRY_MODIFY);
+	Message.printStatus(2, routine, "Watching batch server hot folder \"" + this.hotFolder + "\"." );
+	scanHotFolder();
+}
+
+/**
+Process the events for a watch key.
+@param key the watch key that was signaled
+*/
+private void processWatchKey ( WatchKey key )
+{	String routine = getClass().getSimpleName() + ".processWatchKey";
+	for ( WatchEvent<?> event : key.pollEvents() ) {
+		WatchEvent.Kind<?> kind = event.kind();
+		if ( kind == StandardWatchEventKinds.OVERFLOW ) {
+			// Events were lost so need to look at the full folder
+			Message.printStatus(2, routine, "Hot folder events overflowed.  Rescanning hot folder.");
+			scanHotFolder();
+			continue;
+		}
+		Path path = this.hotFolder.resolve((Path)event.context());
+		processPath ( path, System.currentTimeMillis() );
+	}
+	if ( !key.reset() ) {
+		// The hot folder is no longer accessible, for example it was removed
+		Message.printWarning(2, routine, "Hot folder \"" + this.hotFolder + "\" is no longer accessible." );
+	}
+}
+
+/**
+Process a path that was found in the hot folder.
+@param path full path to a file in the hot folder
+@param arrivalTime time that the file arrived in the hot folder (milliseconds)
+*/
+private void processPath ( Path path, long arrivalTime )
+{
+	String filename = path.getFileName().toString();
+	if ( filename.equalsIgnoreCase("stop") ) {
+		this.stopFound = true;
+	}
+	else if ( isCommandFile(path) ) {
+		addPendingFile(path, arrivalTime);
+	}
+	else if ( filename.toLowerCase().endsWith(READY_MARKER_EXTENSION) ) {
+		// Ready marker - make sure the command file is pending in case its events were missed
+		Path commandPath = this.hotFolder.resolve(filename.substring(0, filename.length() - READY_MARKER_EXTENSION.length()));
+		if ( isCommandFile(commandPath) && Files.exists(commandPath) ) {
+			addPendingFile(commandPath, arrivalTime);
+		}
+	}
+	// Other files are ignored
+}
+
+/**
+Scan the full hot folder, which is done at startup and after an overflow event.
+*/
+private void scanHotFolder ()
+{	String routine = getClass().getSimpleName() + ".scanHotFolder";
+	try ( DirectoryStream<Path> stream = Files.newDirectoryStream(this.hotFolder) ) {
+		for ( Path path : stream ) {
+			if ( Files.isRegularFile(path) ) {
+				// Use the modification time as the arrival time so that the oldest files are run first
+				processPath ( path, path.toFile().lastModified() );
+			}
+		}
+	}
+	catch ( IOException e ) {
+		Message.printWarning(2, routine, "Error listing hot folder \"" + this.hotFolder + "\" (" + e + ")." );
+	}
+}
+
+/**
+Return a job to the pending list because its command file could not be read when it was ready,
+for example because the program that copied the file still has it locked.
+The job is returned by getReadyJobs() again after the stable time, with its original arrival time.
+@param job the job that could not be queued
+*/
+public void retryJob ( TSToolBatchServerJob job )
+{
+	Path path = job.getCommandFile().getAbsoluteFile().toPath();
+	PendingFile pendingFile = new PendingFile(job.getArrivalTime());
+	pendingFile.retryTime = System.currentTimeMillis() + this.stableMilliseconds;
+	this.pendingFileMap.put(path, pendingFile);
+}
+
+/**
+Set the number of milliseconds that a command file must be unchanged before it is considered complete.
+@param stableMilliseconds milliseconds that a file size and modification time must be unchanged
+*/
+public void setStableMilliseconds ( long stableMilliseconds )
+{
+	this.stableMilliseconds = stableMilliseconds;
+}
+
+/**
+Information about a command file that has been detected but is not yet ready to run.
+*/
+private class PendingFile
+{
+	/**
+	File size when last checked, -1 if not yet checked.
+	*/
+	long size = -1;
+
+	/**
+	File modification time when last checked, -1 if not yet checked.
+	*/
+	long lastModified = -1;
+
+	/**
+	Time (milliseconds) that the file size or modification time last changed.
+	*/
+	long lastChangeTime = System.currentTimeMillis();
+
+	/**
+	Time (milliseconds) that the file arrived in the hot folder, used to run the oldest files first.
+	*/
+	long arrivalTime = 0;
+
+	/**
+	Time (milliseconds) before which the file is not checked, used when a ready file could not be read.
+	*/
+	long retryTime = 0;
+
+	/**
+	Constructor.
+	@param arrivalTime time that the file arrived in the hot folder (milliseconds)
+	*/
+	PendingFile ( long arrivalTime )
+	{
+		this.arrivalTime = arrivalTime;
+	}
+}
+
+}
@@ -0,0 +1,246 @@
+// TSToolBatchServerJob - a command file job in the batch server queue
+
+/* NoticeStart
+
+TSTool
+TSTool is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+TSTool is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TSTool is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TSTool.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package DWR.DMI.tstool;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import RTi.Util.Message.Message;
+
+/**
+A command file job in the batch server queue.
+Jobs are ordered by priority (smaller number runs first) and then by arrival time (oldest runs first).
+The priority is determined from, in order of precedence:
+<ol>
+<li> a sidecar file with the same name and ".priority" appended (e.g., "job.tstool.priority"),
+containing the priority number</li>
+<li> a filename that starts with "pN_" or "pN-" (e.g., "p1_daily-report.tstool")</li>
+<li> the default priority (5)</li>
+</ol>
+A job is identified by its path, size and modification time so that a new command file with the same name
+as a previous job is treated as a new job.
+*/
+public class TSToolBatchServerJob implements Comparable<TSToolBatchServerJob>
+{
+
+/**
+Default priority when not specified.
+*/
+public static final int DEFAULT_PRIORITY = 5;
+
+/**
+Extension appended to a command file name for the priority sidecar file.
+*/
+public static final String PRIORITY_EXTENSION = ".priority";
+
+/**
+Pattern to match priority at the front of a filename, for example "p1_".
+*/
+private static final Pattern PRIORITY_PATTERN = Pattern.compile("^[pP](\\d+)[_-].*");
+
+/**
+Counter used to make sure that ordering is stable for jobs with the same priority and arrival time.
+*/
+private static long sequenceCounter = 0;
+
+/**
+Command file.
+*/
+private File commandFile = null;
+
+/**
+Priority, smaller number runs first.
+*/
+private int priority = DEFAULT_PRIORITY;
+
+/**
+Arrival time (milliseconds) used for first-in first-out ordering.
+*/
+private long arrivalTime = 0;
+
+/**
+Sequence number, to order jobs that otherwise compare equal.
+*/
+private long sequence = 0;
+
+/**
+Command file size when the job was queued.
+*/
+private long size = 0;
+
+/**
+Command file modification time when the job was queued.
+*/
+private long lastModified = 0;
+
+/**
+Create a job for a command file.
+@param commandFile command file to run
+@param arrivalTime time that the command file arrived in the hot folder (milliseconds)
+*/
+public TSToolBatchServerJob ( File commandFile, long arrivalTime )
+{
+	this.commandFile = commandFile.getAbsoluteFile();
+	this.arrivalTime = arrivalTime;
+	this.size = commandFile.length();
+	this.lastModified = commandFile.lastModified();
+	this.priority = readPriority(commandFile);
+	synchronized ( TSToolBatchServerJob.class ) {
+		this.sequence = ++sequenceCounter;
+	}
+}
+
+/**
+Compare jobs for ordering in the queue.
+*/
+@Override
+public int compareTo ( TSToolBatchServerJob other )
+{
+	if ( this.priority != other.priority ) {
+		return Integer.compare(this.priority, other.priority);
+	}
+	if ( this.arrivalTime != other.arrivalTime ) {
+		return Long.compare(this.arrivalTime, other.arrivalTime);
+	}
+	return Long.compare(this.sequence, other.sequence);
+}
+
+/**
+Return the arrival time.
+@return the arrival time (milliseconds)
+*/
+public long getArrivalTime ()
+{
+	return this.arrivalTime;
+}
+
+/**
+Return the command file.
+@return the command file (absolute path)
+*/
+public File getCommandFile ()
+{
+	return this.commandFile;
+}
+
+/**
+Return the key that identifies the job in the journal.
+@return the job key, which uses the command file path, size, and modification time
+*/
+public String getJobKey ()
+{
+	return getJobKey ( this.commandFile.getPath(), this.size, this.lastModified );
+}
+
+/**
+Return the key that identifies a job in the journal.
+@param path command file path
+@param size command file size
+@param lastModified command file modification time
+@return the job key
+*/
+public static String getJobKey ( String path, long size, long lastModified )
+{
+	return path + "|" + size + "|" + lastModified;
+}
+
+/**
+Return the command file modification time when the job was queued.
+@return the command file modification time
+*/
+public long getLastModified ()
+{
+	return this.lastModified;
+}
+
+/**
+Return the priority sidecar file for a command file.
+@param commandFile command file
+@return the sidecar file that can contain the priority
+*/
+public static File getPriorityFile ( File commandFile )
+{
+	return new File(commandFile.getPath() + PRIORITY_EXTENSION);
+}
+
+/**
+Return the priority.
+@return the priority (smaller number runs first)
+*/
+public int getPriority ()
+{
+	return this.priority;
+}
+
+/**
+Return the command file size when the job was queued.
+@return the command file size in bytes
+*/
+public long getSize ()
+{
+	return this.size;
+}
+
+/**
+Determine the priority for a command file.
+@param commandFile command file
+@return the priority
+*/
+private static int readPriority ( File commandFile )
+{	String routine = TSToolBatchServerJob.class.getSimpleName() + ".readPriority";
+	File priorityFile = getPriorityFile(commandFile);
+	if ( priorityFile.exists() ) {
+		try {
+			String contents = new String(Files.readAllBytes(priorityFile.toPath()), StandardCharsets.UTF_8).trim();
+			return Integer.parseInt(contents);
+		}
+		catch ( Exception e ) {
+			Message.printWarning(2, routine, "Error reading priority from \"" + priorityFile + "\" (" + e + ") - using filename or default." );
+		}
+	}
+	Matcher m = PRIORITY_PATTERN.matcher(commandFile.getName());
+	if ( m.matches() ) {
+		try {
+			return Integer.parseInt(m.group(1));
+		}
+		catch ( NumberFormatException e ) {
+			// Too many digits - use the default
+		}
+	}
+	return DEFAULT_PRIORITY;
+}
+
+/**
+Return a string representation of the job, used in messages.
+*/
+@Override
+public String toString ()
+{
+	return "\"" + this.commandFile + "\" (priority " + this.priority + ")";
+}
+
+}
@@ -0,0 +1,278 @@
+// TSToolBatchServerJournal - append-only journal of batch server jobs
+
+/* NoticeStart
+
+TSTool
+TSTool is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+TSTool is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TSTool is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TSTool.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package DWR.DMI.tstool;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import RTi.Util.Message.Message;
+
+/**
+Append-only journal of batch server jobs, used to resume after the batch server is restarted.
+Each line in the journal is tab-delimited:
+<pre>
+Timestamp  Record  CommandFile  Size  LastModified  [Name=Value ...]
+</pre>
+where Record is one of:
+<ul>
+<li> START - the job was started, with Priority</li>
+<li> FINISH - the job completed, with ExitStatus, WarningCount, FailureCount, ElapsedMs</li>
+<li> INTERRUPTED - the job was started but the batch server stopped before the job finished</li>
+</ul>
+A job is identified by command file path, size and modification time (see TSToolBatchServerJob.getJobKey()).
+Lines starting with # are comments.
+*/
+public class TSToolBatchServerJournal
+{
+
+/**
+Record type for a job start.
+*/
+public static final String START = "START";
+
+/**
+Record type for a job finish.
+*/
+public static final String FINISH = "FINISH";
+
+/**
+Record type for a job that did not finish because the server stopped.
+*/
+public static final String INTERRUPTED = "INTERRUPTED";
+
+/**
+Journal file.
+*/
+private File journalFile = null;
+
+/**
+Writer for the journal, opened in append mode.
+*/
+private PrintWriter journalWriter = null;
+
+/**
+Output stream for the journal, used to force records to disk.
+*/
+private FileOutputStream journalStream = null;
+
+/**
+Keys for jobs that have finished or were interrupted, which must not be run again.
+*/
+private Set<String> doneJobKeySet = new HashSet<>();
+
+/**
+Jobs that were started in a previous run but not finished, key is job key and value is the START record fields.
+*/
+private Map<String,String[]> unfinishedJobMap = new LinkedHashMap<>();
+
+/**
+Construct a journal.  Call open() to read previous records and open for appending.
+@param journalFile the journal file
+*/
+public TSToolBatchServerJournal ( File journalFile )
+{
+	this.journalFile = journalFile;
+}
+
+/**
+Close the journal.
+*/
+public synchronized void close ()
+{
+	if ( this.journalWriter != null ) {
+		this.journalWriter.close();
+		this.journalWriter = null;
+	}
+}
+
+/**
+Return the journal file.
+@return the journal file
+*/
+public File getJournalFile ()
+{
+	return this.journalFile;
+}
+
+/**
+Close out jobs that were started in a previous run of the batch server but did not finish,
+by writing an INTERRUPTED record for each so that the jobs are not run again.
+@return list of command files for the interrupted jobs that still exist and have not changed since started,
+in the order started
+*/
+public synchronized List<File> closeUnfinishedJobs ()
+{	String routine = getClass().getSimpleName() + ".closeUnfinishedJobs";
+	List<File> files = new ArrayList<>();
+	for ( Map.Entry<String,String[]> entry : this.unfinishedJobMap.entrySet() ) {
+		String [] fields = entry.getValue();
+		File f = new File(fields[2]);
+		long size = Long.parseLong(fields[3]);
+		long lastModified = Long.parseLong(fields[4]);
+		Message.printWarning(2, routine, "Command file \"" + f + "\" was started but did not finish.  Will not run again." );
+		writeRecord ( INTERRUPTED, fields[2], size, lastModified );
+		this.doneJobKeySet.add(entry.getKey());
+		if ( f.exists() && (f.length() == size) && (f.lastModified() == lastModified) ) {
+			files.add(f);
+		}
+	}
+	this.unfinishedJobMap.clear();
+	return files;
+}
+
+/**
+Indicate whether a job has finished (or was interrupted) and therefore must not be run again.
+@param job the job to check
+@return true if the job is done
+*/
+public synchronized boolean isJobDone ( TSToolBatchServerJob job )
+{
+	return this.doneJobKeySet.contains(job.getJobKey());
+}
+
+/**
+Read the existing journal records and open the journal for appending.
+*/
+public synchronized void open ()
+throws IOException
+{	String routine = getClass().getSimpleName() + ".open";
+	if ( this.journalFile.exists() ) {
+		int recordCount = 0;
+		try ( BufferedReader in = Files.newBufferedReader(this.journalFile.toPath(), StandardCharsets.UTF_8) ) {
+			String line;
+			while ( (line = in.readLine()) != null ) {
+				if ( line.isEmpty() || line.startsWith("#") ) {
+					continue;
+				}
+				String [] fields = line.split("\t");
+				String jobKey = null;
+				try {
+					jobKey = getJobKey(fields);
+				}
+				catch ( Exception e ) {
+					// Partial line, for example if the server was killed while writing
+					continue;
+				}
+				++recordCount;
+				if ( fields[1].equals(START) ) {
+					this.unfinishedJobMap.put(jobKey, fields);
+				}
+				else if ( fields[1].equals(FINISH) || fields[1].equals(INTERRUPTED) ) {
+					this.unfinishedJobMap.remove(jobKey);
+					this.doneJobKeySet.add(jobKey);
+				}
+			}
+		}
+		Message.printStatus(2, routine, "Read " + recordCount + " records from batch server journal \"" + this.journalFile +
+			"\", " + this.doneJobKeySet.size() + " jobs are done, " + this.unfinishedJobMap.size() + " were not finished." );
+	}
+	boolean isNew = !this.journalFile.exists();
+	this.journalStream = new FileOutputStream(this.journalFile, true);
+	this.journalWriter = new PrintWriter(new OutputStreamWriter(this.journalStream, StandardCharsets.UTF_8));
+	if ( isNew ) {
+		this.journalWriter.println("# TSTool batch server journal");
+		this.journalWriter.println("# Timestamp\tRecord\tCommandFile\tSize\tLastModified\t[Name=Value...]");
+		this.journalWriter.flush();
+	}
+}
+
+/**
+Return the job key for journal fields.
+@param fields journal record fields
+@return job key
+*/
+private String getJobKey ( String [] fields )
+{
+	return TSToolBatchServerJob.getJobKey(fields[2], Long.parseLong(fields[3]), Long.parseLong(fields[4]));
+}
+
+/**
+Record that a job finished.
+@param job the job
+@param exitStatus exit status (0 if successful, 1 if the command file could not be read or had an error running)
+@param warningCount number of commands with warning as the highest severity
+@param failureCount number of commands with failure as the highest severity
+@param elapsedMs elapsed time for the job in milliseconds
+*/
+public synchronized void recordFinish ( TSToolBatchServerJob job, int exitStatus, int warningCount, int failureCount, long elapsedMs )
+{
+	writeRecord ( FINISH, job.getCommandFile().getPath(), job.getSize(), job.getLastModified(),
+		"ExitStatus=" + exitStatus, "WarningCount=" + warningCount, "FailureCount=" + failureCount, "ElapsedMs=" + elapsedMs );
+	this.doneJobKeySet.add(job.getJobKey());
+}
+
+/**
+Record that a job started.
+@param job the job
+*/
+public synchronized void recordStart ( TSToolBatchServerJob job )
+{
+	writeRecord ( START, job.getCommandFile().getPath(), job.getSize(), job.getLastModified(), "Priority=" + job.getPriority() );
+}
+
+/**
+Append a record to the journal and force it to disk so that the record is not lost if the server stops.
+@param record record type
+@param path command file path
+@param size command file size
+@param lastModified command file modification time
+@param properties additional Name=Value properties
+*/
+private void writeRecord ( String record, String path, long size, long lastModified, String ... properties )
+{	String routine = getClass().getSimpleName() + ".writeRecord";
+	if ( this.journalWriter == null ) {
+		return;
+	}
+	StringBuilder b = new StringBuilder();
+	b.append(Instant.now().toString());
+	b.append("\t").append(record);
+	b.append("\t").append(path);
+	b.append("\t").append(size);
+	b.append("\t").append(lastModified);
+	for ( String property : properties ) {
+		b.append("\t").append(property);
+	}
+	this.journalWriter.println(b.toString());
+	this.journalWriter.flush();
+	try {
+		this.journalStream.getFD().sync();
+	}
+	catch ( IOException e ) {
+		Message.printWarning(3, routine, "Error syncing batch server journal \"" + this.journalFile + "\" (" + e + ")." );
+	}
+}
+
+}
@@ -0,0 +1,549 @@
+// TSToolColumnStore - column-oriented copy of the displayed fields for query results table models
+
+/* NoticeStart
+
+TSTool
+TSTool is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+TSTool is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TSTool is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TSTool.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package DWR.DMI.tstool;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoublePredicate;
+import java.util.function.Function;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+
+import RTi.Util.String.StringUtil;
+
+/**
+Column-oriented store for the fields that are displayed by the TSTool_*_TableModel classes.
+The fields are copied from the query result objects into one array per column when the table model is created,
+so that the query result objects can be released.
+Integer and double columns are stored as primitive arrays and are only converted to strings when displayed.
+String columns share equal strings within the column, which saves memory for repeated values such as data type,
+time step, county, and data source.
+Columns that are not displayed can also be stored, for example to format an identifier from several fields.
+Sort indexes are built for a column the first time the column is sorted, using comparisons of the stored values,
+and are kept until the column is set again.
+*/
+public class TSToolColumnStore
+{
+
+/**
+Column type for a column that has not been set.
+*/
+public static final int COLUMN_NONE = 0;
+
+/**
+Column type for string columns.
+*/
+public static final int COLUMN_STRING = 1;
+
+/**
+Column type for integer columns.
+*/
+public static final int COLUMN_INT = 2;
+
+/**
+Column type for double columns.
+*/
+public static final int COLUMN_DOUBLE = 3;
+
+/**
+Number of rows.
+*/
+private int rowCount;
+
+/**
+Column types, using COLUMN_*.
+*/
+private int [] columnTypes;
+
+/**
+String column values, null for other column types.
+*/
+private String [][] stringColumns;
+
+/**
+Integer column values, null for other column types.
+*/
+private int [][] intColumns;
+
+/**
+Double column values, null for other column types.
+*/
+private double [][] doubleColumns;
+
+/**
+Missing values for integer and double columns, null for string columns or if no values are missing.
+*/
+private BitSet [] missingColumns;
+
+/**
+Display format for double columns, as used by StringUtil.formatString().
+*/
+private String [] formats;
+
+/**
+Ascending sort index for each column, with missing values last, or null if not built.
+*/
+private int [][] sortIndexes;
+
+/**
+Number of missing values in each column, set when the sort index is built.
+*/
+private int [] sortMissingCounts;
+
+/**
+Create a store.  Set each column with the set*Column() methods.
+@param rowCount number of rows
+@param columnCount number of columns, including columns that are not displayed
+*/
+public TSToolColumnStore ( int rowCount, int columnCount )
+{
+	this.rowCount = rowCount;
+	this.columnTypes = new int[columnCount];
+	this.stringColumns = new String[columnCount][];
+	this.intColumns = new int[columnCount][];
+	this.doubleColumns = new double[columnCount][];
+	this.missingColumns = new BitSet[columnCount];
+	this.formats = new String[columnCount];
+	this.sortIndexes = new int[columnCount][];
+	this.sortMissingCounts = new int[columnCount];
+}
+
+/**
+Indicate whether the displayed value contains text, ignoring case.
+@param row row (0+)
+@param col column (0+)
+@param lowerCaseText text to find, in lower case
+@return true if the displayed value contains the text
+*/
+public boolean contains ( int row, int col, String lowerCaseText )
+{
+	Object value = getValue(row, col);
+	return (value != null) && value.toString().toLowerCase().contains(lowerCaseText);
+}
+
+/**
+Return a comparator for two rows of a column, with missing values last.
+*/
+private IntBinaryOperator createComparator ( final int col )
+{
+	switch ( this.columnTypes[col] ) {
+		case COLUMN_STRING:
+			final String [] strings = this.stringColumns[col];
+			return (row1, row2) -> {
+				String s1 = strings[row1];
+				String s2 = strings[row2];
+				if ( s1 == null ) {
+					return (s2 == null) ? 0 : 1;
+				}
+				else if ( s2 == null ) {
+					return -1;
+				}
+				return s1.compareToIgnoreCase(s2);
+			};
+		case COLUMN_INT:
+			final int [] ints = this.intColumns[col];
+			return (row1, row2) -> {
+				boolean missing1 = isMissing(row1, col);
+				boolean missing2 = isMissing(row2, col);
+				if ( missing1 || missing2 ) {
+					return Boolean.compare(missing1, missing2);
+				}
+				return Integer.compare(ints[row1], ints[row2]);
+			};
+		case COLUMN_DOUBLE:
+			final double [] doubles = this.doubleColumns[col];
+			return (row1, row2) -> {
+				boolean missing1 = isMissing(row1, col);
+				boolean missing2 = isMissing(row2, col);
+				if ( missing1 || missing2 ) {
+					return Boolean.compare(missing1, missing2);
+				}
+				return Double.compare(doubles[row1], doubles[row2]);
+			};
+		default:
+			return (row1, row2) -> 0;
+	}
+}
+
+/**
+Return the rows that pass a filter.
+@param rows rows to check, in order, or null to check all rows in data order
+@param filter filter that is called with each row (0+) and returns true to include the row
+@return the rows that pass the filter, in the order of the rows that were checked
+*/
+public int [] filterRows ( int [] rows, IntPredicate filter )
+{
+	int count = (rows == null) ? this.rowCount : rows.length;
+	int [] filteredRows = new int[count];
+	int filteredCount = 0;
+	for ( int i = 0; i < count; i++ ) {
+		int row = (rows == null) ? i : rows[i];
+		if ( filter.test(row) ) {
+			filteredRows[filteredCount++] = row;
+		}
+	}
+	return Arrays.copyOf(filteredRows, filteredCount);
+}
+
+/**
+Return the number of columns.
+@return the number of columns, including columns that are not displayed
+*/
+public int getColumnCount ()
+{
+	return this.columnTypes.length;
+}
+
+/**
+Return the column type.
+@param col column (0+)
+@return the column type, using COLUMN_*
+*/
+public int getColumnType ( int col )
+{
+	return this.columnTypes[col];
+}
+
+/**
+Return a double value.
+@param row row (0+)
+@param col double column (0+)
+@return the value, which may be a missing value (see isMissing())
+*/
+public double getDouble ( int row, int col )
+{
+	return this.doubleColumns[col][row];
+}
+
+/**
+Return an integer value.
+@param row row (0+)
+@param col integer column (0+)
+@return the value, which may be a missing value (see isMissing())
+*/
+public int getInt ( int row, int col )
+{
+	return this.intColumns[col][row];
+}
+
+/**
+Return the rows sorted by a column, with missing values last.
+The ascending index is built the first time that the column is sorted and is then reused.
+@param col column (0+)
+@param ascending true to sort ascending, false to sort descending
+(equal values are in their original order for both directions)
+@return the rows (0+) in sorted order
+*/
+public synchronized int [] getSortIndex ( int col, boolean ascending )
+{
+	if ( this.sortIndexes[col] == null ) {
+		int [] rows = new int[this.rowCount];
+		for ( int row = 0; row < this.rowCount; row++ ) {
+			rows[row] = row;
+		}
+		sortRows ( rows, createComparator(col) );
+		int missingCount = 0;
+		for ( int row = 0; row < this.rowCount; row++ ) {
+			if ( isMissing(row, col) ) {
+				++missingCount;
+			}
+		}
+		this.sortIndexes[col] = rows;
+		this.sortMissingCounts[col] = missingCount;
+	}
+	int [] rows = this.sortIndexes[col].clone();
+	if ( !ascending ) {
+		// Reverse the values that are not missing so that missing values remain last
+		int last = this.rowCount - this.sortMissingCounts[col] - 1;
+		reverseRows ( rows, 0, last );
+		// Reverse each run of equal values again so that equal values stay in their original order
+		IntBinaryOperator comparator = createComparator(col);
+		int start = 0;
+		for ( int i = 1; i <= (last + 1); i++ ) {
+			if ( (i > last) || (comparator.applyAsInt(rows[start], rows[i]) != 0) ) {
+				reverseRows ( rows, start, i - 1 );
+				start = i;
+			}
+		}
+	}
+	return rows;
+}
+
+/**
+Return the number of rows.
+@return the number of rows
+*/
+public int getRowCount ()
+{
+	return this.rowCount;
+}
+
+/**
+Return a string value.
+@param row row (0+)
+@param col string column (0+)
+@return the value, may be null
+*/
+public String getString ( int row, int col )
+{
+	return this.stringColumns[col][row];
+}
+
+/**
+Return the value to display.  Integer values are formatted as integers and double values
+are formatted with the column format.  Missing values are returned as an empty string.
+@param row row (0+)
+@param col column (0+)
+@return the value to display
+*/
+public Object getValue ( int row, int col )
+{
+	switch ( this.columnTypes[col] ) {
+		case COLUMN_STRING:
+			return this.stringColumns[col][row];
+		case COLUMN_INT:
+			if ( isMissing(row, col) ) {
+				return "";
+			}
+			return Integer.toString(this.intColumns[col][row]);
+		case COLUMN_DOUBLE:
+			if ( isMissing(row, col) ) {
+				return "";
+			}
+			return StringUtil.formatString(this.doubleColumns[col][row], this.formats[col]);
+		default:
+			return "";
+	}
+}
+
+/**
+Indicate whether a number is in a range.
+@param row row (0+)
+@param col integer or double column (0+)
+@param min minimum value, or NaN if no minimum
+@param max maximum value, or NaN if no maximum
+@return true if the value is not missing and is in the range, false if missing, out of range, or a string column
+*/
+public boolean isInRange ( int row, int col, double min, double max )
+{
+	double value;
+	if ( this.columnTypes[col] == COLUMN_INT ) {
+		value = this.intColumns[col][row];
+	}
+	else if ( this.columnTypes[col] == COLUMN_DOUBLE ) {
+		value = this.doubleColumns[col][row];
+	}
+	else {
+		return false;
+	}
+	if ( isMissing(row, col) ) {
+		return false;
+	}
+	return (Double.isNaN(min) || (value >= min)) && (Double.isNaN(max) || (value <= max));
+}
+
+/**
+Indicate whether a value is missing.
+@param row row (0+)
+@param col column (0+)
+@return true if an integer or double value is missing, or a string value is null
+*/
+public boolean isMissing ( int row, int col )
+{
+	if ( this.columnTypes[col] == COLUMN_STRING ) {
+		return this.stringColumns[col][row] == null;
+	}
+	BitSet missing = this.missingColumns[col];
+	return (missing != null) && missing.get(row);
+}
+
+/**
+Set a double column.
+@param col column (0+)
+@param data query result objects, in row order
+@param value function that returns the value for an object
+@param isMissing function that indicates whether a value is missing
+@param format display format, as used by StringUtil.formatString(), for example "%.3f"
+@param <T> query result object type
+*/
+public <T> void setDoubleColumn ( int col, List<T> data, ToDoubleFunction<T> value, DoublePredicate isMissing,
+	String format )
+{
+	double [] values = new double[this.rowCount];
+	BitSet missing = null;
+	for ( int row = 0; row < this.rowCount; row++ ) {
+		values[row] = value.applyAsDouble(data.get(row));
+		if ( isMissing.test(values[row]) ) {
+			if ( missing == null ) {
+				missing = new BitSet(this.rowCount);
+			}
+			missing.set(row);
+		}
+	}
+	this.columnTypes[col] = COLUMN_DOUBLE;
+	this.sortIndexes[col] = null;
+	this.doubleColumns[col] = values;
+	this.missingColumns[col] = missing;
+	this.formats[col] = format;
+}
+
+/**
+Set an integer column.
+@param col column (0+)
+@param data query result objects, in row order
+@param value function that returns the value for an object
+@param isMissing function that indicates whether a value is missing
+@param <T> query result object type
+*/
+public <T> void setIntColumn ( int col, List<T> data, ToIntFunction<T> value, IntPredicate isMissing )
+{
+	int [] values = new int[this.rowCount];
+	BitSet missing = null;
+	for ( int row = 0; row < this.rowCount; row++ ) {
+		values[row] = value.applyAsInt(data.get(row));
+		if ( isMissing.test(values[row]) ) {
+			if ( missing == null ) {
+				missing = new BitSet(this.rowCount);
+			}
+			missing.set(row);
+		}
+	}
+	this.columnTypes[col] = COLUMN_INT;
+	this.sortIndexes[col] = null;
+	this.intColumns[col] = values;
+	this.missingColumns[col] = missing;
+}
+
+/**
+Set a string column.  Equal strings in the column share one instance.
+@param col column (0+)
+@param data query result objects, in row order
+@param value function that returns the value for an object (may return null)
+@param <T> query result object type
+*/
+public <T> void setStringColumn ( int col, List<T> data, Function<T,String> value )
+{
+	String [] values = new String[this.rowCount];
+	Map<String,String> shared = new HashMap<>();
+	for ( int row = 0; row < this.rowCount; row++ ) {
+		String s = value.apply(data.get(row));
+		if ( s != null ) {
+			String s2 = shared.putIfAbsent(s, s);
+			if ( s2 != null ) {
+				s = s2;
+			}
+		}
+		values[row] = s;
+	}
+	setStringColumn ( col, values );
+}
+
+/**
+Set a string column from values that are computed for each row, for example from other columns.
+Equal strings in the column share one instance.
+@param col column (0+)
+@param value function that returns the value for a row (0+), may return null
+*/
+public void setStringColumn ( int col, IntFunction<String> value )
+{
+	String [] values = new String[this.rowCount];
+	Map<String,String> shared = new HashMap<>();
+	for ( int row = 0; row < this.rowCount; row++ ) {
+		String s = value.apply(row);
+		if ( s != null ) {
+			String s2 = shared.putIfAbsent(s, s);
+			if ( s2 != null ) {
+				s = s2;
+			}
+		}
+		values[row] = s;
+	}
+	setStringColumn ( col, values );
+}
+
+/**
+Reverse the order of a range of rows.
+@param rows rows to reverse
+@param first first position to reverse (0+)
+@param last last position to reverse (0+)
+*/
+private static void reverseRows ( int [] rows, int first, int last )
+{
+	for ( int i = first, j = last; i < j; i++, j-- ) {
+		int row = rows[i];
+		rows[i] = rows[j];
+		rows[j] = row;
+	}
+}
+
+/**
+Set a string column.
+*/
+private synchronized void setStringColumn ( int col, String [] values )
+{
+	this.columnTypes[col] = COLUMN_STRING;
+	this.stringColumns[col] = values;
+	this.sortIndexes[col] = null;
+}
+
+/**
+Sort rows using a merge sort, which keeps the order of equal rows.
+@param rows rows to sort
+@param comparator comparator for two rows, returning a negative number, zero, or positive number
+as for Comparator.compare()
+*/
+public static void sortRows ( int [] rows, IntBinaryOperator comparator )
+{
+	int [] work = new int[rows.length];
+	for ( int width = 1; width < rows.length; width *= 2 ) {
+		for ( int start = 0; start < rows.length; start += 2*width ) {
+			int mid = Math.min(start + width, rows.length);
+			int end = Math.min(start + 2*width, rows.length);
+			int i = start, j = mid, k = start;
+			while ( (i < mid) && (j < end) ) {
+				if ( comparator.applyAsInt(rows[j], rows[i]) < 0 ) {
+					work[k++] = rows[j++];
+				}
+				else {
+					work[k++] = rows[i++];
+				}
+			}
+			while ( i < mid ) {
+				work[k++] = rows[i++];
+			}
+			while ( j < end ) {
+				work[k++] = rows[j++];
+			}
+		}
+		System.arraycopy(work, 0, rows, 0, rows.length);
+	}
+}
+
+}
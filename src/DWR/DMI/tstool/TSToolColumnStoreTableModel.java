@@ -0,0 +1,51 @@
+// TSToolColumnStoreTableModel - interface for query results table models that use a TSToolColumnStore
+
+/* NoticeStart
+
+TSTool
+TSTool is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+TSTool is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TSTool is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TSTool.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package DWR.DMI.tstool;
+
+/**
+Interface for query results table models that display the rows of a TSToolColumnStore,
+which allows the rows to be sorted and filtered using the store.
+The columns of the table model are the first columns of the store.
+*/
+public interface TSToolColumnStoreTableModel
+{
+	/**
+	Return the column store.
+	@return the column store with the displayed values
+	*/
+	public TSToolColumnStore getColumnStore ();
+
+	/**
+	Return the store rows that are displayed.
+	@return the store rows (0+) in display order, or null if all rows are displayed in store order
+	*/
+	public int [] getRowView ();
+
+	/**
+	Set the store rows to display, for example after sorting or filtering.
+	Any sort that was done by the worksheet is reset.
+	@param rows the store rows (0+) in display order, or null to display all rows in store order
+	*/
+	public void setRowView ( int [] rows );
+}
@@ -0,0 +1,475 @@
+// TSToolCommandFileRun - run a command file on a pooled processor and collect the results
+
+/* NoticeStart
+
+TSTool
+TSTool is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+TSTool is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TSTool is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TSTool.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package DWR.DMI.tstool;
+
+import java.io.File;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import RTi.Util.IO.AbstractCommand;
+import RTi.Util.IO.Command;
+import RTi.Util.IO.CommandStatusProvider;
+import RTi.Util.IO.CommandStatusType;
+import RTi.Util.IO.CommandStatusUtil;
+import RTi.Util.IO.PropList;
+import RTi.Util.Message.Message;
+import RTi.Util.Time.StopWatch;
+import rti.tscommandprocessor.core.TSCommandFileRunner;
+import rti.tscommandprocessor.core.TSCommandProcessor;
+
+/**
+Run a command file on a runner from a TSToolCommandProcessorPool and collect the results,
+which can be returned as JSON by server modes.
+Processor properties for the run are set in the processor's initial properties for the duration of the run
+and the original values are restored when the run is complete, so that the warm processor can be reused.
+*/
+public class TSToolCommandFileRun
+{
+
+/**
+Status when the run has not started.
+*/
+public static final String STATUS_QUEUED = "QUEUED";
+
+/**
+Status when the run is in progress.
+*/
+public static final String STATUS_RUNNING = "RUNNING";
+
+/**
+Status when the command file could not be read or there was an error running.
+*/
+public static final String STATUS_ERROR = "ERROR";
+
+/**
+Status when the run was canceled before it started.
+*/
+public static final String STATUS_CANCELED = "CANCELED";
+
+/**
+Identifier for the run, used when the run is submitted as an asynchronous job (empty if not used).
+*/
+private String id = "";
+
+/**
+Time that the run was created (milliseconds).
+*/
+private long submitTime = System.currentTimeMillis();
+
+/**
+Command file to run.
+*/
+private File commandFile = null;
+
+/**
+Processor properties to set for the run.
+*/
+private Map<String,String> processorProperties = new LinkedHashMap<>();
+
+/**
+Recorder for command timing and status.
+*/
+private TSToolCommandRunRecorder recorder = new TSToolCommandRunRecorder();
+
+/**
+Status of the run:  QUEUED, RUNNING, ERROR, CANCELED, or the highest command severity (e.g., SUCCESS, WARNING, FAILURE).
+*/
+private volatile String status = STATUS_QUEUED;
+
+/**
+Exit status (0 if successful, 1 if the command file could not be read or had an error running).
+*/
+private int exitStatus = 0;
+
+/**
+Message explaining an error.
+*/
+private String message = "";
+
+/**
+Number of commands with warning as the highest severity.
+*/
+private int warningCount = 0;
+
+/**
+Number of commands with failure as the highest severity.
+*/
+private int failureCount = 0;
+
+/**
+Time that the run started (milliseconds), -1 if not started.
+*/
+private long startTime = -1;
+
+/**
+Time that the run was canceled before it started (milliseconds), -1 if not canceled.
+*/
+private long cancelTime = -1;
+
+/**
+Elapsed time for the run in milliseconds.
+*/
+private long elapsedMilliseconds = 0;
+
+/**
+Output files created by the run.
+*/
+private List<File> outputFileList = new ArrayList<>();
+
+/**
+Create a run.
+@param commandFile command file to run
+@param processorProperties processor properties to set for the run (can be null)
+*/
+public TSToolCommandFileRun ( File commandFile, Map<String,String> processorProperties )
+{
+	this.commandFile = commandFile.getAbsoluteFile();
+	if ( processorProperties != null ) {
+		this.processorProperties.putAll(processorProperties);
+	}
+}
+
+/**
+Cancel a run that has not started, for example because the thread waiting for a processor was interrupted.
+@param message message explaining why the run was canceled
+*/
+public synchronized void cancel ( String message )
+{
+	this.exitStatus = 1;
+	this.message = message;
+	this.cancelTime = System.currentTimeMillis();
+	this.status = STATUS_CANCELED;
+}
+
+/**
+Count the commands that have warning and failure as the highest severity.
+@param processor processor that was run
+*/
+private void countProblems ( TSCommandProcessor processor )
+{
+	CommandStatusType highestSeverity = CommandStatusType.SUCCESS;
+	for ( Command command : processor.getCommands() ) {
+		if ( command instanceof CommandStatusProvider ) {
+			CommandStatusType severity = CommandStatusUtil.getHighestSeverity((CommandStatusProvider)command);
+			if ( severity.equals(CommandStatusType.FAILURE) ) {
+				++this.failureCount;
+				highestSeverity = CommandStatusType.FAILURE;
+			}
+			else if ( severity.equals(CommandStatusType.WARNING) ) {
+				++this.warningCount;
+				if ( !highestSeverity.equals(CommandStatusType.FAILURE) ) {
+					highestSeverity = CommandStatusType.WARNING;
+				}
+			}
+		}
+	}
+	if ( this.exitStatus == 0 ) {
+		this.status = highestSeverity.toString();
+	}
+}
+
+/**
+Return the command file.
+@return the command file (absolute path)
+*/
+public File getCommandFile ()
+{
+	return this.commandFile;
+}
+
+/**
+Return the identifier for the run.
+@return the identifier, empty if not set
+*/
+public String getId ()
+{
+	return this.id;
+}
+
+/**
+Return the time that the run was submitted.
+@return the time that the run was created (milliseconds)
+*/
+public long getSubmitTime ()
+{
+	return this.submitTime;
+}
+
+/**
+Return the recorder for command timing and status, which can be used to check progress.
+@return the recorder
+*/
+public TSToolCommandRunRecorder getRecorder ()
+{
+	return this.recorder;
+}
+
+/**
+Return the output files created by the run.
+@return list of output files (empty until the run is complete)
+*/
+public synchronized List<File> getOutputFileList ()
+{
+	return new ArrayList<>(this.outputFileList);
+}
+
+/**
+Return the time that the run completed.
+@return the time that the run completed (milliseconds), or -1 if not complete
+*/
+public synchronized long getEndTime ()
+{
+	if ( !isComplete() ) {
+		return -1;
+	}
+	else if ( this.startTime < 0 ) {
+		// Canceled before starting
+		return this.cancelTime;
+	}
+	return this.startTime + this.elapsedMilliseconds;
+}
+
+/**
+Return the status of the run.
+@return QUEUED, RUNNING, ERROR, CANCELED, or the highest command severity when complete (e.g., SUCCESS, WARNING, FAILURE)
+*/
+public String getStatus ()
+{
+	return this.status;
+}
+
+/**
+Indicate whether the run is complete.
+@return true if the run is complete
+*/
+public boolean isComplete ()
+{
+	String status = this.status;
+	return !status.equals(STATUS_QUEUED) && !status.equals(STATUS_RUNNING);
+}
+
+/**
+Run the command file.  The caller is responsible for reserving the runner and releasing it after the run.
+@param runner runner from the pool, which is not shared with other runs until this method returns
+*/
+public void run ( TSCommandFileRunner runner )
+{	String routine = getClass().getSimpleName() + ".run";
+	String commandFileFull = this.commandFile.getPath();
+	TSCommandProcessor processor = runner.getProcessor();
+	StopWatch sw = new StopWatch();
+	sw.start();
+	synchronized ( this ) {
+		this.startTime = System.currentTimeMillis();
+	}
+	this.status = STATUS_RUNNING;
+	Map<String,String> originalProperties = setProcessorProperties ( processor );
+	processor.addCommandProcessorListener(this.recorder);
+	try {
+		Message.printStatus( 2, routine, "Running command file \"" + commandFileFull + "\" with properties " + this.processorProperties );
+		// Open datastores that are used by the command file if they are opened on first use
+		TSToolLazyDataStores.openReferenced ( processor, this.commandFile );
+		boolean runDiscoveryOnLoad = false;
+		runner.readCommandFile ( commandFileFull, runDiscoveryOnLoad );
+		// Listen to command progress, for example for commands that process many time series
+		// - the commands are new for each run so there is no need to remove the listener after the run
+		for ( Command command : processor.getCommands() ) {
+			if ( command instanceof AbstractCommand ) {
+				((AbstractCommand)command).addCommandProgressListener ( this.recorder );
+			}
+		}
+		try {
+			// The following will throw an exception if there are any errors running.
+			runner.runCommands();
+		}
+		finally {
+			synchronized ( this ) {
+				countProblems ( processor );
+				@SuppressWarnings("unchecked")
+				List<File> outputFiles = (List<File>)processor.getPropContents("OutputFileList");
+				if ( outputFiles != null ) {
+					this.outputFileList.addAll(outputFiles);
+				}
+			}
+		}
+	}
+	catch ( Exception e ) {
+		Message.printWarning ( 2, routine, "Error running command file \"" + commandFileFull + "\"." );
+		Message.printWarning ( 3, routine, e );
+		synchronized ( this ) {
+			this.exitStatus = 1;
+			this.message = "" + e;
+		}
+		this.status = STATUS_ERROR;
+	}
+	finally {
+		processor.removeCommandProcessorListener(this.recorder);
+		restoreProcessorProperties ( processor, originalProperties );
+		sw.stop();
+		synchronized ( this ) {
+			this.elapsedMilliseconds = (long)sw.getMilliseconds();
+		}
+	}
+	Message.printStatus( 2, routine, "Finished command file \"" + commandFileFull + "\" in " + this.elapsedMilliseconds +
+		" ms, status " + this.status + ", " + this.warningCount + " warnings, " + this.failureCount + " failures." );
+}
+
+/**
+Restore the processor initial properties that were changed for the run.
+@param processor processor that was run
+@param originalProperties original values, null if a property was not set
+*/
+private void restoreProcessorProperties ( TSCommandProcessor processor, Map<String,String> originalProperties )
+{
+	PropList props = processor.getInitialPropList();
+	for ( Map.Entry<String,String> entry : originalProperties.entrySet() ) {
+		if ( entry.getValue() == null ) {
+			props.unSet(entry.getKey());
+		}
+		else {
+			props.set(entry.getKey(), entry.getValue());
+		}
+	}
+}
+
+/**
+Set the processor properties for the run in the processor initial properties,
+which are used to initialize the processor properties when commands are run.
+@param processor processor to run
+@return original values for the properties that were set, null if a property was not set
+*/
+private Map<String,String> setProcessorProperties ( TSCommandProcessor processor )
+{
+	Map<String,String> originalProperties = new LinkedHashMap<>();
+	PropList props = processor.getInitialPropList();
+	for ( Map.Entry<String,String> entry : this.processorProperties.entrySet() ) {
+		originalProperties.put(entry.getKey(), props.getValue(entry.getKey()));
+		props.set(entry.getKey(), entry.getValue());
+	}
+	return originalProperties;
+}
+
+/**
+Set the identifier for the run.
+@param id identifier for the run
+*/
+public void setId ( String id )
+{
+	this.id = id;
+}
+
+/**
+Format the run as a JSON object, including status, per-command timing and output files.
+@return JSON string
+*/
+public synchronized String toJSON ()
+{
+	StringBuilder b = new StringBuilder();
+	b.append("{\n");
+	if ( !this.id.isEmpty() ) {
+		b.append("  \"id\": ").append(toJSONString(this.id)).append(",\n");
+		b.append("  \"submitTime\": ").append(toJSONString(Instant.ofEpochMilli(this.submitTime).toString())).append(",\n");
+	}
+	b.append("  \"commandFile\": ").append(toJSONString(this.commandFile.getPath())).append(",\n");
+	b.append("  \"status\": ").append(toJSONString(this.status)).append(",\n");
+	b.append("  \"exitStatus\": ").append(this.exitStatus).append(",\n");
+	if ( !this.message.isEmpty() ) {
+		b.append("  \"message\": ").append(toJSONString(this.message)).append(",\n");
+	}
+	b.append("  \"startTime\": ").append(this.startTime < 0 ? "null" : toJSONString(Instant.ofEpochMilli(this.startTime).toString())).append(",\n");
+	long elapsed = this.elapsedMilliseconds;
+	if ( this.status.equals(STATUS_RUNNING) ) {
+		// Time so far
+		elapsed = System.currentTimeMillis() - this.startTime;
+	}
+	b.append("  \"elapsedMs\": ").append(elapsed).append(",\n");
+	b.append("  \"commandCount\": ").append(this.recorder.getCommandCount()).append(",\n");
+	b.append("  \"completedCount\": ").append(this.recorder.getCompletedCount()).append(",\n");
+	b.append("  \"percentComplete\": ").append(this.recorder.getPercentComplete()).append(",\n");
+	if ( this.status.equals(STATUS_RUNNING) ) {
+		// Progress within the running command
+		b.append("  \"commandProgress\": { \"step\": ").append(this.recorder.getCommandProgressStep());
+		b.append(", \"stepCount\": ").append(this.recorder.getCommandProgressStepCount());
+		b.append(", \"message\": ").append(toJSONString(this.recorder.getCommandProgressMessage())).append(" },\n");
+	}
+	b.append("  \"warningCount\": ").append(this.warningCount).append(",\n");
+	b.append("  \"failureCount\": ").append(this.failureCount).append(",\n");
+	b.append("  \"commands\": [");
+	int i = 0;
+	for ( TSToolCommandRunRecorder.CommandRecord record : this.recorder.getCommandRecords() ) {
+		b.append(i++ == 0 ? "\n" : ",\n");
+		b.append("    { \"index\": ").append(record.getIndex());
+		b.append(", \"command\": ").append(toJSONString(record.getCommandString()));
+		b.append(", \"status\": ").append(toJSONString(record.getStatus()));
+		b.append(", \"elapsedMs\": ").append(record.getElapsedMilliseconds());
+		b.append(" }");
+	}
+	b.append(i == 0 ? "],\n" : "\n  ],\n");
+	b.append("  \"outputFiles\": [");
+	i = 0;
+	for ( File f : this.outputFileList ) {
+		b.append(i++ == 0 ? "\n" : ",\n");
+		b.append("    ").append(toJSONString(f.getPath()));
+	}
+	b.append(i == 0 ? "]\n" : "\n  ]\n");
+	b.append("}\n");
+	return b.toString();
+}
+
+/**
+Format a string as a JSON string, including the surrounding quotes.
+@param s string to format
+@return quoted and escaped string
+*/
+public static String toJSONString ( String s )
+{
+	if ( s == null ) {
+		return "null";
+	}
+	StringBuilder b = new StringBuilder(s.length() + 2);
+	b.append('"');
+	for ( int i = 0; i < s.length(); i++ ) {
+		char c = s.charAt(i);
+		switch ( c ) {
+			case '"': b.append("\\\""); break;
+			case '\\': b.append("\\\\"); break;
+			case '\n': b.append("\\n"); break;
+			case '\r': b.append("\\r"); break;
+			case '\t': b.append("\\t"); break;
+			default:
+				if ( c < 0x20 ) {
+					b.append(String.format("\\u%04x", (int)c));
+				}
+				else {
+					b.append(c);
+				}
+		}
+	}
+	b.append('"');
+	return b.toString();
+}
+
+}
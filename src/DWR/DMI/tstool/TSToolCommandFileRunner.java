@@ -0,0 +1,105 @@
+// TSToolCommandFileRunner - command file runner that uses TSToolCommandProcessor
+
+/* NoticeStart
+
+TSTool
+TSTool is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+TSTool is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TSTool is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TSTool.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package DWR.DMI.tstool;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.List;
+
+import rti.tscommandprocessor.core.TSCommandFileRunner;
+import rti.tscommandprocessor.core.TSCommandProcessor;
+import RTi.Util.IO.PropList;
+
+/**
+Command file runner that uses a TSToolCommandProcessor, so that batch mode and the servers read time series
+through the process-wide read cache, as the main interface does.
+The processor that is created by TSCommandFileRunner is not used.
+*/
+public class TSToolCommandFileRunner extends TSCommandFileRunner
+{
+
+/**
+Processor that reads time series through the read cache.
+*/
+private TSToolCommandProcessor processor;
+
+/**
+Create a runner.
+@param props properties for the processor (see TSCommandProcessor)
+@param pluginCommandClasses plugin command classes
+*/
+public TSToolCommandFileRunner ( PropList props, @SuppressWarnings("rawtypes") List<Class> pluginCommandClasses )
+{
+	super ( props, pluginCommandClasses );
+	this.processor = new TSToolCommandProcessor ( props );
+	this.processor.setPluginCommandClasses ( pluginCommandClasses, false );
+}
+
+/**
+Return the command processor.
+@return the command processor, which reads time series through the read cache
+*/
+@Override
+public TSCommandProcessor getProcessor ()
+{
+	return this.processor;
+}
+
+/**
+Read the commands from a command file.
+@param filename name of the command file to read
+@param runDiscoveryOnLoad whether to run discovery on the commands when they are read
+*/
+@Override
+public void readCommandFile ( String filename, boolean runDiscoveryOnLoad )
+throws FileNotFoundException, IOException
+{
+	this.processor.readCommandFile ( filename,
+		true, // Create UnknownCommand instances for unrecognized commands
+		false, // Do not append to the current processor contents
+		runDiscoveryOnLoad );
+}
+
+/**
+Run all the commands, using the default processor properties.
+*/
+@Override
+public void runCommands ()
+throws Exception
+{
+	runCommands ( null );
+}
+
+/**
+Run all the commands.
+@param runProps properties for the run (null to use the default processor properties)
+*/
+@Override
+public void runCommands ( PropList runProps )
+throws Exception
+{
+	this.processor.runCommands ( null, runProps );
+}
+
+}
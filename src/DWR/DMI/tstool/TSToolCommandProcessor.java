@@ -0,0 +1,168 @@
+// TSToolCommandProcessor - command processor that reads time series through the process-wide read cache
+
+/* NoticeStart
+
+TSTool
+TSTool is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+TSTool is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TSTool is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TSTool.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package DWR.DMI.tstool;
+
+import java.io.File;
+
+import riverside.datastore.DataStore;
+import rti.tscommandprocessor.core.TSCommandProcessor;
+import RTi.TS.TS;
+import RTi.TS.TSIterator;
+import RTi.Util.IO.CommandProcessorRequestResultsBean;
+import RTi.Util.IO.PropList;
+
+/**
+Command processor that handles ReadTimeSeries requests (used by time series identifier commands and
+ReadTimeSeries) with the process-wide time series read cache (see TSToolTimeSeriesReadCache),
+so that running commands again does not read the same time series again.
+The key includes the TSID, working directory, input period, and the request and processor properties
+that change what is read.
+A copy of the time series is cached and a copy is returned for each request,
+because commands modify the time series that they read.
+Time series read from a file are used until the file changes.
+Time series read from databases and web services are used until the time to live has passed,
+and only while the processor has the same datastore instance, so that logging in again reads the time series again.
+All other requests are handled by TSCommandProcessor.
+Commands that read time series without a ReadTimeSeries request, such as ReadHydroBase, ReadStateMod,
+and ReadDateValue, do not use the cache.
+*/
+public class TSToolCommandProcessor extends TSCommandProcessor
+{
+
+/**
+Create a processor.
+@param props properties for the processor (see TSCommandProcessor)
+*/
+public TSToolCommandProcessor ( PropList props )
+{
+	super ( props );
+}
+
+/**
+Return the estimated memory used by a time series, bytes, used to limit the size of the read cache.
+*/
+private long estimateBytes ( TS ts )
+{
+	long count = 0;
+	try {
+		TSIterator tsi = ts.iterator(null, null);
+		while ( tsi.next() != null ) {
+			++count;
+		}
+	}
+	catch ( Exception e ) {
+		// Use the overhead only
+	}
+	// Value and flag for each point, plus the time series object
+	return 16*count + 2048;
+}
+
+/**
+Return the datastore for the input type of a TSID, used as the cache source,
+or null if the TSID does not use a datastore.
+@param tsid TSID as LOC.SOURCE.TYPE.INTERVAL~DataStore or LOC.SOURCE.TYPE.INTERVAL~InputType~InputName
+*/
+private DataStore getInputDataStore ( String tsid )
+{
+	int pos = tsid.indexOf('~');
+	if ( (pos < 0) || (pos == (tsid.length() - 1)) ) {
+		return null;
+	}
+	int pos2 = tsid.indexOf('~', pos + 1);
+	String inputType = (pos2 < 0) ? tsid.substring(pos + 1) : tsid.substring(pos + 1, pos2);
+	try {
+		return getDataStoreForName ( inputType, null );
+	}
+	catch ( Exception e ) {
+		// Not a datastore
+		return null;
+	}
+}
+
+/**
+Return the state of the input file for a TSID, captured before the time series is read,
+or null if the input name is not an existing file (for example a database or web service).
+@param tsid TSID as LOC.SOURCE.TYPE.INTERVAL~InputType~InputName
+@param workingDir working directory for relative paths (can be null)
+*/
+private TSToolLruCache.FileState getInputFileState ( String tsid, String workingDir )
+{
+	// The input name may contain ~ for some input types
+	int pos = tsid.indexOf('~');
+	int pos2 = (pos > 0) ? tsid.indexOf('~', pos + 1) : -1;
+	if ( (pos2 < 0) || (pos2 == (tsid.length() - 1)) ) {
+		return null;
+	}
+	String inputName = tsid.substring(pos2 + 1);
+	File file = new File(inputName);
+	if ( !file.isAbsolute() && (workingDir != null) ) {
+		file = new File(workingDir, inputName);
+	}
+	return file.isFile() ? new TSToolLruCache.FileState(file) : null;
+}
+
+/**
+Process a request, using the read cache for ReadTimeSeries requests.
+@param request request name
+@param requestParams request parameters
+@return the request results
+*/
+@Override
+public CommandProcessorRequestResultsBean processRequest ( String request, PropList requestParams )
+throws Exception
+{
+	TSToolTimeSeriesReadCache<TS> cache = TSToolTimeSeriesReadCache.getInstance();
+	if ( !request.equalsIgnoreCase("ReadTimeSeries") || (requestParams == null) ||
+		(requestParams.getValue("TSID") == null) || !cache.isEnabled() ) {
+		return super.processRequest ( request, requestParams );
+	}
+	String tsid = requestParams.getValue("TSID");
+	Object workingDir = getPropContents("WorkingDir");
+	Object inputStart = getPropContents("InputStart");
+	Object inputEnd = getPropContents("InputEnd");
+	String key = TSToolTimeSeriesReadCache.getKey ( tsid, (workingDir == null) ? null : workingDir.toString(),
+		(inputStart == null) ? null : inputStart.toString(), (inputEnd == null) ? null : inputEnd.toString(),
+		"ReadData=" + requestParams.getValue("ReadData") +
+		",HandleMissingTSHow=" + requestParams.getValue("HandleMissingTSHow") +
+		",IncludeMissingTS=" + getPropContents("IncludeMissingTS") );
+	// The datastore instance changes when logging in again, which invalidates entries read with the old connection
+	DataStore dataStore = getInputDataStore ( tsid );
+	TS ts = cache.get ( key, dataStore );
+	if ( ts != null ) {
+		CommandProcessorRequestResultsBean bean = new CommandProcessorRequestResultsBean();
+		bean.getResultsPropList().setUsingObject ( "TS", (TS)ts.clone() );
+		return bean;
+	}
+	// Capture the file state before reading so that changes during the read are detected
+	TSToolLruCache.FileState fileState = getInputFileState ( tsid, (workingDir == null) ? null : workingDir.toString() );
+	CommandProcessorRequestResultsBean bean = super.processRequest ( request, requestParams );
+	Object o = bean.getResultsPropList().getContents ( "TS" );
+	if ( o instanceof TS ) {
+		ts = (TS)o;
+		cache.put ( key, dataStore, (TS)ts.clone(), estimateBytes(ts), fileState );
+	}
+	return bean;
+}
+
+}
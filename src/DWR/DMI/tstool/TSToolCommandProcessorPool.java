@@ -0,0 +1,100 @@
+// TSToolCommandProcessorPool - pool of warm command file runners used by server modes
+
+/* NoticeStart
+
+TSTool
+TSTool is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+TSTool is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TSTool is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TSTool.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package DWR.DMI.tstool;
+
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import rti.tscommandprocessor.core.TSCommandFileRunner;
+
+/**
+Pool of command file runners that are created once at startup, with HydroBase and datastores already open,
+so that server requests do not pay the cost of opening connections.
+A runner is used by one request at a time:  call acquire() to reserve a runner and release() when done.
+*/
+public class TSToolCommandProcessorPool
+{
+
+/**
+Runners that are not being used.
+*/
+private LinkedBlockingQueue<TSCommandFileRunner> idleRunnerQueue = new LinkedBlockingQueue<>();
+
+/**
+Total number of runners in the pool.
+*/
+private int size = 0;
+
+/**
+Create a pool.
+@param runnerList list of runners, each with its own processor and datastore connections
+*/
+public TSToolCommandProcessorPool ( List<TSCommandFileRunner> runnerList )
+{
+	this.idleRunnerQueue.addAll(runnerList);
+	this.size = runnerList.size();
+}
+
+/**
+Reserve a runner, waiting if all runners are in use.
+@param waitMilliseconds maximum number of milliseconds to wait for a runner
+@return a runner, or null if no runner became available in the wait time
+*/
+public TSCommandFileRunner acquire ( long waitMilliseconds )
+throws InterruptedException
+{
+	return this.idleRunnerQueue.poll(waitMilliseconds, TimeUnit.MILLISECONDS);
+}
+
+/**
+Return the number of runners that are not being used.
+@return the number of idle runners
+*/
+public int getIdleCount ()
+{
+	return this.idleRunnerQueue.size();
+}
+
+/**
+Return the total number of runners in the pool.
+@return the number of runners
+*/
+public int getSize ()
+{
+	return this.size;
+}
+
+/**
+Return a runner to the pool.
+@param runner runner that was reserved with acquire()
+*/
+public void release ( TSCommandFileRunner runner )
+{
+	if ( runner != null ) {
+		this.idleRunnerQueue.add(runner);
+	}
+}
+
+}
@@ -0,0 +1,329 @@
+// TSToolCommandRunRecorder - record command start/end times and status while a command processor runs
+
+/* NoticeStart
+
+TSTool
+TSTool is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+TSTool is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TSTool is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TSTool.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package DWR.DMI.tstool;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import RTi.Util.IO.Command;
+import RTi.Util.IO.CommandProcessorListener;
+import RTi.Util.IO.CommandProgressListener;
+import RTi.Util.IO.CommandStatusProvider;
+import RTi.Util.IO.CommandStatusType;
+import RTi.Util.IO.CommandStatusUtil;
+
+/**
+Record the start and end time and the status of each command as a command processor runs,
+and the progress of the command that is running.
+A new recorder is added as a listener to the processor before a run and removed after the run,
+and is added as a progress listener to each command that is run.
+Listener methods are called on the thread that runs the commands,
+whereas the get methods can be called from other threads, so access is synchronized.
+*/
+public class TSToolCommandRunRecorder implements CommandProcessorListener, CommandProgressListener
+{
+
+/**
+Timing and status for commands that have started in the current run, in the order run.
+*/
+private List<CommandRecord> commandRecordList = new ArrayList<>();
+
+/**
+Number of commands that are being run, from the last listener call.
+*/
+private int commandCount = 0;
+
+/**
+Number of commands that have completed.
+*/
+private int completedCount = 0;
+
+/**
+Percent complete for the run, from the last processor listener call.
+*/
+private float percentComplete = 0.0F;
+
+/**
+Progress step for the running command, from the last command progress call.
+*/
+private int commandProgressStep = 0;
+
+/**
+Number of progress steps for the running command, from the last command progress call.
+*/
+private int commandProgressStepCount = 0;
+
+/**
+Progress message for the running command, from the last command progress call.
+*/
+private String commandProgressMessage = "";
+
+/**
+Construct a recorder.
+*/
+public TSToolCommandRunRecorder ()
+{
+}
+
+/**
+Indicate that a command was canceled.
+*/
+@Override
+public synchronized void commandCanceled ( int icommand, int ncommand, Command command, float percentComplete, String message )
+{
+	CommandRecord record = findCommandRecord ( icommand, command );
+	if ( record != null ) {
+		record.endTime = System.currentTimeMillis();
+		record.status = "CANCELED";
+	}
+}
+
+/**
+Indicate that a command completed.
+*/
+@Override
+public synchronized void commandCompleted ( int icommand, int ncommand, Command command, float percentComplete, String message )
+{
+	this.commandCount = ncommand;
+	this.percentComplete = percentComplete;
+	++this.completedCount;
+	CommandRecord record = findCommandRecord ( icommand, command );
+	if ( record != null ) {
+		record.endTime = System.currentTimeMillis();
+		if ( command instanceof CommandStatusProvider ) {
+			CommandStatusType severity = CommandStatusUtil.getHighestSeverity((CommandStatusProvider)command);
+			record.status = severity.toString();
+		}
+	}
+}
+
+/**
+Indicate that a command started.
+*/
+@Override
+public synchronized void commandStarted ( int icommand, int ncommand, Command command, float percentComplete, String message )
+{
+	this.commandCount = ncommand;
+	this.percentComplete = percentComplete;
+	this.commandProgressStep = 0;
+	this.commandProgressStepCount = 0;
+	this.commandProgressMessage = "";
+	CommandRecord record = new CommandRecord();
+	record.index = icommand;
+	record.commandString = command.toString();
+	record.startTime = System.currentTimeMillis();
+	this.commandRecordList.add(record);
+}
+
+/**
+Indicate the progress of the running command.
+*/
+@Override
+public synchronized void commandProgress ( int istep, int nstep, Command command, float percentComplete, String message )
+{
+	this.commandProgressStep = istep;
+	this.commandProgressStepCount = nstep;
+	this.commandProgressMessage = (message == null) ? "" : message;
+}
+
+/**
+Find the record for a command that has started.
+The most recent record is checked first because it is almost always the command that is running.
+@param icommand command index (0+)
+@param command command that was started
+@return the matching record or null if not found
+*/
+private CommandRecord findCommandRecord ( int icommand, Command command )
+{
+	for ( int i = this.commandRecordList.size() - 1; i >= 0; i-- ) {
+		CommandRecord record = this.commandRecordList.get(i);
+		if ( (record.index == icommand) && (record.endTime < 0) ) {
+			return record;
+		}
+	}
+	return null;
+}
+
+/**
+Return the number of commands being run, as indicated by the processor.
+@return the number of commands being run
+*/
+public synchronized int getCommandCount ()
+{
+	return this.commandCount;
+}
+
+/**
+Return a copy of the records for commands that have been started in the current run.
+@return list of command records, in the order run
+*/
+public synchronized List<CommandRecord> getCommandRecords ()
+{
+	List<CommandRecord> records = new ArrayList<>(this.commandRecordList.size());
+	for ( CommandRecord record : this.commandRecordList ) {
+		records.add(record.copy());
+	}
+	return records;
+}
+
+/**
+Return the progress message for the running command.
+@return the progress message, or empty string if the command has not provided a message
+*/
+public synchronized String getCommandProgressMessage ()
+{
+	return this.commandProgressMessage;
+}
+
+/**
+Return the progress step for the running command.
+@return the progress step, 0 if the command does not provide progress
+*/
+public synchronized int getCommandProgressStep ()
+{
+	return this.commandProgressStep;
+}
+
+/**
+Return the number of progress steps for the running command.
+@return the number of progress steps, 0 if the command does not provide progress
+*/
+public synchronized int getCommandProgressStepCount ()
+{
+	return this.commandProgressStepCount;
+}
+
+/**
+Return the number of commands that have completed.
+@return the number of commands that have completed
+*/
+public synchronized int getCompletedCount ()
+{
+	return this.completedCount;
+}
+
+/**
+Return the percent complete for the run, as indicated by the processor.
+@return percent complete (0-100)
+*/
+public synchronized float getPercentComplete ()
+{
+	return this.percentComplete;
+}
+
+/**
+Timing and status for one command.
+*/
+public static class CommandRecord
+{
+	/**
+	Command index in the processor (0+).
+	*/
+	int index = -1;
+
+	/**
+	Command string.
+	*/
+	String commandString = "";
+
+	/**
+	Time that the command started (milliseconds).
+	*/
+	long startTime = -1;
+
+	/**
+	Time that the command ended (milliseconds), or -1 if still running.
+	*/
+	long endTime = -1;
+
+	/**
+	Highest severity status for the command, or empty if still running.
+	*/
+	String status = "";
+
+	/**
+	Return a copy of the record.
+	@return a copy of the record
+	*/
+	private CommandRecord copy ()
+	{
+		CommandRecord record = new CommandRecord();
+		record.index = this.index;
+		record.commandString = this.commandString;
+		record.startTime = this.startTime;
+		record.endTime = this.endTime;
+		record.status = this.status;
+		return record;
+	}
+
+	/**
+	Return the command string.
+	@return the command string
+	*/
+	public String getCommandString ()
+	{
+		return this.commandString;
+	}
+
+	/**
+	Return the elapsed time for the command, or the time so far if still running.
+	@return elapsed time in milliseconds
+	*/
+	public long getElapsedMilliseconds ()
+	{
+		if ( this.endTime < 0 ) {
+			return System.currentTimeMillis() - this.startTime;
+		}
+		return this.endTime - this.startTime;
+	}
+
+	/**
+	Return the command index in the processor.
+	@return the command index (0+)
+	*/
+	public int getIndex ()
+	{
+		return this.index;
+	}
+
+	/**
+	Return the time that the command started.
+	@return the time that the command started (milliseconds)
+	*/
+	public long getStartTime ()
+	{
+		return this.startTime;
+	}
+
+	/**
+	Return the highest severity status for the command.
+	@return the status, or empty string if the command is still running
+	*/
+	public String getStatus ()
+	{
+		return this.status;
+	}
+}
+
+}
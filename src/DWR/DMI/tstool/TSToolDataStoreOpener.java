@@ -0,0 +1,492 @@
+// TSToolDataStoreOpener - open datastores at startup concurrently
+
+/* NoticeStart
+
+TSTool
+TSTool is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+TSTool is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TSTool is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TSTool.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package DWR.DMI.tstool;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import riverside.datastore.DataStore;
+import rti.tscommandprocessor.core.TSCommandProcessor;
+import RTi.DMI.DatabaseDataStore;
+import RTi.Util.IO.PropList;
+import RTi.Util.Message.Message;
+import RTi.Util.Time.StopWatch;
+
+/**
+Open datastores at startup concurrently, because opening a datastore can block on a database login or
+web service handshake, and unreachable datastores would otherwise delay startup for each datastore in turn.
+Datastore configurations are added in the order that they would be opened sequentially (user configurations first).
+Configurations with the same datastore name are opened in order in one task so that the first enabled datastore
+is used, as for sequential opening.
+Opened datastores are added to the processor in the same order as sequential opening, so the results are deterministic.
+Datastores are opened with a timeout, including when opened one at a time.
+Datastores that open after their timeout are closed.
+*/
+public class TSToolDataStoreOpener
+{
+
+/**
+Datastore configuration, which is opened by a task.
+*/
+private static class DataStoreConfig
+{
+	/**
+	Position in the sequential order.
+	*/
+	private int order;
+
+	/**
+	Datastore configuration properties.
+	*/
+	private PropList props;
+
+	/**
+	Datastore that was opened, or null if not opened.
+	*/
+	private DataStore dataStore = null;
+
+	private DataStoreConfig ( int order, PropList props )
+	{
+		this.order = order;
+		this.props = props;
+	}
+}
+
+/**
+Task to open a group of configurations with the same datastore name.
+*/
+private class DataStoreGroupTask implements Callable<List<DataStoreConfig>>
+{
+	/**
+	Configurations with the same datastore name, user configurations first.
+	*/
+	private List<DataStoreConfig> group;
+
+	/**
+	Time that the task started (milliseconds), -1 if not started.
+	*/
+	private AtomicLong startTime = new AtomicLong(-1);
+
+	/**
+	Opened configurations when the task completes, or ABANDONED if the task timed out before completing.
+	*/
+	private AtomicReference<List<DataStoreConfig>> result = new AtomicReference<>(null);
+
+	private DataStoreGroupTask ( List<DataStoreConfig> group )
+	{
+		this.group = group;
+	}
+
+	@Override
+	public List<DataStoreConfig> call ()
+	{
+		this.startTime.set(System.currentTimeMillis());
+		List<DataStoreConfig> opened = openGroup ( this.group );
+		if ( !this.result.compareAndSet(null, opened) ) {
+			// Timed out so the datastores are not used
+			closeGroup ( opened );
+		}
+		return opened;
+	}
+}
+
+/**
+Result for a group task that timed out.
+*/
+private static final List<DataStoreConfig> ABANDONED = Collections.unmodifiableList(new ArrayList<DataStoreConfig>());
+
+/**
+TSTool session, which provides user and environment information.
+*/
+private TSToolSession session;
+
+/**
+Processor that will use the datastores.
+*/
+private TSCommandProcessor processor;
+
+/**
+Plugin datastore classes.
+*/
+@SuppressWarnings("rawtypes")
+private List<Class> pluginDataStoreClassList;
+
+/**
+Plugin datastore factory classes.
+*/
+@SuppressWarnings("rawtypes")
+private List<Class> pluginDataStoreFactoryClassList;
+
+/**
+Whether running in batch mode, in which case datastores with a login of "prompt" are not opened.
+*/
+private boolean isBatch;
+
+/**
+Configurations grouped by upper case datastore name, in sequential order.
+*/
+private LinkedHashMap<String,List<DataStoreConfig>> groupMap = new LinkedHashMap<>();
+
+/**
+Number of configurations that have been added.
+*/
+private int configCount = 0;
+
+/**
+Create an opener.
+@param session TSTool session, which provides user and environment information
+@param processor processor that will use the datastores
+@param pluginDataStoreClassList plugin datastore classes
+@param pluginDataStoreFactoryClassList plugin datastore factory classes
+@param isBatch whether running in batch mode - if true, do not open datastores with login of "prompt"
+*/
+public TSToolDataStoreOpener ( TSToolSession session, TSCommandProcessor processor,
+	@SuppressWarnings("rawtypes") List<Class> pluginDataStoreClassList,
+	@SuppressWarnings("rawtypes") List<Class> pluginDataStoreFactoryClassList, boolean isBatch )
+{
+	this.session = session;
+	this.processor = processor;
+	this.pluginDataStoreClassList = pluginDataStoreClassList;
+	this.pluginDataStoreFactoryClassList = pluginDataStoreFactoryClassList;
+	this.isBatch = isBatch;
+}
+
+/**
+Add a datastore configuration, in the order that configurations should be used (user configurations first).
+@param dataStoreProps datastore configuration properties, including DataStoreConfigFile
+*/
+public void add ( PropList dataStoreProps )
+{
+	DataStoreConfig config = new DataStoreConfig ( this.configCount++, dataStoreProps );
+	String name = dataStoreProps.getValue("Name");
+	// A configuration without a name is never a duplicate
+	String key = (name == null) ? ("\0" + config.order) : name.toUpperCase();
+	List<DataStoreConfig> group = this.groupMap.get(key);
+	if ( group == null ) {
+		group = new ArrayList<>();
+		this.groupMap.put(key, group);
+	}
+	group.add(config);
+}
+
+/**
+Close datastores that were opened after their task timed out, so that their connections are not left open.
+@param opened configurations for datastores that were opened
+*/
+private void closeGroup ( List<DataStoreConfig> opened )
+{	String routine = getClass().getSimpleName() + ".closeGroup";
+	for ( DataStoreConfig config : opened ) {
+		Message.printStatus(2, routine, "Datastore \"" + config.dataStore.getName() +
+			"\" opened after the timeout - closing and not using datastore." );
+		if ( config.dataStore instanceof DatabaseDataStore ) {
+			try {
+				((DatabaseDataStore)config.dataStore).getDMI().close();
+			}
+			catch ( Exception e ) {
+				Message.printWarning(3, routine, "Error closing datastore \"" + config.dataStore.getName() + "\" (" + e + ")." );
+			}
+		}
+	}
+}
+
+/**
+Return the configuration to open on first use for a group.
+The first configuration that is not disabled is used if it is lazy.
+Otherwise, the group is opened at startup.
+@param group configurations with the same datastore name, user configurations first
+@param lazyDefault whether datastores are opened on first use when the configuration does not specify
+@return the configuration to open on first use, or null if the group is opened at startup
+*/
+private DataStoreConfig getLazyConfig ( List<DataStoreConfig> group, boolean lazyDefault )
+{
+	for ( DataStoreConfig config : group ) {
+		String enabled = config.props.getValue("Enabled");
+		if ( (enabled != null) && enabled.equalsIgnoreCase("False") ) {
+			// Disabled so the next configuration would be used
+			continue;
+		}
+		if ( TSToolLazyDataStores.isLazy(config.props, lazyDefault) ) {
+			return config;
+		}
+		return null;
+	}
+	return null;
+}
+
+/**
+Indicate whether a group must be opened on the calling thread,
+which is the case when a login is prompted for in the UI.
+@param group configurations with the same datastore name
+@return true if the group must be opened on the calling thread
+*/
+private boolean isPromptGroup ( List<DataStoreConfig> group )
+{
+	if ( this.isBatch ) {
+		// Prompted datastores are skipped
+		return false;
+	}
+	for ( DataStoreConfig config : group ) {
+		String systemLogin = config.props.getValue("SystemLogin");
+		String systemPassword = config.props.getValue("SystemPassword");
+		if ( ((systemLogin != null) && systemLogin.equalsIgnoreCase("prompt")) ||
+			((systemPassword != null) && systemPassword.equalsIgnoreCase("prompt")) ) {
+			return true;
+		}
+	}
+	return false;
+}
+
+/**
+Open the datastores and add them to the processor.
+@param threadCount maximum number of datastores to open at the same time (1 to open sequentially)
+@param timeoutSeconds number of seconds to wait for each datastore to open (<= 0 to wait without limit),
+which is also used when datastores are opened sequentially
+@param lazyDefault whether datastores are opened on first use when the configuration does not specify (see TSToolLazyDataStores)
+@return the datastores that were opened, in the order that they were added to the processor,
+not including datastores that are opened on first use
+*/
+public List<DataStore> open ( int threadCount, int timeoutSeconds, boolean lazyDefault )
+{	String routine = getClass().getSimpleName() + ".open";
+	StopWatch sw = new StopWatch();
+	sw.start();
+	List<List<DataStoreConfig>> groupList = new ArrayList<>();
+	List<DataStoreConfig> openedList = new ArrayList<>();
+	int lazyCount = 0;
+	for ( List<DataStoreConfig> group : this.groupMap.values() ) {
+		DataStoreConfig lazyConfig = getLazyConfig ( group, lazyDefault );
+		if ( lazyConfig == null ) {
+			groupList.add(group);
+		}
+		else {
+			// Not added to the processor until the datastore is first used
+			TSToolLazyDataStores lazyDataStores = TSToolLazyDataStores.getForProcessor ( this.session, this.processor,
+				this.pluginDataStoreClassList, this.pluginDataStoreFactoryClassList, this.isBatch );
+			lazyDataStores.add ( lazyConfig.props );
+			++lazyCount;
+		}
+	}
+	if ( lazyCount > 0 ) {
+		Message.printStatus(2, routine, "" + lazyCount + " datastores will be opened on first use." );
+	}
+	int poolSize = Math.max(1, Math.min(threadCount, groupList.size()));
+	if ( groupList.isEmpty() || ((poolSize == 1) && (timeoutSeconds <= 0)) ) {
+		// No timeout so open on the calling thread
+		for ( List<DataStoreConfig> group : groupList ) {
+			openedList.addAll(openGroup(group));
+		}
+	}
+	else {
+		Message.printStatus(2, routine, "Opening " + groupList.size() + " datastores using " + poolSize + " threads with timeout " +
+			timeoutSeconds + " seconds." );
+		// Threads are daemon threads so that a datastore that never responds does not keep TSTool running
+		final AtomicInteger threadNumber = new AtomicInteger(0);
+		ThreadPoolExecutor executor = new ThreadPoolExecutor ( poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+			new LinkedBlockingQueue<Runnable>(), r -> {
+				Thread thread = new Thread(r, "TSTool-datastore-open-" + threadNumber.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		List<DataStoreGroupTask> taskList = new ArrayList<>(groupList.size());
+		List<Future<List<DataStoreConfig>>> futureList = new ArrayList<>(groupList.size());
+		for ( List<DataStoreConfig> group : groupList ) {
+			DataStoreGroupTask task = new DataStoreGroupTask(group);
+			taskList.add(task);
+			if ( isPromptGroup(group) ) {
+				// Opened below on the calling thread
+				futureList.add(null);
+			}
+			else {
+				futureList.add(executor.submit(task));
+			}
+		}
+		try {
+			for ( int i = 0; i < taskList.size(); i++ ) {
+				DataStoreGroupTask task = taskList.get(i);
+				Future<List<DataStoreConfig>> future = futureList.get(i);
+				if ( future == null ) {
+					openedList.addAll(task.call());
+				}
+				else {
+					List<DataStoreConfig> opened = waitForGroup ( executor, task, future, timeoutSeconds );
+					if ( opened != null ) {
+						openedList.addAll(opened);
+					}
+				}
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+	// Add to the processor in the order that datastores would have been opened sequentially
+	Collections.sort(openedList, new Comparator<DataStoreConfig>() {
+		@Override
+		public int compare ( DataStoreConfig config1, DataStoreConfig config2 )
+		{
+			return Integer.compare(config1.order, config2.order);
+		}
+	});
+	List<DataStore> dataStoreList = new ArrayList<>(openedList.size());
+	for ( DataStoreConfig config : openedList ) {
+		this.processor.setPropContents ( "DataStore", config.dataStore );
+		dataStoreList.add(config.dataStore);
+	}
+	sw.stop();
+	Message.printStatus(2, routine, "Opened " + dataStoreList.size() + " datastores in " + sw.getMilliseconds() + " ms." );
+	return dataStoreList;
+}
+
+/**
+Open the configurations for a datastore name, in order, until a datastore is opened that is enabled.
+@param group configurations with the same datastore name, user configurations first
+@return the configurations for datastores that were opened
+*/
+private List<DataStoreConfig> openGroup ( List<DataStoreConfig> group )
+{	String routine = getClass().getSimpleName() + ".openGroup";
+	List<DataStoreConfig> openedList = new ArrayList<>();
+	for ( DataStoreConfig config : group ) {
+		// The processor is not modified here so that datastores can be added in a deterministic order
+		boolean addToProcessor = false;
+		String dataStoreConfigFile = config.props.getValue("DataStoreConfigFile");
+		DataStore dataStore = null;
+		String name = config.props.getValue("Name");
+		TSToolStartupProfiler.Sample sample = TSToolStartupProfiler.startItem("datastore", (name == null) ? dataStoreConfigFile : name);
+		try {
+			dataStore = TSToolMain.openDataStore ( this.session, config.props, this.processor,
+				this.pluginDataStoreClassList, this.pluginDataStoreFactoryClassList, this.isBatch, addToProcessor );
+		}
+		catch ( ClassNotFoundException e ) {
+			Message.printWarning (2,routine, "Datastore class for \"" + dataStoreConfigFile +
+				"\" is not in the class path - report to software support (" + e + ")." );
+			Message.printWarning(2, routine, e);
+		}
+		catch( InstantiationException e ) {
+			Message.printWarning (2,routine, "Error instantiating datastore for \"" + dataStoreConfigFile +
+				"\" - report to software support (" + e + ")." );
+			Message.printWarning(2, routine, e);
+		}
+		catch( IllegalAccessException e ) {
+			Message.printWarning (2,routine, "Datastore class for \"" + dataStoreConfigFile +
+				"\" needs a no-argument constructor - report to software support (" + e + ")." );
+			Message.printWarning(2, routine, e);
+		}
+		catch ( Exception e ) {
+			Message.printWarning (2,routine,"Error opening datastore using configuration file \"" +
+				dataStoreConfigFile + "\" - not opening datastore (" + e + ")." );
+			Message.printWarning(2, routine, e);
+		}
+		finally {
+			sample.stop();
+		}
+		if ( dataStore == null ) {
+			// Disabled or a serious error occurred opening
+			continue;
+		}
+		config.dataStore = dataStore;
+		openedList.add(config);
+		String prop = dataStore.getProperty("Enabled");
+		if ( (prop != null) && prop.equalsIgnoreCase("true") ) {
+			// Remaining configurations with the same name are not used (user datastores are used before system datastores)
+			for ( int i = group.indexOf(config) + 1; i < group.size(); i++ ) {
+				Message.printStatus(2,routine,"Datastore \"" + dataStore.getName() + "\" in \"" +
+					group.get(i).props.getValue("DataStoreConfigFile") +
+					"\" matches previous enabled datastore (user datastores are used before system datastores).  Skipping.");
+			}
+			break;
+		}
+	}
+	return openedList;
+}
+
+/**
+Wait for a group task to complete.
+The timeout starts when the task starts, so that waiting for a thread does not count against the datastore.
+If the task times out, it is abandoned and the pool is enlarged so that the blocked thread does not delay other datastores.
+@param executor executor running the task
+@param task task that was submitted
+@param future future for the task
+@param timeoutSeconds number of seconds to wait for each datastore in the group (<= 0 to wait without limit)
+@return the opened configurations, or null if the task timed out or failed
+*/
+private List<DataStoreConfig> waitForGroup ( ThreadPoolExecutor executor, DataStoreGroupTask task,
+	Future<List<DataStoreConfig>> future, int timeoutSeconds )
+{	String routine = getClass().getSimpleName() + ".waitForGroup";
+	String name = task.group.get(0).props.getValue("Name");
+	long timeoutMilliseconds = 1000L*timeoutSeconds*task.group.size();
+	try {
+		if ( timeoutSeconds <= 0 ) {
+			return future.get();
+		}
+		while ( true ) {
+			long startTime = task.startTime.get();
+			long waitMilliseconds = timeoutMilliseconds;
+			if ( startTime >= 0 ) {
+				waitMilliseconds = startTime + timeoutMilliseconds - System.currentTimeMillis();
+			}
+			try {
+				return future.get(Math.max(waitMilliseconds, 1), TimeUnit.MILLISECONDS);
+			}
+			catch ( TimeoutException e ) {
+				if ( (task.startTime.get() >= 0) && ((System.currentTimeMillis() - task.startTime.get()) >= timeoutMilliseconds) ) {
+					break;
+				}
+				// Otherwise the task was waiting for a thread so wait again
+			}
+		}
+		if ( !task.result.compareAndSet(null, ABANDONED) ) {
+			// Completed just after the timeout
+			return task.result.get();
+		}
+		Message.printWarning(2, routine, "Datastore \"" + name + "\" did not open in " + (timeoutMilliseconds/1000) +
+			" seconds - not using datastore.  The datastore will be closed if it opens later." );
+		future.cancel(true);
+		// Replace the thread, which may be blocked on a connection that does not respond to interrupt
+		executor.setMaximumPoolSize(executor.getMaximumPoolSize() + 1);
+		executor.setCorePoolSize(executor.getCorePoolSize() + 1);
+	}
+	catch ( InterruptedException e ) {
+		Message.printWarning(2, routine, "Interrupted waiting for datastore \"" + name + "\" to open." );
+		Thread.currentThread().interrupt();
+	}
+	catch ( ExecutionException e ) {
+		Message.printWarning(2, routine, "Error opening datastore \"" + name + "\" (" + e.getCause() + ")." );
+		Message.printWarning(3, routine, e);
+	}
+	return null;
+}
+
+}
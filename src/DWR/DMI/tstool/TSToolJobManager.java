@@ -0,0 +1,197 @@
+// TSToolJobManager - manage asynchronous command file jobs for the HTTP server
+
+/* NoticeStart
+
+TSTool
+TSTool is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+TSTool is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TSTool is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TSTool.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package DWR.DMI.tstool;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import RTi.Util.Message.Message;
+import rti.tscommandprocessor.core.TSCommandFileRunner;
+
+/**
+Manage asynchronous command file jobs for the HTTP server.
+Jobs are run on a bounded executor with one thread per processor in the pool,
+and a bounded queue so that a burst of submissions is rejected rather than using unlimited memory.
+Completed jobs are retained for a period so that clients can retrieve the status and output files.
+*/
+public class TSToolJobManager
+{
+
+/**
+Pool of runners used to run jobs.
+*/
+private TSToolCommandProcessorPool pool = null;
+
+/**
+Executor that runs jobs.
+*/
+private ThreadPoolExecutor executor = null;
+
+/**
+Jobs that are queued, running, or completed and not yet expired, by job identifier.
+*/
+private Map<String,TSToolCommandFileRun> jobMap = new ConcurrentHashMap<>();
+
+/**
+Milliseconds that completed jobs are retained.
+*/
+private long retentionMilliseconds = 3600000;
+
+/**
+Create the job manager.
+@param pool pool of runners used to run jobs
+@param maxQueuedJobs maximum number of jobs that can wait for a processor
+*/
+public TSToolJobManager ( TSToolCommandProcessorPool pool, int maxQueuedJobs )
+{
+	this.pool = pool;
+	int threadCount = pool.getSize();
+	this.executor = new ThreadPoolExecutor ( threadCount, threadCount, 0L, TimeUnit.MILLISECONDS,
+		new ArrayBlockingQueue<Runnable>(maxQueuedJobs) );
+}
+
+/**
+Return a job.
+@param id job identifier
+@return the job, or null if not found (or expired)
+*/
+public TSToolCommandFileRun getJob ( String id )
+{
+	return this.jobMap.get(id);
+}
+
+/**
+Return the list of jobs.
+@return list of jobs, sorted by submit time
+*/
+public List<TSToolCommandFileRun> getJobs ()
+{
+	removeExpiredJobs();
+	List<TSToolCommandFileRun> jobs = new ArrayList<>(this.jobMap.values());
+	jobs.sort((a,b) -> Long.compare(a.getSubmitTime(), b.getSubmitTime()));
+	return jobs;
+}
+
+/**
+Return the number of jobs waiting for a processor.
+@return the number of queued jobs
+*/
+public int getQueuedJobCount ()
+{
+	return this.executor.getQueue().size();
+}
+
+/**
+Remove completed jobs that are older than the retention period.
+*/
+private void removeExpiredJobs ()
+{
+	long now = System.currentTimeMillis();
+	Iterator<TSToolCommandFileRun> it = this.jobMap.values().iterator();
+	while ( it.hasNext() ) {
+		TSToolCommandFileRun job = it.next();
+		long endTime = job.getEndTime();
+		if ( (endTime > 0) && ((now - endTime) > this.retentionMilliseconds) ) {
+			it.remove();
+		}
+	}
+}
+
+/**
+Run a job, called on an executor thread.
+@param job job to run
+*/
+private void runJob ( TSToolCommandFileRun job )
+{	String routine = getClass().getSimpleName() + ".runJob";
+	TSCommandFileRunner runner = null;
+	try {
+		// The executor has one thread per processor but the synchronous handler can also be using processors
+		runner = this.pool.acquire(Long.MAX_VALUE);
+		job.run(runner);
+	}
+	catch ( InterruptedException e ) {
+		Message.printWarning(2, routine, "Interrupted waiting for a processor for job " + job.getId() + "." );
+		job.cancel("Interrupted waiting for a processor.");
+		Thread.currentThread().interrupt();
+	}
+	catch ( Throwable t ) {
+		// Should not happen but make sure the processor is not lost
+		Message.printWarning(2, routine, "Unexpected error running job " + job.getId() + "." );
+		Message.printWarning(3, routine, t);
+	}
+	finally {
+		this.pool.release(runner);
+	}
+}
+
+/**
+Set the number of milliseconds that completed jobs are retained.
+@param retentionMilliseconds milliseconds to retain completed jobs
+*/
+public void setRetentionMilliseconds ( long retentionMilliseconds )
+{
+	this.retentionMilliseconds = retentionMilliseconds;
+}
+
+/**
+Shut down the job manager, allowing running jobs to complete.
+*/
+public void shutdown ()
+{
+	this.executor.shutdown();
+}
+
+/**
+Submit a job to run.
+@param job the job to run
+@return the job identifier, or null if the queue is full
+*/
+public String submit ( TSToolCommandFileRun job )
+{	String routine = getClass().getSimpleName() + ".submit";
+	removeExpiredJobs();
+	String id = UUID.randomUUID().toString();
+	job.setId(id);
+	this.jobMap.put(id, job);
+	try {
+		this.executor.execute(() -> runJob(job));
+	}
+	catch ( RejectedExecutionException e ) {
+		this.jobMap.remove(id);
+		Message.printWarning(2, routine, "Job queue is full - not running \"" + job.getCommandFile() + "\"." );
+		return null;
+	}
+	Message.printStatus(2, routine, "Submitted job " + id + " for \"" + job.getCommandFile() + "\" (" +
+		getQueuedJobCount() + " jobs queued)." );
+	return id;
+}
+
+}
@@ -0,0 +1,305 @@
+// TSToolJobsHandler - handle HTTP requests to submit and poll asynchronous command file jobs
+
+/* NoticeStart
+
+TSTool
+TSTool is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+TSTool is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TSTool is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TSTool.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package DWR.DMI.tstool;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import RTi.Util.Message.Message;
+
+/**
+Handle HTTP requests to submit and poll asynchronous command file jobs, used with the -httpServer command line option.
+The following requests are handled, relative to the context path (e.g., /tstool/jobs):
+<ul>
+<li> POST / - submit a job using the same parameters as UrlHandler (CommandFile and processor properties),
+as query parameters or a form-encoded body.  The response is returned right away with the job identifier.</li>
+<li> GET / - list jobs</li>
+<li> GET /{id} - job status and progress</li>
+<li> GET /{id}/output - stream all output files as a zip file, after the job is complete</li>
+<li> GET /{id}/output/{n} - stream output file n (0+), after the job is complete</li>
+</ul>
+Requests only check the job manager so they return quickly, and many clients can poll without tying up processors.
+*/
+public class TSToolJobsHandler implements HttpHandler
+{
+
+/**
+Job manager that runs jobs.
+*/
+private TSToolJobManager jobManager = null;
+
+/**
+Folder containing the command files that can be run, canonical path.
+*/
+private File commandFileFolder = null;
+
+/**
+Constructor.
+@param jobManager job manager that runs jobs
+@param commandFileFolder folder containing the command files that can be run (including subfolders), as for UrlHandler
+@throws IOException if the canonical path for the folder cannot be determined
+*/
+public TSToolJobsHandler ( TSToolJobManager jobManager, File commandFileFolder )
+throws IOException
+{
+	this.jobManager = jobManager;
+	this.commandFileFolder = commandFileFolder.getCanonicalFile();
+}
+
+/**
+Handle a job request.
+*/
+@Override
+public void handle ( HttpExchange t )
+throws IOException
+{	String routine = getClass().getSimpleName() + ".handle";
+	URI uri = t.getRequestURI();
+	String method = t.getRequestMethod();
+	Message.printStatus(2, routine, "Request from " + t.getRemoteAddress() + ": " + method + " " + uri );
+	try {
+		// Path parts after the context path, for example "id/output/0"
+		String path = uri.getPath().substring(t.getHttpContext().getPath().length());
+		while ( path.startsWith("/") ) {
+			path = path.substring(1);
+		}
+		while ( path.endsWith("/") ) {
+			path = path.substring(0, path.length() - 1);
+		}
+		String [] parts = path.isEmpty() ? new String[0] : path.split("/");
+		if ( parts.length == 0 ) {
+			if ( method.equalsIgnoreCase("POST") ) {
+				handleSubmit(t);
+			}
+			else if ( method.equalsIgnoreCase("GET") ) {
+				handleList(t);
+			}
+			else {
+				UrlHandler.sendError(t, 405, "Request method " + method + " is not supported.");
+			}
+			return;
+		}
+		if ( !method.equalsIgnoreCase("GET") ) {
+			UrlHandler.sendError(t, 405, "Request method " + method + " is not supported.");
+			return;
+		}
+		TSToolCommandFileRun job = this.jobManager.getJob(parts[0]);
+		if ( job == null ) {
+			UrlHandler.sendError(t, 404, "Job \"" + parts[0] + "\" does not exist.");
+		}
+		else if ( parts.length == 1 ) {
+			UrlHandler.sendResponse(t, 200, job.toJSON());
+		}
+		else if ( parts[1].equals("output") && (parts.length <= 3) ) {
+			if ( !job.isComplete() ) {
+				UrlHandler.sendError(t, 409, "Job \"" + parts[0] + "\" is not complete (status " + job.getStatus() + ").");
+			}
+			else if ( parts.length == 2 ) {
+				sendOutputZip(t, job);
+			}
+			else {
+				sendOutputFile(t, job, parts[2]);
+			}
+		}
+		else {
+			UrlHandler.sendError(t, 404, "Request \"" + uri.getPath() + "\" is not recognized.");
+		}
+	}
+	catch ( Exception e ) {
+		Message.printWarning(3, routine, e);
+		UrlHandler.sendError(t, 500, "Error processing request (" + e + ").");
+	}
+}
+
+/**
+Handle a request to list jobs.
+@param t the exchange
+*/
+private void handleList ( HttpExchange t )
+throws IOException
+{
+	StringBuilder b = new StringBuilder();
+	b.append("{\n  \"jobs\": [");
+	int i = 0;
+	for ( TSToolCommandFileRun job : this.jobManager.getJobs() ) {
+		b.append(i++ == 0 ? "\n" : ",\n");
+		b.append("    { \"id\": ").append(TSToolCommandFileRun.toJSONString(job.getId()));
+		b.append(", \"commandFile\": ").append(TSToolCommandFileRun.toJSONString(job.getCommandFile().getPath()));
+		b.append(", \"status\": ").append(TSToolCommandFileRun.toJSONString(job.getStatus()));
+		b.append(" }");
+	}
+	b.append(i == 0 ? "]\n" : "\n  ]\n");
+	b.append("}\n");
+	UrlHandler.sendResponse(t, 200, b.toString());
+}
+
+/**
+Handle a request to submit a job.
+@param t the exchange
+*/
+private void handleSubmit ( HttpExchange t )
+throws IOException
+{
+	// Parameters can be in the query and the form-encoded body
+	Map<String,List<String>> parameters = UrlHandler.splitQuery(t.getRequestURI().getRawQuery());
+	String body = readBody(t);
+	if ( !body.isEmpty() ) {
+		for ( Map.Entry<String,List<String>> entry : UrlHandler.splitQuery(body).entrySet() ) {
+			List<String> values = parameters.get(entry.getKey());
+			if ( values == null ) {
+				parameters.put(entry.getKey(), entry.getValue());
+			}
+			else {
+				values.addAll(entry.getValue());
+			}
+		}
+	}
+	TSToolCommandFileRun job = UrlHandler.createCommandFileRun(t, parameters, this.commandFileFolder);
+	if ( job == null ) {
+		// Error response was sent
+		return;
+	}
+	String id = this.jobManager.submit(job);
+	if ( id == null ) {
+		UrlHandler.sendError(t, 503, "Too many jobs are queued.  Try again later.");
+		return;
+	}
+	String jobPath = t.getHttpContext().getPath() + "/" + id;
+	t.getResponseHeaders().set("Location", jobPath);
+	UrlHandler.sendResponse(t, 202, "{\n  \"id\": " + TSToolCommandFileRun.toJSONString(id) +
+		",\n  \"status\": " + TSToolCommandFileRun.toJSONString(job.getStatus()) +
+		",\n  \"url\": " + TSToolCommandFileRun.toJSONString(jobPath) + "\n}\n");
+}
+
+/**
+Read the request body as a string.
+@param t the exchange
+@return the request body, empty if no body
+*/
+private String readBody ( HttpExchange t )
+throws IOException
+{
+	try ( InputStream in = t.getRequestBody() ) {
+		byte [] buffer = new byte[8192];
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		int n;
+		while ( (n = in.read(buffer)) > 0 ) {
+			out.write(buffer, 0, n);
+		}
+		return new String(out.toByteArray(), StandardCharsets.UTF_8).trim();
+	}
+}
+
+/**
+Stream one output file.
+@param t the exchange
+@param job the completed job
+@param indexString output file index (0+) from the request path
+*/
+private void sendOutputFile ( HttpExchange t, TSToolCommandFileRun job, String indexString )
+throws IOException
+{	String routine = getClass().getSimpleName() + ".sendOutputFile";
+	List<File> outputFiles = job.getOutputFileList();
+	int index = -1;
+	try {
+		index = Integer.parseInt(indexString);
+	}
+	catch ( NumberFormatException e ) {
+		// Handled below
+	}
+	if ( (index < 0) || (index >= outputFiles.size()) ) {
+		UrlHandler.sendError(t, 404, "Output file " + indexString + " does not exist (job has " + outputFiles.size() + " output files).");
+		return;
+	}
+	File f = outputFiles.get(index);
+	if ( !f.isFile() ) {
+		UrlHandler.sendError(t, 404, "Output file \"" + f + "\" no longer exists.");
+		return;
+	}
+	String contentType = Files.probeContentType(f.toPath());
+	t.getResponseHeaders().set("Content-Type", contentType == null ? "application/octet-stream" : contentType);
+	t.getResponseHeaders().set("Content-Disposition", "attachment; filename=\"" + f.getName() + "\"");
+	t.sendResponseHeaders(200, f.length());
+	try ( OutputStream os = t.getResponseBody() ) {
+		Files.copy(f.toPath(), os);
+	}
+	catch ( IOException e ) {
+		// The status has been sent so another status cannot be sent - close so that the client sees a short response
+		Message.printWarning(3, routine, "Error sending output file \"" + f + "\" for job \"" + job.getId() + "\" (" + e + ")." );
+		t.close();
+	}
+}
+
+/**
+Stream all output files as a zip file.
+Errors after the response headers are sent are logged and the response is closed,
+because another status cannot be sent.
+@param t the exchange
+@param job the completed job
+*/
+private void sendOutputZip ( HttpExchange t, TSToolCommandFileRun job )
+throws IOException
+{	String routine = getClass().getSimpleName() + ".sendOutputZip";
+	t.getResponseHeaders().set("Content-Type", "application/zip");
+	t.getResponseHeaders().set("Content-Disposition", "attachment; filename=\"tstool-job-" + job.getId() + "-output.zip\"");
+	// Length 0 indicates chunked encoding so that the zip file does not need to be created first
+	t.sendResponseHeaders(200, 0);
+	Set<String> entryNames = new HashSet<>();
+	try ( ZipOutputStream zos = new ZipOutputStream(t.getResponseBody()) ) {
+		for ( File f : job.getOutputFileList() ) {
+			if ( !f.isFile() ) {
+				continue;
+			}
+			// Output files in different folders can have the same name
+			String entryName = f.getName();
+			for ( int i = 2; !entryNames.add(entryName); i++ ) {
+				entryName = i + "-" + f.getName();
+			}
+			zos.putNextEntry(new ZipEntry(entryName));
+			Files.copy(f.toPath(), zos);
+			zos.closeEntry();
+		}
+	}
+	catch ( IOException e ) {
+		// The status has been sent so another status cannot be sent - close so that the client sees a short response
+		Message.printWarning(3, routine, "Error sending output zip file for job \"" + job.getId() + "\" (" + e + ")." );
+		t.close();
+	}
+}
+
+}
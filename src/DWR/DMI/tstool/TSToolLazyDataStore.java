@@ -0,0 +1,59 @@
+// TSToolLazyDataStore - placeholder for a datastore that is opened on first use
+
+/* NoticeStart
+
+TSTool
+TSTool is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+TSTool is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TSTool is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TSTool.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package DWR.DMI.tstool;
+
+import riverside.datastore.AbstractDataStore;
+import RTi.Util.IO.PropList;
+
+/**
+Placeholder for a datastore that is opened on first use.
+The placeholder has the datastore name and configuration properties so that the UI can list the datastore
+before it is opened.  The placeholder is never added to the processor (see TSToolLazyDataStores).
+*/
+public class TSToolLazyDataStore extends AbstractDataStore
+{
+
+/**
+Create a placeholder from the datastore configuration properties.
+@param dataStoreProps datastore configuration properties
+*/
+public TSToolLazyDataStore ( PropList dataStoreProps )
+{
+	setName ( dataStoreProps.getValue("Name") );
+	String description = dataStoreProps.getValue("Description");
+	setDescription ( (description == null) ? "" : description );
+	setProperties ( dataStoreProps );
+	setStatusMessage ( "Datastore type \"" + getType() + "\" will be opened on first use." );
+}
+
+/**
+Return the datastore type from the configuration, for example "HydroBaseDataStore".
+@return the datastore type
+*/
+public String getType ()
+{
+	return getProperties().getValue("Type");
+}
+
+}
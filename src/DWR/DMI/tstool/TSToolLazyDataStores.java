@@ -0,0 +1,512 @@
+// TSToolLazyDataStores - datastores for a processor that are opened on first use
+
+/* NoticeStart
+
+TSTool
+TSTool is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+TSTool is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TSTool is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TSTool.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package DWR.DMI.tstool;
+
+import java.io.File;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import riverside.datastore.DataStore;
+import rti.tscommandprocessor.core.TSCommandProcessor;
+import RTi.Util.IO.PropList;
+import RTi.Util.Message.Message;
+
+/**
+Datastores for a processor that are opened on first use rather than at startup,
+which avoids connecting to datastores that are not used by a run.
+Datastores that have not been opened are not added to the processor, so commands never see a placeholder.
+The processor's datastore lookups are in the command processor library and cannot be intercepted,
+so datastores are opened before commands run, for the datastores that the commands can look up:
+<ul>
+<li>	datastores whose name is in the command text, for example DataStore="HDB" or a TSID ~HDB input name</li>
+<li>	datastores whose type is in a command name, for example ReadReclamationHDB() for ReclamationHDBDataStore,
+		because such commands can look up datastores by type</li>
+<li>	datastores used by command files that are run with RunCommands(), which are checked in the same way</li>
+<li>	all datastores, if a datastore name, TSID, or RunCommands() input file is set with ${Property},
+		because the name is not known until the command runs</li>
+</ul>
+The UI lists the datastores that have not been opened using placeholders from getPendingDataStores(),
+and opens a datastore when it is selected.
+Once opened, the datastore stays open.
+Lazy opening is enabled for all datastores with TSTool.DataStoreOpenMode=Lazy in the TSTool configuration file,
+and for individual datastores with OpenMode=Lazy in the datastore configuration file,
+which also can use OpenMode=Startup to override the TSTool configuration.
+*/
+public class TSToolLazyDataStores
+{
+
+/**
+Opens a datastore from its configuration and adds it to the processor.
+*/
+interface Opener
+{
+	/**
+	Open a datastore and add it to the processor.
+	@param processor processor that uses the datastore
+	@param dataStoreProps datastore configuration properties
+	@return the opened datastore, or null if not opened
+	@exception Exception if the datastore cannot be opened
+	*/
+	public DataStore open ( TSCommandProcessor processor, PropList dataStoreProps ) throws Exception;
+}
+
+/**
+Datastore configuration property for the open mode.
+*/
+public static final String OPEN_MODE_PROPERTY = "OpenMode";
+
+/**
+Open mode to open the datastore on first use.
+*/
+public static final String OPEN_MODE_LAZY = "Lazy";
+
+/**
+Open mode to open the datastore at startup.
+*/
+public static final String OPEN_MODE_STARTUP = "Startup";
+
+/**
+Maximum depth of RunCommands() command files to check.
+*/
+private static final int MAX_RUN_COMMANDS_DEPTH = 10;
+
+/**
+Pattern for a datastore name, TSID, or input name that is set with a property, so the datastore is not known.
+*/
+private static final Pattern INDIRECT_PATTERN = Pattern.compile(
+	"(\\w*DataStore\\w*|\\w*TSID\\w*|InputName)\\s*=\\s*\"[^\"]*\\$\\{|~[^\\s\"]*\\$\\{|^\\s*\\$\\{",
+	Pattern.CASE_INSENSITIVE | Pattern.MULTILINE);
+
+/**
+Pattern for RunCommands() with its input file.
+*/
+private static final Pattern RUN_COMMANDS_PATTERN = Pattern.compile(
+	"^\\s*RunCommands\\s*\\(.*InputFile\\s*=\\s*\"([^\"]*)\"", Pattern.CASE_INSENSITIVE | Pattern.MULTILINE);
+
+/**
+Lazy datastores for each processor.  The lazy datastores only reference the processor weakly
+so that the processor can be garbage collected when it is no longer used.
+*/
+private static Map<TSCommandProcessor,TSToolLazyDataStores> processorMap =
+	Collections.synchronizedMap(new WeakHashMap<TSCommandProcessor,TSToolLazyDataStores>());
+
+/**
+Processor that uses the datastores, referenced weakly because this instance is the value for the processor
+in processorMap, which would otherwise keep the processor from being garbage collected.
+*/
+private WeakReference<TSCommandProcessor> processorRef;
+
+/**
+Opens datastores.
+*/
+private Opener opener;
+
+/**
+Configuration properties for datastores that have not been opened, by upper case datastore name.
+*/
+private LinkedHashMap<String,PropList> pendingMap = new LinkedHashMap<>();
+
+/**
+Create the lazy datastores for a processor.  Use getForProcessor() to get the instance.
+*/
+private TSToolLazyDataStores ( TSCommandProcessor processor, Opener opener )
+{
+	this.processorRef = new WeakReference<>(processor);
+	this.opener = opener;
+}
+
+/**
+Add a datastore to be opened on first use.  The datastore is not added to the processor until it is opened.
+@param dataStoreProps datastore configuration properties
+*/
+public synchronized void add ( PropList dataStoreProps )
+{
+	this.pendingMap.put(dataStoreProps.getValue("Name").toUpperCase(), dataStoreProps);
+}
+
+/**
+Return the lazy datastores for a processor, creating if necessary.
+@param session TSTool session, which provides user and environment information
+@param processor processor that uses the datastores
+@param pluginDataStoreClassList plugin datastore classes
+@param pluginDataStoreFactoryClassList plugin datastore factory classes
+@param isBatch whether running in batch mode
+@return the lazy datastores for the processor
+*/
+protected static TSToolLazyDataStores getForProcessor ( final TSToolSession session, TSCommandProcessor processor,
+	@SuppressWarnings("rawtypes") final List<Class> pluginDataStoreClassList,
+	@SuppressWarnings("rawtypes") final List<Class> pluginDataStoreFactoryClassList, final boolean isBatch )
+{
+	// The opener must not reference the processor, which is passed when opening
+	return getForProcessor ( processor, (p, dataStoreProps) -> {
+		boolean addToProcessor = true;
+		return TSToolMain.openDataStore ( session, dataStoreProps, p,
+			pluginDataStoreClassList, pluginDataStoreFactoryClassList, isBatch, addToProcessor );
+	});
+}
+
+/**
+Return the lazy datastores for a processor, creating if necessary.
+@param processor processor that uses the datastores
+@param opener opener for datastores, which must not reference the processor
+@return the lazy datastores for the processor
+*/
+static TSToolLazyDataStores getForProcessor ( TSCommandProcessor processor, Opener opener )
+{
+	synchronized ( processorMap ) {
+		TSToolLazyDataStores lazyDataStores = processorMap.get(processor);
+		if ( lazyDataStores == null ) {
+			lazyDataStores = new TSToolLazyDataStores ( processor, opener );
+			processorMap.put(processor, lazyDataStores);
+		}
+		return lazyDataStores;
+	}
+}
+
+/**
+Return the names of the pending datastores that commands may look up.
+@param text command text
+@param includeAll if true, return all pending datastores, for example because a name is set with a property
+@return the datastore names to open
+*/
+synchronized List<String> getNamesToOpen ( String text, boolean includeAll )
+{
+	List<String> nameList = new ArrayList<>();
+	if ( text == null ) {
+		return nameList;
+	}
+	boolean all = includeAll || INDIRECT_PATTERN.matcher(text).find();
+	for ( PropList dataStoreProps : this.pendingMap.values() ) {
+		String name = dataStoreProps.getValue("Name");
+		if ( all || isReferenced(text, name) || isTypeReferenced(text, dataStoreProps.getValue("Type")) ) {
+			nameList.add(name);
+		}
+	}
+	return nameList;
+}
+
+/**
+Return placeholders for the datastores that have not been opened, for the UI to list.
+The placeholders must not be added to the processor.
+@return placeholders for the datastores that have not been opened
+*/
+public synchronized List<DataStore> getPendingDataStores ()
+{
+	List<DataStore> dataStoreList = new ArrayList<>(this.pendingMap.size());
+	for ( PropList dataStoreProps : this.pendingMap.values() ) {
+		dataStoreList.add(new TSToolLazyDataStore(dataStoreProps));
+	}
+	return dataStoreList;
+}
+
+/**
+Return placeholders for the datastores for a processor that have not been opened, for the UI to list.
+The placeholders must not be added to the processor.
+@param processor processor that uses the datastores
+@return placeholders for the datastores that have not been opened (empty if none)
+*/
+public static List<DataStore> getPendingDataStores ( TSCommandProcessor processor )
+{
+	TSToolLazyDataStores lazyDataStores = processorMap.get(processor);
+	if ( lazyDataStores == null ) {
+		return new ArrayList<>();
+	}
+	return lazyDataStores.getPendingDataStores();
+}
+
+/**
+Indicate whether any datastores have not been opened.
+@return true if any datastores have not been opened
+*/
+public synchronized boolean hasPending ()
+{
+	return !this.pendingMap.isEmpty();
+}
+
+/**
+Indicate whether any datastores for a processor have not been opened.
+@param processor processor that uses the datastores
+@return true if any datastores have not been opened
+*/
+public static boolean hasPending ( TSCommandProcessor processor )
+{
+	TSToolLazyDataStores lazyDataStores = processorMap.get(processor);
+	return (lazyDataStores != null) && lazyDataStores.hasPending();
+}
+
+/**
+Indicate whether a datastore configuration should be opened on first use.
+@param dataStoreProps datastore configuration properties
+@param lazyDefault whether datastores are opened on first use when the configuration does not specify
+@return true if the datastore should be opened on first use
+*/
+public static boolean isLazy ( PropList dataStoreProps, boolean lazyDefault )
+{
+	if ( dataStoreProps.getValue("Name") == null ) {
+		return false;
+	}
+	String openMode = dataStoreProps.getValue(OPEN_MODE_PROPERTY);
+	if ( openMode == null ) {
+		return lazyDefault;
+	}
+	return openMode.trim().equalsIgnoreCase(OPEN_MODE_LAZY);
+}
+
+/**
+Indicate whether a datastore name is referenced in text.
+@param text text to check, for example a command file
+@param name datastore name
+@return true if the name occurs in the text and is not part of a longer name
+*/
+protected static boolean isReferenced ( String text, String name )
+{
+	// Quick check before the regular expression
+	if ( (text == null) || !text.toUpperCase().contains(name.toUpperCase()) ) {
+		return false;
+	}
+	Pattern pattern = Pattern.compile("(^|[^A-Za-z0-9_-])" + Pattern.quote(name) + "($|[^A-Za-z0-9_-])",
+		Pattern.CASE_INSENSITIVE | Pattern.MULTILINE);
+	return pattern.matcher(text).find();
+}
+
+/**
+Indicate whether a datastore type is referenced in a command name in text,
+for example ReadReclamationHDB() for type ReclamationHDBDataStore.
+@param text text to check, for example a command file
+@param type datastore type from the configuration, for example "ReclamationHDBDataStore"
+@return true if a command name contains the type, without "DataStore"
+*/
+protected static boolean isTypeReferenced ( String text, String type )
+{
+	if ( (text == null) || (type == null) ) {
+		return false;
+	}
+	String stem = type.trim();
+	if ( stem.toUpperCase().endsWith("DATASTORE") ) {
+		stem = stem.substring(0, stem.length() - "DATASTORE".length());
+	}
+	if ( stem.isEmpty() || !text.toUpperCase().contains(stem.toUpperCase()) ) {
+		return false;
+	}
+	Pattern pattern = Pattern.compile("^\\s*\\w*" + Pattern.quote(stem) + "\\w*\\s*\\(",
+		Pattern.CASE_INSENSITIVE | Pattern.MULTILINE);
+	return pattern.matcher(text).find();
+}
+
+/**
+Open a datastore that has not been opened and add it to the processor.
+If the datastore is being opened by another thread, wait for it to be opened.
+@param name datastore name
+@return the opened datastore, or null if the datastore is not pending or could not be opened
+*/
+public DataStore open ( String name )
+{	String routine = getClass().getSimpleName() + ".open";
+	String key = name.toUpperCase();
+	PropList dataStoreProps;
+	synchronized ( this ) {
+		dataStoreProps = this.pendingMap.get(key);
+	}
+	if ( dataStoreProps == null ) {
+		return null;
+	}
+	// Lock the datastore so that it is opened once, without blocking other datastores
+	synchronized ( dataStoreProps ) {
+		TSCommandProcessor processor = this.processorRef.get();
+		synchronized ( this ) {
+			if ( this.pendingMap.get(key) != dataStoreProps ) {
+				// Opened by another thread while waiting
+				return (processor == null) ? null : processor.getDataStoreForName(name, null);
+			}
+		}
+		if ( processor == null ) {
+			return null;
+		}
+		Message.printStatus(2, routine, "Opening datastore \"" + dataStoreProps.getValue("Name") + "\" on first use." );
+		DataStore dataStore = null;
+		try {
+			dataStore = this.opener.open ( processor, dataStoreProps );
+		}
+		catch ( Exception e ) {
+			Message.printWarning (2,routine,"Error opening datastore \"" + name + "\" using configuration file \"" +
+				dataStoreProps.getValue("DataStoreConfigFile") + "\" (" + e + ")." );
+			Message.printWarning(2, routine, e);
+		}
+		finally {
+			// Only try once, the same as opening at startup
+			synchronized ( this ) {
+				this.pendingMap.remove(key);
+			}
+		}
+		return dataStore;
+	}
+}
+
+/**
+Open a datastore for a processor that has not been opened, for example when selected in the UI.
+@param processor processor that uses the datastores
+@param name datastore name
+@return the opened datastore, or null if the datastore is not pending or could not be opened
+*/
+public static DataStore open ( TSCommandProcessor processor, String name )
+{
+	TSToolLazyDataStores lazyDataStores = processorMap.get(processor);
+	if ( lazyDataStores == null ) {
+		return null;
+	}
+	return lazyDataStores.open ( name );
+}
+
+/**
+Open datastores by name.
+@return the number of datastores that were opened
+*/
+private int open ( List<String> nameList )
+{
+	int openCount = 0;
+	for ( String name : nameList ) {
+		if ( open(name) != null ) {
+			++openCount;
+		}
+	}
+	return openCount;
+}
+
+/**
+Open the datastores that have not been opened and that may be looked up by the commands in a command file,
+including command files run with RunCommands().
+@param processor processor that uses the datastores
+@param commandFile command file that will be run
+@return the number of datastores that were opened
+*/
+public static int openReferenced ( TSCommandProcessor processor, File commandFile )
+{	String routine = TSToolLazyDataStores.class.getSimpleName() + ".openReferenced";
+	TSToolLazyDataStores lazyDataStores = processorMap.get(processor);
+	if ( (lazyDataStores == null) || !lazyDataStores.hasPending() ) {
+		// Don't read the file
+		return 0;
+	}
+	try {
+		String text = new String(Files.readAllBytes(commandFile.toPath()), StandardCharsets.UTF_8);
+		return lazyDataStores.openReferenced ( text, commandFile.getAbsoluteFile().getParentFile() );
+	}
+	catch ( Exception e ) {
+		// The command file read will fail and report the error
+		Message.printWarning(3, routine, "Error reading command file \"" + commandFile + "\" to check datastores (" + e + ")." );
+		return 0;
+	}
+}
+
+/**
+Open the datastores that have not been opened and that may be looked up by commands or a TSID.
+@param processor processor that uses the datastores
+@param text commands or a TSID
+@return the number of datastores that were opened
+*/
+public static int openReferenced ( TSCommandProcessor processor, String text )
+{
+	return openReferenced ( processor, text, null );
+}
+
+/**
+Open the datastores that have not been opened and that may be looked up by commands or a TSID.
+@param processor processor that uses the datastores
+@param text commands or a TSID
+@param workingDir working directory for RunCommands() input files (null if not known,
+in which case all datastores are opened if RunCommands() is used)
+@return the number of datastores that were opened
+*/
+public static int openReferenced ( TSCommandProcessor processor, String text, File workingDir )
+{
+	TSToolLazyDataStores lazyDataStores = processorMap.get(processor);
+	if ( (lazyDataStores == null) || !lazyDataStores.hasPending() ) {
+		return 0;
+	}
+	return lazyDataStores.openReferenced ( text, workingDir );
+}
+
+/**
+Open the datastores that have not been opened and that may be looked up by commands,
+including commands in command files run with RunCommands().
+@param text commands
+@param workingDir working directory for RunCommands() input files (null if not known)
+@return the number of datastores that were opened
+*/
+public int openReferenced ( String text, File workingDir )
+{
+	StringBuilder allText = new StringBuilder();
+	boolean includeAll = !appendRunCommandsText ( allText, text, workingDir, new HashSet<String>(), 0 );
+	return open ( getNamesToOpen(allText.toString(), includeAll) );
+}
+
+/**
+Append command text and the text of command files that it runs with RunCommands().
+@return false if a RunCommands() input file cannot be determined or read, in which case all datastores should be opened
+*/
+private boolean appendRunCommandsText ( StringBuilder allText, String text, File workingDir, Set<String> visited, int depth )
+{	String routine = getClass().getSimpleName() + ".appendRunCommandsText";
+	allText.append(text).append("\n");
+	boolean known = true;
+	Matcher m = RUN_COMMANDS_PATTERN.matcher(text);
+	while ( m.find() ) {
+		String inputFile = m.group(1);
+		if ( inputFile.contains("${") || (depth >= MAX_RUN_COMMANDS_DEPTH) ) {
+			known = false;
+			continue;
+		}
+		File file = new File(inputFile);
+		if ( !file.isAbsolute() ) {
+			if ( workingDir == null ) {
+				known = false;
+				continue;
+			}
+			file = new File(workingDir, inputFile);
+		}
+		file = file.getAbsoluteFile();
+		if ( !visited.add(file.getPath()) ) {
+			continue;
+		}
+		try {
+			String childText = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+			known = appendRunCommandsText ( allText, childText, file.getParentFile(), visited, depth + 1 ) && known;
+		}
+		catch ( Exception e ) {
+			Message.printWarning(3, routine, "Error reading command file \"" + file + "\" to check datastores (" + e + ")." );
+			known = false;
+		}
+	}
+	return known;
+}
+
+}
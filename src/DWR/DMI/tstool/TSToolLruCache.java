@@ -0,0 +1,273 @@
+// TSToolLruCache - least recently used cache with a time to live, limited by the number and total weight of entries
+
+/* NoticeStart
+
+TSTool
+TSTool is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+TSTool is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TSTool is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TSTool.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package DWR.DMI.tstool;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+Least recently used cache with a time to live, which is used by the TSTool caches
+(query results, time series read by the command processor, and time series read by the REST server).
+Entries are removed, least recently used first, when the number of entries or the total weight of the entries
+is greater than the limits.  The weight is set by the caller, for example the number of rows or estimated bytes.
+An entry is not used if:
+<ul>
+<li>	the entry was cached with a source (for example a datastore instance) that is not the same instance
+		as the source that is requested, for example after logging in to a datastore again</li>
+<li>	the entry was cached with a FileState and the file has changed since the state was captured</li>
+<li>	the entry was cached without a FileState and the time to live has passed</li>
+</ul>
+Times are passed in by the caller so that callers can use their own clock.
+@param <T> type of object that is cached
+*/
+public class TSToolLruCache<T>
+{
+
+/**
+Modification time and size of a file, captured before the file is read,
+so that an object read from the file is not used after the file changes,
+including changes that are made while the file is being read.
+*/
+public static class FileState
+{
+	private File file;
+	private long modified;
+	private long length;
+
+	/**
+	Capture the state of a file.
+	@param file file that will be read
+	*/
+	public FileState ( File file )
+	{
+		this.file = file;
+		this.modified = file.lastModified();
+		this.length = file.length();
+	}
+
+	/**
+	Indicate whether the file is the same as when the state was captured.
+	@return true if the modification time and size have not changed
+	*/
+	public boolean isCurrent ()
+	{
+		return (this.file.lastModified() == this.modified) && (this.file.length() == this.length);
+	}
+}
+
+/**
+Cached object.
+*/
+private static class Entry<T>
+{
+	private Object source;
+	private T value;
+	private long weight;
+	private long createTime;
+	private FileState fileState;
+
+	private Entry ( Object source, T value, long weight, long createTime, FileState fileState )
+	{
+		this.source = source;
+		this.value = value;
+		this.weight = weight;
+		this.createTime = createTime;
+		this.fileState = fileState;
+	}
+}
+
+/**
+Entries by key, in access order.
+*/
+private LinkedHashMap<String,Entry<T>> entryMap = new LinkedHashMap<>(16, 0.75f, true);
+
+/**
+Maximum number of entries (<= 0 for no limit).
+*/
+private int maxEntries;
+
+/**
+Maximum total weight of all entries (<= 0 for no limit).
+*/
+private long maxWeight;
+
+/**
+Time to live for entries that are not cached with a FileState, milliseconds (<= 0 for no limit).
+*/
+private long ttlMillis;
+
+/**
+Total weight of all entries.
+*/
+private long weight = 0;
+
+/**
+Number of requests that were found in the cache.
+*/
+private long hitCount = 0;
+
+/**
+Number of requests that were not found in the cache.
+*/
+private long missCount = 0;
+
+/**
+Create a cache.
+@param maxEntries maximum number of entries (<= 0 for no limit)
+@param maxWeight maximum total weight of all entries (<= 0 for no limit)
+@param ttlMillis time to live for entries that are not cached with a FileState, milliseconds (<= 0 for no limit)
+*/
+public TSToolLruCache ( int maxEntries, long maxWeight, long ttlMillis )
+{
+	this.maxEntries = maxEntries;
+	this.maxWeight = maxWeight;
+	this.ttlMillis = ttlMillis;
+}
+
+/**
+Remove all entries.
+*/
+public synchronized void clear ()
+{
+	this.entryMap.clear();
+	this.weight = 0;
+}
+
+/**
+Return a cached object.
+@param key cache key
+@param source source of the object, which must be the same instance as when the object was cached (can be null)
+@param now current time, milliseconds, used to check the time to live
+@return the cached object, or null if not cached, cached from a different source, the file has changed,
+or the time to live has passed
+*/
+public synchronized T get ( String key, Object source, long now )
+{
+	Entry<T> entry = this.entryMap.get(key);
+	if ( (entry != null) && !isValid(entry, source, now) ) {
+		remove ( key );
+		entry = null;
+	}
+	if ( entry == null ) {
+		++this.missCount;
+		return null;
+	}
+	++this.hitCount;
+	return entry.value;
+}
+
+/**
+Return the number of requests that were found in the cache.
+@return the number of cache hits
+*/
+public synchronized long getHitCount ()
+{
+	return this.hitCount;
+}
+
+/**
+Return the number of requests that were not found in the cache.
+@return the number of cache misses
+*/
+public synchronized long getMissCount ()
+{
+	return this.missCount;
+}
+
+/**
+Return the total weight of all entries.
+@return the total weight
+*/
+public synchronized long getWeight ()
+{
+	return this.weight;
+}
+
+/**
+Indicate whether an entry can be used.
+*/
+private boolean isValid ( Entry<T> entry, Object source, long now )
+{
+	if ( entry.source != source ) {
+		return false;
+	}
+	if ( entry.fileState != null ) {
+		return entry.fileState.isCurrent();
+	}
+	return (this.ttlMillis <= 0) || ((now - entry.createTime) <= this.ttlMillis);
+}
+
+/**
+Cache an object, replacing a previous object for the key.
+Least recently used entries are removed if the limits are exceeded.
+@param key cache key
+@param source source of the object, for example the datastore instance (can be null)
+@param value object to cache
+@param weight weight of the object, for example the number of rows or estimated bytes
+@param createTime time that the object was read, milliseconds
+@param fileState state of the file that the object was read from, captured before the read,
+or null if not read from a file, in which case the time to live is used
+*/
+public synchronized void put ( String key, Object source, T value, long weight, long createTime, FileState fileState )
+{
+	remove ( key );
+	if ( ((this.maxWeight > 0) && (weight > this.maxWeight)) || ((fileState != null) && !fileState.isCurrent()) ) {
+		// Too big to cache, or the file changed while it was read
+		return;
+	}
+	this.entryMap.put(key, new Entry<T>(source, value, weight, createTime, fileState));
+	this.weight += weight;
+	Iterator<Map.Entry<String,Entry<T>>> it = this.entryMap.entrySet().iterator();
+	while ( it.hasNext() && (((this.maxEntries > 0) && (this.entryMap.size() > this.maxEntries)) ||
+		((this.maxWeight > 0) && (this.weight > this.maxWeight))) ) {
+		// Least recently used is first
+		this.weight -= it.next().getValue().weight;
+		it.remove();
+	}
+}
+
+/**
+Remove a cached object.
+@param key cache key
+*/
+public synchronized void remove ( String key )
+{
+	Entry<T> entry = this.entryMap.remove(key);
+	if ( entry != null ) {
+		this.weight -= entry.weight;
+	}
+}
+
+/**
+Return the number of cached objects.
+@return the number of entries, including entries that are no longer valid and have not been requested
+*/
+public synchronized int size ()
+{
+	return this.entryMap.size();
+}
+
+}
@@ -28,6 +28,7 @@ import java.io.FilenameFilter;
 import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -112,6 +113,17 @@ Path to the batch server hot folder.
 */
 private static String __batchServerHotFolder = "";
 
+/**
+Path to the batch server journal file.  If not specified, a default file in the hot folder is used.
+*/
+private static String __batchServerJournal = "";
+
+/**
+Number of workers when running in batch server mode.  Each worker has its own command processor and datastore
+connections so that multiple command files in the hot folder can be run at the same time.
+*/
+private static int __batchServerWorkers = 1;
+
 /**
 Timeout when running in batch mode.  TSTool will exit if processing has not finished
 (usually because of web service hang-up, etc.)
@@ -145,6 +157,12 @@ REST endpoints and URL parameters will translate to ${Property}).
 */
 private static boolean __isHttpServer = false;
 
+/**
+Number of workers when running in HTTP server mode.  Each worker has its own command processor and datastore
+connections so that multiple requests can be run at the same time.
+*/
+private static int __httpServerWorkers = 1;
+
 /**
 Indicates whether TSTool is running in server mode using restlet.
 */
@@ -280,6 +298,33 @@ public static String getBatchServerHotFolder()
 {	return __batchServerHotFolder;
 }
 
+/**
+Return the batch server journal file.
+@return the batch server journal file, or an empty string if not specified on the command line.
+*/
+private static String getBatchServerJournal ()
+{
+	return __batchServerJournal;
+}
+
+/**
+Return the number of batch server workers.
+@return the number of batch server workers (always 1 or more).
+*/
+private static int getBatchServerWorkers ()
+{
+	return __batchServerWorkers;
+}
+
+/**
+Return the number of HTTP server workers.
+@return the number of HTTP server workers (always 1 or more).
+*/
+private static int getHttpServerWorkers ()
+{
+	return __httpServerWorkers;
+}
+
 /**
 Return the command file that is being processed, or null if not being run in batch mode.
 @return the path to the command file to run.
@@ -508,42 +553,50 @@ private static void loadPluginDataStores(TSToolSession session,
 	final String routine = "TSToolMain.loadPluginDataStores";
 	// Find jar files that contain datastores
 	Message.printStatus(2, routine, "Loading plugin datastores and commands using old and then new approach...");
+	// Use the plugin index so that jar file manifests are only read for new or changed jar files
+	TSToolPluginIndex pluginIndex = new TSToolPluginIndex(new File(session.getMajorVersionFolder() + File.separator + "plugin-index.txt"));
+	pluginIndex.read();
 	// First use the old approach (TSTool 12.06.00 and earlier)
 	final List<String> pluginJarListOld = new ArrayList<>();
 	findPluginDataStoreJarFilesOld ( session, pluginJarListOld );
-	loadPluginDataStoresOld("", session, pluginJarListOld, pluginDataStoreList, pluginDataStoreFactoryList, pluginCommandList );
+	loadPluginDataStoresOld("", session, pluginIndex, pluginJarListOld, pluginDataStoreList, pluginDataStoreFactoryList, pluginCommandList );
 	// Next use the new approach (TSTool 12.07.00 and later)
 	final List<String> pluginJarListNew = new ArrayList<>();
 	findPluginDataStoreJarFilesNew ( session, pluginJarListNew );
-	loadPluginDataStoresNew(session, pluginJarListNew, pluginDataStoreList, pluginDataStoreFactoryList, pluginCommandList );
+	loadPluginDataStoresNew(session, pluginIndex, pluginJarListNew, pluginDataStoreList, pluginDataStoreFactoryList, pluginCommandList );
+	Message.printStatus(2, routine, "Used plugin index for " + pluginIndex.getHitCount() + " jar files, read " +
+		pluginIndex.getReadCount() + " jar file manifests." );
+	pluginIndex.write();
 }
 
 /**
  * Load plugin datastore clases using new (TSTool 12.07.00 and later approach).
  * Currently uses the old approach because at this point the list of candidate jar files is processed.
  * @param session
+ * @param pluginIndex plugin index used to look up the classes listed in jar file manifests
  * @param pluginJarList
  * @param pluginDataStoreList
  * @param pluginDataStoreFactoryList
  * @param pluginCommandList empty list of plugin commands, will be populated by this method.
  */
-private static void loadPluginDataStoresNew(TSToolSession session, List<String> pluginJarList,
+private static void loadPluginDataStoresNew(TSToolSession session, TSToolPluginIndex pluginIndex, List<String> pluginJarList,
 	@SuppressWarnings("rawtypes") List<Class> pluginDataStoreList,
 	@SuppressWarnings("rawtypes") List<Class> pluginDataStoreFactoryList,
 	@SuppressWarnings("rawtypes") List<Class> pluginCommandList ) {
 	// Try using the old logic for now
-	loadPluginDataStoresOld( "New", session, pluginJarList, pluginDataStoreList, pluginDataStoreFactoryList, pluginCommandList );
+	loadPluginDataStoresOld( "New", session, pluginIndex, pluginJarList, pluginDataStoreList, pluginDataStoreFactoryList, pluginCommandList );
 }
 
 /**
  * Load plugin datastore classes using old (TSTool 12.06.00 and earlier approach).
  * @param session
+ * @param pluginIndex plugin index used to look up the classes listed in jar file manifests
  * @param pluginJarList
  * @param pluginDataStoreList
  * @param pluginDataStoreFactoryList
  * @param pluginCommandList empty list of plugin commands, will be populated by this method.
  */
-private static void loadPluginDataStoresOld(String messagePrefix, TSToolSession session, List<String> pluginJarList,
+private static void loadPluginDataStoresOld(String messagePrefix, TSToolSession session, TSToolPluginIndex pluginIndex, List<String> pluginJarList,
 	@SuppressWarnings("rawtypes") List<Class> pluginDataStoreList,
 	@SuppressWarnings("rawtypes") List<Class> pluginDataStoreFactoryList,
 	@SuppressWarnings("rawtypes") List<Class> pluginCommandList ) {
@@ -558,128 +611,151 @@ private static void loadPluginDataStoresOld(String messagePrefix, TSToolSession
 	for ( String pluginJar : pluginJarList ) {
 		// TODO figure out if only the top level datastore Jar file should be included
 		Message.printStatus(2, routine, "Trying to load plugin datastores from \"" + pluginJar + "\"");
-		URL [] dataStoreJarURLs = new URL[2];
-		try {
-			// Convert the file system filename to URL using forward slashes
-			dataStoreJarURLs[0] = new URL("file:///" + pluginJar.replace("\\", "/"));
-			// Also add all the jar files in the "/dep" folder
-			// -tried to figure out how to use MANIFEST-MF Class-Path property but seemed confusing
-			//  so just add all jar files that are found
-			File f = new File(pluginJar);
-			List<File> depJarFiles = IOUtil.getFilesMatchingPattern(f.getParent() + File.separator + "dep", "jar", false);
-			URL [] dataStoreJarURLs2 = new URL[1 + depJarFiles.size()];
-			dataStoreJarURLs2[0] = dataStoreJarURLs[0];
-			int i = 1;
-			for ( File depJarFile : depJarFiles ) {
-				dataStoreJarURLs2[i++] = new URL("file:///" + depJarFile.getAbsolutePath().replace("\\", "/"));
-			}
-			dataStoreJarURLs = dataStoreJarURLs2;
-		}
-		catch ( MalformedURLException e ) {
-			Message.printWarning(3,routine,"Error creating URL for datastore plugin jar file \"" + pluginJar + "\" (" + e + ") - skipping plugin" );
-			continue;
-		}
-		// Create a class loader specific to the datastore.  This expects the datastore to be in the jar file with class name XXXXXDataStore.
-		// - TODO smalers 2020-07-26 using different class loaders for datastore and command classes causes an issue later
-		//PluginDataStoreClassLoader pcl = new PluginDataStoreClassLoader ( dataStoreJarURLs );
-		PluginDataStoreClassLoader pcl = null;
-		boolean oldCode = false;
-		if ( oldCode ) { 
-			// Old approach, which leads to ClassCastException because plugin classes are loaded from different class loaders.
-			pcl = new PluginDataStoreClassLoader ( dataStoreJarURLs );
-		}
-		else {
-			boolean useChildClassLoader = false;
-			// New approach, which tries to overcome the ClassCastException issues
-			pcl = new PluginDataStoreClassLoader ( dataStoreJarURLs, TSToolMain.class.getClassLoader(), useChildClassLoader );
-		}
-		@SuppressWarnings("rawtypes")
-		List<Class> pluginDataStoreList1 = null;
-		@SuppressWarnings("rawtypes")
-		List<Class> pluginDataStoreFactoryList1 = null;
-		// Load datastore classes
-		try {
-			pluginDataStoreList1 = pcl.loadDataStoreClasses();
-		}
-		catch ( ClassNotFoundException e ) {
-			Message.printWarning(2,routine,"Error loading datastore plugin classes (" + e + ")." );
-			Message.printWarning(2,routine,e);
-		}
-		// Load datastore factory classes
+		TSToolStartupProfiler.Sample pluginSample = TSToolStartupProfiler.startItem("plugin", pluginJar);
 		try {
-			pluginDataStoreFactoryList1 = pcl.loadDataStoreFactoryClasses();
+			loadPluginDataStoresFromJarOld(routine, pluginIndex, pluginJar, pluginDataStoreList, pluginDataStoreFactoryList, pluginCommandList);
 		}
-		catch ( ClassNotFoundException e ) {
-			Message.printWarning(2,routine,"Error loading datastore factory plugin classes (" + e + ")." );
-			Message.printWarning(2,routine,e);
+		finally {
+			pluginSample.stop();
 		}
-		// For now require that one datastore class and one datastore class factory are loaded for each datastore.
-		// Add the plugin datastore class to the list.
-		if ( pluginDataStoreList1 == null ) {
-			Message.printWarning(2,routine,"Null datastore for plugin Jar \"" + pluginJar + "\" - skipping plugin datastore." );
+	}
+}
+
+/**
+ * Load plugin datastores, datastore factories, and commands from one plugin jar file.
+ * Called by loadPluginDataStoresOld for each jar file.
+ * @param routine routine name to use for messages
+ * @param pluginIndex plugin index, used to find the plugin classes
+ * @param pluginJar path to the plugin jar file
+ * @param pluginDataStoreList list of plugin datastore classes, will be added to by this method.
+ * @param pluginDataStoreFactoryList list of plugin datastore factory classes, will be added to by this method.
+ * @param pluginCommandList list of plugin commands, will be added to by this method.
+ */
+private static void loadPluginDataStoresFromJarOld(String routine, TSToolPluginIndex pluginIndex, String pluginJar,
+	@SuppressWarnings("rawtypes") List<Class> pluginDataStoreList,
+	@SuppressWarnings("rawtypes") List<Class> pluginDataStoreFactoryList,
+	@SuppressWarnings("rawtypes") List<Class> pluginCommandList ) {
+	URL [] dataStoreJarURLs = new URL[2];
+	try {
+		// Convert the file system filename to URL using forward slashes
+		dataStoreJarURLs[0] = new URL("file:///" + pluginJar.replace("\\", "/"));
+		// Also add all the jar files in the "/dep" folder
+		// -tried to figure out how to use MANIFEST-MF Class-Path property but seemed confusing
+		//  so just add all jar files that are found
+		File f = new File(pluginJar);
+		List<File> depJarFiles = IOUtil.getFilesMatchingPattern(f.getParent() + File.separator + "dep", "jar", false);
+		URL [] dataStoreJarURLs2 = new URL[1 + depJarFiles.size()];
+		dataStoreJarURLs2[0] = dataStoreJarURLs[0];
+		int i = 1;
+		for ( File depJarFile : depJarFiles ) {
+			dataStoreJarURLs2[i++] = new URL("file:///" + depJarFile.getAbsolutePath().replace("\\", "/"));
+		}
+		dataStoreJarURLs = dataStoreJarURLs2;
+	}
+	catch ( MalformedURLException e ) {
+		Message.printWarning(3,routine,"Error creating URL for datastore plugin jar file \"" + pluginJar + "\" (" + e + ") - skipping plugin" );
+		return;
+	}
+	// Create a class loader specific to the datastore.  This expects the datastore to be in the jar file with class name XXXXXDataStore.
+	// - TODO smalers 2020-07-26 using different class loaders for datastore and command classes causes an issue later
+	//PluginDataStoreClassLoader pcl = new PluginDataStoreClassLoader ( dataStoreJarURLs );
+	PluginDataStoreClassLoader pcl = null;
+	boolean oldCode = false;
+	if ( oldCode ) { 
+		// Old approach, which leads to ClassCastException because plugin classes are loaded from different class loaders.
+		pcl = new PluginDataStoreClassLoader ( dataStoreJarURLs );
+	}
+	else {
+		boolean useChildClassLoader = false;
+		// New approach, which tries to overcome the ClassCastException issues
+		pcl = new PluginDataStoreClassLoader ( dataStoreJarURLs, TSToolMain.class.getClassLoader(), useChildClassLoader );
+	}
+	@SuppressWarnings("rawtypes")
+	List<Class> pluginDataStoreList1 = null;
+	@SuppressWarnings("rawtypes")
+	List<Class> pluginDataStoreFactoryList1 = null;
+	// Load datastore classes
+	try {
+		pluginDataStoreList1 = pcl.loadDataStoreClasses(pluginIndex);
+	}
+	catch ( ClassNotFoundException e ) {
+		Message.printWarning(2,routine,"Error loading datastore plugin classes (" + e + ")." );
+		Message.printWarning(2,routine,e);
+	}
+	// Load datastore factory classes
+	try {
+		pluginDataStoreFactoryList1 = pcl.loadDataStoreFactoryClasses(pluginIndex);
+	}
+	catch ( ClassNotFoundException e ) {
+		Message.printWarning(2,routine,"Error loading datastore factory plugin classes (" + e + ")." );
+		Message.printWarning(2,routine,e);
+	}
+	// For now require that one datastore class and one datastore class factory are loaded for each datastore.
+	// Add the plugin datastore class to the list.
+	if ( pluginDataStoreList1 == null ) {
+		Message.printWarning(2,routine,"Null datastore for plugin Jar \"" + pluginJar + "\" - skipping plugin datastore." );
+	}
+	else {
+		if ( pluginDataStoreList1.size() != 1 ) {
+			Message.printWarning(2,routine,"Datastore plugin list size (" + pluginDataStoreList1.size() +
+				") is not size of 1 for Jar \"" + pluginJar + "\" - skipping plugin." );
 		}
 		else {
-			if ( pluginDataStoreList1.size() != 1 ) {
-				Message.printWarning(2,routine,"Datastore plugin list size (" + pluginDataStoreList1.size() +
-					") is not size of 1 for Jar \"" + pluginJar + "\" - skipping plugin." );
-			}
-			else {
-				// Add to the list to be known to TSTool
-				pluginDataStoreList.addAll(pluginDataStoreList1);
-			}
+			// Add to the list to be known to TSTool
+			pluginDataStoreList.addAll(pluginDataStoreList1);
 		}
-		// Add the plugin datastore factory class to the list.
-		if ( pluginDataStoreFactoryList1 == null ) {
-			Message.printWarning(2,routine,"Null datastore factory for plugin Jar \"" + pluginJar + "\" - skipping plugin datastore factory." );
+	}
+	// Add the plugin datastore factory class to the list.
+	if ( pluginDataStoreFactoryList1 == null ) {
+		Message.printWarning(2,routine,"Null datastore factory for plugin Jar \"" + pluginJar + "\" - skipping plugin datastore factory." );
+	}
+	else {
+		if ( pluginDataStoreFactoryList1.size() != 1 ) {
+			Message.printWarning(2,routine,"Datastore plugin factory list size (" + pluginDataStoreFactoryList1.size() +
+				") is not size of 1 for Jar \"" + pluginJar + "\" - skipping plugin." );
 		}
 		else {
-			if ( pluginDataStoreFactoryList1.size() != 1 ) {
-				Message.printWarning(2,routine,"Datastore plugin factory list size (" + pluginDataStoreFactoryList1.size() +
-					") is not size of 1 for Jar \"" + pluginJar + "\" - skipping plugin." );
-			}
-			else {
-				// Add to the list to be known to TSTool
-				pluginDataStoreFactoryList.addAll(pluginDataStoreFactoryList1);
-			}
+			// Add to the list to be known to TSTool
+			pluginDataStoreFactoryList.addAll(pluginDataStoreFactoryList1);
 		}
+	}
 
-		// Add the plugin command class to the list.
-		// Use a class loader to load the class file
-		@SuppressWarnings("rawtypes")
-		List<Class> pluginCommandList1 = null;
-		// Load command classes
+	// Add the plugin command class to the list.
+	// Use a class loader to load the class file
+	@SuppressWarnings("rawtypes")
+	List<Class> pluginCommandList1 = null;
+	// Load command classes
+	try {
+		// TODO smalers 2020-08-03 for now use method in the datastore clas loader
+		//PluginCommandClassLoader pcl2 = new PluginCommandClassLoader ( dataStoreJarURLs );
+		//pluginCommandList1 = pcl2.loadCommandClasses();
+		pluginCommandList1 = pcl.loadCommandClasses(pluginIndex);
+	}
+	catch ( ClassNotFoundException e ) {
+		Message.printWarning(2,routine,"Error loading command plugin classes (" + e + ")." );
+		Message.printWarning(2,routine,e);
+	}
+	finally {
+		/* FIXME SAM 2016-04-03 Try not closing class loader because it is needed for other classes in the plugin
+	 	* The compiler may show as a warning as a memory leak but it needs to be around throughout the runtime
 		try {
-			// TODO smalers 2020-08-03 for now use method in the datastore clas loader
-			//PluginCommandClassLoader pcl2 = new PluginCommandClassLoader ( dataStoreJarURLs );
-			//pluginCommandList1 = pcl2.loadCommandClasses();
-			pluginCommandList1 = pcl.loadCommandClasses();
-		}
-		catch ( ClassNotFoundException e ) {
-			Message.printWarning(2,routine,"Error loading command plugin classes (" + e + ")." );
-			Message.printWarning(2,routine,e);
-		}
-		finally {
-			/* FIXME SAM 2016-04-03 Try not closing class loader because it is needed for other classes in the plugin
-		 	* The compiler may show as a warning as a memory leak but it needs to be around throughout the runtime
-			try {
-				pcl.close();
-			}
-			catch ( IOException e ) {
-				// For now swallow - not sure what else to do
-			}
-			*/
-		}
-		if ( pluginCommandList1 == null ) {
-			Message.printWarning(2,routine,"Null plugin command list for plugin Jar \"" + pluginJar + "\" - skipping plugin commands." );
+			pcl.close();
 		}
-		else {
-			// Add to the list to be known to TSTool
-			// - multiple commands can be associated with a plugin jar file
-			// - other plugins may also add to the list
-			Message.printStatus(2,routine,"Plugin command list for plugin Jar \"" + pluginJar + "\" includes " +
-				pluginCommandList1.size() + " commands." );
-			pluginCommandList.addAll(pluginCommandList1);
+		catch ( IOException e ) {
+			// For now swallow - not sure what else to do
 		}
+		*/
+	}
+	if ( pluginCommandList1 == null ) {
+		Message.printWarning(2,routine,"Null plugin command list for plugin Jar \"" + pluginJar + "\" - skipping plugin commands." );
+	}
+	else {
+		// Add to the list to be known to TSTool
+		// - multiple commands can be associated with a plugin jar file
+		// - other plugins may also add to the list
+		Message.printStatus(2,routine,"Plugin command list for plugin Jar \"" + pluginJar + "\" includes " +
+			pluginCommandList1.size() + " commands." );
+		pluginCommandList.addAll(pluginCommandList1);
 	}
 }
 
@@ -911,6 +987,13 @@ public static void main ( String args[] )
 	// - TODO smalers 2019-10-07 Need to enable in limited way to troubleshoot
 	//System.setProperty("org.apache.poi.util.POILogger", "org.apache.poi.util.CommonsLogger" );
 
+	// Enable the startup profiler before anything else so that all phases are timed
+	for ( String arg : args ) {
+		if ( arg.equalsIgnoreCase("-startupProfile") || arg.equalsIgnoreCase("--startupProfile") ) {
+			TSToolStartupProfiler.enable();
+		}
+	}
+
 	// TSTool session properties are a singleton
 	IOUtil.setProgramData ( PROGRAM_NAME, PROGRAM_VERSION, args ); // Do first, needed by session to find local files, plugins, etc.
 	JGUIUtil.setAppNameForWindows("TSTool");
@@ -967,7 +1050,13 @@ public static void main ( String args[] )
 
 	// Read the data units...
 
-	initializeAfterHomeIsKnown ();
+	TSToolStartupProfiler.Sample sample = TSToolStartupProfiler.startPhase("initializeAfterHomeIsKnown");
+	try {
+		initializeAfterHomeIsKnown ();
+	}
+	finally {
+		sample.stop();
+	}
 
 	Message.printStatus ( 1, routine, "Setup completed.  showmain = " + __showMainGUI + " isbatch=" + IOUtil.isBatch() );
 
@@ -978,6 +1067,8 @@ public static void main ( String args[] )
 	@SuppressWarnings("rawtypes")
 	List<Class> pluginDataStoreFactoryClasses = new ArrayList<>();
 	List<Class> pluginCommandClasses = new ArrayList<>();
+	// Plugin commands are loaded from the same jar files as plugin datastores
+	sample = TSToolStartupProfiler.startPhase("loadPluginDataStores");
 	try {
 		loadPluginDataStores(session, pluginDataStoreClasses, pluginDataStoreFactoryClasses, pluginCommandClasses);
 	}
@@ -985,6 +1076,9 @@ public static void main ( String args[] )
 		Message.printWarning ( 1, routine, "Error loading plugin datastores.  See log file for details." );
 		Message.printWarning ( 1, routine, e );
 	}
+	finally {
+		sample.stop();
+	}
 	Message.printStatus(2, routine, "Loaded " + pluginDataStoreClasses.size() + " plugin datastore classes for all datastore jars.");
 	Message.printStatus(2, routine, "Loaded " + pluginDataStoreFactoryClasses.size() + " plugin datastore factory classes for all datastore jars.");
 	Message.printStatus(2, routine, "Loaded " + pluginCommandClasses.size() + " plugin command classes for all datastore jars.");
@@ -999,21 +1093,40 @@ public static void main ( String args[] )
 	
 	if ( IOUtil.isBatch() ) {
 		// Running like "tstool -commands file" (possibly with -nomaingui)
-		TSCommandFileRunner runner = new TSCommandFileRunner(processorProps, pluginCommandClasses);
+		TSCommandFileRunner runner = new TSToolCommandFileRunner(processorProps, pluginCommandClasses);
 		// If the global timeout is set, start a thread that will time out when the batch run is complete.
 		startTimeoutThread ( getBatchTimeout());
 	    // Open the HydroBase connection if the configuration file specifies the information.  Do this before
 		// reading the command file because commands may try to run discovery during load.
-        openHydroBase ( runner.getProcessor() );
+        sample = TSToolStartupProfiler.startPhase("openHydroBase");
+        try {
+            openHydroBase ( runner.getProcessor() );
+        }
+        finally {
+            sample.stop();
+        }
         // Open datastores in a generic way if the configuration file specifies the information.  Do this before
         // reading the command file because commands may try to run discovery during load.
-        openDataStoresAtStartup ( session, runner.getProcessor(), pluginDataStoreClasses, pluginDataStoreFactoryClasses, true );
+        sample = TSToolStartupProfiler.startPhase("openDataStoresAtStartup");
+        try {
+            openDataStoresAtStartup ( session, runner.getProcessor(), pluginDataStoreClasses, pluginDataStoreFactoryClasses, true );
+        }
+        finally {
+            sample.stop();
+        }
         // Set datastore substitutes, used later when requesting datastores.
         runner.getProcessor().setDatastoreSubstituteMap(datastoreSubstituteMap);
+        TSToolStartupProfiler.write ( session );
 		try {
 		    String commandFileFull = getCommandFile();
 		    Message.printStatus( 1, routine, "Running command file in batch mode:  \"" + commandFileFull + "\"" );
-			runner.readCommandFile ( commandFileFull, __runDiscoveryOnLoad );
+		    // Open datastores that are used by the command file if they are opened on first use
+		    TSToolLazyDataStores.openReferenced ( runner.getProcessor(), new File(commandFileFull) );
+			// Discovery is run after reading so that independent commands can run in parallel
+			runner.readCommandFile ( commandFileFull, false );
+			if ( __runDiscoveryOnLoad ) {
+				new TSToolParallelDiscovery ( runner.getProcessor() ).runDiscovery();
+			}
 		}
 		catch ( Exception e ) {
 			Message.printWarning ( 1, routine, "Error reading command file \"" +
@@ -1094,92 +1207,81 @@ public static void main ( String args[] )
 			Message.printWarning ( 1, routine, "Can't read batch server hot folder \"" + batchServerHotFolder + "\"." );
 			quitProgram ( 1 );
 		}
-		// Create a processor using initial command line properties for the processor.
-		TSCommandFileRunner runner = new TSCommandFileRunner(processorProps, pluginCommandClasses);
-		// Open the HydroBase connection if the configuration file specifies the information.  Do this before
-		// reading the command file because commands may try to run discovery during load.
-        openHydroBase ( runner.getProcessor() );
-        // Open datastores in a generic way if the configuration file specifies the information.  Do this before
-        // reading the command file because commands may try to run discovery during load.
-        openDataStoresAtStartup ( session, runner.getProcessor(), pluginDataStoreClasses, pluginDataStoreFactoryClasses, true );
-        File f = null;
-		String commandFileFull = "";
-	    boolean runDiscoveryOnLoad = false;
-	    boolean doStop = false;
-	    long sleep = 50;
-        while ( true ) {
-        	Thread.sleep(sleep); // Do this to keep the loop from eating up a lot of CPU
-        	// Wait for configured wait time between processing
-        	// Look for files in the batch server hot folder
-        	List<File> files = IOUtil.getFilesMatchingPattern(batchServerHotFolder0, "*", true);
-        	//Message.printStatus(1,routine,"Have " + files.size() + " files in hot folder.");
-        	// TODO SAM 2016-02-08 need to sort so oldest file processed first.
-        	// Also perhaps need to check for a command like "End()" to make sure file is complete from copy into hot folder
-        	for ( int i = 0; i < files.size(); i++ ) {
-        		f = files.get(i);
-        		// Make sure the file exists and is readable
-        		Message.printStatus(1,routine,"Processing command file \"" + f.getAbsolutePath() + "\".");
-        		if ( f.exists() && f.canRead() ) {
-    				commandFileFull = f.getAbsolutePath();
-        			String filename = f.getName();
-        			// Special actions based on command file name
-        			if ( filename.equalsIgnoreCase("stop") ) {
-        				doStop = true;
-        				break;
-        			}
-        			if ( !commandFileFull.toUpperCase().endsWith(".TSTOOL") ) {
-        				// Not a command file so don't process
-        				continue;
-        			}
-        			// Open the command file...
-        			try {
-        			    Message.printStatus( 1, routine, "Running command file in batch server mode:  \"" + commandFileFull + "\"" );
-        				runner.readCommandFile ( commandFileFull, runDiscoveryOnLoad );
-        			}
-        			catch ( Exception e ) {
-        				Message.printWarning ( 1, routine, "Error reading command file \"" + commandFileFull + "\".  Unable to run commands." );
-        				Message.printWarning ( 1, routine, e );
-        				continue;
-        			}
-        			// Run the command file..
-        			try {
-        			    // The following will throw an exception if there are any errors running.
-        	            runner.runCommands();
-        			}
-        			catch ( Exception e ) {
-        				Message.printWarning ( 1, routine, "Error running command file \"" + commandFileFull + "\"." );
-        				Message.printWarning ( 1, routine, e );
-        			}
-        			// Remove the command file
-        			f.delete();
-        		}
-        	}
-        	if ( doStop ) {
-        		// TODO SAM 2016-02-08 is it necessary to deal with windows/frames?
-        		Message.printStatus ( 1, routine, "Exiting batch server because file named \"stop\" was found in hot folder." );
-        		f.delete();
-        		quitProgram ( 0 );
-        	}
-        }
+		// Create a processor for each worker using initial command line properties for the processor:
+		// - each worker has its own processor and datastore connections so that command files can run concurrently
+		List<TSCommandFileRunner> runnerList = createCommandFileRunners ( getBatchServerWorkers(), "batch server",
+			session, pluginCommandClasses, pluginDataStoreClasses, pluginDataStoreFactoryClasses );
+		// The journal records jobs that have been run so that restarting the server does not run a job twice
+		String batchServerJournal = getBatchServerJournal();
+		File batchServerJournalFile = null;
+		if ( batchServerJournal.isEmpty() ) {
+			// Default is in the hot folder, which is ignored when looking for command files
+			batchServerJournalFile = new File(batchServerHotFolder, "TSTool-batch-server-journal.txt");
+		}
+		else {
+			batchServerJournalFile = new File(IOUtil.verifyPathForOS(IOUtil.getPathUsingWorkingDir(batchServerJournal)));
+		}
+		TSToolBatchServer batchServer = new TSToolBatchServer ( batchServerHotFolder, batchServerJournalFile, runnerList );
+		TSToolStartupProfiler.write ( session );
+		// The following returns when a file named "stop" is found in the hot folder
+		batchServer.run();
+		// TODO SAM 2016-02-08 is it necessary to deal with windows/frames?
+		Message.printStatus ( 1, routine, "Exiting batch server because file named \"stop\" was found in hot folder." );
+		quitProgram ( 0 );
 	}
 	else if ( isHttpServer() ) {
 		// See:  http://stackoverflow.com/questions/3732109/simple-http-server-in-java-using-only-java-se-api
-		// Do something simple for now to test
+		// Create warm processors with datastores open so that requests only need to read and run the command file:
+		// - each worker has its own processor and datastore connections so that requests can run concurrently
+		int workerCount = getHttpServerWorkers();
+		List<TSCommandFileRunner> runnerList = createCommandFileRunners ( workerCount, "HTTP server",
+			session, pluginCommandClasses, pluginDataStoreClasses, pluginDataStoreFactoryClasses );
+		TSToolCommandProcessorPool pool = new TSToolCommandProcessorPool(runnerList);
 		int port = 8000;
-		HttpServer server = HttpServer.create(new InetSocketAddress(port),0);
+		// Requests are not authenticated so only listen on the local computer unless configured:
+		// - TSTool.HttpServerAddress can be set to a specific address or 0.0.0.0 for all addresses
+		InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+		String propValue = getPropValue("TSTool.HttpServerAddress");
+		if ( (propValue != null) && !propValue.trim().isEmpty() ) {
+			address = new InetSocketAddress(propValue.trim(), port);
+		}
+		// Only command files in the command file folder can be run:
+		// - TSTool.HttpServerCommandFileFolder can be set, otherwise the working directory is used
+		File commandFileFolder = new File(IOUtil.getProgramWorkingDir());
+		propValue = getPropValue("TSTool.HttpServerCommandFileFolder");
+		if ( (propValue != null) && !propValue.trim().isEmpty() ) {
+			commandFileFolder = new File(IOUtil.verifyPathForOS(IOUtil.getPathUsingWorkingDir(propValue.trim())));
+		}
+		if ( !commandFileFolder.isDirectory() ) {
+			Message.printWarning ( 1, routine, "HTTP server command file folder \"" + commandFileFolder + "\" does not exist." );
+			quitProgram ( 1 );
+		}
+		HttpServer server = HttpServer.create(address,0);
 		String root = "/tstool";
-		server.createContext(root, new UrlHandler());
-		server.setExecutor(null);
+		// Synchronous requests wait in the handler for a processor to become available
+		server.createContext(root, new UrlHandler(pool, commandFileFolder));
+		// Asynchronous jobs are run on a bounded executor and requests return right away
+		int maxQueuedJobs = 100;
+		server.createContext(root + "/jobs", new TSToolJobsHandler(new TSToolJobManager(pool, maxQueuedJobs), commandFileFolder));
+		server.setExecutor(createHttpServerExecutor());
 		server.start();
+		TSToolStartupProfiler.write ( session );
+		Message.printStatus ( 1, routine, "HTTP server is listening on " + address + " at " + root + " with " + workerCount +
+			" workers, running command files in \"" + commandFileFolder + "\"." );
 	}
 	else if ( isRestServer() ) {
-		// Run in server mode using REST API
-		runRestletServer();
+		// Run in server mode using REST API:
+		// - create a warm processor with datastores open so that time series requests only need to read
+		List<TSCommandFileRunner> runnerList = createCommandFileRunners ( 1, "REST server",
+			session, pluginCommandClasses, pluginDataStoreClasses, pluginDataStoreFactoryClasses );
+		TSToolStartupProfiler.write ( session );
+		runRestletServer ( runnerList.get(0).getProcessor() );
 	}
 	else {
 		// Run the UI:
 		// - the processor for the UI is created in the called code
 		Message.printStatus ( 2, routine, "Starting TSTool UI..." );
+		sample = TSToolStartupProfiler.startPhase("TSTool_JFrame");
 		try {
             __tstool_JFrame = new TSTool_JFrame ( session, getCommandFile(), getRunOnLoad(),
             	pluginDataStoreClasses, pluginDataStoreFactoryClasses, pluginCommandClasses,
@@ -1190,6 +1292,10 @@ public static void main ( String args[] )
 			Message.printWarning ( 1, routine, e );
 			quitProgram ( 1 );
 		}
+		finally {
+			sample.stop();
+		}
+		TSToolStartupProfiler.write ( session );
 	}
 	}
 	catch ( Exception e2 ) {
@@ -1200,6 +1306,73 @@ public static void main ( String args[] )
 	}
 }
 
+/**
+Create the executor for HTTP server requests.
+Virtual threads are used if the Java runtime supports them (Java 21+) so that many clients can
+poll job status without a platform thread each.  Otherwise, a fixed-size pool of platform threads is used.
+Command files are not run on these threads except for synchronous requests, which wait for a pooled processor.
+@return executor for HTTP server requests
+*/
+private static ExecutorService createHttpServerExecutor ()
+{	String routine = "TSToolMain.createHttpServerExecutor";
+	try {
+		// Use reflection so that the code compiles and runs on older Java versions
+		ExecutorService executor = (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		Message.printStatus ( 2, routine, "Using virtual threads for HTTP server requests." );
+		return executor;
+	}
+	catch ( Exception e ) {
+		int threadCount = Math.max(16, 4*getHttpServerWorkers());
+		Message.printStatus ( 2, routine, "Virtual threads are not supported.  Using " + threadCount + " threads for HTTP server requests." );
+		return Executors.newFixedThreadPool(threadCount);
+	}
+}
+
+/**
+Create command file runners for server modes.
+Each runner has its own processor with HydroBase and datastores opened, so that runners can be used concurrently.
+@param count number of runners to create
+@param serverType server type, used in messages
+@param session TSTool session
+@param pluginCommandClasses plugin command classes
+@param pluginDataStoreClasses plugin datastore classes
+@param pluginDataStoreFactoryClasses plugin datastore factory classes
+@return list of runners
+*/
+private static List<TSCommandFileRunner> createCommandFileRunners ( int count, String serverType, TSToolSession session,
+	@SuppressWarnings("rawtypes") List<Class> pluginCommandClasses,
+	@SuppressWarnings("rawtypes") List<Class> pluginDataStoreClasses,
+	@SuppressWarnings("rawtypes") List<Class> pluginDataStoreFactoryClasses )
+{	String routine = "TSToolMain.createCommandFileRunners";
+	List<TSCommandFileRunner> runnerList = new ArrayList<>(count);
+	for ( int iWorker = 0; iWorker < count; iWorker++ ) {
+		Message.printStatus ( 2, routine, "Initializing " + serverType + " worker " + (iWorker + 1) + " of " + count + "." );
+		TSCommandFileRunner runner = new TSToolCommandFileRunner(processorProps, pluginCommandClasses);
+		// Open the HydroBase connection if the configuration file specifies the information.  Do this before
+		// reading the command file because commands may try to run discovery during load.
+		TSToolStartupProfiler.Sample sample = TSToolStartupProfiler.startPhase("openHydroBase");
+		try {
+			openHydroBase ( runner.getProcessor() );
+		}
+		finally {
+			sample.stop();
+		}
+		// Open datastores in a generic way if the configuration file specifies the information.  Do this before
+		// reading the command file because commands may try to run discovery during load.
+		sample = TSToolStartupProfiler.startPhase("openDataStoresAtStartup");
+		try {
+			openDataStoresAtStartup ( session, runner.getProcessor(), pluginDataStoreClasses, pluginDataStoreFactoryClasses, true );
+		}
+		finally {
+			sample.stop();
+		}
+		// Set datastore substitutes, used later when requesting datastores.
+		runner.getProcessor().setDatastoreSubstituteMap(datastoreSubstituteMap);
+		runnerList.add(runner);
+	}
+	return runnerList;
+}
+
 /**
 This is called by openDataStoresAtStartup, which processes all the datastores.
 Open a single datastore given its configuration properties.
@@ -1215,6 +1388,26 @@ Otherwise, opening datastores takes time and impacts performance.
 protected static DataStore openDataStore ( TSToolSession session, PropList dataStoreProps,
 	TSCommandProcessor processor, @SuppressWarnings("rawtypes") List<Class> pluginDataStoreClassList,
 	@SuppressWarnings("rawtypes") List<Class> pluginDataStoreFactoryClassList, boolean isBatch )
+throws ClassNotFoundException, IllegalAccessException, InstantiationException, Exception {
+	boolean addToProcessor = true;
+	return openDataStore ( session, dataStoreProps, processor, pluginDataStoreClassList, pluginDataStoreFactoryClassList,
+		isBatch, addToProcessor );
+}
+
+/**
+Open a single datastore given its configuration properties.
+This version is called when opening datastores concurrently,
+in which case the caller adds the datastores to the processor in a deterministic order.
+@param session TSTool session, which provides user and environment information
+@param dataStoreProps datastore configuration properties recognized by the datastore factory "create" method.
+@param processor time series command processor that will use/manage the datastore
+@param pluginDataStoreClassList list of plugin datastore classes to be loaded dynamically
+@param isBatch indicate whether running in batch mode - if true, do not open datastores with login of "prompt"
+@param addToProcessor if true, add the opened datastore to the processor
+*/
+protected static DataStore openDataStore ( TSToolSession session, PropList dataStoreProps,
+	TSCommandProcessor processor, @SuppressWarnings("rawtypes") List<Class> pluginDataStoreClassList,
+	@SuppressWarnings("rawtypes") List<Class> pluginDataStoreFactoryClassList, boolean isBatch, boolean addToProcessor )
 throws ClassNotFoundException, IllegalAccessException, InstantiationException, Exception {
     String routine = "TSToolMain.openDataStore";
     // Open the datastore depending on the type
@@ -1434,7 +1627,9 @@ throws ClassNotFoundException, IllegalAccessException, InstantiationException, E
         	            }
         	            else {
 	        	            // Add the datastore to the processor
-	        	            processor.setPropContents ( "DataStore", dataStore );
+	        	            if ( addToProcessor ) {
+	        	            	processor.setPropContents ( "DataStore", dataStore );
+	        	            }
 	        	            Message.printStatus(2, routine, "Opening datastore type \"" + dataStoreType + "\", name \"" +
 	        	                dataStore.getName() + "\" took " + sw.getMilliseconds() + " ms" );
         	            }
@@ -1453,7 +1648,9 @@ throws ClassNotFoundException, IllegalAccessException, InstantiationException, E
 	        	// TODO SAM 2015-02-15 Need to update each factory to handle partial opens
 	            DataStore dataStore = factory.create(dataStoreProps);
 	            // Add the datastore to the processor
-	            processor.setPropContents ( "DataStore", dataStore );
+	            if ( addToProcessor ) {
+	            	processor.setPropContents ( "DataStore", dataStore );
+	            }
 	            Message.printStatus(2, routine, "DataStore properties are: " + dataStore.getProperties().toString(","));
 	            sw.stop();
 	            Message.printStatus(2, routine, "Opening datastore type \"" + dataStoreType + "\", name \"" +
@@ -1522,16 +1719,17 @@ protected static void openDataStoresAtStartup ( TSToolSession session, TSCommand
 	    	}
 	    }
     }
-    // Now open the datastores for found configuration files:
+    // Now read the found configuration files:
     // - loop backwards since user files were added last
     // - if a duplicate is found, use the user version first
+    // - datastores are opened concurrently by the opener, which adds them to the processor in this order
     int nDataStores = dataStoreConfigFiles.size();
-    // Datastore names that have been opened, so as to avoid reopening.  User datastores are opened first.
-    List<DataStore> openDataStoreList = new ArrayList<>(); // Datastores that have been opened, to avoid re-opening
+    TSToolDataStoreOpener opener = new TSToolDataStoreOpener ( session, processor,
+    	pluginDataStoreClassList, pluginDataStoreFactoryClassList, isBatch );
     Message.printStatus(2, routine, "Trying to open " + dataStoreConfigFiles.size() + " datastores (first user, then installation configuration files)." );
     for ( int iDataStore = nDataStores - 1; iDataStore >= 0; iDataStore-- ) {
     	String dataStoreFile = dataStoreConfigFiles.get(iDataStore);
-        Message.printStatus ( 2, routine, "Opening datastore using properties in \"" + dataStoreFile + "\".");
+        Message.printStatus ( 2, routine, "Reading datastore properties in \"" + dataStoreFile + "\".");
         // Read the properties from the configuration file.
         PropList dataStoreProps = new PropList("");
         String dataStoreFileFull = dataStoreFile;
@@ -1544,7 +1742,6 @@ protected static void openDataStoresAtStartup ( TSToolSession session, TSCommand
         }
         else {
             dataStoreProps.setPersistentName(dataStoreFileFull);
-            String dataStoreClassName = "";
             try {
                 // Get the properties from the file.
                 dataStoreProps.readPersistent();
@@ -1573,47 +1770,8 @@ protected static void openDataStoresAtStartup ( TSToolSession session, TSCommand
                			"\" type \"" + dataStoreType + "\" is obsolete.  Skipping." );
                 	continue;
                 }
-                // See if the datastore name matches one that is already open and if so, ignore it.
-                // - name must match, and must be enabled.
-                boolean dataStoreAlreadyOpened = false;
-                for ( DataStore openDataStore : openDataStoreList ) {
-                	String prop = openDataStore.getProperty("Enabled");
-                	boolean isEnabled = false;
-                	if ( (prop != null) && prop.equalsIgnoreCase("true") ) {
-                		isEnabled = true;
-                	}
-                	if ( openDataStore.getName().equalsIgnoreCase(dataStoreName) && isEnabled ) {
-                		// Found a matching datastore
-                		Message.printStatus(2,routine,"Datastore \"" + dataStoreName +
-                			"\" matches previous enabled datastore (user datastores are used before system datastores).  Skipping.");
-                		dataStoreAlreadyOpened = true;
-                		break;
-                	}
-                }
-                if ( dataStoreAlreadyOpened ) {
-                	continue;
-                }
-                DataStore dataStore = openDataStore ( session, dataStoreProps, processor, pluginDataStoreClassList, pluginDataStoreFactoryClassList, isBatch );
-                // Save the datastore name so duplicates are not opened
-                if ( dataStore != null ) {
-                	// DataStore will be null if disabled or a serious error occurred opening
-                	openDataStoreList.add(dataStore);
-                }
-            }
-            catch ( ClassNotFoundException e ) {
-                Message.printWarning (2,routine, "Datastore class \"" + dataStoreClassName +
-                    "\" is not in the class path - report to software support (" + e + ")." );
-                Message.printWarning(2, routine, e);
-            }
-            catch( InstantiationException e ) {
-                Message.printWarning (2,routine, "Error instantiating datastore for class \"" + dataStoreClassName +
-                    "\" - report to software support (" + e + ")." );
-                Message.printWarning(2, routine, e);
-            }
-            catch( IllegalAccessException e ) {
-                Message.printWarning (2,routine, "Datastore for class \"" + dataStoreClassName +
-                    "\" needs a no-argument constructor - report to software support (" + e + ")." );
-                Message.printWarning(2, routine, e);
+                // Datastores with the same name as one that is opened and enabled are skipped by the opener.
+                opener.add ( dataStoreProps );
             }
             catch ( Exception e ) {
                 Message.printWarning (2,routine,"Error reading datastore configuration file \"" +
@@ -1622,6 +1780,26 @@ protected static void openDataStoresAtStartup ( TSToolSession session, TSCommand
             }
         }
     }
+    // Open the datastores:
+    // - TSTool.DataStoreOpenThreads is the number of datastores opened at the same time (default 8, 1 to open sequentially)
+    // - TSTool.DataStoreOpenTimeout is the number of seconds to wait for each datastore (default 120, 0 to wait without limit), also when opening sequentially
+    int threadCount = 8;
+    int timeoutSeconds = 120;
+    String propValue = getPropValue("TSTool.DataStoreOpenThreads");
+    if ( (propValue != null) && StringUtil.isInteger(propValue.trim()) ) {
+        threadCount = Integer.parseInt(propValue.trim());
+    }
+    propValue = getPropValue("TSTool.DataStoreOpenTimeout");
+    if ( (propValue != null) && StringUtil.isInteger(propValue.trim()) ) {
+        timeoutSeconds = Integer.parseInt(propValue.trim());
+    }
+    // - TSTool.DataStoreOpenMode=Lazy opens datastores on first use unless OpenMode=Startup in the datastore configuration
+    boolean lazyDefault = false;
+    propValue = getPropValue("TSTool.DataStoreOpenMode");
+    if ( (propValue != null) && propValue.trim().equalsIgnoreCase(TSToolLazyDataStores.OPEN_MODE_LAZY) ) {
+        lazyDefault = true;
+    }
+    opener.open ( threadCount, timeoutSeconds, lazyDefault );
     
     // TODO SAM 2010-09-01 Transition HydroBase and other datastores here
 }
@@ -1737,6 +1915,7 @@ private static void openLogFile ( TSToolSession session )
 				Message.printStatus ( 1, routine, "Log file name from -logFile: " + logFile );
 				try {
 	                Message.openLogFile ( logFile );
+	                TSToolStartupProfiler.setLogFile ( logFile );
 	                // Do it again so it goes into the log file
 	                Message.printStatus ( 1, routine, "Log file name from -logFile: " + logFile );
 				}
@@ -1753,6 +1932,7 @@ private static void openLogFile ( TSToolSession session )
 				Message.printStatus ( 1, routine, "Log file name from TSTool default: " + logFile );
 				try {
 	                Message.openLogFile ( logFile );
+	                TSToolStartupProfiler.setLogFile ( logFile );
 	                // Also log for troubleshooting
 	                Message.printStatus ( 1, routine, "Log file name from TSTool default: " + logFile );
 				}
@@ -1835,6 +2015,40 @@ throws Exception
 			i++;
 			__batchServerHotFolder = args[i];
 		}
+		else if (args[i].equalsIgnoreCase("-batchServerJournal") || args[i].equalsIgnoreCase("--batchServerJournal")) {
+		    // Batch server journal file.
+			if ((i + 1)== args.length) {
+				message = "No argument provided to '-batchServerJournal'";
+				Message.printWarning(1,routine, message);
+				throw new Exception(message);
+			}
+			i++;
+			__batchServerJournal = parseArgsCheckSpaceReplacement(args[i], spaceReplacement);
+		}
+		else if (args[i].equalsIgnoreCase("-batchServerWorkers") || args[i].equalsIgnoreCase("--batchServerWorkers")) {
+		    // Number of batch server workers.
+			if ((i + 1)== args.length) {
+				message = "No argument provided to '-batchServerWorkers'";
+				Message.printWarning(1,routine,message);
+				throw new Exception(message);
+			}
+			else {
+				try {
+					__batchServerWorkers = Integer.parseInt(args[i + 1]);
+				}
+				catch ( NumberFormatException e ) {
+					message = "-batchServerWorkers argument \"" + args[i + 1] + "\" is not an integer.";
+					Message.printWarning(1,routine,message);
+					throw new Exception(message);
+				}
+				if ( __batchServerWorkers < 1 ) {
+					message = "-batchServerWorkers argument \"" + args[i + 1] + "\" must be 1 or larger.";
+					Message.printWarning(1,routine,message);
+					throw new Exception(message);
+				}
+			}
+			i++;
+		}
 		else if (args[i].equalsIgnoreCase("-commands") || args[i].equalsIgnoreCase("--commands") ) {
 		    // Command file name.
 			if ((i + 1)== args.length) {
@@ -1880,7 +2094,13 @@ throws Exception
             Message.printStatus(1 , routine, "Using configuration file from command line: \"" + getConfigFile() + "\"" );
             // Read the configuration file specified here.  If not specified, the defaults read immediately
             // after -home is parsed will be reset if in both files.
-            readConfigFile(getConfigFile());
+            TSToolStartupProfiler.Sample sample = TSToolStartupProfiler.startPhase("readConfigFile");
+            try {
+                readConfigFile(getConfigFile());
+            }
+            finally {
+                sample.stop();
+            }
 	    }
 		else if ( args[i].regionMatches(true,0,"-d",0,2)) {
 			// Set debug information.
@@ -1953,7 +2173,13 @@ throws Exception
             __tstoolInstallHome = (new File(homeFolder)).getCanonicalPath().toString();
            
 			// Open the log file so that remaining messages will be seen in the log file.
-			openLogFile(session);
+			TSToolStartupProfiler.Sample sample = TSToolStartupProfiler.startPhase("openLogFile");
+			try {
+				openLogFile(session);
+			}
+			finally {
+				sample.stop();
+			}
 			Message.printStatus ( 1, routine, "TSTool install folder from -home command line parameter is \"" +
 			    __tstoolInstallHome + "\"" );
 			// The default configuration file location is relative to the install home.
@@ -1982,13 +2208,43 @@ throws Exception
 			}
 			if ( !userSpecifiedConfig ) {
 			    Message.printStatus(1 , routine, "No user configuration file.  Using installation configuration file: \"" + getConfigFile() + "\"" );
-			    readConfigFile(getConfigFile());
+			    sample = TSToolStartupProfiler.startPhase("readConfigFile");
+			    try {
+			        readConfigFile(getConfigFile());
+			    }
+			    finally {
+			        sample.stop();
+			    }
 			}
 		}
 		else if (args[i].equalsIgnoreCase("-httpServer") || args[i].equalsIgnoreCase("--httpServer")) {
 			Message.printStatus ( 1, routine, "Will start TSTool in HTTP server mode." );
 			__isHttpServer = true;
 		}
+		else if (args[i].equalsIgnoreCase("-httpServerWorkers") || args[i].equalsIgnoreCase("--httpServerWorkers")) {
+		    // Number of HTTP server workers.
+			if ((i + 1)== args.length) {
+				message = "No argument provided to '-httpServerWorkers'";
+				Message.printWarning(1,routine,message);
+				throw new Exception(message);
+			}
+			else {
+				try {
+					__httpServerWorkers = Integer.parseInt(args[i + 1]);
+				}
+				catch ( NumberFormatException e ) {
+					message = "-httpServerWorkers argument \"" + args[i + 1] + "\" is not an integer.";
+					Message.printWarning(1,routine,message);
+					throw new Exception(message);
+				}
+				if ( __httpServerWorkers < 1 ) {
+					message = "-httpServerWorkers argument \"" + args[i + 1] + "\" must be 1 or larger.";
+					Message.printWarning(1,routine,message);
+					throw new Exception(message);
+				}
+			}
+			i++;
+		}
 		else if (args[i].equalsIgnoreCase("-logFile") || args[i].equalsIgnoreCase("--logFile")) {
 		    // Specify the log file.
 			if ((i + 1)== args.length) {
@@ -2037,6 +2293,10 @@ throws Exception
 				Message.printWarning(1, routine, "Bad parameter \"" + args[i] + "\", should be: --space-replacement=string");
 			}
 		}
+		else if (args[i].equalsIgnoreCase("-startupProfile") || args[i].equalsIgnoreCase("--startupProfile")) {
+			// Profiling is enabled at the start of main() so that all startup phases are timed
+			Message.printStatus ( 1, routine, "Will write startup profile next to the log file." );
+		}
 		else if (args[i].equalsIgnoreCase("-test") || args[i].equalsIgnoreCase("--test")) {
 			// User specified (generally by developers).
 			IOUtil.testing(true);
@@ -2235,13 +2495,28 @@ private static void readConfigFile ( String configFile )
 
 /**
 Run TSTool in restlet server mode.
+The time series cache size and maximum age can be set with TSTool.RestServerTimeSeriesCacheSize (default 500)
+and TSTool.RestServerTimeSeriesCacheMaxAge (seconds, default 60).
+@param processor warm processor with HydroBase and datastores open, used to read time series
 */
-private static void runRestletServer ()
+private static void runRestletServer ( TSCommandProcessor processor )
 {   String routine = "TSToolMain.runRestletServer()";
     try {
         int port = -1; // Default
-        TSToolServer server = new TSToolServer();
+        int tsCacheSize = 500;
+        int tsCacheMaxAgeSeconds = 60;
+        String propValue = getPropValue("TSTool.RestServerTimeSeriesCacheSize");
+        if ( (propValue != null) && StringUtil.isInteger(propValue.trim()) ) {
+            tsCacheSize = Integer.parseInt(propValue.trim());
+        }
+        propValue = getPropValue("TSTool.RestServerTimeSeriesCacheMaxAge");
+        if ( (propValue != null) && StringUtil.isInteger(propValue.trim()) ) {
+            tsCacheMaxAgeSeconds = Integer.parseInt(propValue.trim());
+        }
+        TSToolServer server = new TSToolServer ( processor, tsCacheSize, tsCacheMaxAgeSeconds );
         server.startServer ( port, new ArrayList<Parameter>() );
+        Message.printStatus ( 1, routine, "REST server is running with a time series cache of " + tsCacheSize +
+            " time series and maximum age " + tsCacheMaxAgeSeconds + " seconds." );
     }
     catch (Exception e) {  
         Message.printWarning ( 1, routine, "Error starting restlet application (" + e + ")." );
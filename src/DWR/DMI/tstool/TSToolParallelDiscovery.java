@@ -0,0 +1,236 @@
+// TSToolParallelDiscovery - run discovery for commands that were loaded without discovery, in parallel where possible
+
+/* NoticeStart
+
+TSTool
+TSTool is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+TSTool is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TSTool is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TSTool.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package DWR.DMI.tstool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+import rti.tscommandprocessor.commands.ts.TSID_Command;
+import rti.tscommandprocessor.core.TSCommandProcessor;
+import RTi.Util.IO.Command;
+import RTi.Util.IO.CommandDiscoverable;
+import RTi.Util.Message.Message;
+
+/**
+Run discovery for the commands in a processor, for command files that were read without discovery.
+Discovery for a command can use the discovery results of the commands before it
+(for example time series aliases and table identifiers), so commands are grouped in command order:
+<ul>
+<li>	Commands that only define data from their own parameters, such as time series identifiers and
+		commands that read a plain file (see FILE_READ_COMMANDS) and do not use ${Property},
+		a datastore, or an input type, do not use the results of other commands
+		or shared connections.  Consecutive commands of this kind are run in parallel.</li>
+<li>	All other commands are run one at a time, after all commands before them and before any command after them,
+		which is the same order as the sequential discovery that is run when the processor reads the command file.</li>
+</ul>
+Because each command's discovery only uses the commands before it, the results are the same as the sequential run.
+*/
+public class TSToolParallelDiscovery
+{
+
+/**
+Commands that only read a plain file, which can run discovery at the same time as each other.
+Commands that read from a database (for example ReadHydroBase and ReadReclamationHDB), a web service
+(for example ReadUsgsNwis*), or through native code (for example ReadHecDss) use connections and state that are
+shared and not thread-safe, and ReadTimeSeries can read from any input type, so these are not included.
+*/
+private static final Set<String> FILE_READ_COMMANDS = new HashSet<String>(Arrays.asList(
+	"ReadDateValue",
+	"ReadDelimitedFile",
+	"ReadMODSIM",
+	"ReadNwsCard",
+	"ReadRiverWare",
+	"ReadStateCU",
+	"ReadStateCUB",
+	"ReadStateMod",
+	"ReadStateModB",
+	"ReadTableFromDBF",
+	"ReadTableFromDelimitedFile",
+	"ReadTableFromFixedFormatFile",
+	"ReadTableFromJSON",
+	"ReadTableFromXML" ));
+
+/**
+Smallest group of independent commands to run in parallel - smaller groups are run sequentially.
+*/
+private static final int MIN_PARALLEL_GROUP = 16;
+
+/**
+Pool for discovery, created on first use.
+*/
+private static ForkJoinPool pool = null;
+
+/**
+Processor containing the commands.
+*/
+private TSCommandProcessor processor;
+
+/**
+Create an instance for a processor.
+@param processor processor containing the commands, which were read without discovery
+*/
+public TSToolParallelDiscovery ( TSCommandProcessor processor )
+{
+	this.processor = processor;
+}
+
+/**
+Create groups of consecutive commands to run.
+@param independent for each command, whether its discovery is independent of the other commands
+@param minParallelGroup smallest group of independent commands to run in parallel
+@return groups as [first, last, parallel] where parallel is 1 if the commands can run in parallel, 0 if not
+*/
+public static List<int[]> createGroups ( boolean [] independent, int minParallelGroup )
+{
+	List<int[]> groups = new ArrayList<>();
+	int i = 0;
+	while ( i < independent.length ) {
+		int first = i;
+		if ( independent[i] ) {
+			while ( (i < independent.length) && independent[i] ) {
+				++i;
+			}
+			if ( (i - first) >= minParallelGroup ) {
+				groups.add(new int[] { first, i - 1, 1 });
+				continue;
+			}
+		}
+		else {
+			++i;
+		}
+		// Combine with the previous sequential group
+		int [] last = groups.isEmpty() ? null : groups.get(groups.size() - 1);
+		if ( (last != null) && (last[2] == 0) ) {
+			last[1] = i - 1;
+		}
+		else {
+			groups.add(new int[] { first, i - 1, 0 });
+		}
+	}
+	return groups;
+}
+
+/**
+Return the pool, creating if necessary.
+*/
+private static synchronized ForkJoinPool getPool ()
+{
+	if ( pool == null ) {
+		pool = new ForkJoinPool ( Math.max(1, Runtime.getRuntime().availableProcessors()) );
+	}
+	return pool;
+}
+
+/**
+Indicate whether discovery for a command does not use the results of other commands.
+@param commandName command name, for example ReadDateValue
+@param commandString command string as in the command file
+@param isTSID true if the command is a time series identifier command
+@return true if the command's discovery does not use the results of other commands and can run in parallel
+*/
+public static boolean isIndependent ( String commandName, String commandString, boolean isTSID )
+{
+	if ( (commandString == null) || commandString.contains("${") ) {
+		// Uses processor properties, which may be set by other commands
+		return false;
+	}
+	if ( isTSID ) {
+		return true;
+	}
+	if ( (commandName == null) || !FILE_READ_COMMANDS.contains(commandName) ) {
+		return false;
+	}
+	// Datastore connections are shared, and an input type may read from a database or web service
+	return !commandString.contains("DataStore=") && !commandString.contains("InputType=");
+}
+
+/**
+Run discovery for one command, logging errors the same as when editing a command.
+*/
+private void runDiscovery ( int i, Command command )
+{	String routine = getClass().getSimpleName() + ".runDiscovery";
+	try {
+		((CommandDiscoverable)command).runCommandDiscovery(i);
+	}
+	catch ( Exception e ) {
+		// May be OK if partial data
+		Message.printStatus(2, routine, "Unable to run discovery for command " + (i + 1) + " \"" + command + "\"." );
+		Message.printWarning(3, routine, e);
+	}
+}
+
+/**
+Run discovery for all commands in the processor.
+@return the number of commands that discovery was run for
+*/
+public int runDiscovery ()
+{	String routine = getClass().getSimpleName() + ".runDiscovery";
+	List<Command> commands = this.processor.getCommands();
+	int size = commands.size();
+	boolean [] independent = new boolean[size];
+	for ( int i = 0; i < size; i++ ) {
+		Command command = commands.get(i);
+		independent[i] = isIndependent(command.getCommandName(), command.toString(), command instanceof TSID_Command);
+	}
+	int count = 0;
+	int parallelCount = 0;
+	long start = System.currentTimeMillis();
+	for ( int [] group : createGroups(independent, MIN_PARALLEL_GROUP) ) {
+		if ( group[2] == 0 ) {
+			for ( int i = group[0]; i <= group[1]; i++ ) {
+				Command command = commands.get(i);
+				if ( command instanceof CommandDiscoverable ) {
+					runDiscovery ( i, command );
+					++count;
+				}
+			}
+		}
+		else {
+			List<Callable<Object>> tasks = new ArrayList<>();
+			for ( int i = group[0]; i <= group[1]; i++ ) {
+				final int iCommand = i;
+				final Command command = commands.get(i);
+				if ( command instanceof CommandDiscoverable ) {
+					tasks.add ( () -> {
+						runDiscovery ( iCommand, command );
+						return null;
+					});
+				}
+			}
+			getPool().invokeAll(tasks);
+			count += tasks.size();
+			parallelCount += tasks.size();
+		}
+	}
+	Message.printStatus(2, routine, "Ran discovery for " + count + " commands (" + parallelCount + " in parallel) in " +
+		(System.currentTimeMillis() - start) + " ms." );
+	return count;
+}
+
+}
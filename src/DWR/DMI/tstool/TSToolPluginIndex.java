@@ -0,0 +1,334 @@
+// TSToolPluginIndex - index of plugin jar file manifest classes, to avoid reading jar files at startup
+
+/* NoticeStart
+
+TSTool
+TSTool is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+TSTool is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TSTool is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TSTool.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package DWR.DMI.tstool;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarInputStream;
+import java.util.jar.Manifest;
+
+import RTi.Util.Message.Message;
+
+/**
+Index of the classes listed in plugin jar file manifests, so that jar files do not need to be opened at each startup.
+The index is saved in the user's .tstool/N folder.  Each line is tab-delimited:
+<pre>
+Path  Size  LastModified  DatastoreClass  DatastoreFactoryClass  CommandClass1,CommandClass2,...
+</pre>
+where empty values indicate that the manifest does not list the class.
+An entry is used only if the jar file size and modification time match,
+otherwise the manifest is read again and the entry is replaced.
+Entries for jar files that were not requested are removed when the index is written.
+Lines starting with # are comments.
+*/
+public class TSToolPluginIndex
+{
+
+/**
+Manifest classes for a jar file.
+*/
+public static class Entry
+{
+	private String path;
+	private long size;
+	private long lastModified;
+	private String dataStoreClass;
+	private String dataStoreFactoryClass;
+	private List<String> commandClassList;
+
+	private Entry ( String path, long size, long lastModified, String dataStoreClass, String dataStoreFactoryClass,
+		List<String> commandClassList )
+	{
+		this.path = path;
+		this.size = size;
+		this.lastModified = lastModified;
+		this.dataStoreClass = (dataStoreClass == null) ? "" : dataStoreClass;
+		this.dataStoreFactoryClass = (dataStoreFactoryClass == null) ? "" : dataStoreFactoryClass;
+		this.commandClassList = Collections.unmodifiableList(commandClassList);
+	}
+
+	/**
+	Return the command classes, from the Command-Class1, Command-Class2, etc. manifest attributes.
+	@return the command class names, empty if none
+	*/
+	public List<String> getCommandClassList ()
+	{
+		return this.commandClassList;
+	}
+
+	/**
+	Return the datastore class, from the Datastore-Class manifest attribute.
+	@return the datastore class name, empty if none
+	*/
+	public String getDataStoreClass ()
+	{
+		return this.dataStoreClass;
+	}
+
+	/**
+	Return the datastore factory class, from the DataStoreFactory-Class (or DatastoreFactory-Class) manifest attribute.
+	@return the datastore factory class name, empty if none
+	*/
+	public String getDataStoreFactoryClass ()
+	{
+		return this.dataStoreFactoryClass;
+	}
+}
+
+/**
+Index file.
+*/
+private File indexFile = null;
+
+/**
+Entries by jar file path.
+*/
+private Map<String,Entry> entryMap = new LinkedHashMap<>();
+
+/**
+Jar file paths that have been requested, used to remove entries for jar files that no longer exist.
+*/
+private Set<String> usedPathSet = new HashSet<>();
+
+/**
+Whether the index has changed since read.
+*/
+private boolean isDirty = false;
+
+/**
+Number of entries that were found in the index.
+*/
+private int hitCount = 0;
+
+/**
+Number of jar files that were read because they were not in the index or had changed.
+*/
+private int readCount = 0;
+
+/**
+Construct an index.  Call read() to read existing entries.
+@param indexFile the index file
+*/
+public TSToolPluginIndex ( File indexFile )
+{
+	this.indexFile = indexFile;
+}
+
+/**
+Return the entry for a jar file, reading the jar file manifest if the jar file is not in the index or has changed.
+@param jarFile plugin jar file
+@return the entry for the jar file
+@exception IOException if the jar file manifest cannot be read
+*/
+public synchronized Entry getEntry ( File jarFile )
+throws IOException
+{
+	String path = jarFile.getAbsolutePath();
+	this.usedPathSet.add(path);
+	long size = jarFile.length();
+	long lastModified = jarFile.lastModified();
+	Entry entry = this.entryMap.get(path);
+	if ( (entry != null) && (entry.size == size) && (entry.lastModified == lastModified) ) {
+		++this.hitCount;
+		return entry;
+	}
+	entry = readManifest ( jarFile, path, size, lastModified );
+	++this.readCount;
+	this.entryMap.put(path, entry);
+	this.isDirty = true;
+	return entry;
+}
+
+/**
+Return the entry for a jar file URL, as used by the plugin class loaders.
+@param jarUrl plugin jar file URL
+@return the entry for the jar file
+@exception IOException if the jar file manifest cannot be read
+*/
+public Entry getEntry ( URL jarUrl )
+throws IOException
+{
+	File jarFile;
+	try {
+		jarFile = new File(jarUrl.toURI());
+	}
+	catch ( Exception e ) {
+		// URLs are created from paths without encoding so may not be valid URIs
+		jarFile = new File(jarUrl.getPath());
+	}
+	return getEntry ( jarFile );
+}
+
+/**
+Return the number of entries that were found in the index and did not need to be read.
+@return the number of index hits
+*/
+public synchronized int getHitCount ()
+{
+	return this.hitCount;
+}
+
+/**
+Return the index file.
+@return the index file
+*/
+public File getIndexFile ()
+{
+	return this.indexFile;
+}
+
+/**
+Return the number of jar files whose manifest was read.
+@return the number of jar files that were read
+*/
+public synchronized int getReadCount ()
+{
+	return this.readCount;
+}
+
+/**
+Read the existing index entries.  A missing or unreadable index is treated as empty.
+*/
+public synchronized void read ()
+{	String routine = getClass().getSimpleName() + ".read";
+	if ( !this.indexFile.exists() ) {
+		return;
+	}
+	try ( BufferedReader in = Files.newBufferedReader(this.indexFile.toPath(), StandardCharsets.UTF_8) ) {
+		String line;
+		while ( (line = in.readLine()) != null ) {
+			if ( line.isEmpty() || line.startsWith("#") ) {
+				continue;
+			}
+			String [] fields = line.split("\t", -1);
+			if ( fields.length != 6 ) {
+				continue;
+			}
+			try {
+				List<String> commandClassList = new ArrayList<>();
+				for ( String commandClass : fields[5].split(",") ) {
+					if ( !commandClass.isEmpty() ) {
+						commandClassList.add(commandClass);
+					}
+				}
+				Entry entry = new Entry ( fields[0], Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+					fields[3], fields[4], commandClassList );
+				this.entryMap.put(entry.path, entry);
+			}
+			catch ( NumberFormatException e ) {
+				// Bad line - the jar file will be read again
+				continue;
+			}
+		}
+		Message.printStatus(2, routine, "Read " + this.entryMap.size() + " entries from plugin index \"" + this.indexFile + "\"." );
+	}
+	catch ( IOException e ) {
+		Message.printWarning(3, routine, "Error reading plugin index \"" + this.indexFile + "\" (" + e + ") - will read plugin jar files." );
+		this.entryMap.clear();
+	}
+}
+
+/**
+Read the manifest classes from a jar file.
+*/
+private Entry readManifest ( File jarFile, String path, long size, long lastModified )
+throws IOException
+{
+	String dataStoreClass = null;
+	String dataStoreFactoryClass = null;
+	List<String> commandClassList = new ArrayList<>();
+	try ( JarInputStream jarStream = new JarInputStream(new FileInputStream(jarFile)) ) {
+		Manifest manifest = jarStream.getManifest();
+		if ( manifest != null ) {
+			Attributes attributes = manifest.getMainAttributes();
+			dataStoreClass = attributes.getValue("Datastore-Class");
+			dataStoreFactoryClass = attributes.getValue("DataStoreFactory-Class");
+			if ( dataStoreFactoryClass == null ) {
+				// Old spelling
+				dataStoreFactoryClass = attributes.getValue("DatastoreFactory-Class");
+			}
+			for ( int iCommand = 1; ; iCommand++ ) {
+				String commandClass = attributes.getValue("Command-Class" + iCommand);
+				if ( commandClass == null ) {
+					break;
+				}
+				commandClassList.add(commandClass);
+			}
+		}
+	}
+	return new Entry ( path, size, lastModified, dataStoreClass, dataStoreFactoryClass, commandClassList );
+}
+
+/**
+Write the index if it has changed, removing entries for jar files that were not requested.
+The index is written to a temporary file and then moved so that a partial index is not left if TSTool stops.
+*/
+public synchronized void write ()
+{	String routine = getClass().getSimpleName() + ".write";
+	if ( this.entryMap.keySet().retainAll(this.usedPathSet) ) {
+		this.isDirty = true;
+	}
+	if ( !this.isDirty ) {
+		return;
+	}
+	File tempFile = new File(this.indexFile.getPath() + ".tmp");
+	try {
+		File folder = this.indexFile.getParentFile();
+		if ( (folder != null) && !folder.exists() ) {
+			folder.mkdirs();
+		}
+		try ( PrintWriter out = new PrintWriter(Files.newBufferedWriter(tempFile.toPath(), StandardCharsets.UTF_8)) ) {
+			out.println("# TSTool plugin jar file manifest index - is recreated automatically if deleted");
+			out.println("# Path\tSize\tLastModified\tDatastoreClass\tDatastoreFactoryClass\tCommandClasses");
+			for ( Entry entry : this.entryMap.values() ) {
+				out.println(entry.path + "\t" + entry.size + "\t" + entry.lastModified + "\t" +
+					entry.dataStoreClass + "\t" + entry.dataStoreFactoryClass + "\t" + String.join(",", entry.commandClassList));
+			}
+		}
+		Files.move(tempFile.toPath(), this.indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		this.isDirty = false;
+		Message.printStatus(2, routine, "Wrote " + this.entryMap.size() + " entries to plugin index \"" + this.indexFile + "\"." );
+	}
+	catch ( IOException e ) {
+		Message.printWarning(3, routine, "Error writing plugin index \"" + this.indexFile + "\" (" + e + ")." );
+		tempFile.delete();
+	}
+}
+
+}
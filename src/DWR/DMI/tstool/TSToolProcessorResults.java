@@ -0,0 +1,219 @@
+// TSToolProcessorResults - read-only snapshot of the command processor results, for the results lists
+
+/* NoticeStart
+
+TSTool
+TSTool is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+TSTool is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TSTool is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TSTool.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package DWR.DMI.tstool;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openwaterfoundation.network.NodeNetwork;
+
+import rti.tscommandprocessor.core.TSCommandProcessor;
+import rti.tscommandprocessor.core.TimeSeriesView;
+import RTi.TS.TS;
+import RTi.TS.TSEnsemble;
+import RTi.Util.Message.Message;
+import RTi.Util.Table.DataTable;
+
+/**
+Read-only snapshot of the command processor results (time series, ensembles, tables, networks, and views),
+taken after the commands have run so that the results lists can get each item without a processor request.
+Each results list is read from the processor once and copied, so later changes in the processor are not seen.
+The lists cannot be modified, but the objects in the lists are the processor's objects and are shared.
+*/
+public class TSToolProcessorResults
+{
+
+/**
+Time series results.
+*/
+private List<TS> tsList;
+
+/**
+Ensemble results.
+*/
+private List<TSEnsemble> ensembleList;
+
+/**
+Table results.
+*/
+private List<DataTable> tableList;
+
+/**
+Tables by upper case table identifier, created on first use.
+*/
+private Map<String,DataTable> tableMap = null;
+
+/**
+Network results.
+*/
+private List<NodeNetwork> networkList;
+
+/**
+Time series view results.
+*/
+private List<TimeSeriesView> viewList;
+
+/**
+Create a snapshot from lists.
+*/
+private TSToolProcessorResults ( List<TS> tsList, List<TSEnsemble> ensembleList, List<DataTable> tableList,
+	List<NodeNetwork> networkList, List<TimeSeriesView> viewList )
+{
+	this.tsList = tsList;
+	this.ensembleList = ensembleList;
+	this.tableList = tableList;
+	this.networkList = networkList;
+	this.viewList = viewList;
+}
+
+/**
+Return a read-only copy of a processor results list.
+*/
+@SuppressWarnings("unchecked")
+private static <T> List<T> copyList ( TSCommandProcessor processor, String propName )
+{	String routine = TSToolProcessorResults.class.getSimpleName() + ".copyList";
+	Object o = null;
+	try {
+		o = processor.getPropContents ( propName );
+	}
+	catch ( Exception e ) {
+		Message.printWarning(2, routine, "Error requesting " + propName + " from processor." );
+		Message.printWarning(3, routine, e );
+	}
+	if ( o == null ) {
+		return Collections.emptyList();
+	}
+	return Collections.unmodifiableList(new ArrayList<T>((List<T>)o));
+}
+
+/**
+Return an ensemble.
+@param pos position in the ensemble results (0+)
+@return the ensemble, or null if the position is not in the results
+*/
+public TSEnsemble getEnsemble ( int pos )
+{
+	return ((pos < 0) || (pos >= this.ensembleList.size())) ? null : this.ensembleList.get(pos);
+}
+
+/**
+Return the ensemble results.
+@return read-only list of ensembles
+*/
+public List<TSEnsemble> getEnsembleList ()
+{
+	return this.ensembleList;
+}
+
+/**
+Return the network results.
+@return read-only list of networks
+*/
+public List<NodeNetwork> getNetworkList ()
+{
+	return this.networkList;
+}
+
+/**
+Take a snapshot of the processor results.
+@param processor command processor that has run the commands
+@return the snapshot, with empty lists if the processor is null
+*/
+public static TSToolProcessorResults getSnapshot ( TSCommandProcessor processor )
+{
+	if ( processor == null ) {
+		return new TSToolProcessorResults ( Collections.<TS>emptyList(), Collections.<TSEnsemble>emptyList(),
+			Collections.<DataTable>emptyList(), Collections.<NodeNetwork>emptyList(),
+			Collections.<TimeSeriesView>emptyList() );
+	}
+	return new TSToolProcessorResults (
+		TSToolProcessorResults.<TS>copyList(processor, "TSResultsList"),
+		TSToolProcessorResults.<TSEnsemble>copyList(processor, "EnsembleResultsList"),
+		TSToolProcessorResults.<DataTable>copyList(processor, "TableResultsList"),
+		TSToolProcessorResults.<NodeNetwork>copyList(processor, "NetworkResultsList"),
+		TSToolProcessorResults.<TimeSeriesView>copyList(processor, "TimeSeriesViewResultsList") );
+}
+
+/**
+Return a table.
+@param tableId table identifier, matched ignoring case
+@return the first table with the identifier, or null if not in the results
+*/
+public synchronized DataTable getTable ( String tableId )
+{
+	if ( tableId == null ) {
+		return null;
+	}
+	if ( this.tableMap == null ) {
+		this.tableMap = new HashMap<>();
+		for ( DataTable table : this.tableList ) {
+			if ( (table != null) && (table.getTableID() != null) ) {
+				this.tableMap.putIfAbsent(table.getTableID().toUpperCase(), table);
+			}
+		}
+	}
+	return this.tableMap.get(tableId.toUpperCase());
+}
+
+/**
+Return the table results.
+@return read-only list of tables
+*/
+public List<DataTable> getTableList ()
+{
+	return this.tableList;
+}
+
+/**
+Return a time series.
+@param pos position in the time series results (0+)
+@return the time series, or null if the position is not in the results
+*/
+public TS getTimeSeries ( int pos )
+{
+	return ((pos < 0) || (pos >= this.tsList.size())) ? null : this.tsList.get(pos);
+}
+
+/**
+Return the time series results.
+@return read-only list of time series
+*/
+public List<TS> getTimeSeriesList ()
+{
+	return this.tsList;
+}
+
+/**
+Return the time series view results.
+@return read-only list of views
+*/
+public List<TimeSeriesView> getViewList ()
+{
+	return this.viewList;
+}
+
+}
@@ -0,0 +1,283 @@
+// TSToolProgressAggregator - collect progress from the command processor and update the Swing components at a limited rate
+
+/* NoticeStart
+
+TSTool
+TSTool is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+TSTool is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TSTool is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TSTool.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package DWR.DMI.tstool;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.swing.JProgressBar;
+import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+/**
+Collect progress from the command processor and update the progress bars and status text fields at a limited rate.
+The command processor can notify progress thousands of times a second, from the thread that runs the commands.
+The set*() methods only save the latest state and can be called from any thread.
+The components are updated on the Swing event dispatch thread at most every UPDATE_INTERVAL_MS milliseconds,
+with the latest state, so intermediate states may not be shown but the final state always is.
+*/
+public class TSToolProgressAggregator
+{
+
+/**
+Minimum time between updates of the components, milliseconds (20 updates per second).
+*/
+private static final int UPDATE_INTERVAL_MS = 50;
+
+/**
+Progress bar for all commands.
+*/
+private JProgressBar processorProgressBar;
+
+/**
+Progress bar for the command that is running.
+*/
+private JProgressBar commandProgressBar;
+
+/**
+Message text field.
+*/
+private JTextField messageTextField;
+
+/**
+Status text field.
+*/
+private JTextField statusTextField;
+
+/**
+Maximum for the processor progress bar (the minimum is always 0).
+*/
+private AtomicInteger processorMaximum = new AtomicInteger(100);
+
+/**
+Value for the processor progress bar.
+*/
+private AtomicInteger processorValue = new AtomicInteger(0);
+
+/**
+Tooltip for the processor progress bar, or null if not set.
+*/
+private AtomicReference<String> processorToolTip = new AtomicReference<>(null);
+
+/**
+Maximum for the command progress bar (the minimum is always 0).
+*/
+private AtomicInteger commandMaximum = new AtomicInteger(100);
+
+/**
+Value for the command progress bar.
+*/
+private AtomicInteger commandValue = new AtomicInteger(0);
+
+/**
+Message that has not been shown, or null if no new message.
+*/
+private AtomicReference<String> message = new AtomicReference<>(null);
+
+/**
+Status that has not been shown, or null if no new status.
+*/
+private AtomicReference<String> status = new AtomicReference<>(null);
+
+/**
+Whether an update of the components has been scheduled.
+*/
+private AtomicBoolean updateScheduled = new AtomicBoolean(false);
+
+/**
+Time of the last update of the components, from System.nanoTime().
+*/
+private volatile long updateTime = 0;
+
+/**
+Create an instance for the components.
+@param processorProgressBar progress bar for all commands
+@param commandProgressBar progress bar for the command that is running
+@param messageTextField message text field
+@param statusTextField status text field
+*/
+public TSToolProgressAggregator ( JProgressBar processorProgressBar, JProgressBar commandProgressBar,
+	JTextField messageTextField, JTextField statusTextField )
+{
+	this.processorProgressBar = processorProgressBar;
+	this.commandProgressBar = commandProgressBar;
+	this.messageTextField = messageTextField;
+	this.statusTextField = statusTextField;
+	this.processorMaximum.set(processorProgressBar.getMaximum());
+	this.commandMaximum.set(commandProgressBar.getMaximum());
+	this.updateTime = System.nanoTime() - 1000000L*UPDATE_INTERVAL_MS;
+}
+
+/**
+Update the components with the latest state.  Must be called on the Swing event dispatch thread.
+This is called automatically after the state changes but can be called to show the state immediately,
+for example before setting the text fields directly.
+*/
+public void flush ()
+{
+	// Clear first so that changes made while updating schedule another update
+	this.updateScheduled.set(false);
+	this.updateTime = System.nanoTime();
+	this.processorProgressBar.setMinimum ( 0 );
+	this.processorProgressBar.setMaximum ( this.processorMaximum.get() );
+	this.processorProgressBar.setValue ( this.processorValue.get() );
+	String tip = this.processorToolTip.get();
+	if ( (tip != null) && !tip.equals(this.processorProgressBar.getToolTipText()) ) {
+		this.processorProgressBar.setToolTipText ( tip );
+	}
+	this.commandProgressBar.setMinimum ( 0 );
+	this.commandProgressBar.setMaximum ( this.commandMaximum.get() );
+	this.commandProgressBar.setValue ( this.commandValue.get() );
+	String message = this.message.getAndSet(null);
+	if ( message != null ) {
+		this.messageTextField.setText ( message );
+	}
+	String status = this.status.getAndSet(null);
+	if ( status != null ) {
+		this.statusTextField.setText ( status );
+	}
+}
+
+/**
+Reset the progress bars to zero and show immediately.  Must be called on the Swing event dispatch thread.
+*/
+public void reset ()
+{
+	this.processorValue.set(0);
+	this.commandValue.set(0);
+	flush();
+}
+
+/**
+Schedule an update of the components if one is not already scheduled,
+no sooner than UPDATE_INTERVAL_MS after the last update.
+*/
+private void scheduleUpdate ()
+{
+	if ( !this.updateScheduled.compareAndSet(false, true) ) {
+		// The scheduled update will show the latest state
+		return;
+	}
+	long delay = UPDATE_INTERVAL_MS - (System.nanoTime() - this.updateTime)/1000000L;
+	if ( delay <= 0 ) {
+		SwingUtilities.invokeLater ( () -> flush() );
+	}
+	else {
+		// Swing timer runs on the event dispatch thread
+		Timer timer = new Timer ( (int)delay, event -> flush() );
+		timer.setRepeats ( false );
+		timer.start();
+	}
+}
+
+/**
+Set the command progress bar to its maximum, for a command that has completed.
+*/
+public void setCommandComplete ()
+{
+	this.commandValue.set(this.commandMaximum.get());
+	scheduleUpdate();
+}
+
+/**
+Set the maximum and value for the command progress bar.
+@param maximum maximum (the minimum is 0)
+@param value value
+*/
+public void setCommandProgress ( int maximum, int value )
+{
+	this.commandMaximum.set(maximum);
+	this.commandValue.set(value);
+	scheduleUpdate();
+}
+
+/**
+Set the value for the command progress bar.
+@param value value
+*/
+public void setCommandValue ( int value )
+{
+	this.commandValue.set(value);
+	scheduleUpdate();
+}
+
+/**
+Set the message text.
+@param message message text, or null to leave as is
+*/
+public void setMessage ( String message )
+{
+	if ( message != null ) {
+		this.message.set(message);
+		scheduleUpdate();
+	}
+}
+
+/**
+Set the maximum and value for the processor progress bar.
+@param maximum maximum (the minimum is 0)
+@param value value
+*/
+public void setProcessorProgress ( int maximum, int value )
+{
+	this.processorMaximum.set(maximum);
+	this.processorValue.set(value);
+	scheduleUpdate();
+}
+
+/**
+Set the tooltip for the processor progress bar.
+@param tip tooltip text
+*/
+public void setProcessorToolTip ( String tip )
+{
+	this.processorToolTip.set(tip);
+	scheduleUpdate();
+}
+
+/**
+Set the value for the processor progress bar.
+@param value value
+*/
+public void setProcessorValue ( int value )
+{
+	this.processorValue.set(value);
+	scheduleUpdate();
+}
+
+/**
+Set the status text.
+@param status status text, or null to leave as is
+*/
+public void setStatus ( String status )
+{
+	if ( status != null ) {
+		this.status.set(status);
+		scheduleUpdate();
+	}
+}
+
+}
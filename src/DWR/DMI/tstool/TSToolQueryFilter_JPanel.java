@@ -0,0 +1,411 @@
+// TSToolQueryFilter_JPanel - panel to filter and sort the query results using the column store
+
+/* NoticeStart
+
+TSTool
+TSTool is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+TSTool is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TSTool is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TSTool.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package DWR.DMI.tstool;
+
+import java.awt.GridBagConstraints;
+import java.awt.GridBagLayout;
+import java.awt.Insets;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.ItemEvent;
+import java.awt.event.ItemListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+
+import javax.swing.JCheckBox;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.table.JTableHeader;
+import javax.swing.table.TableModel;
+
+import RTi.Util.GUI.JGUIUtil;
+import RTi.Util.GUI.SimpleJButton;
+import RTi.Util.GUI.SimpleJComboBox;
+import RTi.Util.Message.Message;
+
+/**
+Panel to filter and sort the query results, for table models that implement TSToolColumnStoreTableModel.
+Filtering and sorting use the column store so that the worksheet is not rebuilt:
+the sort index for a column is built once and reused, and typing more characters in the filter text
+only checks the rows that passed the previous filter.
+Clicking on a worksheet column heading (see setTableHeader()) sorts by the column in the same way,
+and clicking again on the same heading changes the sort direction.
+The panel is disabled for other table models.
+*/
+@SuppressWarnings("serial")
+public class TSToolQueryFilter_JPanel extends JPanel
+implements ActionListener, DocumentListener, ItemListener
+{
+
+private final String __ALL_COLUMNS = "All columns";
+private final String __NO_SORT = "(none)";
+
+private SimpleJComboBox __filterColumn_JComboBox = null;
+private JTextField __filterText_JTextField = null;
+private JTextField __min_JTextField = null;
+private JTextField __max_JTextField = null;
+private SimpleJComboBox __sortColumn_JComboBox = null;
+private JCheckBox __descending_JCheckBox = null;
+private SimpleJButton __clear_JButton = null;
+private JLabel __rowCount_JLabel = null;
+
+/**
+Table model that is filtered, or null if the table model is not a TSToolColumnStoreTableModel.
+*/
+private TSToolColumnStoreTableModel __tableModel = null;
+
+/**
+Table model that was last set, used to check whether the model has changed.
+*/
+private TableModel __lastTableModel = null;
+
+/**
+Called after the rows are filtered or sorted, for example to reset the worksheet column widths.
+*/
+private Runnable __filterListener = null;
+
+/**
+Indicates that the components are being set and events should be ignored.
+*/
+private boolean __ignoreEvents = false;
+
+/**
+Settings for the last filter, used to narrow the previous results when characters are added to the filter text.
+*/
+private int [] __lastRows = null;
+private String __lastText = null;
+private int __lastFilterColumn = -2;
+private int __lastSortColumn = -2;
+private boolean __lastDescending = false;
+private double __lastMin = Double.NaN;
+private double __lastMax = Double.NaN;
+
+/**
+Create the panel.
+@param filterListener called after the rows are filtered or sorted (can be null)
+*/
+public TSToolQueryFilter_JPanel ( Runnable filterListener )
+{
+	__filterListener = filterListener;
+	setLayout ( new GridBagLayout() );
+	Insets insetsNLNR = new Insets(0,2,0,2);
+	int x = 0;
+
+	JGUIUtil.addComponent(this, new JLabel("Filter:"),
+		x++, 0, 1, 1, 0, 0, insetsNLNR, GridBagConstraints.NONE, GridBagConstraints.EAST);
+	__filterColumn_JComboBox = new SimpleJComboBox ( false );
+	__filterColumn_JComboBox.setToolTipText("Column to search for the filter text.");
+	__filterColumn_JComboBox.addItemListener ( this );
+	JGUIUtil.addComponent(this, __filterColumn_JComboBox,
+		x++, 0, 1, 1, 0, 0, insetsNLNR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+	__filterText_JTextField = new JTextField ( 12 );
+	__filterText_JTextField.setToolTipText("Show rows that contain the text, ignoring case.");
+	__filterText_JTextField.getDocument().addDocumentListener ( this );
+	JGUIUtil.addComponent(this, __filterText_JTextField,
+		x++, 0, 1, 1, 1.0, 0, insetsNLNR, GridBagConstraints.HORIZONTAL, GridBagConstraints.WEST);
+	JGUIUtil.addComponent(this, new JLabel("Min:"),
+		x++, 0, 1, 1, 0, 0, insetsNLNR, GridBagConstraints.NONE, GridBagConstraints.EAST);
+	__min_JTextField = new JTextField ( 6 );
+	__min_JTextField.setToolTipText("Show rows with values >= the minimum (numeric columns only).");
+	__min_JTextField.getDocument().addDocumentListener ( this );
+	JGUIUtil.addComponent(this, __min_JTextField,
+		x++, 0, 1, 1, 0, 0, insetsNLNR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+	JGUIUtil.addComponent(this, new JLabel("Max:"),
+		x++, 0, 1, 1, 0, 0, insetsNLNR, GridBagConstraints.NONE, GridBagConstraints.EAST);
+	__max_JTextField = new JTextField ( 6 );
+	__max_JTextField.setToolTipText("Show rows with values <= the maximum (numeric columns only).");
+	__max_JTextField.getDocument().addDocumentListener ( this );
+	JGUIUtil.addComponent(this, __max_JTextField,
+		x++, 0, 1, 1, 0, 0, insetsNLNR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+	JGUIUtil.addComponent(this, new JLabel("Sort by:"),
+		x++, 0, 1, 1, 0, 0, insetsNLNR, GridBagConstraints.NONE, GridBagConstraints.EAST);
+	__sortColumn_JComboBox = new SimpleJComboBox ( false );
+	__sortColumn_JComboBox.setToolTipText("Column to sort, with missing values last.");
+	__sortColumn_JComboBox.addItemListener ( this );
+	JGUIUtil.addComponent(this, __sortColumn_JComboBox,
+		x++, 0, 1, 1, 0, 0, insetsNLNR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+	__descending_JCheckBox = new JCheckBox ( "Descending" );
+	__descending_JCheckBox.addItemListener ( this );
+	JGUIUtil.addComponent(this, __descending_JCheckBox,
+		x++, 0, 1, 1, 0, 0, insetsNLNR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+	__clear_JButton = new SimpleJButton ( "Clear", this );
+	__clear_JButton.setToolTipText("Clear the filter and sort and show all rows.");
+	JGUIUtil.addComponent(this, __clear_JButton,
+		x++, 0, 1, 1, 0, 0, insetsNLNR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+	__rowCount_JLabel = new JLabel ( "" );
+	JGUIUtil.addComponent(this, __rowCount_JLabel,
+		x++, 0, 1, 1, 0, 0, insetsNLNR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+
+	setTableModel ( null );
+}
+
+/**
+Handle action events.
+@param event action event to handle
+*/
+public void actionPerformed ( ActionEvent event )
+{
+	if ( event.getSource() == __clear_JButton ) {
+		__ignoreEvents = true;
+		__filterColumn_JComboBox.setSelectedIndex(0);
+		__filterText_JTextField.setText("");
+		__min_JTextField.setText("");
+		__max_JTextField.setText("");
+		__sortColumn_JComboBox.setSelectedIndex(0);
+		__descending_JCheckBox.setSelected(false);
+		__ignoreEvents = false;
+		applyFilter ();
+	}
+}
+
+/**
+Filter and sort the rows of the table model using the current settings.
+*/
+private void applyFilter ()
+{	String routine = getClass().getSimpleName() + ".applyFilter";
+	if ( __ignoreEvents || (__tableModel == null) ) {
+		return;
+	}
+	TSToolColumnStore store = __tableModel.getColumnStore();
+	// Column positions are offset by 1 in the choices for "All columns" and "(none)"
+	int filterColumn = __filterColumn_JComboBox.getSelectedIndex() - 1;
+	int sortColumn = __sortColumn_JComboBox.getSelectedIndex() - 1;
+	boolean descending = __descending_JCheckBox.isSelected();
+	final String text = __filterText_JTextField.getText().trim().toLowerCase();
+	boolean isNumberColumn = (filterColumn >= 0) &&
+		((store.getColumnType(filterColumn) == TSToolColumnStore.COLUMN_INT) ||
+		(store.getColumnType(filterColumn) == TSToolColumnStore.COLUMN_DOUBLE));
+	__min_JTextField.setEnabled ( isNumberColumn );
+	__max_JTextField.setEnabled ( isNumberColumn );
+	final double min = isNumberColumn ? parseDouble(__min_JTextField.getText()) : Double.NaN;
+	final double max = isNumberColumn ? parseDouble(__max_JTextField.getText()) : Double.NaN;
+	final boolean checkRange = !Double.isNaN(min) || !Double.isNaN(max);
+
+	int [] rows = null;
+	if ( (sortColumn == __lastSortColumn) && (descending == __lastDescending) && (filterColumn == __lastFilterColumn) &&
+		(Double.compare(min, __lastMin) == 0) && (Double.compare(max, __lastMax) == 0) &&
+		(__lastText != null) && text.contains(__lastText) && (__lastRows != null) ) {
+		// Only the filter text was narrowed so only the rows that passed the last filter need to be checked
+		rows = __lastRows;
+	}
+	else if ( sortColumn >= 0 ) {
+		rows = store.getSortIndex(sortColumn, !descending);
+	}
+	int columnCount = ((TableModel)__tableModel).getColumnCount();
+	if ( (text.length() > 0) || checkRange ) {
+		final int col = filterColumn;
+		rows = store.filterRows ( rows, row -> {
+			if ( checkRange && !store.isInRange(row, col, min, max) ) {
+				return false;
+			}
+			if ( text.length() == 0 ) {
+				return true;
+			}
+			if ( col >= 0 ) {
+				return store.contains(row, col, text);
+			}
+			for ( int icol = 0; icol < columnCount; icol++ ) {
+				if ( store.contains(row, icol, text) ) {
+					return true;
+				}
+			}
+			return false;
+		});
+	}
+	__lastRows = rows;
+	__lastText = text;
+	__lastFilterColumn = filterColumn;
+	__lastSortColumn = sortColumn;
+	__lastDescending = descending;
+	__lastMin = min;
+	__lastMax = max;
+	__tableModel.setRowView ( rows );
+	updateRowCount ();
+	if ( Message.isDebugOn ) {
+		Message.printDebug(1, routine, "Showing " + ((TableModel)__tableModel).getRowCount() + " of " +
+			store.getRowCount() + " rows." );
+	}
+	if ( __filterListener != null ) {
+		__filterListener.run();
+	}
+}
+
+/**
+Handle document events for the text fields.
+*/
+public void changedUpdate ( DocumentEvent event )
+{
+	applyFilter ();
+}
+
+/**
+Sort by a column, in response to a click on the column heading.
+If the column is already sorted, the sort direction is changed.
+@param col table model column (0+)
+*/
+private void headerClicked ( int col )
+{
+	if ( (__tableModel == null) || (col < 0) || (col >= ((TableModel)__tableModel).getColumnCount()) ) {
+		return;
+	}
+	// Column positions are offset by 1 in the choices for "(none)"
+	boolean descending = false;
+	if ( __sortColumn_JComboBox.getSelectedIndex() == (col + 1) ) {
+		descending = !__descending_JCheckBox.isSelected();
+	}
+	__ignoreEvents = true;
+	__sortColumn_JComboBox.setSelectedIndex(col + 1);
+	__descending_JCheckBox.setSelected(descending);
+	__ignoreEvents = false;
+	applyFilter ();
+}
+
+/**
+Handle document events for the text fields.
+*/
+public void insertUpdate ( DocumentEvent event )
+{
+	applyFilter ();
+}
+
+/**
+Handle item events for the choices.
+@param event item event to handle
+*/
+public void itemStateChanged ( ItemEvent event )
+{
+	if ( (event.getSource() == __descending_JCheckBox) || (event.getStateChange() == ItemEvent.SELECTED) ) {
+		applyFilter ();
+	}
+}
+
+/**
+Parse a number from a text field.
+@return the number, or NaN if blank or not a number
+*/
+private double parseDouble ( String text )
+{
+	try {
+		return Double.parseDouble(text.trim());
+	}
+	catch ( NumberFormatException e ) {
+		return Double.NaN;
+	}
+}
+
+/**
+Handle document events for the text fields.
+*/
+public void removeUpdate ( DocumentEvent event )
+{
+	applyFilter ();
+}
+
+/**
+Set the worksheet column header, so that clicking on a column heading sorts the rows using the column store,
+rather than the worksheet sort.
+@param header worksheet table header
+*/
+public void setTableHeader ( final JTableHeader header )
+{
+	header.addMouseListener ( new MouseAdapter() {
+		public void mouseClicked ( MouseEvent event ) {
+			if ( (__tableModel == null) || !SwingUtilities.isLeftMouseButton(event) || (event.getClickCount() != 1) ) {
+				return;
+			}
+			int viewColumn = header.columnAtPoint ( event.getPoint() );
+			if ( viewColumn >= 0 ) {
+				headerClicked ( header.getTable().convertColumnIndexToModel(viewColumn) );
+			}
+		}
+	});
+}
+
+/**
+Set the table model to filter.
+The settings are reset if the table model is different from the previous table model.
+@param tableModel query results table model, which can be filtered if it implements TSToolColumnStoreTableModel
+*/
+public void setTableModel ( TableModel tableModel )
+{
+	if ( (tableModel == __lastTableModel) && (tableModel != null) ) {
+		updateRowCount ();
+		return;
+	}
+	__lastTableModel = tableModel;
+	__tableModel = (tableModel instanceof TSToolColumnStoreTableModel) ? (TSToolColumnStoreTableModel)tableModel : null;
+	__lastRows = null;
+	__lastText = null;
+	__lastFilterColumn = -2;
+	__lastSortColumn = -2;
+	__ignoreEvents = true;
+	__filterColumn_JComboBox.removeAllItems();
+	__sortColumn_JComboBox.removeAllItems();
+	__filterColumn_JComboBox.add ( __ALL_COLUMNS );
+	__sortColumn_JComboBox.add ( __NO_SORT );
+	if ( __tableModel != null ) {
+		for ( int icol = 0; icol < tableModel.getColumnCount(); icol++ ) {
+			__filterColumn_JComboBox.add ( tableModel.getColumnName(icol) );
+			__sortColumn_JComboBox.add ( tableModel.getColumnName(icol) );
+		}
+		// Show the rows in store order
+		__tableModel.setRowView ( null );
+	}
+	__filterColumn_JComboBox.setSelectedIndex(0);
+	__sortColumn_JComboBox.setSelectedIndex(0);
+	__filterText_JTextField.setText("");
+	__min_JTextField.setText("");
+	__max_JTextField.setText("");
+	__descending_JCheckBox.setSelected(false);
+	__ignoreEvents = false;
+	boolean enabled = (__tableModel != null);
+	__filterColumn_JComboBox.setEnabled ( enabled );
+	__filterText_JTextField.setEnabled ( enabled );
+	__min_JTextField.setEnabled ( false );
+	__max_JTextField.setEnabled ( false );
+	__sortColumn_JComboBox.setEnabled ( enabled );
+	__descending_JCheckBox.setEnabled ( enabled );
+	__clear_JButton.setEnabled ( enabled );
+	updateRowCount ();
+}
+
+/**
+Update the label with the number of rows that are shown.
+*/
+private void updateRowCount ()
+{
+	if ( __tableModel == null ) {
+		__rowCount_JLabel.setText ( "" );
+	}
+	else {
+		__rowCount_JLabel.setText ( ((TableModel)__tableModel).getRowCount() + " of " +
+			__tableModel.getColumnStore().getRowCount() + " rows" );
+	}
+}
+
+}
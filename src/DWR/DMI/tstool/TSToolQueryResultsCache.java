@@ -0,0 +1,150 @@
+// TSToolQueryResultsCache - cache of time series lists so that repeated queries do not read the datastore again
+
+/* NoticeStart
+
+TSTool
+TSTool is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+TSTool is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TSTool is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TSTool.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package DWR.DMI.tstool;
+
+import RTi.Util.Message.Message;
+
+/**
+Cache of time series lists (query results) for the session, so that repeating a query with the same
+datastore, data type, timestep, and input filter does not read the datastore again.
+The key is a string that the caller builds from the query selections.
+Each entry also saves the source (for example the datastore instance) so that an entry is not used
+after the source has been replaced, for example after logging in to a datastore again.
+Entries expire after a time to live, and the least recently used entries are removed
+when the number of entries or the total number of rows is greater than the limits (see TSToolLruCache).
+@param <T> the cached list, for example a table model
+*/
+public class TSToolQueryResultsCache<T>
+{
+
+/**
+Cached lists, with the number of rows as the weight.
+*/
+private TSToolLruCache<T> cache;
+
+/**
+Whether the cache is enabled.
+*/
+private boolean enabled;
+
+/**
+Create a cache.
+@param ttlSeconds time to live for entries, seconds (<= 0 to disable the cache)
+@param maxEntries maximum number of entries (<= 0 to disable the cache)
+@param maxRows maximum total number of rows in all entries, lists with more rows are not cached
+*/
+public TSToolQueryResultsCache ( int ttlSeconds, int maxEntries, int maxRows )
+{
+	this.enabled = (ttlSeconds > 0) && (maxEntries > 0);
+	this.cache = new TSToolLruCache<T> ( maxEntries, maxRows, 1000L*ttlSeconds );
+}
+
+/**
+Remove all entries.
+*/
+public void clear ()
+{
+	this.cache.clear();
+}
+
+/**
+Return the current time, milliseconds.  Can be overridden for testing.
+@return the current time, milliseconds
+*/
+protected long currentTimeMillis ()
+{
+	return System.currentTimeMillis();
+}
+
+/**
+Return a cached list.
+@param key key built from the query selections
+@param source source of the list, which must be the same instance as when the list was cached
+@return the cached list, or null if not cached, expired, or cached from a different source
+*/
+public T get ( String key, Object source )
+{	String routine = getClass().getSimpleName() + ".get";
+	if ( !isEnabled() ) {
+		return null;
+	}
+	T value = this.cache.get ( key, source, currentTimeMillis() );
+	if ( value != null ) {
+		Message.printStatus(2, routine, "Using cached list for \"" + key + "\"." );
+	}
+	return value;
+}
+
+/**
+Return the number of times that a cached list was used.
+@return the number of cache hits
+*/
+public int getHitCount ()
+{
+	return (int)this.cache.getHitCount();
+}
+
+/**
+Indicate whether the cache is enabled.
+@return true if lists are cached
+*/
+public boolean isEnabled ()
+{
+	return this.enabled;
+}
+
+/**
+Cache a list, replacing a previous list for the key.
+Least recently used entries are removed if the limits are exceeded.
+@param key key built from the query selections
+@param source source of the list, for example the datastore instance (can be null)
+@param value list to cache
+@param rowCount number of rows in the list
+*/
+public void put ( String key, Object source, T value, int rowCount )
+{
+	if ( !isEnabled() ) {
+		return;
+	}
+	this.cache.put ( key, source, value, rowCount, currentTimeMillis(), null );
+}
+
+/**
+Remove a cached list.
+@param key key built from the query selections
+*/
+public void remove ( String key )
+{
+	this.cache.remove ( key );
+}
+
+/**
+Return the number of cached lists.
+@return the number of entries
+*/
+public int size ()
+{
+	return this.cache.size();
+}
+
+}
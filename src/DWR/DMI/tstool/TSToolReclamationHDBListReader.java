@@ -0,0 +1,344 @@
+// TSToolReclamationHDBListReader - read ReclamationHDB time series lists for several timesteps at the same time
+
+/* NoticeStart
+
+TSTool
+TSTool is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+TSTool is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TSTool is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TSTool.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package DWR.DMI.tstool;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import riverside.datastore.DataStore;
+import rti.tscommandprocessor.commands.reclamationhdb.ReclamationHDBDataStore;
+import rti.tscommandprocessor.commands.reclamationhdb.ReclamationHDBDataStoreFactory;
+import rti.tscommandprocessor.commands.reclamationhdb.ReclamationHDB_DMI;
+import rti.tscommandprocessor.commands.reclamationhdb.ReclamationHDB_SiteTimeSeriesMetadata;
+import rti.tscommandprocessor.commands.reclamationhdb.ReclamationHDB_TimeSeries_InputFilter_JPanel;
+import RTi.Util.GUI.InputFilter_JPanel;
+import RTi.Util.IO.PropList;
+import RTi.Util.Message.Message;
+
+/**
+Read the ReclamationHDB time series list for several timesteps at the same time, as used when the timestep is "*".
+Each timestep is read with a separate query, on its own database connection so that the queries run in parallel.
+The extra connections are opened with the datastore properties and are kept open for the next listing,
+until closeIdleConnections() is called when the datastore is closed or TSTool exits.
+If an extra connection cannot be opened (for example the datastore login is "prompt"),
+the timestep is read with the datastore's own connection, one query at a time.
+The DMI reads the filter values from an input filter panel, so each timestep is given its own copy of the panel,
+created with copyFilterPanel() on the Swing event dispatch thread, rather than sharing the displayed panel.
+Errors for each timestep are saved and can be retrieved with getProblems().
+*/
+public class TSToolReclamationHDBListReader
+{
+
+/**
+Maximum number of extra connections to keep open for each datastore.
+*/
+private static final int MAX_IDLE_DMI = 4;
+
+/**
+Extra connections that are not in use, by datastore.
+Entries are removed and the connections closed by closeIdleConnections(),
+which is called when a datastore is replaced (for example on re-login) and when TSTool exits.
+*/
+private static final Map<ReclamationHDBDataStore,List<ReclamationHDB_DMI>> idleDMIMap = new HashMap<>();
+
+/**
+Executor for the timestep queries, created on first use.
+Threads are daemon threads so that a query that never returns does not keep TSTool running.
+*/
+private static ExecutorService executor = null;
+
+/**
+Datastore to read.
+*/
+private ReclamationHDBDataStore dataStore;
+
+/**
+Problems from the last read, one per timestep that could not be read.
+*/
+private List<String> problems = new ArrayList<>();
+
+/**
+Create a reader for a datastore.
+@param dataStore ReclamationHDB datastore, whose connection has been checked
+*/
+public TSToolReclamationHDBListReader ( ReclamationHDBDataStore dataStore )
+{
+	this.dataStore = dataStore;
+}
+
+/**
+Get an extra connection for the datastore, either an idle connection or a new connection.
+@return an open connection, or null if an extra connection cannot be opened
+*/
+private ReclamationHDB_DMI acquireDMI ()
+{	String routine = getClass().getSimpleName() + ".acquireDMI";
+	synchronized ( idleDMIMap ) {
+		List<ReclamationHDB_DMI> idleList = idleDMIMap.get(this.dataStore);
+		while ( (idleList != null) && !idleList.isEmpty() ) {
+			ReclamationHDB_DMI dmi = idleList.remove(idleList.size() - 1);
+			if ( dmi.isOpen() ) {
+				return dmi;
+			}
+		}
+	}
+	PropList props = this.dataStore.getProperties();
+	String systemLogin = props.getValue("SystemLogin");
+	String systemPassword = props.getValue("SystemPassword");
+	if ( ((systemLogin != null) && systemLogin.equalsIgnoreCase("prompt")) ||
+		((systemPassword != null) && systemPassword.equalsIgnoreCase("prompt")) ) {
+		// The login is not available to open another connection without prompting
+		return null;
+	}
+	try {
+		DataStore ds = new ReclamationHDBDataStoreFactory().create(props);
+		if ( ds instanceof ReclamationHDBDataStore ) {
+			ReclamationHDB_DMI dmi = (ReclamationHDB_DMI)((ReclamationHDBDataStore)ds).getDMI();
+			if ( (dmi != null) && dmi.isOpen() ) {
+				return dmi;
+			}
+		}
+		Message.printWarning(3, routine, "Could not open extra connection for datastore \"" + this.dataStore.getName() +
+			"\" - using the datastore connection." );
+	}
+	catch ( Exception e ) {
+		Message.printWarning(3, routine, "Error opening extra connection for datastore \"" + this.dataStore.getName() +
+			"\" (" + e + ") - using the datastore connection." );
+	}
+	return null;
+}
+
+/**
+Close an extra connection, ignoring errors.
+*/
+private static void closeDMI ( ReclamationHDB_DMI dmi )
+{
+	try {
+		dmi.close();
+	}
+	catch ( Exception e ) {
+		// May be a timeout, in which case just continue
+	}
+}
+
+/**
+Close the idle extra connections for all datastores, for example when TSTool exits.
+*/
+public static void closeIdleConnections ()
+{
+	List<ReclamationHDB_DMI> dmiList = new ArrayList<>();
+	synchronized ( idleDMIMap ) {
+		for ( List<ReclamationHDB_DMI> idleList : idleDMIMap.values() ) {
+			dmiList.addAll ( idleList );
+		}
+		idleDMIMap.clear();
+	}
+	for ( ReclamationHDB_DMI dmi : dmiList ) {
+		closeDMI ( dmi );
+	}
+}
+
+/**
+Close the idle extra connections for a datastore, for example when the datastore connection is closed.
+@param dataStore datastore for which to close the extra connections
+*/
+public static void closeIdleConnections ( ReclamationHDBDataStore dataStore )
+{
+	List<ReclamationHDB_DMI> idleList = null;
+	synchronized ( idleDMIMap ) {
+		idleList = idleDMIMap.remove(dataStore);
+	}
+	if ( idleList != null ) {
+		for ( ReclamationHDB_DMI dmi : idleList ) {
+			closeDMI ( dmi );
+		}
+	}
+}
+
+/**
+Copy an input filter panel, with the same filter choices, so that a timestep can be read without the displayed panel.
+Must be called on the Swing event dispatch thread.
+@param dataStore datastore for the panel
+@param filterPanel input filter panel to copy
+@return a new panel, which is not displayed, with the same filters
+*/
+public static InputFilter_JPanel copyFilterPanel ( ReclamationHDBDataStore dataStore, InputFilter_JPanel filterPanel )
+throws Exception
+{
+	int numFilterGroups = filterPanel.getNumFilterGroups();
+	ReclamationHDB_TimeSeries_InputFilter_JPanel copy =
+		new ReclamationHDB_TimeSeries_InputFilter_JPanel(dataStore, numFilterGroups);
+	for ( int ifg = 0; ifg < numFilterGroups; ifg++ ) {
+		copy.setInputFilter ( ifg, filterPanel.toString(ifg,";").trim(), ";" );
+	}
+	return copy;
+}
+
+/**
+Return the executor, creating if necessary.
+*/
+private static synchronized ExecutorService getExecutor ()
+{
+	if ( executor == null ) {
+		final AtomicInteger threadNumber = new AtomicInteger(0);
+		executor = Executors.newCachedThreadPool ( r -> {
+			Thread thread = new Thread(r, "TSTool-ReclamationHDB-list-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+	return executor;
+}
+
+/**
+Return the problems from the last read, one per timestep that could not be read.
+@return the problems, empty if all timesteps were read
+*/
+public List<String> getProblems ()
+{
+	return this.problems;
+}
+
+/**
+Read the time series list for a timestep using the datastore connection,
+which is used by one query at a time.
+*/
+private List<ReclamationHDB_SiteTimeSeriesMetadata> readWithDataStoreDMI ( String dataType, String timeStep,
+	InputFilter_JPanel filterPanel )
+throws Exception
+{
+	ReclamationHDB_DMI dmi = (ReclamationHDB_DMI)this.dataStore.getDMI();
+	synchronized ( dmi ) {
+		return dmi.readSiteTimeSeriesMetadataList(dataType, timeStep, filterPanel);
+	}
+}
+
+/**
+Read the time series list for each timestep at the same time and merge the results in timestep order.
+Timesteps that cannot be read are skipped and are listed in getProblems().
+@param dataType data type to read
+@param timeSteps timesteps to read, for example hour, day, month, year, irregular
+@param filterPanels input filter panel for each timestep, from copyFilterPanel(), which are only read
+@return the merged time series list
+*/
+public List<ReclamationHDB_SiteTimeSeriesMetadata> readSiteTimeSeriesMetadataList ( final String dataType,
+	final String [] timeSteps, final InputFilter_JPanel [] filterPanels )
+{	String routine = getClass().getSimpleName() + ".readSiteTimeSeriesMetadataList";
+	this.problems = new ArrayList<>();
+	final List<List<ReclamationHDB_SiteTimeSeriesMetadata>> resultsList = new ArrayList<>(timeSteps.length);
+	final Exception [] errors = new Exception[timeSteps.length];
+	List<Future<?>> futureList = new ArrayList<>(timeSteps.length);
+	for ( int i = 0; i < timeSteps.length; i++ ) {
+		resultsList.add(null);
+		final int iTimeStep = i;
+		final InputFilter_JPanel filterPanel = filterPanels[i];
+		futureList.add(getExecutor().submit ( () -> {
+			// The first timestep uses the datastore connection so that an extra connection is not needed for one timestep
+			ReclamationHDB_DMI dmi = (iTimeStep == 0) ? null : acquireDMI();
+			List<ReclamationHDB_SiteTimeSeriesMetadata> results = null;
+			try {
+				if ( dmi == null ) {
+					results = readWithDataStoreDMI(dataType, timeSteps[iTimeStep], filterPanel);
+				}
+				else {
+					try {
+						results = dmi.readSiteTimeSeriesMetadataList(dataType, timeSteps[iTimeStep], filterPanel);
+						releaseDMI ( dmi );
+					}
+					catch ( Exception e ) {
+						// The idle connection may have timed out so try again with the datastore connection
+						Message.printStatus(2, routine, "Error reading " + timeSteps[iTimeStep] +
+							" time series with extra connection (" + e + ") - trying the datastore connection." );
+						closeDMI ( dmi );
+						results = readWithDataStoreDMI(dataType, timeSteps[iTimeStep], filterPanel);
+					}
+				}
+			}
+			catch ( Exception e ) {
+				errors[iTimeStep] = e;
+			}
+			synchronized ( resultsList ) {
+				resultsList.set(iTimeStep, results);
+			}
+		}));
+	}
+	for ( int i = 0; i < timeSteps.length; i++ ) {
+		try {
+			futureList.get(i).get();
+		}
+		catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			errors[i] = e;
+		}
+		catch ( ExecutionException e ) {
+			errors[i] = e;
+		}
+	}
+	List<ReclamationHDB_SiteTimeSeriesMetadata> mergedResults = new ArrayList<>();
+	synchronized ( resultsList ) {
+		for ( int i = 0; i < timeSteps.length; i++ ) {
+			if ( errors[i] != null ) {
+				this.problems.add("Error reading " + timeSteps[i] + " time series (" + errors[i] + ").");
+				Message.printWarning(3, routine, errors[i]);
+			}
+			else if ( resultsList.get(i) != null ) {
+				mergedResults.addAll(resultsList.get(i));
+			}
+		}
+	}
+	return mergedResults;
+}
+
+/**
+Return an extra connection to the idle list, or close it if enough connections are idle
+or the datastore connection has been closed.
+*/
+private void releaseDMI ( ReclamationHDB_DMI dmi )
+{
+	if ( !((ReclamationHDB_DMI)this.dataStore.getDMI()).isOpen() ) {
+		// The datastore was closed or replaced while reading and closeIdleConnections() may already have been called
+		closeDMI ( dmi );
+		return;
+	}
+	synchronized ( idleDMIMap ) {
+		List<ReclamationHDB_DMI> idleList = idleDMIMap.get(this.dataStore);
+		if ( idleList == null ) {
+			idleList = new ArrayList<>();
+			idleDMIMap.put(this.dataStore, idleList);
+		}
+		if ( idleList.size() < MAX_IDLE_DMI ) {
+			idleList.add(dmi);
+			return;
+		}
+	}
+	closeDMI ( dmi );
+}
+
+}
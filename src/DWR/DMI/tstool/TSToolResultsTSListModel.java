@@ -0,0 +1,226 @@
+// TSToolResultsTSListModel - list model for the time series results, which formats labels only for rows that are shown
+
+/* NoticeStart
+
+TSTool
+TSTool is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+TSTool is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TSTool is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TSTool.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package DWR.DMI.tstool;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.AbstractListModel;
+
+import RTi.TS.TS;
+import RTi.Util.Time.DateTime;
+
+/**
+List model for the time series results list.
+The time series results list is copied from the processor once when the commands have run,
+and the label for a time series is formatted only when the list asks for it, which is normally only for the visible rows.
+Labels that have been formatted are saved so that scrolling back does not format them again.
+The positions in the list are the same as the positions in the processor results list.
+*/
+@SuppressWarnings("serial")
+public class TSToolResultsTSListModel extends AbstractListModel<String>
+{
+
+/**
+HTML to start a label for a time series with a problem.
+*/
+private static final String HTML_PROBLEM_START = "<html><span style=\"color:red;font-weight:bold\">";
+
+/**
+HTML to end a label for a time series with a problem.
+*/
+private static final String HTML_PROBLEM_END = "</span></html>";
+
+/**
+Time series results, as copied from the processor.
+*/
+private List<TS> tslist = new ArrayList<>();
+
+/**
+Labels that have been formatted, null for labels that have not been formatted.
+*/
+private String [] labels = new String[0];
+
+/**
+Create an empty model.
+*/
+public TSToolResultsTSListModel ()
+{
+}
+
+/**
+Remove all time series.
+*/
+public void clear ()
+{
+	int size = this.tslist.size();
+	this.tslist = new ArrayList<>();
+	this.labels = new String[0];
+	if ( size > 0 ) {
+		fireIntervalRemoved ( this, 0, size - 1 );
+	}
+}
+
+/**
+Format the label for a time series.
+@param i position in the results list (0+)
+@param ts time series (can be null)
+@return the label, which is HTML if the time series has a problem
+*/
+public static String formatLabel ( int i, TS ts )
+{
+	if ( ts == null ) {
+		return HTML_PROBLEM_START + (i + 1) + ") - Null time series from processor." + HTML_PROBLEM_END;
+	}
+	String desc = ts.getDescription();
+	String alias = ts.getAlias();
+	if ( !alias.equals("") ) {
+		alias = alias + " - ";
+	}
+	if ( (desc == null) || (desc.length() == 0) ) {
+		desc = ts.getIdentifier().getLocation();
+	}
+	DateTime date1 = ts.getDate1();
+	DateTime date2 = ts.getDate2();
+	String dateString = null;
+	String htmlStart = "";
+	String htmlEnd = "";
+	if ( (date1 == null) || (date2 == null) ) {
+		dateString = " (NO DATA)";
+		htmlStart = HTML_PROBLEM_START;
+		htmlEnd = HTML_PROBLEM_END;
+	}
+	else if ( !ts.hasData() ) {
+		dateString = " (" + date1 + " to " + date2 + " NO DATA)";
+		htmlStart = HTML_PROBLEM_START;
+		htmlEnd = HTML_PROBLEM_END;
+	}
+	else {
+		dateString = " (" + date1 + " to " + date2 + ")";
+	}
+	return htmlStart + (i + 1) + ") " + alias + desc + " - " + ts.getIdentifier() + dateString + htmlEnd;
+}
+
+/**
+Return the label for a time series, formatting it if it has not been formatted.
+@param i position in the list (0+)
+@return the label
+*/
+public String getElementAt ( int i )
+{
+	String label = this.labels[i];
+	if ( label == null ) {
+		label = formatLabel ( i, this.tslist.get(i) );
+		this.labels[i] = label;
+	}
+	return label;
+}
+
+/**
+Return the number of labels that have been formatted, for troubleshooting.
+@return the number of formatted labels
+*/
+public int getFormattedCount ()
+{
+	int count = 0;
+	for ( String label : this.labels ) {
+		if ( label != null ) {
+			++count;
+		}
+	}
+	return count;
+}
+
+/**
+Return the positions of the time series to select in the list, determined in one pass.
+If any time series were selected by commands, those time series are returned.  Otherwise all are returned.
+@return the positions to select, in increasing order
+*/
+public int [] getSelectedIndices ()
+{
+	int size = this.tslist.size();
+	int [] selected = new int[size];
+	int selectedCount = 0;
+	for ( int i = 0; i < size; i++ ) {
+		TS ts = this.tslist.get(i);
+		if ( (ts != null) && ts.isSelected() ) {
+			selected[selectedCount++] = i;
+		}
+	}
+	if ( selectedCount == 0 ) {
+		// Select all
+		for ( int i = 0; i < size; i++ ) {
+			selected[i] = i;
+		}
+		return selected;
+	}
+	int [] selected2 = new int[selectedCount];
+	System.arraycopy ( selected, 0, selected2, 0, selectedCount );
+	return selected2;
+}
+
+/**
+Return the number of time series.
+@return the number of time series
+*/
+public int getSize ()
+{
+	return this.tslist.size();
+}
+
+/**
+Return a time series.
+@param i position in the list (0+)
+@return the time series (may be null)
+*/
+public TS getTimeSeries ( int i )
+{
+	return this.tslist.get(i);
+}
+
+/**
+Set the time series, replacing the previous time series.  Labels are formatted when the list asks for them.
+@param tslist time series results list from the processor, which is copied (can be null)
+*/
+public void setTimeSeriesList ( List<TS> tslist )
+{
+	clear();
+	if ( (tslist == null) || tslist.isEmpty() ) {
+		return;
+	}
+	this.tslist = new ArrayList<>(tslist);
+	this.labels = new String[this.tslist.size()];
+	fireIntervalAdded ( this, 0, this.tslist.size() - 1 );
+}
+
+/**
+Return the number of time series, the same as getSize().
+@return the number of time series
+*/
+public int size ()
+{
+	return getSize();
+}
+
+}
@@ -0,0 +1,446 @@
+// TSToolStartupProfiler - time the TSTool startup phases and write a JSON report
+
+/* NoticeStart
+
+TSTool
+TSTool is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+TSTool is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TSTool is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TSTool.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package DWR.DMI.tstool;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+
+import RTi.Util.Message.Message;
+
+/**
+Profiler for TSTool startup, enabled with the -startupProfile command line parameter.
+Startup phases (reading the configuration file, opening the log file, loading plugins, opening datastores,
+creating the UI, etc.) are timed with startPhase() and Sample.stop().
+Phases can be nested, for example opening datastores while creating the UI.
+Items within a phase, such as each plugin jar file or datastore, are timed with startItem(),
+which can be called from any thread and is added to the innermost phase that is active.
+For each phase and item the wall time, CPU time, and bytes allocated by the thread that ran it are recorded.
+CPU time and allocated bytes are only for the thread that started the sample and are null in the report if the JVM does not support them.
+The report is written as JSON next to the log file, for example TSTool_user-startup-profile.json,
+so that startup time can be compared between releases and installations.
+When the profiler is not enabled, the start methods return a sample that does nothing.
+*/
+public class TSToolStartupProfiler
+{
+
+/**
+Timing for a phase or an item within a phase.
+*/
+public static class Sample
+{
+	private String type;
+	private String name;
+	private String threadName;
+	private long startNanos;
+	private long startCpuNanos;
+	private long startAllocatedBytes;
+	private long wallNanos = -1;
+	private long cpuNanos = -1;
+	private long allocatedBytes = -1;
+	private boolean isPhase;
+	private List<Sample> childList = new ArrayList<>();
+
+	private Sample ( String type, String name, boolean isPhase )
+	{
+		this.type = type;
+		this.name = name;
+		this.isPhase = isPhase;
+		if ( type != null ) {
+			this.threadName = Thread.currentThread().getName();
+			this.startCpuNanos = getThreadCpuTime();
+			this.startAllocatedBytes = getThreadAllocatedBytes();
+			this.startNanos = System.nanoTime();
+		}
+	}
+
+	/**
+	Stop timing.  Must be called on the thread that started the sample, typically in a finally block.
+	*/
+	public void stop ()
+	{
+		if ( (this.type == null) || (this.wallNanos >= 0) ) {
+			// Profiling is not enabled or already stopped
+			return;
+		}
+		this.wallNanos = System.nanoTime() - this.startNanos;
+		if ( this.startCpuNanos >= 0 ) {
+			this.cpuNanos = getThreadCpuTime() - this.startCpuNanos;
+		}
+		if ( this.startAllocatedBytes >= 0 ) {
+			this.allocatedBytes = getThreadAllocatedBytes() - this.startAllocatedBytes;
+		}
+		if ( this.isPhase ) {
+			endPhase ( this );
+		}
+	}
+}
+
+/**
+Sample returned when profiling is not enabled.
+*/
+private static final Sample DISABLED_SAMPLE = new Sample ( null, null, false );
+
+/**
+Whether profiling is enabled.
+*/
+private static volatile boolean enabled = false;
+
+/**
+Time that profiling was enabled, to compute sample start offsets.
+*/
+private static long profileStartNanos = 0;
+
+/**
+Wall clock time that profiling was enabled.
+*/
+private static long profileStartTime = 0;
+
+/**
+Top-level phases, in the order started.
+*/
+private static List<Sample> phaseList = new ArrayList<>();
+
+/**
+Phases that are active, innermost last.
+*/
+private static Deque<Sample> activePhaseStack = new ArrayDeque<>();
+
+/**
+Log file, used to determine the report file.
+*/
+private static String logFile = null;
+
+/**
+Lock for the sample lists.
+*/
+private static final Object LOCK = new Object();
+
+/**
+Thread management bean, used for CPU time and allocated bytes.
+*/
+private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+
+/**
+Whether the JVM provides com.sun.management.ThreadMXBean, which is needed for allocated bytes.
+The class is checked by name so that it is not loaded on a JVM that does not provide it.
+*/
+private static final boolean HAS_SUN_THREAD_BEAN = hasClass("com.sun.management.ThreadMXBean");
+
+/**
+Constructor is private because only static methods are used.
+*/
+private TSToolStartupProfiler ()
+{
+}
+
+/**
+Enable profiling.  Should be called as early as possible so that sample start times are relative to startup.
+*/
+public static void enable ()
+{
+	synchronized ( LOCK ) {
+		if ( enabled ) {
+			return;
+		}
+		profileStartNanos = System.nanoTime();
+		profileStartTime = System.currentTimeMillis();
+		try {
+			if ( THREAD_BEAN.isThreadCpuTimeSupported() && !THREAD_BEAN.isThreadCpuTimeEnabled() ) {
+				THREAD_BEAN.setThreadCpuTimeEnabled(true);
+			}
+		}
+		catch ( UnsupportedOperationException | SecurityException e ) {
+			// CPU time will be reported as -1
+		}
+		enabled = true;
+	}
+}
+
+/**
+Remove a phase from the active phases when it is stopped.
+*/
+private static void endPhase ( Sample phase )
+{
+	synchronized ( LOCK ) {
+		activePhaseStack.remove(phase);
+	}
+}
+
+/**
+Return the CPU time for the current thread.
+@return CPU time in nanoseconds, or -1 if not supported
+*/
+private static long getThreadCpuTime ()
+{
+	try {
+		if ( THREAD_BEAN.isCurrentThreadCpuTimeSupported() ) {
+			return THREAD_BEAN.getCurrentThreadCpuTime();
+		}
+	}
+	catch ( UnsupportedOperationException e ) {
+		// Fall through
+	}
+	return -1;
+}
+
+/**
+Return the bytes allocated by the current thread.
+@return allocated bytes, or -1 if not supported
+*/
+private static long getThreadAllocatedBytes ()
+{
+	if ( !HAS_SUN_THREAD_BEAN ) {
+		return -1;
+	}
+	try {
+		if ( THREAD_BEAN instanceof com.sun.management.ThreadMXBean ) {
+			com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean)THREAD_BEAN;
+			if ( bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled() ) {
+				return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+	}
+	catch ( UnsupportedOperationException | LinkageError e ) {
+		// Fall through
+	}
+	return -1;
+}
+
+/**
+Indicate whether a class is available, without initializing it.
+@param className fully qualified class name
+@return true if the class is available
+*/
+private static boolean hasClass ( String className )
+{
+	try {
+		Class.forName ( className, false, TSToolStartupProfiler.class.getClassLoader() );
+		return true;
+	}
+	catch ( ClassNotFoundException | LinkageError e ) {
+		return false;
+	}
+}
+
+/**
+Return the report file, which is next to the log file.
+@param session TSTool session, used for the default log folder if a log file was not opened
+@return the report file
+*/
+public static File getReportFile ( TSToolSession session )
+{
+	String logFile0 = logFile;
+	if ( logFile0 == null ) {
+		logFile0 = session.getUserLogFile();
+	}
+	File file = new File(logFile0);
+	String name = file.getName();
+	int pos = name.lastIndexOf('.');
+	if ( pos > 0 ) {
+		name = name.substring(0, pos);
+	}
+	return new File(file.getParentFile(), name + "-startup-profile.json");
+}
+
+/**
+Indicate whether profiling is enabled.
+@return true if profiling is enabled
+*/
+public static boolean isEnabled ()
+{
+	return enabled;
+}
+
+/**
+Set the log file that was opened, used to determine the report file.
+@param logFile0 log file path
+*/
+public static void setLogFile ( String logFile0 )
+{
+	logFile = logFile0;
+}
+
+/**
+Start timing an item within the innermost active phase, for example opening a datastore.
+@param type item type, for example "datastore" or "plugin"
+@param name item name
+@return the sample, on which stop() must be called
+*/
+public static Sample startItem ( String type, String name )
+{
+	if ( !enabled ) {
+		return DISABLED_SAMPLE;
+	}
+	Sample item = new Sample ( type, name, false );
+	synchronized ( LOCK ) {
+		Sample phase = activePhaseStack.peekLast();
+		if ( phase == null ) {
+			phaseList.add(item);
+		}
+		else {
+			phase.childList.add(item);
+		}
+	}
+	return item;
+}
+
+/**
+Start timing a startup phase.
+@param name phase name, typically the name of the method that is called
+@return the sample, on which stop() must be called
+*/
+public static Sample startPhase ( String name )
+{
+	if ( !enabled ) {
+		return DISABLED_SAMPLE;
+	}
+	Sample phase = new Sample ( "phase", name, true );
+	synchronized ( LOCK ) {
+		Sample parent = activePhaseStack.peekLast();
+		if ( parent == null ) {
+			phaseList.add(phase);
+		}
+		else {
+			parent.childList.add(phase);
+		}
+		activePhaseStack.addLast(phase);
+	}
+	return phase;
+}
+
+/**
+Format a sample as JSON.
+*/
+private static void toJSON ( StringBuilder b, Sample sample, String indent )
+{
+	b.append(indent).append("{\n");
+	b.append(indent).append("  \"type\": ").append(TSToolCommandFileRun.toJSONString(sample.type)).append(",\n");
+	b.append(indent).append("  \"name\": ").append(TSToolCommandFileRun.toJSONString(sample.name)).append(",\n");
+	b.append(indent).append("  \"thread\": ").append(TSToolCommandFileRun.toJSONString(sample.threadName)).append(",\n");
+	b.append(indent).append("  \"startMs\": ").append(toMilliseconds(sample.startNanos - profileStartNanos)).append(",\n");
+	if ( sample.wallNanos < 0 ) {
+		// Still running, for example a datastore that timed out
+		b.append(indent).append("  \"complete\": false,\n");
+		b.append(indent).append("  \"wallMs\": ").append(toMilliseconds(System.nanoTime() - sample.startNanos)).append(",\n");
+	}
+	else {
+		b.append(indent).append("  \"wallMs\": ").append(toMilliseconds(sample.wallNanos)).append(",\n");
+	}
+	b.append(indent).append("  \"cpuMs\": ").append(sample.cpuNanos < 0 ? "null" : toMilliseconds(sample.cpuNanos)).append(",\n");
+	b.append(indent).append("  \"allocatedBytes\": ").append(sample.allocatedBytes < 0 ? "null" : "" + sample.allocatedBytes);
+	if ( !sample.childList.isEmpty() ) {
+		b.append(",\n");
+		b.append(indent).append("  \"children\": [\n");
+		toJSON ( b, sample.childList, indent + "    " );
+		b.append(indent).append("  ]");
+	}
+	b.append("\n").append(indent).append("}");
+}
+
+/**
+Format a list of samples as JSON.
+*/
+private static void toJSON ( StringBuilder b, List<Sample> sampleList, String indent )
+{
+	for ( int i = 0; i < sampleList.size(); i++ ) {
+		toJSON ( b, sampleList.get(i), indent );
+		b.append(i < (sampleList.size() - 1) ? ",\n" : "\n");
+	}
+}
+
+/**
+Format the report as JSON.
+@return the report as JSON
+*/
+public static String toJSON ()
+{
+	StringBuilder b = new StringBuilder();
+	synchronized ( LOCK ) {
+		long totalNanos = System.nanoTime() - profileStartNanos;
+		b.append("{\n");
+		b.append("  \"program\": ").append(TSToolCommandFileRun.toJSONString(TSToolMain.PROGRAM_NAME)).append(",\n");
+		b.append("  \"version\": ").append(TSToolCommandFileRun.toJSONString(TSToolMain.PROGRAM_VERSION)).append(",\n");
+		b.append("  \"javaVersion\": ").append(TSToolCommandFileRun.toJSONString(System.getProperty("java.version"))).append(",\n");
+		b.append("  \"osName\": ").append(TSToolCommandFileRun.toJSONString(System.getProperty("os.name"))).append(",\n");
+		b.append("  \"availableProcessors\": ").append(Runtime.getRuntime().availableProcessors()).append(",\n");
+		b.append("  \"startTime\": ").append(TSToolCommandFileRun.toJSONString(Instant.ofEpochMilli(profileStartTime).toString())).append(",\n");
+		b.append("  \"jvmUptimeAtStartMs\": ").append(ManagementFactory.getRuntimeMXBean().getUptime() - toMillisecondsLong(totalNanos)).append(",\n");
+		b.append("  \"totalWallMs\": ").append(toMilliseconds(totalNanos)).append(",\n");
+		b.append("  \"phases\": [\n");
+		toJSON ( b, phaseList, "    " );
+		b.append("  ]\n");
+		b.append("}\n");
+	}
+	return b.toString();
+}
+
+/**
+Format nanoseconds as milliseconds with 3 decimal places.
+The root locale is used so that the decimal point is valid JSON.
+*/
+private static String toMilliseconds ( long nanos )
+{
+	return String.format(Locale.ROOT, "%.3f", nanos/1.0e6);
+}
+
+/**
+Convert nanoseconds to whole milliseconds.
+*/
+private static long toMillisecondsLong ( long nanos )
+{
+	return nanos/1000000L;
+}
+
+/**
+Write the report next to the log file, if profiling is enabled.
+Profiling continues to be enabled so that the report can be written again, for example after the UI is created.
+@param session TSTool session, used for the default log folder if a log file was not opened
+*/
+public static void write ( TSToolSession session )
+{	String routine = TSToolStartupProfiler.class.getSimpleName() + ".write";
+	if ( !enabled ) {
+		return;
+	}
+	File reportFile = getReportFile(session);
+	try ( PrintWriter out = new PrintWriter(Files.newBufferedWriter(reportFile.toPath(), StandardCharsets.UTF_8)) ) {
+		out.print(toJSON());
+		Message.printStatus(2, routine, "Wrote startup profile to \"" + reportFile + "\"." );
+	}
+	catch ( IOException e ) {
+		Message.printWarning(2, routine, "Error writing startup profile to \"" + reportFile + "\" (" + e + ")." );
+	}
+}
+
+}
@@ -0,0 +1,228 @@
+// TSToolTimeSeriesReadCache - process-wide cache of time series that have been read, limited by estimated memory
+
+/* NoticeStart
+
+TSTool
+TSTool is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+TSTool is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TSTool is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TSTool.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package DWR.DMI.tstool;
+
+import RTi.TS.TS;
+import RTi.Util.Message.Message;
+import RTi.Util.String.StringUtil;
+
+/**
+Process-wide cache of time series that have been read, so that reading the same time series again
+(for example when commands are run again) does not read the input again.
+Entries are keyed by TSID, working directory, period, and read flags (see getKey()),
+and are only used for the same source, for example the datastore instance that the time series was read from,
+so that entries are not used after logging in to a datastore again.
+Entries for time series read from a file are used until the file's modification time or size changes.
+Entries for time series read from databases and web services are used until the time to live has passed.
+The least recently used entries are removed when the estimated memory for all entries is greater than the limit
+(see TSToolLruCache).
+Cached objects are shared, so callers must not modify them.
+@param <T> type of object that is cached, normally RTi.TS.TS
+*/
+public class TSToolTimeSeriesReadCache<T>
+{
+
+/**
+Process-wide instance for time series.
+*/
+private static TSToolTimeSeriesReadCache<TS> instance = null;
+
+/**
+Cached objects, with the estimated bytes as the weight.
+*/
+private TSToolLruCache<T> cache;
+
+/**
+Maximum estimated bytes for all entries.
+*/
+private long maxBytes;
+
+/**
+Time to live for entries that are not read from a file, milliseconds.
+*/
+private long ttlMillis;
+
+/**
+Create a cache.
+@param maxBytes maximum estimated bytes for all entries (<= 0 to disable the cache)
+@param ttlSeconds time to live for entries that are not read from a file, seconds (<= 0 to not cache these entries)
+*/
+public TSToolTimeSeriesReadCache ( long maxBytes, int ttlSeconds )
+{
+	this.maxBytes = maxBytes;
+	this.ttlMillis = 1000L*ttlSeconds;
+	this.cache = new TSToolLruCache<T> ( 0, maxBytes, this.ttlMillis );
+}
+
+/**
+Remove all entries.
+*/
+public void clear ()
+{
+	this.cache.clear();
+}
+
+/**
+Return the current time, milliseconds.  Can be overridden for testing.
+@return the current time, milliseconds
+*/
+protected long currentTimeMillis ()
+{
+	return System.currentTimeMillis();
+}
+
+/**
+Return a cached object.
+@param key key from getKey()
+@param source source of the object, for example the datastore instance, which must be the same instance
+as when the object was cached (can be null)
+@return the cached object, or null if not cached, cached from a different source,
+or if the file has changed or the time to live has passed
+*/
+public T get ( String key, Object source )
+{
+	if ( !isEnabled() ) {
+		return null;
+	}
+	return this.cache.get ( key, source, currentTimeMillis() );
+}
+
+/**
+Return the estimated bytes for all entries.
+@return the estimated bytes
+*/
+public long getBytes ()
+{
+	return this.cache.getWeight();
+}
+
+/**
+Return the number of requests that were found in the cache.
+@return the number of cache hits
+*/
+public long getHitCount ()
+{
+	return this.cache.getHitCount();
+}
+
+/**
+Return the process-wide instance for time series, creating if necessary.
+The instance is configured with the following TSTool configuration file properties:
+TSTool.TimeSeriesReadCacheMegabytes (default 256, 0 to disable) and
+TSTool.TimeSeriesReadCacheSeconds (time to live for databases and web services, default 300).
+@return the process-wide instance
+*/
+public static synchronized TSToolTimeSeriesReadCache<TS> getInstance ()
+{	String routine = TSToolTimeSeriesReadCache.class.getSimpleName() + ".getInstance";
+	if ( instance == null ) {
+		int megabytes = 256;
+		int ttlSeconds = 300;
+		String propValue = TSToolMain.getPropValue ( "TSTool.TimeSeriesReadCacheMegabytes" );
+		if ( (propValue != null) && StringUtil.isInteger(propValue.trim()) ) {
+			megabytes = Integer.parseInt(propValue.trim());
+		}
+		propValue = TSToolMain.getPropValue ( "TSTool.TimeSeriesReadCacheSeconds" );
+		if ( (propValue != null) && StringUtil.isInteger(propValue.trim()) ) {
+			ttlSeconds = Integer.parseInt(propValue.trim());
+		}
+		instance = new TSToolTimeSeriesReadCache<TS>(1024L*1024*megabytes, ttlSeconds);
+		Message.printStatus(2, routine, "Time series read cache is limited to " + megabytes +
+			" MB with time to live " + ttlSeconds + " seconds for databases and web services." );
+	}
+	return instance;
+}
+
+/**
+Return the cache key for a read.
+@param tsid full time series identifier, including the input type and input name if specified
+@param workingDir working directory, which is used to find an input file with a relative path
+(null or empty if none)
+@param start requested start (null or empty for the full period)
+@param end requested end (null or empty for the full period)
+@param readFlags flags that change what is read, for example whether data are read (null or empty if none)
+@return the cache key
+*/
+public static String getKey ( String tsid, String workingDir, String start, String end, String readFlags )
+{
+	return tsid + "|" + ((workingDir == null) ? "" : workingDir) + "|" + ((start == null) ? "" : start) + "|" +
+		((end == null) ? "" : end) + "|" + ((readFlags == null) ? "" : readFlags);
+}
+
+/**
+Return the number of requests that were not found in the cache.
+@return the number of cache misses
+*/
+public long getMissCount ()
+{
+	return this.cache.getMissCount();
+}
+
+/**
+Indicate whether the cache is enabled.
+@return true if objects are cached
+*/
+public boolean isEnabled ()
+{
+	return this.maxBytes > 0;
+}
+
+/**
+Cache an object, replacing a previous object for the key.
+Least recently used entries are removed if the estimated bytes for all entries is greater than the limit.
+@param key key from getKey()
+@param source source of the object, for example the datastore instance (can be null)
+@param value object to cache
+@param bytes estimated memory used by the object, bytes
+@param fileState state of the file that the object was read from, captured before the read, which is used to
+check whether the file has changed, or null if not read from a file, in which case the time to live is used
+*/
+public void put ( String key, Object source, T value, long bytes, TSToolLruCache.FileState fileState )
+{
+	if ( !isEnabled() || ((fileState == null) && (this.ttlMillis <= 0)) ) {
+		// The cache is disabled
+		this.cache.remove ( key );
+		return;
+	}
+	this.cache.put ( key, source, value, bytes, currentTimeMillis(), fileState );
+}
+
+/**
+Remove a cached object.
+@param key key from getKey()
+*/
+public void remove ( String key )
+{
+	this.cache.remove ( key );
+}
+
+/**
+Return the number of cached objects.
+@return the number of entries
+*/
+public int size ()
+{
+	return this.cache.size();
+}
+
+}
@@ -24,7 +24,10 @@ NoticeEnd */
 
 package DWR.DMI.tstool;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.DoublePredicate;
+import java.util.function.IntPredicate;
 
 import DWR.DMI.HydroBaseDMI.HydroBase_WaterDistrict;
 import DWR.DMI.HydroBaseDMI.HydroBase_GroundWaterWellsView;
@@ -32,17 +35,18 @@ import DWR.DMI.HydroBaseDMI.HydroBase_Util;
 import RTi.DMI.DMIUtil;
 import RTi.Util.GUI.JWorksheet;
 import RTi.Util.GUI.JWorksheet_AbstractRowTableModel;
-import RTi.Util.String.StringUtil;
 
 /**
 public class TSTool_HydroBase_GroundWaterWellsView_TableModel
 This class is a table model for time series header information for HydroBase well time series that are not stored
 with structures.
+The displayed fields are copied into a TSToolColumnStore and the HydroBase_GroundWaterWellsView objects are not kept.
 By default the sheet will contain row and column numbers.
 */
 @SuppressWarnings("serial")
 public class TSTool_HydroBase_GroundWaterWellsView_TableModel
 extends JWorksheet_AbstractRowTableModel<HydroBase_GroundWaterWellsView>
+implements TSToolColumnStoreTableModel
 {
 
 /**
@@ -70,6 +74,32 @@ public final int COL_UTM_X = 16;
 public final int COL_UTM_Y = 17;
 public final int COL_INPUT_TYPE = 18;
 
+/**
+Columns in the store that are not displayed, used to format the ID.
+*/
+private final int __COL_WELL_ID = 19;
+private final int __COL_IDENTIFIER = 20;
+
+/**
+Missing integer values.
+*/
+private static final IntPredicate __intMissing = i -> DMIUtil.isMissing(i) || HydroBase_Util.isMissing(i);
+
+/**
+Missing double values.
+*/
+private static final DoublePredicate __doubleMissing = d -> DMIUtil.isMissing(d) || HydroBase_Util.isMissing(d);
+
+/**
+Displayed fields for each row.
+*/
+private TSToolColumnStore __store;
+
+/**
+Store rows to display, or null to display all rows in store order.
+*/
+private int [] __rowView = null;
+
 private int __wdid_length = 7; // The length to use when formatting WDIDs in IDs.
 
 /**
@@ -109,15 +139,58 @@ public TSTool_HydroBase_GroundWaterWellsView_TableModel ( JWorksheet worksheet,
 throws Exception
 {	__wdid_length = wdid_length;
 	if ( data == null ) {
-		_rows = 0;
-	}
-	else {
-	    _rows = data.size();
+		data = new ArrayList<HydroBase_GroundWaterWellsView>();
 	}
-	_data = data;
+	_rows = data.size();
 	if ( (inputType != null) && !inputType.equals("") ) {
 	    __inputType = inputType;
 	}
+	__store = createColumnStore ( data );
+	// The objects are not kept after the fields are copied - use getValueAt() to get the values for a row
+	_data = new ArrayList<HydroBase_GroundWaterWellsView>();
+}
+
+/**
+Copy the displayed fields into a column store.
+@param data the HydroBase_GroundWaterWellsView objects to display
+@return the column store
+*/
+private TSToolColumnStore createColumnStore ( List<HydroBase_GroundWaterWellsView> data )
+{
+	TSToolColumnStore store = new TSToolColumnStore ( data.size(), __COLUMNS + 2 );
+	store.setStringColumn ( COL_NAME, data, wv -> wv.getWell_name() );
+	store.setStringColumn ( COL_DATA_SOURCE, data, wv -> wv.getData_source() );
+	// TSTool translates to values from the TSTool interface...
+	store.setStringColumn ( COL_DATA_TYPE, row -> "WellLevel" );
+	store.setStringColumn ( COL_TIME_STEP, data, wv -> wv.getTime_step() );
+	store.setStringColumn ( COL_UNITS, data, wv -> wv.getData_units() );
+	store.setIntColumn ( COL_START, data, wv -> wv.getStart_year(), __intMissing );
+	store.setIntColumn ( COL_END, data, wv -> wv.getEnd_year(), __intMissing );
+	store.setIntColumn ( COL_MEAS_COUNT, data, wv -> wv.getMeas_count(), __intMissing );
+	store.setIntColumn ( COL_DIV, data, wv -> wv.getDiv(), __intMissing );
+	store.setIntColumn ( COL_DIST, data, wv -> wv.getWD(), __intMissing );
+	store.setStringColumn ( COL_COUNTY, data, wv -> wv.getCounty() );
+	store.setStringColumn ( COL_STATE, data, wv -> wv.getST() );
+	store.setStringColumn ( COL_HUC, data, wv -> wv.getHUC() );
+	store.setDoubleColumn ( COL_LONG, data, wv -> wv.getLongdecdeg(), __doubleMissing, "%.6f" );
+	store.setDoubleColumn ( COL_LAT, data, wv -> wv.getLatdecdeg(), __doubleMissing, "%.6f" );
+	store.setDoubleColumn ( COL_UTM_X, data, wv -> wv.getUtm_x(), __doubleMissing, "%.3f" );
+	store.setDoubleColumn ( COL_UTM_Y, data, wv -> wv.getUtm_y(), __doubleMissing, "%.3f" );
+	// The ID is set from other columns because the WDID length can be changed
+	store.setStringColumn ( __COL_IDENTIFIER, data, wv -> wv.getIdentifier() );
+	store.setIntColumn ( __COL_WELL_ID, data, wv -> wv.getID(), __intMissing );
+	setIDColumn ( store );
+	store.setStringColumn ( COL_INPUT_TYPE, row -> __inputType );
+	return store;
+}
+
+/**
+Return the column store.
+@return the column store with the displayed values
+*/
+public TSToolColumnStore getColumnStore ()
+{
+	return __store;
 }
 
 /**
@@ -228,6 +301,16 @@ public int[] getColumnWidths() {
     return widths;
 }
 
+/**
+The HydroBase_GroundWaterWellsView objects are not kept after their fields are copied into the column store,
+so they cannot be returned.  Use getValueAt() to get the values.
+@throws UnsupportedOperationException always
+*/
+public List<HydroBase_GroundWaterWellsView> getData ()
+{
+	throw new UnsupportedOperationException ( "TSTool_HydroBase_GroundWaterWellsView_TableModel does not keep the row objects - use getValueAt()." );
+}
+
 /**
 Returns the format to display the specified column.
 @param column column for which to return the format.
@@ -246,6 +329,26 @@ public int getRowCount() {
 	return _rows;
 }
 
+/**
+The HydroBase_GroundWaterWellsView objects are not kept after their fields are copied into the column store,
+so a row object cannot be returned.  Use getValueAt() to get the values for a row.
+@param row row for which to return the object
+@throws UnsupportedOperationException always
+*/
+public HydroBase_GroundWaterWellsView getRowData ( int row )
+{
+	throw new UnsupportedOperationException ( "TSTool_HydroBase_GroundWaterWellsView_TableModel does not keep the row objects - use getValueAt()." );
+}
+
+/**
+Return the store rows that are displayed.
+@return the store rows in display order, or null if all rows are displayed in store order
+*/
+public int [] getRowView ()
+{
+	return __rowView;
+}
+
 /**
 From AbstractTableModel.  Returns the data that should be placed in the JTable at the given row and column.
 @param row the row for which to return data.
@@ -253,121 +356,37 @@ From AbstractTableModel.  Returns the data that should be placed in the JTable a
 @return the data that should be placed in the JTable at the given row and column.
 */
 public Object getValueAt(int row, int col)
-{	// If sorted, get the position in the data from the displayed row.
-	if (_sortOrder != null) {
-		row = _sortOrder[row];
+{	// The worksheet sort is not used - clicking on a column heading sorts with the column store
+	// through the query filter panel, which sets the row view
+	if (__rowView != null) {
+		// Sorted or filtered with the query filter
+		row = __rowView[row];
 	}
-
-	int i; // Use for integer data.
-	double d; // Use for double data
-
-	HydroBase_GroundWaterWellsView wv = _data.get(row);
-
-	switch (col) {
-		// case 0 handled above.
-		case COL_ID:		
-			if ( wv.getIdentifier().length() > 0 ) {
-				// Well with a different identifier to display.
-				return
-				wv.getIdentifier();
-			}
-			else {
-			    // A structure other than wells...
-				return HydroBase_WaterDistrict.formWDID (__wdid_length, wv.getWD(), wv.getID() );
-			}
-		case COL_NAME: return wv.getWell_name();
-		case COL_DATA_SOURCE: return wv.getData_source();
-		case COL_DATA_TYPE:
-		    // TSTool translates to values from the TSTool interface...
-			return "WellLevel";
-		case COL_TIME_STEP:
-		    // TSTool translates HydroBase values to nicer values...
-			return wv.getTime_step();
-		case COL_UNITS:
-		    // The units are not in HydroBase.meas_type but are set by TSTool...
-			return wv.getData_units();
-		case COL_START:
-		    //return new Integer(wv.getStart_year() );
-			i = wv.getStart_year();
-			if ( DMIUtil.isMissing(i) || HydroBase_Util.isMissing(i) ) {
-				return "";
-			}
-			else {
-			    return "" + i;
-			}
-		case COL_END:
-		    //return new Integer (wv.getEnd_year() );
-			i = wv.getEnd_year();
-			if ( DMIUtil.isMissing(i) || HydroBase_Util.isMissing(i)) {
-				return "";
-			}
-			else {
-			    return "" + i;
-			}
-		case COL_MEAS_COUNT:
-		    i = wv.getMeas_count();
-			if ( DMIUtil.isMissing(i) || HydroBase_Util.isMissing(i)) {
-				return "";
-			}
-			else {
-			    return "" + i;
-			}
-		case COL_DIV:
-		    //return new Integer ( wv.getDiv() );
-			i = wv.getDiv();
-			if ( DMIUtil.isMissing(i) || HydroBase_Util.isMissing(i)) {
-				return "";
-			}
-			else {
-			    return "" + i;
-			}
-		case COL_DIST:
-		    //return new Integer ( wv.getWD() );
-			i = wv.getWD();
-			if ( DMIUtil.isMissing(i) || HydroBase_Util.isMissing(i)) {
-				return "";
-			}
-			else {
-			    return "" + i;
-			}
-		case COL_COUNTY: return wv.getCounty();
-		case COL_STATE: return wv.getST();
-		case COL_HUC: return wv.getHUC();
-        case COL_LONG:
-            d = wv.getLongdecdeg();
-            if ( DMIUtil.isMissing(d) || HydroBase_Util.isMissing(d)) {
-                return "";
-            }
-            else {
-                return "" + StringUtil.formatString(d,"%.6f");
-            }
-        case COL_LAT:
-            d = wv.getLatdecdeg();
-            if ( DMIUtil.isMissing(d) || HydroBase_Util.isMissing(d)) {
-                return "";
-            }
-            else {
-                return "" + StringUtil.formatString(d,"%.6f");
-            }
-        case COL_UTM_X:
-            d = wv.getUtm_x();
-            if ( DMIUtil.isMissing(d) || HydroBase_Util.isMissing(d)) {
-                return "";
-            }
-            else {
-                return "" + StringUtil.formatString(d,"%.3f");
-            }
-        case COL_UTM_Y:
-            d = wv.getUtm_y();
-            if ( DMIUtil.isMissing(d) || HydroBase_Util.isMissing(d)) {
-                return "";
-            }
-            else {
-                return "" + StringUtil.formatString(d,"%.3f");
-            }
-		case COL_INPUT_TYPE: return __inputType;
-		default: return "";
+	if ( (col >= 0) && (col < __COLUMNS) ) {
+		// Strings as read, and formatted numbers with "" for missing
+		return __store.getValue(row, col);
 	}
+	return "";
+}
+
+/**
+Set the ID column in the store, which depends on the WDID length.
+@param store the column store
+*/
+private void setIDColumn ( final TSToolColumnStore store )
+{
+	store.setStringColumn ( COL_ID, row -> {
+		String identifier = store.getString(row, __COL_IDENTIFIER);
+		if ( identifier.length() > 0 ) {
+			// Well with a different identifier to display.
+			return identifier;
+		}
+		else {
+			// A structure other than wells...
+			return HydroBase_WaterDistrict.formWDID (__wdid_length, store.getInt(row, COL_DIST),
+				store.getInt(row, __COL_WELL_ID) );
+		}
+	});
 }
 
 /**
@@ -377,6 +396,20 @@ multiple purposes.
 public void setInputType ( String inputType )
 {
     __inputType = inputType;
+    __store.setStringColumn ( COL_INPUT_TYPE, row -> __inputType );
+}
+
+/**
+Set the store rows to display, for example after sorting or filtering with the query filter.
+Any sort that was done by the worksheet is reset.
+@param rows the store rows in display order, or null to display all rows in store order
+*/
+public void setRowView ( int [] rows )
+{
+	__rowView = rows;
+	_rows = (rows == null) ? __store.getRowCount() : rows.length;
+	_sortOrder = null;
+	fireTableDataChanged();
 }
 
 /**
@@ -385,6 +418,10 @@ Set the width of WDIDs, which controls formatting of the ID column for structure
 */
 public void setWDIDLength ( int wdid_length )
 {	__wdid_length = wdid_length;
+	setIDColumn ( __store );
+	if ( _rows > 0 ) {
+		fireTableRowsUpdated ( 0, _rows - 1 );
+	}
 }
 
 }
@@ -23,7 +23,10 @@ NoticeEnd */
 
 package DWR.DMI.tstool;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.DoublePredicate;
+import java.util.function.IntPredicate;
 
 import DWR.DMI.HydroBaseDMI.HydroBase_StationGeolocMeasType;
 import DWR.DMI.HydroBaseDMI.HydroBase_Util;
@@ -31,14 +34,15 @@ import DWR.DMI.HydroBaseDMI.HydroBase_Util;
 import RTi.DMI.DMIUtil;
 import RTi.Util.GUI.JWorksheet;
 import RTi.Util.GUI.JWorksheet_AbstractRowTableModel;
-import RTi.Util.String.StringUtil;
 
 /**
 This class is a table model for time series header information for HydroBase station time series.
+The displayed fields are copied into a TSToolColumnStore and the HydroBase_StationGeolocMeasType objects are not kept.
 By default the sheet will contain row and column numbers.
 */
 @SuppressWarnings("serial")
 public class TSTool_HydroBase_StationGeolocMeasType_TableModel extends JWorksheet_AbstractRowTableModel<HydroBase_StationGeolocMeasType>
+implements TSToolColumnStoreTableModel
 {
 
 /**
@@ -67,6 +71,26 @@ public final int COL_UTM_X = 17;
 public final int COL_UTM_Y = 18;
 public final int COL_INPUT_TYPE = 19;
 
+/**
+Missing integer values.
+*/
+private static final IntPredicate __intMissing = i -> DMIUtil.isMissing(i) || HydroBase_Util.isMissing(i);
+
+/**
+Missing double values.
+*/
+private static final DoublePredicate __doubleMissing = d -> DMIUtil.isMissing(d) || HydroBase_Util.isMissing(d);
+
+/**
+Displayed fields for each row.
+*/
+private TSToolColumnStore __store;
+
+/**
+Store rows to display, or null to display all rows in store order.
+*/
+private int [] __rowView = null;
+
 /**
 Input type for time series identifier (default to "HydroBase" but can be set to allow class to be used
 with other State-related data, such as web services).
@@ -100,15 +124,64 @@ public TSTool_HydroBase_StationGeolocMeasType_TableModel ( JWorksheet worksheet,
 throws Exception
 {
 	if ( data == null ) {
-		_rows = 0;
+		data = new ArrayList<HydroBase_StationGeolocMeasType>();
 	}
-	else {
-	    _rows = data.size();
-	}
-	_data = data;
+	_rows = data.size();
 	if ( (inputType != null) && !inputType.equals("") ) {
 	    __inputType = inputType;
 	}
+	__store = createColumnStore ( data );
+	// The objects are not kept after the fields are copied - use getValueAt() to get the values for a row
+	_data = new ArrayList<HydroBase_StationGeolocMeasType>();
+}
+
+/**
+Copy the displayed fields into a column store.
+@param data the HydroBase_StationGeolocMeasType objects to display
+@return the column store
+*/
+private TSToolColumnStore createColumnStore ( List<HydroBase_StationGeolocMeasType> data )
+{
+	TSToolColumnStore store = new TSToolColumnStore ( data.size(), __COLUMNS );
+	store.setStringColumn ( COL_ID, data, mt -> mt.getStation_id() );
+	store.setStringColumn ( COL_ABBREV, data, mt -> mt.getAbbrev() );
+	store.setStringColumn ( COL_NAME, data, mt -> mt.getStation_name() );
+	// Station also has source but want the meas_type source.
+	store.setStringColumn ( COL_DATA_SOURCE, data, mt -> mt.getData_source() );
+	// TSTool translates to values from the TSTool interface...
+	store.setStringColumn ( COL_DATA_TYPE, data, mt -> mt.getMeas_type() );
+	store.setStringColumn ( COL_TIME_STEP, data, mt -> mt.getTime_step() );
+	// The units are not in HydroBase.meas_type but are set by TSTool...
+	store.setStringColumn ( COL_UNITS, data, mt -> {
+		String units = HydroBase_Util.getTimeSeriesDataUnits(null, mt.getMeas_type(), mt.getTime_step());
+		if ( units == null ) {
+			units = "";
+		}
+		return units;
+	});
+	store.setIntColumn ( COL_START, data, mt -> mt.getStart_year(), __intMissing );
+	store.setIntColumn ( COL_END, data, mt -> mt.getEnd_year(), __intMissing );
+	store.setIntColumn ( COL_MEAS_COUNT, data, mt -> mt.getMeas_count(), __intMissing );
+	store.setIntColumn ( COL_DIV, data, mt -> mt.getDiv(), __intMissing );
+	store.setIntColumn ( COL_DIST, data, mt -> mt.getWD(), __intMissing );
+	store.setStringColumn ( COL_COUNTY, data, mt -> mt.getCounty() );
+	store.setStringColumn ( COL_STATE, data, mt -> mt.getST() );
+	store.setStringColumn ( COL_HUC, data, mt -> mt.getHUC() );
+	store.setDoubleColumn ( COL_LONG, data, mt -> mt.getLongdecdeg(), __doubleMissing, "%.6f" );
+	store.setDoubleColumn ( COL_LAT, data, mt -> mt.getLatdecdeg(), __doubleMissing, "%.6f" );
+	store.setDoubleColumn ( COL_UTM_X, data, mt -> mt.getUtm_x(), __doubleMissing, "%.3f" );
+	store.setDoubleColumn ( COL_UTM_Y, data, mt -> mt.getUtm_y(), __doubleMissing, "%.3f" );
+	store.setStringColumn ( COL_INPUT_TYPE, row -> __inputType );
+	return store;
+}
+
+/**
+Return the column store.
+@return the column store with the displayed values
+*/
+public TSToolColumnStore getColumnStore ()
+{
+	return __store;
 }
 
 /**
@@ -223,6 +296,16 @@ public int[] getColumnWidths() {
     return widths;
 }
 
+/**
+The HydroBase_StationGeolocMeasType objects are not kept after their fields are copied into the column store,
+so they cannot be returned.  Use getValueAt() to get the values.
+@throws UnsupportedOperationException always
+*/
+public List<HydroBase_StationGeolocMeasType> getData ()
+{
+	throw new UnsupportedOperationException ( "TSTool_HydroBase_StationGeolocMeasType_TableModel does not keep the row objects - use getValueAt()." );
+}
+
 /**
 Returns the format to display the specified column.
 @param column column for which to return the format.
@@ -241,6 +324,26 @@ public int getRowCount() {
 	return _rows;
 }
 
+/**
+The HydroBase_StationGeolocMeasType objects are not kept after their fields are copied into the column store,
+so a row object cannot be returned.  Use getValueAt() to get the values for a row.
+@param row row for which to return the object
+@throws UnsupportedOperationException always
+*/
+public HydroBase_StationGeolocMeasType getRowData ( int row )
+{
+	throw new UnsupportedOperationException ( "TSTool_HydroBase_StationGeolocMeasType_TableModel does not keep the row objects - use getValueAt()." );
+}
+
+/**
+Return the store rows that are displayed.
+@return the store rows in display order, or null if all rows are displayed in store order
+*/
+public int [] getRowView ()
+{
+	return __rowView;
+}
+
 /**
 From AbstractTableModel.  Returns the data that should be placed in the JTable at the given row and column.
 @param row the row for which to return data.
@@ -248,119 +351,17 @@ From AbstractTableModel.  Returns the data that should be placed in the JTable a
 @return the data that should be placed in the JTable at the given row and column.
 */
 public Object getValueAt(int row, int col)
-{	// If sorted, get the position in the data from the displayed row.
-	if (_sortOrder != null) {
-		row = _sortOrder[row];
+{	// The worksheet sort is not used - clicking on a column heading sorts with the column store
+	// through the query filter panel, which sets the row view
+	if (__rowView != null) {
+		// Sorted or filtered with the query filter
+		row = __rowView[row];
 	}
-
-	int i; // Use for integer data.
-	double d; // Use for double data
-
-	HydroBase_StationGeolocMeasType mt = _data.get(row);
-	switch (col) {
-		// case 0 handled above.
-		case COL_ID: return mt.getStation_id();
-		case COL_ABBREV: return mt.getAbbrev();
-		case COL_NAME: return mt.getStation_name();
-		case COL_DATA_SOURCE:
-		    // Station also has source but want the meas_type source.
-			return mt.getData_source();
-		case COL_DATA_TYPE:
-		    // TSTool translates to values from the TSTool interface...
-			return mt.getMeas_type();
-		case COL_TIME_STEP:
-		    // TSTool translates HydroBase values to nicer values...
-			return mt.getTime_step();
-		case COL_UNITS:
-		    // The units are not in HydroBase.meas_type but are set by TSTool...
-			//return mt.getData_units();
-		    String units = HydroBase_Util.getTimeSeriesDataUnits(null, mt.getMeas_type(), mt.getTime_step());
-		    if ( units == null ) {
-		        units = "";
-		    }
-		    return units;
-		case COL_START:
-		    //return new Integer(mt.getStart_year() );
-			i = mt.getStart_year();
-			if ( DMIUtil.isMissing(i) || HydroBase_Util.isMissing(i)) {
-				return "";
-			}
-			else {
-			    return "" + i;
-			}
-		case COL_END:
-		    //return new Integer (mt.getEnd_year() );
-			i = mt.getEnd_year();
-			if ( DMIUtil.isMissing(i) || HydroBase_Util.isMissing(i)) {
-				return "";
-			}
-			else {
-			    return "" + i;
-			}
-		case COL_MEAS_COUNT:
-            i = mt.getMeas_count();
-			if ( DMIUtil.isMissing(i) || HydroBase_Util.isMissing(i)) {
-				return "";
-			}
-			else {
-			    return "" + i;
-			}
-		case COL_DIV:
-		    //return new Integer ( mt.getDiv() );
-			i = mt.getDiv();
-			if ( DMIUtil.isMissing(i) || HydroBase_Util.isMissing(i)) {
-				return "";
-			}
-			else {
-			    return "" + i;
-			}
-		case COL_DIST:
-		    //return new Integer ( mt.getWD() );
-			i = mt.getWD();
-			if ( DMIUtil.isMissing(i) || HydroBase_Util.isMissing(i)) {
-				return "";
-			}
-			else {
-			    return "" + i;
-			}
-		case COL_COUNTY: return mt.getCounty();
-		case COL_STATE: return mt.getST();
-		case COL_HUC: return mt.getHUC();
-        case COL_LONG:
-            d = mt.getLongdecdeg();
-            if ( DMIUtil.isMissing(d) || HydroBase_Util.isMissing(d)) {
-                return "";
-            }
-            else {
-                return "" + StringUtil.formatString(d,"%.6f");
-            }
-        case COL_LAT:
-            d = mt.getLatdecdeg();
-            if ( DMIUtil.isMissing(d) || HydroBase_Util.isMissing(d)) {
-                return "";
-            }
-            else {
-                return "" + StringUtil.formatString(d,"%.6f");
-            }
-        case COL_UTM_X:
-            d = mt.getUtm_x();
-            if ( DMIUtil.isMissing(d) || HydroBase_Util.isMissing(d)) {
-                return "";
-            }
-            else {
-                return "" + StringUtil.formatString(d,"%.3f");
-            }
-        case COL_UTM_Y:
-            d = mt.getUtm_y();
-            if ( DMIUtil.isMissing(d) || HydroBase_Util.isMissing(d)) {
-                return "";
-            }
-            else {
-                return "" + StringUtil.formatString(d,"%.3f");
-            }
-		case COL_INPUT_TYPE: return __inputType;
-		default: return "";
+	if ( (col >= 0) && (col < __COLUMNS) ) {
+		// Strings as read, and formatted numbers with "" for missing
+		return __store.getValue(row, col);
 	}
+	return "";
 }
 
 /**
@@ -370,6 +371,20 @@ multiple purposes.
 public void setInputType ( String inputType )
 {
     __inputType = inputType;
+    __store.setStringColumn ( COL_INPUT_TYPE, row -> __inputType );
+}
+
+/**
+Set the store rows to display, for example after sorting or filtering with the query filter.
+Any sort that was done by the worksheet is reset.
+@param rows the store rows in display order, or null to display all rows in store order
+*/
+public void setRowView ( int [] rows )
+{
+	__rowView = rows;
+	_rows = (rows == null) ? __store.getRowCount() : rows.length;
+	_sortOrder = null;
+	fireTableDataChanged();
 }
 
 }
@@ -23,7 +23,11 @@ NoticeEnd */
 
 package DWR.DMI.tstool;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.DoublePredicate;
+import java.util.function.IntPredicate;
 
 import DWR.DMI.HydroBaseDMI.HydroBase_StructureGeolocStructMeasType;
 import DWR.DMI.HydroBaseDMI.HydroBase_Util;
@@ -32,15 +36,16 @@ import DWR.DMI.HydroBaseDMI.HydroBase_WaterDistrict;
 import RTi.DMI.DMIUtil;
 import RTi.Util.GUI.JWorksheet;
 import RTi.Util.GUI.JWorksheet_AbstractRowTableModel;
-import RTi.Util.String.StringUtil;
 
 /**
 This class is a table model for time series header information for HydroBase structure time series.
+The displayed fields are copied into a TSToolColumnStore and the HydroBase_StructureGeolocStructMeasType objects are not kept.
 By default the sheet will contain row and column numbers.
 */
 @SuppressWarnings("serial")
 public class TSTool_HydroBase_StructureGeolocStructMeasType_TableModel
 extends JWorksheet_AbstractRowTableModel<HydroBase_StructureGeolocStructMeasType>
+implements TSToolColumnStoreTableModel
 {
 
 /**
@@ -71,6 +76,32 @@ public final int COL_STRTYPE = 19;
 public final int COL_WDID = 20;
 public final int COL_INPUT_TYPE = 21;
 
+/**
+Columns in the store that are not displayed, used to format the ID.
+*/
+private final int __COL_STRUCTURE_ID = 22;
+private final int __COL_COMMON_ID = 23;
+
+/**
+Missing integer values.
+*/
+private static final IntPredicate __intMissing = i -> DMIUtil.isMissing(i) || HydroBase_Util.isMissing(i);
+
+/**
+Missing double values.
+*/
+private static final DoublePredicate __doubleMissing = d -> DMIUtil.isMissing(d) || HydroBase_Util.isMissing(d);
+
+/**
+Displayed fields for each row.
+*/
+private TSToolColumnStore __store;
+
+/**
+Store rows to display, or null to display all rows in store order.
+*/
+private int [] __rowView = null;
+
 private int __wdid_length = 7; // The length to use when formatting WDIDs in IDs.
 
 /**
@@ -110,15 +141,62 @@ public TSTool_HydroBase_StructureGeolocStructMeasType_TableModel ( JWorksheet wo
 throws Exception
 {	__wdid_length = wdid_length;
 	if ( data == null ) {
-		_rows = 0;
-	}
-	else {
-	    _rows = data.size();
+		data = new ArrayList<HydroBase_StructureGeolocStructMeasType>();
 	}
-	_data = data;
+	_rows = data.size();
 	if ( (inputType != null) && !inputType.equals("") ) {
 	    __inputType = inputType;
 	}
+	__store = createColumnStore ( data );
+	// The objects are not kept after the fields are copied - use getValueAt() to get the values for a row
+	_data = new ArrayList<HydroBase_StructureGeolocStructMeasType>();
+}
+
+/**
+Copy the displayed fields into a column store.
+@param data the HydroBase_StructureGeolocStructMeasType objects to display
+@return the column store
+*/
+private TSToolColumnStore createColumnStore ( List<HydroBase_StructureGeolocStructMeasType> data )
+{
+	TSToolColumnStore store = new TSToolColumnStore ( data.size(), __COLUMNS + 2 );
+	store.setStringColumn ( COL_NAME, data, mt -> mt.getStr_name() );
+	store.setStringColumn ( COL_DATA_SOURCE, data, mt -> mt.getData_source() );
+	// TSTool translates to values from the TSTool interface...
+	store.setStringColumn ( COL_DATA_TYPE, data, mt -> mt.getMeas_type() );
+	store.setStringColumn ( COL_TIME_STEP, data, mt -> mt.getTime_step() );
+	// The units are not in HydroBase.meas_type but are set by TSTool...
+	store.setStringColumn ( COL_UNITS, data, mt -> mt.getData_units() );
+	store.setIntColumn ( COL_START, data, mt -> mt.getStart_year(), __intMissing );
+	store.setIntColumn ( COL_END, data, mt -> mt.getEnd_year(), __intMissing );
+	store.setIntColumn ( COL_MEAS_COUNT, data, mt -> mt.getMeas_count(), __intMissing );
+	store.setIntColumn ( COL_DIV, data, mt -> mt.getDiv(), __intMissing );
+	store.setIntColumn ( COL_DIST, data, mt -> mt.getWD(), __intMissing );
+	store.setStringColumn ( COL_COUNTY, data, mt -> mt.getCounty() );
+	store.setStringColumn ( COL_STATE, data, mt -> mt.getST() );
+	store.setStringColumn ( COL_HUC, data, mt -> mt.getHUC() );
+	store.setDoubleColumn ( COL_LONG, data, mt -> mt.getLongdecdeg(), __doubleMissing, "%.6f" );
+	store.setDoubleColumn ( COL_LAT, data, mt -> mt.getLatdecdeg(), __doubleMissing, "%.6f" );
+	store.setDoubleColumn ( COL_UTM_X, data, mt -> mt.getUtm_x(), __doubleMissing, "%.3f" );
+	store.setDoubleColumn ( COL_UTM_Y, data, mt -> mt.getUtm_y(), __doubleMissing, "%.3f" );
+	store.setStringColumn ( COL_STR_TYPE, data, mt -> mt.getStr_type() );
+	store.setStringColumn ( COL_STRTYPE, data, mt -> mt.getSTRTYPE() );
+	store.setStringColumn ( COL_WDID, data, mt -> Objects.toString(mt.getWDID(), null) );
+	// The ID is set from other columns because the WDID length can be changed
+	store.setStringColumn ( __COL_COMMON_ID, data, mt -> mt.getCommon_id() );
+	store.setIntColumn ( __COL_STRUCTURE_ID, data, mt -> mt.getID(), __intMissing );
+	setIDColumn ( store );
+	store.setStringColumn ( COL_INPUT_TYPE, row -> __inputType );
+	return store;
+}
+
+/**
+Return the column store.
+@return the column store with the displayed values
+*/
+public TSToolColumnStore getColumnStore ()
+{
+	return __store;
 }
 
 /**
@@ -240,6 +318,16 @@ public int[] getColumnWidths() {
     return widths;
 }
 
+/**
+The HydroBase_StructureGeolocStructMeasType objects are not kept after their fields are copied into the column store,
+so they cannot be returned.  Use getValueAt() to get the values.
+@throws UnsupportedOperationException always
+*/
+public List<HydroBase_StructureGeolocStructMeasType> getData ()
+{
+	throw new UnsupportedOperationException ( "TSTool_HydroBase_StructureGeolocStructMeasType_TableModel does not keep the row objects - use getValueAt()." );
+}
+
 /**
 Returns the format to display the specified column.
 @param column column for which to return the format.
@@ -258,6 +346,26 @@ public int getRowCount() {
 	return _rows;
 }
 
+/**
+The HydroBase_StructureGeolocStructMeasType objects are not kept after their fields are copied into the column store,
+so a row object cannot be returned.  Use getValueAt() to get the values for a row.
+@param row row for which to return the object
+@throws UnsupportedOperationException always
+*/
+public HydroBase_StructureGeolocStructMeasType getRowData ( int row )
+{
+	throw new UnsupportedOperationException ( "TSTool_HydroBase_StructureGeolocStructMeasType_TableModel does not keep the row objects - use getValueAt()." );
+}
+
+/**
+Return the store rows that are displayed.
+@return the store rows in display order, or null if all rows are displayed in store order
+*/
+public int [] getRowView ()
+{
+	return __rowView;
+}
+
 /**
 From AbstractTableModel.  Returns the data that should be placed in the JTable at the given row and column.
 @param row the row for which to return data.
@@ -265,124 +373,37 @@ From AbstractTableModel.  Returns the data that should be placed in the JTable a
 @return the data that should be placed in the JTable at the given row and column.
 */
 public Object getValueAt(int row, int col)
-{	// If sorted, get the position in the data from the displayed row.
-	if (_sortOrder != null) {
-		row = _sortOrder[row];
+{	// The worksheet sort is not used - clicking on a column heading sorts with the column store
+	// through the query filter panel, which sets the row view
+	if (__rowView != null) {
+		// Sorted or filtered with the query filter
+		row = __rowView[row];
 	}
-
-	int i; // Use for integer data.
-	double d; // Use for double data
-
-	HydroBase_StructureGeolocStructMeasType mt = _data.get(row);
-	switch (col) {
-		// case 0 handled above.
-		case COL_ID:
-            if ( mt.getCommon_id().length() > 0 ) {
-				// Well with a different identifier to display.
-				return
-				mt.getCommon_id();
-			}
-			else {
-			    // A structure other than wells...
-				return
-				HydroBase_WaterDistrict.formWDID (__wdid_length, mt.getWD(), mt.getID() );
-			}
-		case COL_NAME: return mt.getStr_name();
-		case COL_DATA_SOURCE: return mt.getData_source();
-		case COL_DATA_TYPE:
-		    // TSTool translates to values from the TSTool interface...
-			return mt.getMeas_type();
-		case COL_TIME_STEP:
-		    // TSTool translates HydroBase values to nicer values...
-			return mt.getTime_step();
-		case COL_UNITS:
-		    // The units are not in HydroBase.meas_type but are set by TSTool...
-			return mt.getData_units();
-		case COL_START:
-		    //return new Integer(mt.getStart_year() );
-			i = mt.getStart_year();
-			if ( DMIUtil.isMissing(i) || HydroBase_Util.isMissing(i)) {
-				return "";
-			}
-			else {
-			    return "" + i;
-			}
-		case COL_END:
-		    //return new Integer ( mt.getEnd_year() );
-			i = mt.getEnd_year();
-			if ( DMIUtil.isMissing(i) || HydroBase_Util.isMissing(i)) {
-				return "";
-			}
-			else {
-			    return "" + i;
-			}
-		case COL_MEAS_COUNT:
-		    i = mt.getMeas_count();
-			if ( DMIUtil.isMissing(i) || HydroBase_Util.isMissing(i)) {
-				return "";
-			}
-			else {
-			    return "" + i;
-			}
-		case COL_DIV:
-		    //return new Integer ( mt.getDiv() );
-			i = mt.getDiv();
-			if ( DMIUtil.isMissing(i) || HydroBase_Util.isMissing(i)) {
-				return "";
-			}
-			else {
-			    return "" + i;
-			}
-		case COL_DIST:
-		    //return new Integer ( mt.getWD() );
-			i = mt.getWD();
-			if ( DMIUtil.isMissing(i) || HydroBase_Util.isMissing(i)) {
-				return "";
-			}
-			else {
-			    return "" + i;
-			}
-		case COL_COUNTY: return mt.getCounty();
-		case COL_STATE: return mt.getST();
-		case COL_HUC: return mt.getHUC();
-        case COL_LONG:
-            d = mt.getLongdecdeg();
-            if ( DMIUtil.isMissing(d) || HydroBase_Util.isMissing(d)) {
-                return "";
-            }
-            else {
-                return "" + StringUtil.formatString(d,"%.6f");
-            }
-        case COL_LAT:
-            d = mt.getLatdecdeg();
-            if ( DMIUtil.isMissing(d) || HydroBase_Util.isMissing(d)) {
-                return "";
-            }
-            else {
-                return "" + StringUtil.formatString(d,"%.6f");
-            }
-        case COL_UTM_X:
-            d = mt.getUtm_x();
-            if ( DMIUtil.isMissing(d) || HydroBase_Util.isMissing(d)) {
-                return "";
-            }
-            else {
-                return "" + StringUtil.formatString(d,"%.3f");
-            }
-        case COL_UTM_Y:
-            d = mt.getUtm_y();
-            if ( DMIUtil.isMissing(d) || HydroBase_Util.isMissing(d)) {
-                return "";
-            }
-            else {
-                return "" + StringUtil.formatString(d,"%.3f");
-            }
-        case COL_STR_TYPE: return mt.getStr_type();
-        case COL_STRTYPE: return mt.getSTRTYPE();
-        case COL_WDID: return mt.getWDID();
-		case COL_INPUT_TYPE: return __inputType;
-		default: return "";
+	if ( (col >= 0) && (col < __COLUMNS) ) {
+		// Strings as read, and formatted numbers with "" for missing
+		return __store.getValue(row, col);
 	}
+	return "";
+}
+
+/**
+Set the ID column in the store, which depends on the WDID length.
+@param store the column store
+*/
+private void setIDColumn ( final TSToolColumnStore store )
+{
+	store.setStringColumn ( COL_ID, row -> {
+		String commonID = store.getString(row, __COL_COMMON_ID);
+		if ( (commonID != null) && (commonID.length() > 0) ) {
+			// Well with a different identifier to display.
+			return commonID;
+		}
+		else {
+			// A structure other than wells...
+			return HydroBase_WaterDistrict.formWDID (__wdid_length, store.getInt(row, COL_DIST),
+				store.getInt(row, __COL_STRUCTURE_ID) );
+		}
+	});
 }
 
 /**
@@ -392,6 +413,20 @@ multiple purposes.
 public void setInputType ( String inputType )
 {
     __inputType = inputType;
+    __store.setStringColumn ( COL_INPUT_TYPE, row -> __inputType );
+}
+
+/**
+Set the store rows to display, for example after sorting or filtering with the query filter.
+Any sort that was done by the worksheet is reset.
+@param rows the store rows in display order, or null to display all rows in store order
+*/
+public void setRowView ( int [] rows )
+{
+	__rowView = rows;
+	_rows = (rows == null) ? __store.getRowCount() : rows.length;
+	_sortOrder = null;
+	fireTableDataChanged();
 }
 
 /**
@@ -400,6 +435,10 @@ Set the width of WDIDs, which controls formatting of the ID column for structure
 */
 public void setWDIDLength ( int wdid_length )
 {	__wdid_length = wdid_length;
+	setIDColumn ( __store );
+	if ( _rows > 0 ) {
+		fireTableRowsUpdated ( 0, _rows - 1 );
+	}
 }
 
 }
@@ -24,7 +24,10 @@ NoticeEnd */
 
 package DWR.DMI.tstool;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.DoublePredicate;
+import java.util.function.IntPredicate;
 
 import DWR.DMI.HydroBaseDMI.HydroBase_WaterDistrict;
 import DWR.DMI.HydroBaseDMI.HydroBase_GroundWaterWellsView;
@@ -32,16 +35,17 @@ import DWR.DMI.HydroBaseDMI.HydroBase_Util;
 import RTi.DMI.DMIUtil;
 import RTi.Util.GUI.JWorksheet;
 import RTi.Util.GUI.JWorksheet_AbstractRowTableModel;
-import RTi.Util.String.StringUtil;
 
 /**
 This class is a table model for time series header information for HydroBase
 daily well level time series with information stored in HydroBase_GroundWaterWellsView objects.
+The displayed fields are copied into a TSToolColumnStore and the HydroBase_GroundWaterWellsView objects are not kept.
 By default the sheet will contain row and column numbers.
 */
 @SuppressWarnings("serial")
 public class TSTool_HydroBase_WellLevel_Day_TableModel
 extends JWorksheet_AbstractRowTableModel<HydroBase_GroundWaterWellsView>
+implements TSToolColumnStoreTableModel
 {
 
 /**
@@ -114,6 +118,32 @@ public final int COL_LOCNUM = 60;
 public final int COL_SITE_ID = 61;
 public final int COL_INPUT_TYPE = 62;
 
+/**
+Columns in the store that are not displayed, used to format the ID.
+*/
+private final int __COL_WELL_ID = 63;
+private final int __COL_LAT_LONG_ID = 64;
+
+/**
+Missing integer values.
+*/
+private static final IntPredicate __intMissing = i -> DMIUtil.isMissing(i) || HydroBase_Util.isMissing(i);
+
+/**
+Missing double values.
+*/
+private static final DoublePredicate __doubleMissing = d -> DMIUtil.isMissing(d) || HydroBase_Util.isMissing(d);
+
+/**
+Displayed fields for each row.
+*/
+private TSToolColumnStore __store;
+
+/**
+Store rows to display, or null to display all rows in store order.
+*/
+private int [] __rowView = null;
+
 private int __wdid_length = 7; // The length to use when formatting WDIDs in IDs.
 
 String __inputType = "";
@@ -132,13 +162,101 @@ public TSTool_HydroBase_WellLevel_Day_TableModel (JWorksheet worksheet, int wdid
 throws Exception
 {	__wdid_length = wdid_length;
 	if ( data == null ) {
-		_rows = 0;
-	}
-	else {
-	    _rows = data.size();
+		data = new ArrayList<HydroBase_GroundWaterWellsView>();
 	}
-	_data = data;
+	_rows = data.size();
 	__inputType = inputType;
+	__store = createColumnStore ( data );
+	// The objects are not kept after the fields are copied - use getValueAt() to get the values for a row
+	_data = new ArrayList<HydroBase_GroundWaterWellsView>();
+}
+
+/**
+Copy the displayed fields into a column store.
+@param data the HydroBase_GroundWaterWellsView objects to display
+@return the column store
+*/
+private TSToolColumnStore createColumnStore ( List<HydroBase_GroundWaterWellsView> data )
+{
+	TSToolColumnStore store = new TSToolColumnStore ( data.size(), __COLUMNS + 2 );
+	store.setStringColumn ( COL_NAME, data, wv -> wv.getWell_name() );
+	store.setStringColumn ( COL_DATA_SOURCE, data, wv -> wv.getData_source() );
+	store.setStringColumn ( COL_DATA_TYPE, data, wv -> wv.getMeas_type() );
+	store.setStringColumn ( COL_TIME_STEP, data, wv -> wv.getTime_step() );
+	store.setStringColumn ( COL_UNITS, data, wv -> wv.getData_units() );
+	store.setIntColumn ( COL_START, data, wv -> wv.getStart_year(), __intMissing );
+	store.setIntColumn ( COL_END, data, wv -> wv.getEnd_year(), __intMissing );
+	store.setIntColumn ( COL_MEAS_COUNT, data, wv -> wv.getMeas_count(), __intMissing );
+	store.setIntColumn ( COL_DIV, data, wv -> wv.getDiv(), __intMissing );
+	store.setIntColumn ( COL_DIST, data, wv -> wv.getWD(), __intMissing );
+	store.setStringColumn ( COL_COUNTY, data, wv -> wv.getCounty() );
+	store.setStringColumn ( COL_STATE, data, wv -> wv.getST() );
+	store.setStringColumn ( COL_HUC, data, wv -> wv.getHUC() );
+	store.setStringColumn ( COL_BASIN, data, wv -> wv.getBasin() );
+	store.setStringColumn ( COL_MD, data, wv -> wv.getMD() );
+	store.setStringColumn ( COL_DSS_AQUIFER1, data, wv -> wv.getDSS_aquifer1() );
+	store.setStringColumn ( COL_DSS_AQUIFER2, data, wv -> wv.getDSS_aquifer2() );
+	store.setStringColumn ( COL_DSS_AQUIFER_COMMENT, data, wv -> wv.getDSS_aquifer_comment() );
+	store.setStringColumn ( COL_AQUIFER1, data, wv -> wv.getAquifer1() );
+	store.setStringColumn ( COL_AQUIFER2, data, wv -> wv.getAquifer2() );
+	store.setStringColumn ( COL_AQUIFER_COMMENT, data, wv -> wv.getAquifer_comment() );
+	store.setDoubleColumn ( COL_LONG, data, wv -> wv.getLongdecdeg(), __doubleMissing, "%.6f" );
+	store.setDoubleColumn ( COL_LAT, data, wv -> wv.getLatdecdeg(), __doubleMissing, "%.6f" );
+	store.setDoubleColumn ( COL_UTM_X, data, wv -> wv.getUtm_x(), __doubleMissing, "%.3f" );
+	store.setDoubleColumn ( COL_UTM_Y, data, wv -> wv.getUtm_y(), __doubleMissing, "%.3f" );
+	store.setStringColumn ( COL_SPOTTER_VERSION, data, wv -> wv.getSpotter_version() );
+	store.setIntColumn ( COL_LOC_ACCURACY, data, wv -> wv.getLoc_accuracy(), __intMissing );
+	store.setStringColumn ( COL_PM, data, wv -> wv.getPM() );
+	store.setIntColumn ( COL_TS, data, wv -> wv.getTS(), __intMissing );
+	store.setStringColumn ( COL_TDIR, data, wv -> wv.getTdir() );
+	store.setStringColumn ( COL_TSA, data, wv -> wv.getTsa() );
+	store.setIntColumn ( COL_RNG, data, wv -> wv.getRng(), __intMissing );
+	store.setStringColumn ( COL_RDIR, data, wv -> wv.getRdir() );
+	store.setStringColumn ( COL_RNGA, data, wv -> wv.getRnga() );
+	store.setIntColumn ( COL_SEC, data, wv -> wv.getSec(), __intMissing );
+	store.setStringColumn ( COL_SECA, data, wv -> wv.getSeca() );
+	store.setStringColumn ( COL_Q160, data, wv -> wv.getQ160() );
+	store.setStringColumn ( COL_Q40, data, wv -> wv.getQ40() );
+	store.setStringColumn ( COL_Q10, data, wv -> wv.getQ10() );
+	store.setIntColumn ( COL_COORDSNS, data, wv -> wv.getCoordsns(), __intMissing );
+	store.setStringColumn ( COL_COORDSNS_DIR, data, wv -> wv.getCoordsns_dir() );
+	store.setIntColumn ( COL_COORDSEW, data, wv -> wv.getCoordsew(), __intMissing );
+	store.setStringColumn ( COL_COORDSWE_DIR, data, wv -> wv.getCoordsew_dir() );
+	store.setDoubleColumn ( COL_ELEV, data, wv -> wv.getElev(), __doubleMissing, "%.0f" );
+	store.setDoubleColumn ( COL_ELEV_ACCURACY, data, wv -> wv.getElev_accuracy(), __doubleMissing, "%.0f" );
+	store.setIntColumn ( COL_WELL_DEPTH, data, wv -> wv.getWell_depth(), __intMissing );
+	store.setIntColumn ( COL_TPERF, data, wv -> wv.getTperf(), __intMissing );
+	store.setIntColumn ( COL_BPERF, data, wv -> wv.getBperf(), __intMissing );
+	store.setDoubleColumn ( COL_YIELD, data, wv -> wv.getYield(), __doubleMissing, "%.2f" );
+	store.setDoubleColumn ( COL_BEDROCK_ELEV, data, wv -> wv.getBedrock_elev(), __doubleMissing, "%.0f" );
+	store.setDoubleColumn ( COL_SAT_1965, data, wv -> wv.getSat_1965(), __doubleMissing, "%.0f" );
+	store.setStringColumn ( COL_REMARKS1, data, wv -> wv.getRemarks1() );
+	store.setStringColumn ( COL_REMARKS2, data, wv -> wv.getRemarks2() );
+	store.setStringColumn ( COL_DATA_SOURCE_IDENTIFIER, data, wv -> wv.getData_source_id() );
+	store.setStringColumn ( COL_IDENTIFIER, data, wv -> wv.getIdentifier() );
+	store.setStringColumn ( COL_RECEIPT, data, wv -> wv.getReceipt() );
+	store.setIntColumn ( COL_PERMITNO, data, wv -> wv.getPermitno(), __intMissing );
+	store.setStringColumn ( COL_PERMITSUF, data, wv -> wv.getPermitsuf() );
+	store.setStringColumn ( COL_PERMITRPL, data, wv -> wv.getPermitrpl() );
+	store.setStringColumn ( COL_LOCNUM, data, wv -> wv.getLoc_num() );
+	store.setStringColumn ( COL_SITE_ID, data, wv -> wv.getSite_id() );
+	// The WDID is formatted when displayed because the WDID length can be changed
+	store.setIntColumn ( __COL_WELL_ID, data, wv -> wv.getID(), __intMissing );
+	// Only needed for wells without an identifier or WDID
+	store.setStringColumn ( __COL_LAT_LONG_ID, data,
+		wv -> ((wv.getIdentifier().length() > 0) || ((wv.getWD() > 0) && (wv.getID() > 0))) ? null : wv.formatLatLongID() );
+	setIDColumn ( store );
+	store.setStringColumn ( COL_INPUT_TYPE, row -> __inputType );
+	return store;
+}
+
+/**
+Return the column store.
+@return the column store with the displayed values
+*/
+public TSToolColumnStore getColumnStore ()
+{
+	return __store;
 }
 
 /**
@@ -307,6 +425,16 @@ public String [] getColumnToolTips ()
     return toolTips;
 }
 
+/**
+The HydroBase_GroundWaterWellsView objects are not kept after their fields are copied into the column store,
+so they cannot be returned.  Use getValueAt() to get the values.
+@throws UnsupportedOperationException always
+*/
+public List<HydroBase_GroundWaterWellsView> getData ()
+{
+	throw new UnsupportedOperationException ( "TSTool_HydroBase_WellLevel_Day_TableModel does not keep the row objects - use getValueAt()." );
+}
+
 /**
 Returns the format to display the specified column.
 @param column column for which to return the format.
@@ -325,6 +453,26 @@ public int getRowCount() {
 	return _rows;
 }
 
+/**
+The HydroBase_GroundWaterWellsView objects are not kept after their fields are copied into the column store,
+so a row object cannot be returned.  Use getValueAt() to get the values for a row.
+@param row row for which to return the object
+@throws UnsupportedOperationException always
+*/
+public HydroBase_GroundWaterWellsView getRowData ( int row )
+{
+	throw new UnsupportedOperationException ( "TSTool_HydroBase_WellLevel_Day_TableModel does not keep the row objects - use getValueAt()." );
+}
+
+/**
+Return the store rows that are displayed.
+@return the store rows in display order, or null if all rows are displayed in store order
+*/
+public int [] getRowView ()
+{
+	return __rowView;
+}
+
 /**
 From AbstractTableModel.  Returns the data that should be placed in the JTable at the given row and column.
 @param row the row for which to return data.
@@ -332,305 +480,17 @@ From AbstractTableModel.  Returns the data that should be placed in the JTable a
 @return the data that should be placed in the JTable at the given row and column.
 */
 public Object getValueAt(int row, int col)
-{	// make sure the row numbers are never sorted ...
-	if (_sortOrder != null) {
-		row = _sortOrder[row];
+{	// The worksheet sort is not used - clicking on a column heading sorts with the column store
+	// through the query filter panel, which sets the row view
+	if (__rowView != null) {
+		// Sorted or filtered with the query filter
+		row = __rowView[row];
 	}
-
-	int i; // Use for integer data.
-	double d; // Use for double data.
-
-	HydroBase_GroundWaterWellsView wv = _data.get(row);
-
-	switch (col) {
-		// case 0 handled above.
-		case COL_ID:		
-			if ( wv.getIdentifier().length() > 0 ) {
-				// Well with a different identifier to display.
-				return wv.getIdentifier();
-			}
-			else if ( (wv.getWD() > 0) && (wv.getID() > 0) ) {
-			    return HydroBase_WaterDistrict.formWDID (__wdid_length, wv.getWD(), wv.getID() );
-			}
-			else {
-			    // A structure other than wells...
-				return wv.formatLatLongID();
-			}
-		case COL_NAME:
-		    return wv.getWell_name();
-		case COL_DATA_SOURCE:
-		    return wv.getData_source();
-		case COL_DATA_TYPE:
-			return wv.getMeas_type(); // May be WellLevel, WellLevelElev, WellLevelDepth, etc.
-		case COL_TIME_STEP:	// TSTool translates HydroBase values to nicer values...
-			return wv.getTime_step();
-		case COL_UNITS: // The units are not in HydroBase.meas_type but are set by TSTool...
-			return wv.getData_units();
-		case COL_START:
-		    //return new Integer(wv.getStart_year() );
-			i = wv.getStart_year();
-			if ( DMIUtil.isMissing(i) || HydroBase_Util.isMissing(i)) {
-				return "";
-			}
-			else {
-			    return "" + i;
-			}
-		case COL_END:
-		    //return new Integer (wv.getEnd_year() );
-			i = wv.getEnd_year();
-			if ( DMIUtil.isMissing(i) || HydroBase_Util.isMissing(i)) {
-				return "";
-			}
-			else {
-			    return "" + i;
-			}
-		case COL_MEAS_COUNT:
-		    i = wv.getMeas_count();
-			if ( DMIUtil.isMissing(i) || HydroBase_Util.isMissing(i)) {
-				return "";
-			}
-			else {
-			    return "" + i;
-			}
-		case COL_DIV:
-		    //return new Integer ( wv.getDiv() );
-			i = wv.getDiv();
-			if ( DMIUtil.isMissing(i) || HydroBase_Util.isMissing(i)) {
-				return "";
-			}
-			else {
-			    return "" + i;
-			}
-		case COL_DIST:
-		    //return new Integer ( wv.getWD() );
-			i = wv.getWD();
-			if ( DMIUtil.isMissing(i) || HydroBase_Util.isMissing(i)) {
-				return "";
-			}
-			else {
-			    return "" + i;
-			}
-		case COL_COUNTY:
-		    return wv.getCounty();
-		case COL_STATE:
-		    return wv.getST();
-		case COL_HUC:
-		    return wv.getHUC();
-		case COL_BASIN:
-		    return wv.getBasin();
-		case COL_MD:
-            return wv.getMD();
-		case COL_DSS_AQUIFER1:
-		    return wv.getDSS_aquifer1();
-		case COL_DSS_AQUIFER2:
-		    return wv.getDSS_aquifer2();
-		case COL_DSS_AQUIFER_COMMENT:
-            return wv.getDSS_aquifer_comment();
-        case COL_AQUIFER1:
-            return wv.getAquifer1();
-        case COL_AQUIFER2:
-            return wv.getAquifer2();
-        case COL_AQUIFER_COMMENT:
-            return wv.getAquifer_comment();
-        case COL_LONG:
-            d = wv.getLongdecdeg();
-            if ( DMIUtil.isMissing(d) || HydroBase_Util.isMissing(d)) {
-                return "";
-            }
-            else {
-                return "" + StringUtil.formatString(d,"%.6f");
-            }
-        case COL_LAT:
-            d = wv.getLatdecdeg();
-            if ( DMIUtil.isMissing(d) || HydroBase_Util.isMissing(d)) {
-                return "";
-            }
-            else {
-                return "" + StringUtil.formatString(d,"%.6f");
-            }
-        case COL_UTM_X:
-            d = wv.getUtm_x();
-            if ( DMIUtil.isMissing(d) || HydroBase_Util.isMissing(d)) {
-                return "";
-            }
-            else {
-                return "" + StringUtil.formatString(d,"%.3f");
-            }
-        case COL_UTM_Y:
-            d = wv.getUtm_y();
-            if ( DMIUtil.isMissing(d) || HydroBase_Util.isMissing(d)) {
-                return "";
-            }
-            else {
-                return "" + StringUtil.formatString(d,"%.3f");
-            }
-        case COL_SPOTTER_VERSION:
-            return wv.getSpotter_version();
-        case COL_LOC_ACCURACY:
-            i = wv.getLoc_accuracy();
-            if ( DMIUtil.isMissing(i) || HydroBase_Util.isMissing(i)) {
-                return "";
-            }
-            else {
-                return "" + i;
-            }
-        case COL_PM:
-            return wv.getPM();
-        case COL_TS:
-            i = wv.getTS();
-            if ( DMIUtil.isMissing(i) || HydroBase_Util.isMissing(i)) {
-                return "";
-            }
-            else {
-                return "" + i;
-            }
-        case COL_TDIR:
-            return wv.getTdir();
-        case COL_TSA:
-            return wv.getTsa();
-        case COL_RNG:
-            i = wv.getRng();
-            if ( DMIUtil.isMissing(i) || HydroBase_Util.isMissing(i)) {
-                return "";
-            }
-            else {
-                return "" + i;
-            }
-        case COL_RDIR:
-            return wv.getRdir();
-        case COL_RNGA:
-            return wv.getRnga();
-        case COL_SEC:
-            i = wv.getSec();
-            if ( DMIUtil.isMissing(i) || HydroBase_Util.isMissing(i)) {
-                return "";
-            }
-            else {
-                return "" + i;
-            }
-        case COL_SECA:
-            return wv.getSeca();
-        case COL_Q160:
-            return wv.getQ160();
-        case COL_Q40:
-            return wv.getQ40();
-        case COL_Q10:
-            return wv.getQ10();
-        case COL_COORDSNS:
-            i = wv.getCoordsns();
-            if ( DMIUtil.isMissing(i) || HydroBase_Util.isMissing(i)) {
-                return "";
-            }
-            else {
-                return "" + i;
-            }
-        case COL_COORDSNS_DIR:
-            return wv.getCoordsns_dir();
-        case COL_COORDSEW:
-            i = wv.getCoordsew();
-            if ( DMIUtil.isMissing(i) || HydroBase_Util.isMissing(i)) {
-                return "";
-            }
-            else {
-                return "" + i;
-            }
-        case COL_COORDSWE_DIR:
-            return wv.getCoordsew_dir();
-        case COL_ELEV:
-            d = wv.getElev();
-            if ( DMIUtil.isMissing(d) || HydroBase_Util.isMissing(d)) {
-                return "";
-            }
-            else {
-                return "" + StringUtil.formatString(d,"%.0f");
-            }
-        case COL_ELEV_ACCURACY:
-            d = wv.getElev_accuracy();
-            if ( DMIUtil.isMissing(d) || HydroBase_Util.isMissing(d)) {
-                return "";
-            }
-            else {
-                return "" + StringUtil.formatString(d,"%.0f");
-            }
-        case COL_WELL_DEPTH:
-            i = wv.getWell_depth();
-            if ( DMIUtil.isMissing(i) || HydroBase_Util.isMissing(i)) {
-                return "";
-            }
-            else {
-                return "" + i;
-            }
-        case COL_TPERF:
-            i = wv.getTperf();
-            if ( DMIUtil.isMissing(i) || HydroBase_Util.isMissing(i)) {
-                return "";
-            }
-            else {
-                return "" + i;
-            }
-        case COL_BPERF:
-            i = wv.getBperf();
-            if ( DMIUtil.isMissing(i) || HydroBase_Util.isMissing(i)) {
-                return "";
-            }
-            else {
-                return "" + i;
-            }
-        case COL_YIELD:
-            d = wv.getYield();
-            if ( DMIUtil.isMissing(d) || HydroBase_Util.isMissing(d)) {
-                return "";
-            }
-            else {
-                return "" + StringUtil.formatString(d,"%.2f");
-            }
-        case COL_BEDROCK_ELEV:
-            d = wv.getBedrock_elev();
-            if ( DMIUtil.isMissing(d) || HydroBase_Util.isMissing(d)) {
-                return "";
-            }
-            else {
-                return "" + StringUtil.formatString(d,"%.0f");
-            }
-        case COL_SAT_1965:
-            d = wv.getSat_1965();
-            if ( DMIUtil.isMissing(d) || HydroBase_Util.isMissing(d)) {
-                return "";
-            }
-            else {
-                return "" + StringUtil.formatString(d,"%.0f");
-            }
-        case COL_REMARKS1:
-            return wv.getRemarks1();
-        case COL_REMARKS2:
-            return wv.getRemarks2();
-        case COL_DATA_SOURCE_IDENTIFIER:
-            return wv.getData_source_id();
-        case COL_IDENTIFIER:
-            return wv.getIdentifier();
-        case COL_RECEIPT:
-            return wv.getReceipt();
-        case COL_PERMITNO:
-            i = wv.getPermitno();
-            if ( DMIUtil.isMissing(i) || HydroBase_Util.isMissing(i)) {
-                return "";
-            }
-            else {
-                return "" + i;
-            }
-        case COL_PERMITSUF:
-            return wv.getPermitsuf();
-        case COL_PERMITRPL:
-            return wv.getPermitrpl();
-        case COL_LOCNUM:
-            return wv.getLoc_num();
-        case COL_SITE_ID:
-            return wv.getSite_id();
-		case COL_INPUT_TYPE:
-		    return __inputType;
-		default:
-		    return "";
+	if ( (col >= 0) && (col < __COLUMNS) ) {
+		// Strings as read, and formatted numbers with "" for missing
+		return __store.getValue(row, col);
 	}
+	return "";
 }
 
 /**
@@ -705,12 +565,53 @@ public int[] getColumnWidths() {
 	return widths;
 }
 
+/**
+Set the ID column in the store, which depends on the WDID length.
+@param store the column store
+*/
+private void setIDColumn ( final TSToolColumnStore store )
+{
+	store.setStringColumn ( COL_ID, row -> {
+		String identifier = store.getString(row, COL_IDENTIFIER);
+		int wd = store.getInt(row, COL_DIST);
+		int id = store.getInt(row, __COL_WELL_ID);
+		if ( identifier.length() > 0 ) {
+			// Well with a different identifier to display.
+			return identifier;
+		}
+		else if ( (wd > 0) && (id > 0) ) {
+			return HydroBase_WaterDistrict.formWDID (__wdid_length, wd, id );
+		}
+		else {
+			// A structure other than wells...
+			return store.getString(row, __COL_LAT_LONG_ID);
+		}
+	});
+}
+
+/**
+Set the store rows to display, for example after sorting or filtering with the query filter.
+Any sort that was done by the worksheet is reset.
+@param rows the store rows in display order, or null to display all rows in store order
+*/
+public void setRowView ( int [] rows )
+{
+	__rowView = rows;
+	_rows = (rows == null) ? __store.getRowCount() : rows.length;
+	_sortOrder = null;
+	fireTableDataChanged();
+}
+
 /**
 Set the width of WDIDs, which controls formatting of the ID column for structures.
 @param wdid_length WDID length for formatting the ID.
 */
 public void setWDIDLength ( int wdid_length )
 {	__wdid_length = wdid_length;
+	setIDColumn ( __store );
+	if ( _rows > 0 ) {
+		fireTableRowsUpdated ( 0, _rows - 1 );
+	}
 }
 
 }
\ No newline at end of file
@@ -30,6 +30,7 @@ package DWR.DMI.tstool;
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Component;
+import java.awt.Container;
 import java.awt.Cursor;
 import java.awt.Desktop;
 import java.awt.Dimension;
@@ -69,6 +70,11 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.swing.BorderFactory;
 import javax.swing.DefaultListModel;
@@ -88,6 +94,7 @@ import javax.swing.JScrollPane;
 import javax.swing.JTabbedPane;
 import javax.swing.JTextField;
 import javax.swing.JToolBar;
+import javax.swing.ListCellRenderer;
 import javax.swing.ListSelectionModel;
 import javax.swing.RootPaneContainer;
 import javax.swing.SwingUtilities;
@@ -641,6 +648,64 @@ Get Time Series List button.
 */
 private SimpleJButton __get_ts_list_JButton;
 
+/**
+Cancel button for Get Time Series List, enabled while the list is read in the background.
+*/
+private SimpleJButton __cancel_ts_list_JButton;
+
+/**
+Progress bar shown while the time series list is read in the background.
+*/
+private JProgressBar __query_JProgressBar;
+
+/**
+Executor used to read the time series list for datastores in the background, so that the UI does not freeze.
+Created when first used.
+*/
+private ExecutorService __timeSeriesListExecutor = null;
+
+/**
+Time series list read that is running in the background, or null if none.
+*/
+private Future<?> __timeSeriesListFuture = null;
+
+/**
+Count of time series list reads, incremented when a read is started or canceled,
+used to ignore the completion of reads that were canceled or replaced by a newer read.
+Only accessed on the Swing event thread.
+*/
+private int __timeSeriesListRequestCount = 0;
+
+/**
+Count of time series list reads that have not returned, including canceled reads that are still running.
+Getting another list and running commands are disabled until all reads have returned,
+because a read may be using the same database connection as the commands.
+Only accessed on the Swing event thread.
+*/
+private int __timeSeriesListReadsRunning = 0;
+
+/**
+Set to true when the time series list read that is running in the background starts,
+or when it is canceled before it starts, so that exactly one of these counts the read as returned.
+*/
+private AtomicBoolean __timeSeriesListReadStarted = null;
+
+/**
+Query results cache key for the time series list that is being read, or null if the results are not cached.
+*/
+private String __timeSeriesListCacheKey = null;
+
+/**
+Query results cache source for the time series list that is being read.
+*/
+private Object __timeSeriesListCacheSource = null;
+
+/**
+Components of the input filter panel that were disabled while reading the time series list,
+to enable when the read is complete.
+*/
+private List<Component> __timeSeriesListDisabledComponents = new ArrayList<>();
+
 /**
 Copy selected time series from list to commands (as time series identifiers).
 */
@@ -666,6 +731,11 @@ Panel to hold results of time series header lists.
 */
 private JPanel __query_results_JPanel;
 
+/**
+Panel to filter and sort the query results.
+*/
+private TSToolQueryFilter_JPanel __queryFilter_JPanel = null;
+
 /**
 Panel for commands.
 */
@@ -681,6 +751,29 @@ Table model for query results.
 */
 private JWorksheet_AbstractRowTableModel __query_TableModel = null;
 
+/**
+Cell renderer for query results, saved so that cached query results can be displayed again.
+*/
+private JWorksheet_DefaultTableCellRenderer __query_CellRenderer = null;
+
+/**
+Cache of query results, so that repeating a query does not read the datastore again.
+Created on first use from the TSTool.QueryResultsCache* configuration properties.
+*/
+private TSToolQueryResultsCache<QueryResults> __queryResultsCache = null;
+
+/**
+Query results that are displayed and are cached, or null if the displayed results are not cached.
+Cached results are not cleared when the list is cleared because they may be displayed again.
+*/
+private QueryResults __query_CachedResults = null;
+
+/**
+Commands created when transferring query results in bulk, which are inserted into the command list
+when all rows have been transferred, or null if not transferring in bulk.
+*/
+private List<Command> __query_TransferCommandList = null;
+
 //================================
 // Commands area...
 //================================
@@ -792,7 +885,19 @@ private JList<String> __resultsTS_JList;
 /**
 JList data model for final time series (basically a list of time series associated with __results_ts_JList).
 */
-private DefaultListModel<String> __resultsTS_JListModel;
+private TSToolResultsTSListModel __resultsTS_JListModel;
+
+/**
+Number of time series results above which the results list uses a fixed cell size,
+determined from this number of labels at the start of the list.
+*/
+private final int __RESULTS_TS_FIXED_CELL_SIZE_MIN = 200;
+
+/**
+Snapshot of the processor results shown in the results lists, taken after the commands have run,
+so that items can be retrieved without a processor request.  Null if the results have been cleared.
+*/
+private TSToolProcessorResults __processorResults = null;
 
 /**
  * Button to cause a graph template to be used to graph a time series.
@@ -812,7 +917,7 @@ instance for a TSTool session and it is kept current with the application.
 TODO SAM 2009-03-06 In the future, if threading is implemented, it may be possible to have, for
 example, tabs for different command files, each with a TSCommandProcessor.
 */
-private TSCommandProcessor __tsProcessor = new TSCommandProcessor(null);
+private TSCommandProcessor __tsProcessor = new TSToolCommandProcessor(null);
 // Create an instance to avoid null, but is recreated when initializing the UI.
 
 /**
@@ -920,6 +1025,10 @@ private JProgressBar __command_JProgressBar;
 Status area text field (e.g., "READY", "WAIT") - small and right-most.
 */
 private JTextField __status_JTextField;		
+/**
+Progress from the command processor, shown in the progress bars and text fields at a limited rate.
+*/
+private TSToolProgressAggregator __progress = null;
 
 //================================
 // General...
@@ -1703,6 +1812,7 @@ private String
 	// Buttons (in order from top to bottom of GUI)...
 
 	BUTTON_TOP_GET_TIME_SERIES = "Get Time Series List",
+	BUTTON_TOP_CANCEL_GET_TIME_SERIES = "Cancel",
 	BUTTON_TOP_COPY_ALL_TO_COMMANDS = "Copy All to Commands",
 	BUTTON_TOP_COPY_SELECTED_TO_COMMANDS = "Copy Selected to Commands",
 
@@ -2365,7 +2475,13 @@ public TSTool_JFrame (
 	// - this also creates the processor instance so will be non-null after this call
 	StopWatch in = new StopWatch();
 	in.start();
-	ui_InitGUI ( initialProps );
+	TSToolStartupProfiler.Sample sample = TSToolStartupProfiler.startPhase("ui_InitGUI");
+	try {
+		ui_InitGUI ( initialProps );
+	}
+	finally {
+		sample.stop();
+	}
 	in.stop();
 	
 	// Set the plugin command classes in the processor:
@@ -2387,7 +2503,13 @@ public TSTool_JFrame (
 	// FIXME SAM 2008-10-02 Need to confirm that information can be put in the file
 	if ( __source_HydroBase_enabled ) { //&& license_IsInstallCDSS(__licenseManager) ) {
 		// Login to HydroBase using information in the TSTool configuration file...
-		uiAction_OpenHydroBase ( true );
+		sample = TSToolStartupProfiler.startPhase("uiAction_OpenHydroBase");
+		try {
+			uiAction_OpenHydroBase ( true );
+		}
+		finally {
+			sample.stop();
+		}
 		// Force the choices to refresh.
 		if ( ui_GetHydroBaseDMILegacy() != null ) {
 			__input_type_JComboBox.select ( null );
@@ -2409,6 +2531,7 @@ public TSTool_JFrame (
 
 	// Open remaining datastores, displaying dialog if SystemLogin or SystemPassword property is "prompt"
 	// TODO SAM 2010-09-03 migrate more input types to datastores
+	sample = TSToolStartupProfiler.startPhase("openDataStoresAtStartup");
 	try {
 		Message.printStatus(2, rtn, "Opening datastores from TSTool GUI...");
 	    TSToolMain.openDataStoresAtStartup(session,__tsProcessor,this.pluginDataStoreClassList,this.pluginDataStoreFactoryClassList,false);
@@ -2416,6 +2539,9 @@ public TSTool_JFrame (
 	catch ( Exception e ) {
 	    Message.printStatus ( 1, rtn, "Error opening datastores (" + e + ")." );
 	}
+	finally {
+		sample.stop();
+	}
 	
 	// Populate the datastore choices in the UI.
 	
@@ -2429,6 +2555,7 @@ public TSTool_JFrame (
 	// Set the wait cursor because queries are done during setup.
 
 	JGUIUtil.setWaitCursor ( this, true );
+	sample = TSToolStartupProfiler.startPhase("ui_InitGUIInputFilters");
 	try {
 	    ui_InitGUIInputFilters ( ui_GetInputFilterY() );
 	}
@@ -2436,6 +2563,9 @@ public TSTool_JFrame (
 		Message.printWarning ( 3, rtn, "For developers:  caught exception initializing input filters at setup." );
 		Message.printWarning ( 3, rtn, e );
 	}
+	finally {
+		sample.stop();
+	}
 	// TODO SAM 2007-01-23 Evaluate use.
 	// Force everything to refresh based on the current GUI layout.  Still evaluating this.
 	this.invalidate ();
@@ -2451,7 +2581,13 @@ public TSTool_JFrame (
 	// TSTool has been started with a command file so try to open and display.  It should already be absolute.
 	boolean runDiscoveryOnLoad = true;
 	if ( (commandFile != null) && (commandFile.length() > 0) ) {
-	    ui_LoadCommandFile ( commandFile, runOnLoad, runDiscoveryOnLoad );
+		sample = TSToolStartupProfiler.startPhase("ui_LoadCommandFile");
+		try {
+		    ui_LoadCommandFile ( commandFile, runOnLoad, runDiscoveryOnLoad );
+		}
+		finally {
+		    sample.stop();
+		}
 	}
 }
 
@@ -2521,13 +2657,14 @@ own determination (e.g., ((icommand + 1)/ncommand)*100).
 public void commandCompleted ( int icommand, int ncommand, Command command, float percent_complete, String message )
 {	String routine = "TSTool_JFrame.commandCompleted";
 	// Update the progress bar to indicate progress (1 to number of commands... completed).
-	__processor_JProgressBar.setValue ( icommand + 1 );
+	// This may be called from the processor thread so the progress is shown in the Swing thread.
+	__progress.setProcessorValue ( icommand + 1 );
 	// For debugging...
 	//Message.printStatus(2,getClass().getSimpleName()+".commandCompleted", "Setting processor progress bar to " + (icommand + 1));
-	__command_JProgressBar.setValue ( __command_JProgressBar.getMaximum() );
+	__progress.setCommandComplete ();
 	// Set the tooltip text for the progress bar to indicate the numbers
 	String tip = "Completed command " + (icommand + 1) + " of " + ncommand;
-    __processor_JProgressBar.setToolTipText ( tip );
+    __progress.setProcessorToolTip ( tip );
 	
 	if ( ((icommand + 1) == ncommand) || command instanceof Exit_Command ) {
 		// Last command has completed (or Exit() command) so refresh the time series results.
@@ -3632,20 +3769,23 @@ own determination (e.g., ((istep + 1)/nstep)*100).
 @param message A short message describing the status (e.g., "Running command ..." ).
 */
 public void commandProgress ( int istep, int nstep, Command command, float percentComplete, String message )
-{	if ( istep == 0 ) {
-		// Initialize the limits of the command progress bar.
-		__command_JProgressBar.setMinimum ( 0 );
-		__command_JProgressBar.setMaximum ( nstep );
-	}
-	// Set the current value...
+{	// This is called often, typically from the processor thread, so only save the progress to show in the Swing thread.
+	int value;
     if ( percentComplete > 0.0 ) {
         // Calling code is providing the percent complete
-        __command_JProgressBar.setValue ( (int)(nstep*percentComplete/100.0) );
+        value = (int)(nstep*percentComplete/100.0);
     }
     else {
         // Calling code wants percentage to be computed here
-        __command_JProgressBar.setValue ( istep + 1 );
+        value = istep + 1;
     }
+	if ( istep == 0 ) {
+		// Initialize the limits of the command progress bar.
+		__progress.setCommandProgress ( nstep, value );
+	}
+	else {
+		__progress.setCommandValue ( value );
+	}
 }
 
 // All of the following methods perform and interaction with the command processor,
@@ -3713,6 +3853,10 @@ if the processor is not available.
 */
 private TSEnsemble commandProcessor_GetEnsembleAt( int pos )
 {   String message, routine = "TSTool_JFrame.commandProcessorGetEnsembleAt";
+    if ( __processorResults != null ) {
+        // Use the results that are shown
+        return __processorResults.getEnsemble ( pos );
+    }
     if ( __tsProcessor == null ) {
         return null;
     }
@@ -3748,6 +3892,10 @@ if the processor is not available.
 @SuppressWarnings("unchecked")
 private List<TSEnsemble> commandProcessor_GetEnsembleResultsList()
 {   String routine = "TSTool_JFrame.commandProcessorGetEnsembleResultsList";
+    if ( __processorResults != null ) {
+        // Use the results that are shown
+        return __processorResults.getEnsembleList();
+    }
     Object o = null;
     try {
         o = __tsProcessor.getPropContents ( "EnsembleResultsList" );
@@ -3918,6 +4066,10 @@ if the processor is not available.
 @SuppressWarnings("unchecked")
 private List<NodeNetwork> commandProcessor_GetNetworkResultsList()
 {   String routine = "TSTool_JFrame.commandProcessor_GetNetworkResultsList";
+    if ( __processorResults != null ) {
+        // Use the results that are shown
+        return __processorResults.getNetworkList();
+    }
     Object o = null;
     try {
         o = __tsProcessor.getPropContents ( "NetworkResultsList" );
@@ -3992,6 +4144,10 @@ results list, for further display.
 */
 private DataTable commandProcessor_GetTable ( String tableId )
 {   String message, routine = "TSTool_JFrame.commandProcessor_GetTable";
+    if ( __processorResults != null ) {
+        // Use the results that are shown
+        return __processorResults.getTable ( tableId );
+    }
     if ( __tsProcessor == null ) {
         return null;
     }
@@ -4027,6 +4183,10 @@ if the processor is not available.
 @SuppressWarnings("unchecked")
 private List<DataTable> commandProcessor_GetTableResultsList()
 {   String routine = "TSTool_JFrame.commandProcessorGetTableResultsList";
+    if ( __processorResults != null ) {
+        // Use the results that are shown
+        return __processorResults.getTableList();
+    }
     Object o = null;
     try {
         o = __tsProcessor.getPropContents ( "TableResultsList" );
@@ -4052,6 +4212,10 @@ results list, for further display.
 */
 private TS commandProcessor_GetTimeSeries( int pos )
 {	String message, routine = "TSTool_JFrame.commandProcessorGetTimeSeries";
+	if ( __processorResults != null ) {
+		// Use the results that are shown
+		return __processorResults.getTimeSeries ( pos );
+	}
 	if ( __tsProcessor == null ) {
 		return null;
 	}
@@ -4086,6 +4250,10 @@ if the processor is not available.
 @SuppressWarnings("unchecked")
 private List<TS> commandProcessor_GetTimeSeriesResultsList()
 {	String routine = "TSTool_JFrame.commandProcessorGetTimeSeriesResultsList";
+	if ( __processorResults != null ) {
+		// Use the results that are shown
+		return __processorResults.getTimeSeriesList();
+	}
 	Object o = null;
 	try {
 	    o = __tsProcessor.getPropContents ( "TSResultsList" );
@@ -4102,19 +4270,6 @@ private List<TS> commandProcessor_GetTimeSeriesResultsList()
 	}
 }
 
-/**
-Get the size of the command processor time series results list.
-@return the size of the command processor time series results list.
-*/
-private int commandProcessor_GetTimeSeriesResultsListSize()
-{
-    List<TS> results = commandProcessor_GetTimeSeriesResultsList();
-	if ( results == null ) {
-		return 0;
-	}
-	return results.size();
-}
-
 /**
 Get the command processor time series view results list.
 @return The time series view results list or null if the processor is not available.
@@ -4122,6 +4277,10 @@ Get the command processor time series view results list.
 @SuppressWarnings("unchecked")
 private List<TimeSeriesView> commandProcessor_GetTimeSeriesViewResultsList()
 {   String routine = "TSTool_JFrame.commandProcessor_GetTimeSeriesViewResultsList";
+    if ( __processorResults != null ) {
+        // Use the results that are shown
+        return __processorResults.getViewList();
+    }
     Object o = null;
     try {
         o = __tsProcessor.getPropContents ( "TimeSeriesViewResultsList" );
@@ -4294,54 +4453,118 @@ throws IOException
 	__tsProcessor.readCommandFile ( path,
 			true, // Create UnknownCommand instances for unrecognized commands
 			false, // Do not append to the current processor contents
-			runDiscoveryOnLoad );
+			false ); // Discovery is run below so that independent commands can run in parallel
+	if ( TSToolLazyDataStores.hasPending(__tsProcessor) ) {
+		// Discovery may need datastores that are opened on first use, so run after they are opened
+		commandProcessor_ReadCommandFile_OpenLazyDataStores ( path, runDiscoveryOnLoad );
+	}
+	else if ( runDiscoveryOnLoad ) {
+		new TSToolParallelDiscovery ( __tsProcessor ).runDiscovery();
+	}
     // Refresh the GUI list to show the status done in call to this method
 	
-	// TODO SAM 2008-05-11 Evaluate whether to move this to the readCommandFile() method.
 	// If any lines in the file are different from the commands, mark the file as dirty.
 	// Changes may automatically occur during the load because of automated updates to commands.
-	BufferedReader in = new BufferedReader ( new InputStreamReader(IOUtil.getInputStream ( path )) );
-	List<String> strings = new Vector<String>();
-	String line;
-	while ( true ) {
-	    line = in.readLine();
-	    if ( line == null ) {
+	// Each command saves the original line from the file as its command string when it is parsed,
+	// so the lines do not need to be kept in memory.
+	// Decide which comparison to use before marking any commands as changed.
+	int size = __tsProcessor.size();
+	boolean haveCommandStrings = true;
+	for ( int i = 0; i < size; i++ ) {
+	    Command command = __tsProcessor.get(i);
+	    if ( !(command instanceof AbstractCommand) || (((AbstractCommand)command).getCommandString() == null) ) {
+	        haveCommandStrings = false;
 	        break;
 	    }
-	    strings.add ( line );
 	}
-	in.close();
-	int size_orig = strings.size();
-	if ( size_orig != __tsProcessor.size() ) {
+	// The file is still read a second time, to detect commands that were added or removed during the load,
+	// but the lines are counted one at a time rather than being kept in memory.
+	// If any command does not have its original line, compare the lines with the commands at the same time.
+	List<Integer> changedList = new ArrayList<Integer>();
+	int lineCount = 0;
+	BufferedReader in = new BufferedReader ( new InputStreamReader(IOUtil.getInputStream ( path )) );
+	try {
+		String line;
+		while ( (line = in.readLine()) != null ) {
+		    if ( !haveCommandStrings && (lineCount < size) && !line.equals(__tsProcessor.get(lineCount).toString()) ) {
+		        changedList.add ( new Integer(lineCount) );
+		    }
+		    ++lineCount;
+		}
+	}
+	finally {
+		in.close();
+	}
+	if ( lineCount != size ) {
 	    Message.printStatus( 2, routine, "Command list was modified during load (different length)." );
 	    commandList_SetDirty ( true );
 	    return 1;
 	}
-	// Go through all the commands.
-	Command command = null;
-	CommandStatusProvider csp = null;
-	int numAutoChanges = 0;
-	for ( int i = 0; i < size_orig; i++ ) {
-	    line = strings.get(i);
-	    command = __tsProcessor.get(i);
-	    if ( !line.equals(command.toString()) ) {
-	        Message.printStatus( 2, routine, "Command " + (i + 1) +
-	            " was automatically updated during load (usually due to software update or manually-edited command file)." );
-	        commandList_SetDirty ( true );
-	        ++numAutoChanges;
-	        if ( command instanceof CommandStatusProvider ) {
-	            csp = (CommandStatusProvider)command;
-	            // FIXME SAM 2008-05-11 This message gets clobbered by re-initialization before running
-	            // Add a message that the command was updated during load.
-	            csp.getCommandStatus().addToLog ( CommandPhaseType.INITIALIZATION,
-	                new CommandLogRecord(CommandStatusType.UNKNOWN,
-	                    "Command was automatically updated during load (usually due " +
-	                    "to software update or manually-edited command file).",
-	                    "Should not need to do anything." ) );
+	if ( haveCommandStrings ) {
+	    for ( int i = 0; i < size; i++ ) {
+	        Command command = __tsProcessor.get(i);
+	        // The command string is the line as passed to the command when it was parsed, so whitespace that
+	        // the processor removes when reading the file is not treated as an automatic update.
+	        if ( !((AbstractCommand)command).getCommandString().equals(command.toString()) ) {
+	            changedList.add ( new Integer(i) );
 	        }
 	    }
 	}
-	return numAutoChanges;
+	for ( Integer i : changedList ) {
+	    commandProcessor_ReadCommandFile_SetCommandChanged ( i.intValue(), __tsProcessor.get(i.intValue()) );
+	}
+	return changedList.size();
+}
+
+/**
+Open the datastores that are used by a command file that has been read and that are opened on first use.
+The datastores are opened in a separate thread because connecting may take a while,
+and discovery is then run on the Swing thread if requested.
+Discovery is not run if the commands are running or another command file has been read,
+because running the commands also runs discovery.
+@param path Absolute path to the command file that was read.
+@param runDiscoveryOnLoad if true, run discovery after the datastores are opened
+*/
+private void commandProcessor_ReadCommandFile_OpenLazyDataStores ( String path, boolean runDiscoveryOnLoad )
+{
+	final TSCommandProcessor processor = __tsProcessor;
+	final List<Command> commands = new ArrayList<Command>(processor.getCommands());
+	Thread thread = new Thread ( () -> {
+		final int openCount = TSToolLazyDataStores.openReferenced ( processor, new File(path) );
+		SwingUtilities.invokeLater ( () -> {
+			ui_OpenLazyDataStores ( openCount );
+			if ( runDiscoveryOnLoad && (processor == __tsProcessor) && !processor.getIsRunning() &&
+				commands.equals(processor.getCommands()) ) {
+				new TSToolParallelDiscovery ( processor ).runDiscovery();
+				ui_ShowCurrentCommandListStatus(CommandPhaseType.DISCOVERY);
+			}
+		});
+	}, "TSTool-datastore-open" );
+	thread.setDaemon ( true );
+	thread.start();
+}
+
+/**
+Mark the commands list as dirty because a command was automatically updated when the command file was read,
+and add a message to the command's log.
+@param i command position (0+)
+@param command command that was updated
+*/
+private void commandProcessor_ReadCommandFile_SetCommandChanged ( int i, Command command )
+{	String routine = getClass().getSimpleName() + ".commandProcessor_ReadCommandFile";
+    Message.printStatus( 2, routine, "Command " + (i + 1) +
+        " was automatically updated during load (usually due to software update or manually-edited command file)." );
+    commandList_SetDirty ( true );
+    if ( command instanceof CommandStatusProvider ) {
+        CommandStatusProvider csp = (CommandStatusProvider)command;
+        // FIXME SAM 2008-05-11 This message gets clobbered by re-initialization before running
+        // Add a message that the command was updated during load.
+        csp.getCommandStatus().addToLog ( CommandPhaseType.INITIALIZATION,
+            new CommandLogRecord(CommandStatusType.UNKNOWN,
+                "Command was automatically updated during load (usually due " +
+                "to software update or manually-edited command file).",
+                "Should not need to do anything." ) );
+    }
 }
 
 /**
@@ -4360,10 +4583,24 @@ private void commandProcessor_RunCommandsThreaded ( List<Command> commands, bool
 	requestParams.setUsingObject ( "CreateOutput", new Boolean(createOutput) );
 	// TODO sam 2017-02-08 the following does not seem to be recognized
 	requestParams.setUsingObject ( "TSViewParentUIComponent", this ); // Use so that interactive graphs are displayed on same screen as TSTool main GUI
+	// Datastores that are opened on first use and that the commands may use are opened in the thread before running
+	StringBuilder commandText = new StringBuilder();
+	for ( Command command : commands ) {
+		commandText.append(command.toString()).append("\n");
+	}
+	String initialWorkingDir = ui_GetInitialWorkingDir();
+	final File workingDir = (initialWorkingDir == null) ? null : new File(initialWorkingDir);
 	try {
-		TSCommandProcessorThreadRunner runner = new TSCommandProcessorThreadRunner ( __tsProcessor, requestParams );
+		final TSCommandProcessor processor = __tsProcessor;
+		final TSCommandProcessorThreadRunner runner = new TSCommandProcessorThreadRunner ( processor, requestParams );
 		Message.printStatus ( 2, routine, "Running commands in separate thread.");
-		Thread thread = new Thread ( runner );
+		Thread thread = new Thread ( () -> {
+			final int openCount = TSToolLazyDataStores.openReferenced ( processor, commandText.toString(), workingDir );
+			if ( openCount > 0 ) {
+				SwingUtilities.invokeLater ( () -> ui_OpenLazyDataStores ( openCount ) );
+			}
+			runner.run();
+		});
 		commandProcessor_SetCommandProcessorThread(thread);
 		thread.start();
 		// Do one update of the GUI to reflect the GUI running.  This will disable run
@@ -4510,18 +4747,14 @@ public void commandStarted ( int icommand, int ncommand, Command command,
 	ui_UpdateStatusTextFields ( 0, routine, null, tip + ": \"" + commandName + "(..." +
 	    additionalInfo + ")\"", __STATUS_BUSY );
 	if ( icommand == 0 ) {
-		__processor_JProgressBar.setMinimum ( 0 );
-		__processor_JProgressBar.setMaximum ( ncommand );
-		__processor_JProgressBar.setValue ( 0 );
+		__progress.setProcessorProgress ( ncommand, 0 );
 	}
 	// Set the tooltip text for the progress bar to indicate the numbers
-	__processor_JProgressBar.setToolTipText ( tip );
+	__progress.setProcessorToolTip ( tip );
 	// Always set the value for the command progress so that it shows up
 	// as zero.  The commandProgres() method will do a better job of setting
 	// the limits and current status for a specific command.
-	__command_JProgressBar.setMinimum ( 0 );
-	__command_JProgressBar.setMaximum ( 100 );
-	__command_JProgressBar.setValue ( 0 );
+	__progress.setCommandProgress ( 100, 0 );
 }
 
 /**
@@ -5550,6 +5783,31 @@ public void processTSProduct ( String productFile, PropList props )
 	}
 }
 
+/**
+Add a time series identifier command to the commands for a bulk transfer, with an optional comment command before it.
+@param tsidentString Full time series identifier string to be inserted as a command.
+@param comment Comment for time series (null or empty for no comment).
+@return the number of commands added (may be 2 if a comment is added).
+*/
+private int queryResultsList_AddTSIDToTransferList ( String tsidentString, String comment )
+{	int numberAdded = 0;
+	if ( (comment != null) && !comment.equals("") ) {
+	    Command commentCommand = commandList_NewCommand ( "# " + comment, true );
+	    // Run the comment to set the status from unknown to success
+        try {
+            commentCommand.checkCommandParameters(null, "", 3);
+        }
+        catch ( Exception e ) {
+            // Should not happen.
+        }
+		__query_TransferCommandList.add ( commentCommand );
+		++numberAdded;
+	}
+	__query_TransferCommandList.add ( commandList_NewCommand ( tsidentString, true ) );
+	++numberAdded;
+	return numberAdded;
+}
+
 /**
 Display the time series list query results in a string format.  These results are APPENDED to the list
 of strings already found in the __commands_JList.  
@@ -5605,6 +5863,20 @@ private int queryResultsList_AppendTSIDToCommandList ( String location,
 		// Only have the input type...
 		input = "~" + input_type;
 	}
+	String tsident_string = null;
+	if ( use_alias ) {
+		// Just use the short alias...
+		tsident_string = location + input;
+	}
+	else {
+	    // Use a full time series identifier...
+		tsident_string = location + "." + source + "." + type + "." +
+			interval + scenario2 + sequence_number2 + input;
+	}
+	if ( __query_TransferCommandList != null ) {
+		// Transferring in bulk so the commands are inserted when the transfer is complete
+		return queryResultsList_AddTSIDToTransferList ( tsident_string, comment );
+	}
 	if ( selected_size > 0 ) {
 		// Insert after the last item.
 	    // If this is part of a block of inserts, the insertOffset is also added to ensure that the
@@ -5634,16 +5906,6 @@ private int queryResultsList_AppendTSIDToCommandList ( String location,
 		++numberInserted;
 		offset = 1;
 	}
-	String tsident_string = null;
-	if ( use_alias ) {
-		// Just use the short alias...
-		tsident_string = location + input;
-	}
-	else {
-	    // Use a full time series identifier...
-		tsident_string = location + "." + source + "." + type + "." +
-			interval + scenario2 + sequence_number2 + input;
-	}
 	if ( Message.isDebugOn ) {
 		Message.printDebug ( 1, "", "Inserting \"" + tsident_string +
 		"\" at " + (insert_pos + i*2 + offset) );
@@ -5678,7 +5940,11 @@ that could occur when inserting after a selected command).
 commands are selected and prevents the insert from occurring in reverse order.
 */
 private int queryResultsList_AppendTSIDToCommandList ( String tsidentString, String comment, int insertOffset )
-{	// Add after the last selected item or at the end if nothing is selected.
+{	if ( __query_TransferCommandList != null ) {
+		// Transferring in bulk so the commands are inserted when the transfer is complete
+		return queryResultsList_AddTSIDToTransferList ( tsidentString, comment );
+	}
+	// Add after the last selected item or at the end if nothing is selected.
 	int selected_indices[] = ui_GetCommandJList().getSelectedIndices();
 	int selected_size = 0;
 	if ( selected_indices != null ) {
@@ -5737,11 +6003,29 @@ private int queryResultsList_AppendTSIDToCommandList ( String tsidentString, Str
 Clear the query list (e.g., when a choice changes).
 */
 private void queryResultsList_Clear ()
-{	if ( (__query_JWorksheet == null) || (__query_TableModel == null) ) {
+{	if ( __timeSeriesListFuture != null ) {
+		// The list that is being read is no longer wanted, for example because a choice was changed
+		uiAction_GetTimeSeriesListCancelClicked ();
+	}
+	if ( (__query_JWorksheet == null) || (__query_TableModel == null) ) {
 		// Not initialized...
 		return;
 	}
-	if ( __query_TableModel.getRowCount() > 0 ) {
+	if ( (__query_CachedResults != null) && (__query_CachedResults.tableModel == __query_TableModel) ) {
+		// Don't clear the cached table model - display an empty list instead
+		__query_CachedResults = null;
+		try {
+			TSTool_TS_TableModel tableModel = new TSTool_TS_TableModel ( new ArrayList<TS>() );
+			__query_TableModel = tableModel;
+			queryResultsList_SetCellRenderer ( new TSTool_TS_CellRenderer(tableModel) );
+			__query_JWorksheet.setModel ( __query_TableModel );
+		}
+		catch ( Exception e ) {
+			// Should not happen with an empty list
+			Message.printWarning ( 3, "TSTool_JFrame.queryResultsList_Clear", e );
+		}
+	}
+	else if ( __query_TableModel.getRowCount() > 0 ) {
        	try {
        	    __query_JWorksheet.clear();       
 		}
@@ -5763,6 +6047,90 @@ private void queryResultsList_Clear ()
 	ui_UpdateStatus ( false );
 }
 
+/**
+Return the query results cache, creating if necessary.
+The cache is configured with the following TSTool configuration file properties:
+TSTool.QueryResultsCacheSeconds (time to live, default 600, 0 to disable),
+TSTool.QueryResultsCacheSize (number of lists, default 10), and
+TSTool.QueryResultsCacheRows (total rows in all lists, default 200000).
+@return the query results cache
+*/
+private TSToolQueryResultsCache<QueryResults> queryResultsList_GetCache ()
+{
+	if ( __queryResultsCache == null ) {
+		int ttlSeconds = 600;
+		int maxEntries = 10;
+		int maxRows = 200000;
+		String propValue = TSToolMain.getPropValue ( "TSTool.QueryResultsCacheSeconds" );
+		if ( (propValue != null) && StringUtil.isInteger(propValue) ) {
+			ttlSeconds = Integer.parseInt(propValue.trim());
+		}
+		propValue = TSToolMain.getPropValue ( "TSTool.QueryResultsCacheSize" );
+		if ( (propValue != null) && StringUtil.isInteger(propValue) ) {
+			maxEntries = Integer.parseInt(propValue.trim());
+		}
+		propValue = TSToolMain.getPropValue ( "TSTool.QueryResultsCacheRows" );
+		if ( (propValue != null) && StringUtil.isInteger(propValue) ) {
+			maxRows = Integer.parseInt(propValue.trim());
+		}
+		__queryResultsCache = new TSToolQueryResultsCache<QueryResults> ( ttlSeconds, maxEntries, maxRows );
+	}
+	return __queryResultsCache;
+}
+
+/**
+Return the query results cache key for the current query selections,
+including the input filter values.
+@param selectedInputType selected input type
+@param selectedDataStore selected datastore, or null if an input type is selected
+@return the cache key
+*/
+private String queryResultsList_GetCacheKey ( String selectedInputType, DataStore selectedDataStore )
+{
+	StringBuilder key = new StringBuilder();
+	if ( selectedDataStore != null ) {
+		key.append ( "DataStore=" + selectedDataStore.getName() );
+	}
+	else {
+		key.append ( "InputType=" + selectedInputType );
+	}
+	key.append ( ",InputName=" + ui_GetSelectedInputName() );
+	key.append ( ",DataType=" + ui_GetSelectedDataTypeFull() );
+	key.append ( ",TimeStep=" + ui_GetSelectedTimeStep() );
+	if ( __selectedInputFilter_JPanel != null ) {
+		key.append ( ",InputFilterPanel=" + __selectedInputFilter_JPanel.getName() );
+		for ( int ifg = 0; ifg < __selectedInputFilter_JPanel.getNumFilterGroups(); ifg++ ) {
+			key.append ( ",InputFilter" + (ifg + 1) + "=" + __selectedInputFilter_JPanel.toString(ifg,";").trim() );
+		}
+	}
+	return key.toString();
+}
+
+/**
+Set the cell renderer for the query results, saving so that the results can be cached.
+@param cr cell renderer for the query results table model
+*/
+private void queryResultsList_SetCellRenderer ( JWorksheet_DefaultTableCellRenderer cr )
+{
+	__query_CellRenderer = cr;
+	__query_JWorksheet.setCellRenderer ( cr );
+}
+
+/**
+Display cached query results.
+@param results cached query results
+*/
+private void queryResultsList_ShowCached ( QueryResults results )
+{
+	queryResultsList_Clear ();
+	__query_TableModel = results.tableModel;
+	__query_CachedResults = results;
+	queryResultsList_SetCellRenderer ( results.cellRenderer );
+	__query_JWorksheet.setModel ( __query_TableModel );
+	__query_JWorksheet.setColumnWidths ( results.cellRenderer.getColumnWidths(), getGraphics() );
+	ui_UpdateStatus ( false );
+}
+
 /**
 Select a station from the query list and create a time series identifier in the command list.
 @param row Row that is selected in the query list.  This method can be
@@ -6332,11 +6700,73 @@ private int queryResultsList_TransferOneTSFromQueryResultsListToCommandList (
 	return numCommandsAdded;
 }
 
+/**
+Transfer query results rows to the command list in bulk.
+The commands for all rows are created first and are then inserted into the command list together,
+after the last selected command or at the end if no commands are selected.
+The GUI state is updated and discovery is run once when all commands have been inserted,
+rather than for each row, which is much faster for large lists.
+@param rows rows in the query results list to transfer
+@return the number of commands that were inserted
+*/
+private int queryResultsList_TransferRowsFromQueryResultsListToCommandList ( int [] rows )
+{	String routine = getClass().getSimpleName() + ".queryResultsList_TransferRowsFromQueryResultsListToCommandList";
+	List<Command> commandList = new ArrayList<Command>();
+	__query_TransferCommandList = commandList;
+	try {
+		for ( int i = 0; i < rows.length; i++ ) {
+			queryResultsList_TransferOneTSFromQueryResultsListToCommandList ( rows[i], false, 0 );
+		}
+	}
+	finally {
+		__query_TransferCommandList = null;
+	}
+	if ( commandList.size() == 0 ) {
+		return 0;
+	}
+	// Insert after the last selected command or at the end if nothing is selected
+	int selectedIndices[] = ui_GetCommandJList().getSelectedIndices();
+	int insertPos = __commands_JListModel.size();
+	if ( (selectedIndices != null) && (selectedIndices.length > 0) ) {
+		insertPos = selectedIndices[selectedIndices.length - 1] + 1;
+	}
+	Message.printStatus ( 2, routine, "Inserting " + commandList.size() + " commands at [" + insertPos + "]." );
+	// Stop listening to the list model while inserting so that the GUI state is not checked for each command
+	__commands_JListModel.removeListDataListener ( this );
+	try {
+		for ( int i = 0; i < commandList.size(); i++ ) {
+			__tsProcessor.insertCommandAt ( commandList.get(i), (insertPos + i) );
+		}
+	}
+	finally {
+		__commands_JListModel.addListDataListener ( this );
+	}
+	// Run discovery on the inserted commands to do initial validation and provide data to other commands
+	for ( int i = 0; i < commandList.size(); i++ ) {
+		Command command = commandList.get(i);
+		if ( command instanceof CommandDiscoverable ) {
+			try {
+				((CommandDiscoverable)command).runCommandDiscovery(insertPos + i);
+			}
+			catch ( Exception e ) {
+				// May be OK if partial data - same as when inserting one command
+				Message.printWarning(3, routine, e);
+			}
+		}
+	}
+	ui_GetCommandJList().ensureIndexIsVisible ( insertPos + commandList.size() - 1 );
+	ui_ShowCurrentCommandListStatus(CommandPhaseType.DISCOVERY);
+	commandList_SetDirty ( true );
+	ui_UpdateStatus ( true );
+	return commandList.size();
+}
+
 /**
 Clear the results displays.
 */
 private void results_Clear()
 {
+    __processorResults = null;
     results_Ensembles_Clear();
     results_Networks_Clear();
     results_OutputFiles_Clear();
@@ -6476,26 +6906,45 @@ private void results_Tables_Clear()
     __resultsTables_JListModel.removeAllElements();
 }
 
-/**
-Add a time series description at the end of the time series results list.
-Note that this does not add the actual time series, only a description string.
-The time series are still accessed by the positions in the list.
-@param ts_info Time series information to add at the end of the list.
-*/
-private void results_TimeSeries_AddTimeSeriesToResults ( final String ts_info )
-{	__resultsTS_JListModel.addElement ( ts_info );
-}
-
 /**
 Clear the final time series List.  Updates to the label are also done.
 Also set the engine to null.
 */
 private void results_TimeSeries_Clear()
 {	// Clear the visible list of results...
-	__resultsTS_JListModel.removeAllElements();
+	__resultsTS_JListModel.clear();
 	ui_UpdateStatus ( false );
 }
 
+/**
+Set the cell size for the time series results list.
+For short lists the list determines the size from all labels.
+For long lists, determining the size would format and lay out every label,
+so use a fixed size determined from the labels at the start of the list.
+*/
+private void results_TimeSeries_SetCellSize()
+{
+	int size = __resultsTS_JListModel.getSize();
+	if ( size <= __RESULTS_TS_FIXED_CELL_SIZE_MIN ) {
+		__resultsTS_JList.setFixedCellHeight ( -1 );
+		__resultsTS_JList.setFixedCellWidth ( -1 );
+		return;
+	}
+	ListCellRenderer<? super String> renderer = __resultsTS_JList.getCellRenderer();
+	int height = 0;
+	int width = 0;
+	for ( int i = 0; i < __RESULTS_TS_FIXED_CELL_SIZE_MIN; i++ ) {
+		Component c = renderer.getListCellRendererComponent ( __resultsTS_JList,
+			__resultsTS_JListModel.getElementAt(i), i, false, false );
+		Dimension d = c.getPreferredSize();
+		height = Math.max(height, d.height);
+		width = Math.max(width, d.width);
+	}
+	__resultsTS_JList.setFixedCellHeight ( height );
+	// Allow some room for labels that are longer than those at the start of the list
+	__resultsTS_JList.setFixedCellWidth ( width + width/4 );
+}
+
 /**
 Add the specified view to the list of views that can be selected for viewing.
 @param view time series view generated by the processor.
@@ -6605,7 +7054,7 @@ private void ui_CheckGUIState ()
 	
 	int dataStoreListSize = 0;
 	if ( __tsProcessor != null ) {
-	    dataStoreListSize = __tsProcessor.getDataStores().size();
+	    dataStoreListSize = ui_GetDataStores().size();
 	}
 	
 	// If no datastores are available, don't even show the datastore choices - this should hopefully
@@ -6885,6 +7334,7 @@ private void ui_CheckGUIState ()
 	// Run menu...
 	
 	ui_CheckGUIState_RunMenu ( commandListSize, selectedCommandsSize );
+	ui_CheckGUIState_GetTimeSeriesList ();
 
 	// Results menu...
 
@@ -6936,6 +7386,15 @@ private void ui_CheckGUIState ()
 	JGUIUtil.setEnabled(__Commands_Output_SetOutputDetailedHeaders_JMenuItem,false);
 }
 
+/**
+Enable/disable the Get Time Series List button based on the state of the GUI.
+*/
+private void ui_CheckGUIState_GetTimeSeriesList ()
+{	// Reads that were canceled may still be using the database connection, as may running commands
+	boolean enabled = (__timeSeriesListReadsRunning == 0) && ((__tsProcessor == null) || !__tsProcessor.getIsRunning());
+	JGUIUtil.setEnabled ( __get_ts_list_JButton, enabled );
+}
+
 /**
 Enable/disable Run menu items based on the state of the GUI.
 */
@@ -6952,7 +7411,8 @@ private void ui_CheckGUIState_RunMenu ( int command_list_size, int selected_comm
 	}
 	else {
 		// Not running, so disable cancel, but do allow run if there are commands (see below)...
-		enable_run = true;
+		// - not while a time series list is read in the background because the read may use the same database connection
+		enable_run = (__timeSeriesListReadsRunning == 0);
 		JGUIUtil.setEnabled (__Run_CancelCommandProcessing_JMenuItem, false);
 		JGUIUtil.setEnabled (__CommandsPopup_CancelCommandProcessing_JMenuItem,false );
 	}
@@ -7131,7 +7591,7 @@ private void ui_DataStoreList_Populate ()
     List<String> dataStoreNameList = new ArrayList<String>();
     dataStoreNameList.add ( "" ); // Blank when picking input type and name separately
     // Get all enabled datastores, even those not active - the View ... Datastores menu can be used to show errors
-    List<DataStore> dataStoreList = __tsProcessor.getDataStores();
+    List<DataStore> dataStoreList = ui_GetDataStores();
     for ( DataStore dataStore : dataStoreList ) {
         if ( dataStore.getClass().getName().endsWith(".NrcsAwdbDataStore") ||
             dataStore.getClass().getName().endsWith(".UsgsNwisDailyDataStore") ||
@@ -8055,9 +8515,47 @@ private NWSRFS_DMI ui_GetNWSRFSFS5FilesDMI ()
 	return __nwsrfs_dmi;
 }
 
+/**
+Update the UI after datastores that are opened on first use have been opened,
+so that the datastore choices and input filters reflect the opened datastores.
+@param openCount number of datastores that were opened (nothing is done if 0)
+*/
+private void ui_OpenLazyDataStores ( int openCount )
+{
+    if ( (openCount == 0) || (__dataStore_JComboBox == null) ) {
+        return;
+    }
+    // Repopulating selects the blank so reselect the current datastore, without handling the selection again
+    String selectedDataStoreName = __dataStore_JComboBox.getSelected();
+    ui_SetIgnoreItemEvent ( true );
+    try {
+        ui_DataStoreList_Populate ();
+        if ( (selectedDataStoreName != null) && !selectedDataStoreName.isEmpty() ) {
+            __dataStore_JComboBox.select ( selectedDataStoreName );
+        }
+    }
+    finally {
+        ui_SetIgnoreItemEvent ( false );
+    }
+    ui_InitGUIInputFilters ( ui_GetInputFilterY() );
+}
+
+/**
+Return the datastores to list in the UI, which are the processor datastores followed by placeholders
+for datastores that are opened on first use and have not been opened.
+@return the datastores to list
+*/
+private List<DataStore> ui_GetDataStores ()
+{
+    List<DataStore> dataStoreList = new ArrayList<DataStore>(__tsProcessor.getDataStores());
+    dataStoreList.addAll ( TSToolLazyDataStores.getPendingDataStores(__tsProcessor) );
+    return dataStoreList;
+}
+
 /**
 Return the datastore for the selected datastore name.
-@return the datastore for the selected datastore name, or null if the selected name is blank (or for some
+@return the datastore for the selected datastore name, a placeholder if the datastore is opened on first use
+and has not been opened, or null if the selected name is blank (or for some
 reason is not in the processor - should not happen if data are being kept consistent).
 */
 private DataStore ui_GetSelectedDataStore ()
@@ -8072,7 +8570,15 @@ private DataStore ui_GetSelectedDataStore ()
         // No need to request from processor
         return null;
     }
-    return __tsProcessor.getDataStoreForName ( dataStoreName, null );
+    DataStore dataStore = __tsProcessor.getDataStoreForName ( dataStoreName, null );
+    if ( dataStore == null ) {
+        for ( DataStore pendingDataStore : TSToolLazyDataStores.getPendingDataStores(__tsProcessor) ) {
+            if ( pendingDataStore.getName().equalsIgnoreCase(dataStoreName) ) {
+                return pendingDataStore;
+            }
+        }
+    }
+    return dataStore;
 }
 
 /**
@@ -8322,9 +8828,24 @@ private void ui_InitGUI ( PropList initProps )
     __get_ts_list_JButton = new SimpleJButton(BUTTON_TOP_GET_TIME_SERIES,this);
 	__get_ts_list_JButton.setToolTipText (
 		"<html>Get a list of time series but not the full time " +
-		"series data.<br>Time series can then be selected for processing.</html>" );
+		"series data.<br>Time series can then be selected for processing.<br>" +
+		"Lists that were read recently are displayed again without reading - shift-click to read again.</html>" );
     JGUIUtil.addComponent(__queryInput_JPanel, __get_ts_list_JButton, 
-		2, y++, 1, 1, 0, 0, insetsTLNR, GridBagConstraints.NONE, GridBagConstraints.EAST);
+		2, y, 1, 1, 0, 0, insetsTLNR, GridBagConstraints.NONE, GridBagConstraints.EAST);
+    // Progress and cancel are only shown while a datastore list is read in the background
+    __query_JProgressBar = new JProgressBar ();
+    __query_JProgressBar.setToolTipText ( "Indicates that the time series list is being read." );
+    __query_JProgressBar.setStringPainted ( true );
+    __query_JProgressBar.setString ( "Reading..." );
+    __query_JProgressBar.setVisible ( false );
+    JGUIUtil.addComponent(__queryInput_JPanel, __query_JProgressBar, 
+		0, y, 1, 1, 1.0, 0, insetsTLNR, GridBagConstraints.HORIZONTAL, GridBagConstraints.WEST);
+    __cancel_ts_list_JButton = new SimpleJButton(BUTTON_TOP_CANCEL_GET_TIME_SERIES,this);
+	__cancel_ts_list_JButton.setToolTipText (
+		"<html>Cancel reading the time series list.<br>Results that are received after canceling are ignored.</html>" );
+	__cancel_ts_list_JButton.setVisible ( false );
+    JGUIUtil.addComponent(__queryInput_JPanel, __cancel_ts_list_JButton, 
+		1, y++, 1, 1, 0, 0, insetsTLNR, GridBagConstraints.NONE, GridBagConstraints.EAST);
 
 	// --------------------------------------------------------------------
 	// Query results components...
@@ -8341,12 +8862,25 @@ private void ui_InitGUI ( PropList initProps )
     
     query_JPanel.add("Center", __query_results_JPanel);
 
-	// Add the table for time series list...
+	// Add the panel to filter and sort the time series list...
 
 	y=0;
-	try {
-    	PropList props = new PropList ( "QueryList" );
-    	props.add("JWorksheet.ShowRowHeader=true");
+	__queryFilter_JPanel = new TSToolQueryFilter_JPanel ( () -> {
+		// Rows were filtered or sorted so redisplay with the cell renderer's column widths
+		__query_JWorksheet.setModel ( __query_TableModel );
+		if ( __query_CellRenderer != null ) {
+			__query_JWorksheet.setColumnWidths ( __query_CellRenderer.getColumnWidths(), getGraphics() );
+		}
+		ui_UpdateStatus ( false );
+	});
+	JGUIUtil.addComponent(__query_results_JPanel, __queryFilter_JPanel,
+		0, y++, 3, 1, 1.0, 0.0, insetsNLBR, GridBagConstraints.HORIZONTAL, GridBagConstraints.WEST);
+
+	// Add the table for time series list...
+
+	try {
+    	PropList props = new PropList ( "QueryList" );
+    	props.add("JWorksheet.ShowRowHeader=true");
     	props.add("JWorksheet.AllowCopy=true");
     	JScrollWorksheet sjw = new JScrollWorksheet ( 0, 0, props );
     	__query_JWorksheet = sjw.getJWorksheet ();
@@ -8354,8 +8888,10 @@ private void ui_InitGUI ( PropList initProps )
     	// Listen for mouse events to enable the buttons in the Time Series area...
     	__query_JWorksheet.addMouseListener ( this );
     	__query_JWorksheet.addJWorksheetListener ( this );
+    	// Sort column store models using the filter panel when the column heading is clicked
+    	__queryFilter_JPanel.setTableHeader ( __query_JWorksheet.getTableHeader() );
         JGUIUtil.addComponent(__query_results_JPanel, sjw,
-		0, y++, 3, 7, 1.0, 1.0, insetsNLBR, GridBagConstraints.BOTH, GridBagConstraints.WEST);
+		0, y++, 3, 6, 1.0, 1.0, insetsNLBR, GridBagConstraints.BOTH, GridBagConstraints.WEST);
 	}
 	catch ( Exception e ) {
 		// Absorb the exception in most cases - print if developing to see if this issue can be resolved.
@@ -8399,9 +8935,9 @@ private void ui_InitGUI ( PropList initProps )
 	JGUIUtil.addComponent(center_JPanel, __commands_JPanel,
 		0, 0, 1, 1, 1.0, 1.0, insetsNNNN, GridBagConstraints.BOTH, GridBagConstraints.CENTER);
 
-	// Initialize the command processor to interact with the GUI.
+	// Initialize the command processor to interact with the GUI, which reads time series through the read cache.
 	// The initial working directory will be the software startup directory.
-	this.__tsProcessor = new TSCommandProcessor( initProps );
+	this.__tsProcessor = new TSToolCommandProcessor( initProps );
 	ui_SetInitialWorkingDir( System.getProperty("user.dir") );
 	commandProcessor_SetInitialWorkingDir ( ui_GetInitialWorkingDir(), true );
 	// FIXME SAM 2007-08-28 Need to set a WindowListener for -nomaingui calls?
@@ -8667,7 +9203,7 @@ private void ui_InitGUI ( PropList initProps )
 
     // Most of the space is occupied by the list of time series
     __results_JTabbedPane.addTab ( "Time Series", __resultsTS_JPanel );
-	__resultsTS_JListModel = new DefaultListModel<>();
+	__resultsTS_JListModel = new TSToolResultsTSListModel();
 	__resultsTS_JList = new JList<> ( __resultsTS_JListModel );
 	__resultsTS_JList.addKeyListener ( this );
 	__resultsTS_JList.addListSelectionListener ( this );
@@ -8755,6 +9291,8 @@ private void ui_InitGUI ( PropList initProps )
 	__status_JTextField.setEditable(false);
 	JGUIUtil.addComponent(bottom_JPanel, __status_JTextField,
 		9, 0, 1, 1, 0.0, 0.0, GridBagConstraints.NONE, GridBagConstraints.WEST);
+	__progress = new TSToolProgressAggregator ( __processor_JProgressBar, __command_JProgressBar,
+		__message_JTextField, __status_JTextField );
 
 	getContentPane().add ("South", bottom_JPanel);
 
@@ -11889,8 +12427,7 @@ private void ui_LoadCommandFile ( String commandFile, boolean runOnLoad, boolean
     // Clear the old results...
     results_Clear();
     ui_UpdateStatusTextFields ( 2, null, null, "Use the Run menu/buttons to run the commands.", __STATUS_READY );
-    __processor_JProgressBar.setValue ( 0 );
-    __command_JProgressBar.setValue ( 0 );
+    __progress.reset();
     // If requested, run the commands.
     if ( runOnLoad ) {
         // Run all commands and create output.
@@ -12276,6 +12813,51 @@ private void ui_SetMessageText ( String message )
     __message_JTextField.setText (message);
 }
 
+/**
+Set the query input components to indicate whether the time series list is being read in the background.
+@param reading true if the list is being read
+*/
+private void ui_SetTimeSeriesListReading ( boolean reading )
+{
+	ui_CheckGUIState_GetTimeSeriesList ();
+	__query_JProgressBar.setIndeterminate ( reading );
+	__query_JProgressBar.setVisible ( reading );
+	__cancel_ts_list_JButton.setVisible ( reading );
+	// The datastore read methods get the filter values from the input filter panel on the read thread,
+	// so the panel must not change while reading
+	if ( reading ) {
+		if ( __selectedInputFilter_JPanel != null ) {
+			ui_SetTimeSeriesListReading_DisableComponents ( __selectedInputFilter_JPanel );
+		}
+	}
+	else {
+		for ( Component component : __timeSeriesListDisabledComponents ) {
+			component.setEnabled ( true );
+		}
+		__timeSeriesListDisabledComponents.clear();
+		JGUIUtil.setWaitCursor ( this, false );
+	}
+	__queryInput_JPanel.revalidate ();
+}
+
+/**
+Disable the enabled components in a container, including the components in panels,
+saving the components to enable when the time series list has been read.
+@param container container for the components to disable
+*/
+private void ui_SetTimeSeriesListReading_DisableComponents ( Container container )
+{
+	for ( Component component : container.getComponents() ) {
+		if ( component instanceof JPanel ) {
+			ui_SetTimeSeriesListReading_DisableComponents ( (JPanel)component );
+		}
+		else if ( component.isEnabled() ) {
+			component.setEnabled ( false );
+			__timeSeriesListDisabledComponents.add ( component );
+		}
+	}
+}
+
 /**
 Update the command list to show the current status.  This is called after all commands
 have been processed in run mode(), when a command has been edited(), and when loading commands from a file.
@@ -12306,6 +12888,18 @@ private void ui_StopWaitCursor() {
     root.getGlassPane().setVisible(false);
 }
 
+/**
+Called on the Swing event thread when a time series list read returns, including a read that was canceled.
+When no reads are running, getting another list and running commands are enabled.
+*/
+private void ui_TimeSeriesListReadReturned ()
+{
+	--__timeSeriesListReadsRunning;
+	if ( __timeSeriesListReadsRunning == 0 ) {
+		ui_CheckGUIState ();
+	}
+}
+
 /**
 Update the main status information when the list contents have changed.  This
 method should be called after any change to the query, command, or time series results list.
@@ -12365,6 +12959,10 @@ private void ui_UpdateStatus ( boolean check_gui_state )
     		BorderFactory.createLineBorder(Color.black),
     		"Time Series List (" + size + " time series, " + selected_size + " selected)") );
 	}
+	if ( __queryFilter_JPanel != null ) {
+		// Resets the filter if the query results have changed
+		__queryFilter_JPanel.setTableModel ( __query_TableModel );
+	}
 	
 	// Commands....
 	
@@ -12426,6 +13024,16 @@ private void ui_UpdateStatusTextFields ( int level, String routine,
 		// Print a status message to the messaging system...
 		Message.printStatus ( 1, routine, message );
 	}
+	if ( (__progress != null) && !SwingUtilities.isEventDispatchThread() ) {
+		// Called from the processor thread so show in the Swing thread
+		__progress.setMessage ( message );
+		__progress.setStatus ( status );
+		return;
+	}
+	if ( __progress != null ) {
+		// Show pending progress first so that it does not replace the text below
+		__progress.flush();
+	}
 	if ( message != null ) {
 		ui_SetMessageText ( message );
 	}
@@ -12445,7 +13053,11 @@ throws Exception
 
 	// Next list menus or commands.
 	if (command.equals(BUTTON_TOP_GET_TIME_SERIES) ) {
-		uiAction_GetTimeSeriesListClicked();
+		// Shift-click reads the list again even if the results are cached
+		uiAction_GetTimeSeriesListClicked ( (event.getModifiers() & ActionEvent.SHIFT_MASK) != 0 );
+	}
+	else if ( o == __cancel_ts_list_JButton ) {
+		uiAction_GetTimeSeriesListCancelClicked();
 	}
 	else if ( o == __CopySelectedToCommands_JButton ) {
 		// Transfer from the time series list to the commands.
@@ -12567,6 +13179,8 @@ throws Exception
 						// May be a timeout, in which case just continue
 					}
 				}
+				// Also close the extra connections that were opened to list time series
+				TSToolReclamationHDBListReader.closeIdleConnections ( oldds );
 				// Once re-opened, reset in the command processor and refresh the UI components that depend on the datastore
 				__tsProcessor.setPropContents("DataStore", newrds);
 				// Reset the input panel in the user interface
@@ -14193,7 +14807,7 @@ throws Exception
 				// Command file in template is relative to the template folder
 				String preprocessCommandFile = IOUtil.verifyPathForOS(
 				    IOUtil.toAbsolutePath(userGraphTemplateFile.getParent(),propVal) );
-				runner = new TSCommandFileRunner(
+				runner = new TSToolCommandFileRunner(
 					this.__tsProcessor.getInitialPropList(),
 					this.__tsProcessor.getPluginCommandClasses());
 				Message.printStatus(2,"","Preprocess command file for graph template is \"" + preprocessCommandFile + "\"");
@@ -14410,7 +15024,7 @@ throws Exception
 				preprocessCommandFile = IOUtil.verifyPathForOS(
 					IOUtil.toAbsolutePath(userGraphTemplateFile.getParent(),preprocessCommandFile) );
 				Message.printStatus(2,"","Preprocess command file for graph template is \"" + preprocessCommandFile + "\"");
-				runner = new TSCommandFileRunner(
+				runner = new TSToolCommandFileRunner(
 					this.__tsProcessor.getInitialPropList(),
 					this.__tsProcessor.getPluginCommandClasses());
 				runner.readCommandFile(preprocessCommandFile, false);
@@ -14492,7 +15106,7 @@ throws Exception
 				preprocessCommandFile = IOUtil.verifyPathForOS(
 					IOUtil.toAbsolutePath(userGraphTemplateFile.getParent(),preprocessCommandFile) );
 				Message.printStatus(2,"","Preprocess command file for ensemble graph template is \"" + preprocessCommandFile + "\"");
-				runner = new TSCommandFileRunner(
+				runner = new TSToolCommandFileRunner(
 					this.__tsProcessor.getInitialPropList(),
 					this.__tsProcessor.getPluginCommandClasses());
 				runner.readCommandFile(preprocessCommandFile, false);
@@ -14990,6 +15604,26 @@ private void uiAction_DataStoreChoiceClicked()
         return;
     }
     DataStore selectedDataStore = ui_GetSelectedDataStore();
+    if ( selectedDataStore instanceof TSToolLazyDataStore ) {
+        // Open the datastore on first use, in the background because connecting may take a while,
+        // and then handle the selection again if the datastore is still selected
+        final String lazyDataStoreName = selectedDataStore.getName();
+        final TSCommandProcessor processor = __tsProcessor;
+        JGUIUtil.setWaitCursor ( this, true );
+        Thread thread = new Thread ( () -> {
+            DataStore dataStore = TSToolLazyDataStores.open ( processor, lazyDataStoreName );
+            SwingUtilities.invokeLater ( () -> {
+                JGUIUtil.setWaitCursor ( this, false );
+                ui_OpenLazyDataStores ( 1 );
+                if ( (dataStore != null) && lazyDataStoreName.equalsIgnoreCase(__dataStore_JComboBox.getSelected()) ) {
+                    uiAction_DataStoreChoiceClicked();
+                }
+            });
+        }, "TSTool-datastore-open-" + lazyDataStoreName );
+        thread.setDaemon ( true );
+        thread.start();
+        return;
+    }
     // This will select blank input type and name so that the focus is on the selected datastore...
     uiAction_InputTypeChoiceClicked(selectedDataStore);
     // Now fully initialize the input/query information based on the datastore
@@ -15555,6 +16189,10 @@ private void uiAction_FileExitClicked ()
 		catch ( Exception e ) {
 			// Why is this a problem?
 		}
+		// Close the extra ReclamationHDB connections that were opened to list time series
+		if ( __source_ReclamationHDB_enabled ) {
+			TSToolReclamationHDBListReader.closeIdleConnections();
+		}
 		// Close the currently opened log file
 		Message.closeLogFile();
 		// Write the UI state so settings are remembered for the next session
@@ -15572,9 +16210,10 @@ private void uiAction_FileExitClicked ()
 
 /**
 Respond to "Get Time Series List" being clicked.
+@param refresh if true, read the list even if the results for the same query are cached
 */
-private void uiAction_GetTimeSeriesListClicked()
-{	String message, routine = getClass().getSimpleName() + ".getTimeSeriesListClicked";
+private void uiAction_GetTimeSeriesListClicked ( boolean refresh )
+{	String routine = getClass().getSimpleName() + ".getTimeSeriesListClicked";
     String selectedInputType = ui_GetSelectedInputType();
     DataStore selectedDataStore = ui_GetSelectedDataStore();
     // Call the following to help clear out an initial message.
@@ -15597,6 +16236,70 @@ private void uiAction_GetTimeSeriesListClicked()
 		}
 	}
 
+	// Datastore and HydroBase queries are read in the background because queries can be slow.
+	// File input types are read on the event thread because they prompt for the file.
+	__timeSeriesListCacheKey = null;
+	__timeSeriesListCacheSource = null;
+	if ( (selectedDataStore != null) || selectedInputType.equals(__INPUT_TYPE_HydroBase) ) {
+		// Use cached results if the same query was run recently with the same datastore
+		String cacheKey = queryResultsList_GetCacheKey ( selectedInputType, selectedDataStore );
+		Object cacheSource = (selectedDataStore != null) ? selectedDataStore : ui_GetHydroBaseDataStoreLegacy();
+		TSToolQueryResultsCache<QueryResults> cache = queryResultsList_GetCache();
+		if ( refresh ) {
+			cache.remove ( cacheKey );
+		}
+		else {
+			QueryResults results = cache.get ( cacheKey, cacheSource );
+			if ( results != null ) {
+				queryResultsList_ShowCached ( results );
+				Message.printStatus ( 1, routine, "Displayed " + results.tableModel.getRowCount() +
+					" previously read time series (shift-click " + BUTTON_TOP_GET_TIME_SERIES + " to read again)." );
+				return;
+			}
+		}
+		// Saved for uiAction_GetTimeSeriesListClicked_ReadInBackground() to cache the results
+		__timeSeriesListCacheKey = cacheKey;
+		__timeSeriesListCacheSource = cacheSource;
+	}
+	uiAction_GetTimeSeriesListClicked_Read ( selectedInputType, selectedDataStore );
+}
+
+/**
+Cancel reading the time series list in the background.
+The read thread is interrupted, which stops reads that check for interruption,
+and the results are ignored if the read finishes later.
+Getting another list and running commands remain disabled until the read returns.
+*/
+private void uiAction_GetTimeSeriesListCancelClicked()
+{	String routine = getClass().getSimpleName() + ".uiAction_GetTimeSeriesListCancelClicked";
+	if ( __timeSeriesListFuture == null ) {
+		return;
+	}
+	// Increment the count so that the completion of the canceled read is ignored
+	++__timeSeriesListRequestCount;
+	__timeSeriesListFuture.cancel ( true );
+	__timeSeriesListFuture = null;
+	if ( __timeSeriesListReadStarted.compareAndSet ( false, true ) ) {
+		// The read did not start so it will not return
+		ui_TimeSeriesListReadReturned ();
+	}
+	ui_SetTimeSeriesListReading ( false );
+	if ( __timeSeriesListReadsRunning > 0 ) {
+		Message.printStatus ( 1, routine, "Canceled reading time series list.  " + BUTTON_TOP_GET_TIME_SERIES +
+			" and running commands are enabled when the read returns." );
+	}
+	else {
+		Message.printStatus ( 1, routine, "Canceled reading time series list." );
+	}
+}
+
+/**
+Read the time series list and display in the Time Series List area.
+@param selectedInputType selected input type
+@param selectedDataStore selected datastore, or null if an input type is selected
+*/
+private void uiAction_GetTimeSeriesListClicked_Read ( String selectedInputType, DataStore selectedDataStore )
+{	String message, routine = getClass().getSimpleName() + ".getTimeSeriesListClicked";
 	// Read the time series list and display in the Time Series List area.
 	// Return if an error occurs because the message at the bottom should only be printed if successful.
 	// To avoid unnecessary class loads, check whether a datastore or input type is enabled.
@@ -15882,6 +16585,10 @@ private void uiAction_GetTimeSeriesListClicked()
 		        "Getting time series list for input type \"" + selectedInputType + "\" is not implemented." );
 		}
 	}
+	if ( __timeSeriesListFuture != null ) {
+		// Still reading in the background - the results are shown when the read completes
+		return;
+	}
     if ( selectedDataStore != null ) {
     	Message.printStatus ( 1, routine,
     	    "Time series list from input type \"" + selectedDataStore.getName() +
@@ -15893,15 +16600,97 @@ private void uiAction_GetTimeSeriesListClicked()
     }
 }
 
+/**
+Read the time series list in the background and display in the Time Series List area when complete.
+Only the reader runs on the background thread.  The displayer is called on the Swing event dispatch thread,
+and only if the read has not been canceled or replaced by a newer read.
+The Get Time Series List button is disabled and a progress bar and Cancel button are shown while reading.
+@param routine routine for messages
+@param reader reads the time series list, using only values that were determined on the event dispatch thread
+@param displayer displays the time series list that was read, called on the event dispatch thread
+@param <T> type of object that is read
+*/
+private <T> void uiAction_GetTimeSeriesListClicked_ReadInBackground ( final String routine,
+	final Callable<T> reader, final TimeSeriesListDisplayer<T> displayer )
+{
+	if ( __timeSeriesListExecutor == null ) {
+		// Daemon threads so that a hung query does not prevent TSTool from exiting
+		__timeSeriesListExecutor = Executors.newCachedThreadPool ( new java.util.concurrent.ThreadFactory() {
+			public Thread newThread ( Runnable r ) {
+				Thread thread = new Thread ( r, "TSTool-time-series-list" );
+				thread.setDaemon ( true );
+				return thread;
+			}
+		});
+	}
+	final int requestCount = ++__timeSeriesListRequestCount;
+	final String cacheKey = __timeSeriesListCacheKey;
+	final Object cacheSource = __timeSeriesListCacheSource;
+	final AtomicBoolean started = new AtomicBoolean ( false );
+	__timeSeriesListReadStarted = started;
+	++__timeSeriesListReadsRunning;
+	ui_SetTimeSeriesListReading ( true );
+	// Disable running commands while reading
+	ui_CheckGUIState ();
+	Message.printStatus ( 2, routine, "Reading time series list in the background." );
+	__timeSeriesListFuture = __timeSeriesListExecutor.submit ( new Runnable() {
+		public void run () {
+			if ( !started.compareAndSet ( false, true ) ) {
+				// Canceled before starting and already counted as returned
+				return;
+			}
+			T results = null;
+			Exception readException = null;
+			try {
+				results = reader.call();
+			}
+			catch ( Exception e ) {
+				readException = e;
+			}
+			final T results2 = results;
+			final Exception readException2 = readException;
+			SwingUtilities.invokeLater ( new Runnable() {
+				public void run () {
+					ui_TimeSeriesListReadReturned ();
+					if ( requestCount != __timeSeriesListRequestCount ) {
+						// Canceled or replaced by a newer read so ignore the results
+						return;
+					}
+					__timeSeriesListFuture = null;
+					ui_SetTimeSeriesListReading ( false );
+					if ( readException2 != null ) {
+						Message.printWarning ( 1, routine, "Error reading time series list (" + readException2 + ")." );
+						Message.printWarning ( 3, routine, readException2 );
+					}
+					else {
+						try {
+							displayer.display ( results2 );
+						}
+						catch ( Exception e ) {
+							Message.printWarning ( 1, routine, "Error displaying time series list (" + e + ")." );
+							Message.printWarning ( 3, routine, e );
+						}
+						if ( (cacheKey != null) && (__query_TableModel != null) && (__query_CellRenderer != null) &&
+							(__query_TableModel.getRowCount() > 0) ) {
+							__query_CachedResults = new QueryResults ( __query_TableModel, __query_CellRenderer );
+							queryResultsList_GetCache().put ( cacheKey, cacheSource, __query_CachedResults,
+								__query_TableModel.getRowCount() );
+						}
+					}
+					ui_UpdateStatus ( false );
+				}
+			});
+		}
+	});
+}
+
 /**
 Read ColoradoHydroBaseRest time series via web service and list in the GUI.
 */
 private void uiAction_GetTimeSeriesListClicked_ReadColoradoHydroBaseRestHeaders()
 {   String routine = "TSTool_JFrame.uiAction_GetTimeSeriesListClicked_ReadColoradoHydroBaseRestHeaders";
-    JGUIUtil.setWaitCursor ( this, true );
     Message.printStatus ( 1, routine, "Please wait... retrieving data");
 
-    int size = 0;
     try {
         DataStore dataStore = ui_GetSelectedDataStore ();
         ColoradoHydroBaseRestDataStore ds = (ColoradoHydroBaseRestDataStore)dataStore;
@@ -15942,7 +16731,7 @@ private void uiAction_GetTimeSeriesListClicked_ReadColoradoHydroBaseRestHeaders(
                 __query_TableModel = new ColoradoHydroBaseRest_Station_TableModel(__query_JWorksheet, tslist );
                 ColoradoHydroBaseRest_Station_CellRenderer cr = new ColoradoHydroBaseRest_Station_CellRenderer(
                     (ColoradoHydroBaseRest_Station_TableModel)__query_TableModel);
-                __query_JWorksheet.setCellRenderer ( cr );
+                queryResultsList_SetCellRenderer ( cr );
                 __query_JWorksheet.setModel(__query_TableModel);
                 __query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
             }
@@ -15953,77 +16742,87 @@ private void uiAction_GetTimeSeriesListClicked_ReadColoradoHydroBaseRestHeaders(
 	        */
         }
         else if ( filterPanel instanceof ColoradoHydroBaseRest_Structure_InputFilter_JPanel ) {
-	        List<DiversionWaterClass> tslist = ds.getWaterClassesTimeSeriesCatalog(selectedDataType, selectedTimeStep, (ColoradoHydroBaseRest_Structure_InputFilter_JPanel)filterPanel );
-	        // Make sure that size is set...
-	        if ( tslist != null ) {
-	            size = tslist.size();
-	        }
-	        // Now display the data in the worksheet...
-	        if ( size > 0 ) {
-	            Message.printStatus ( 1, routine, "" + size + " ColoradoHydroBaseRest structure time series read for data type \"" +
-                selectedDataType + "\" and timestep \"" + selectedTimeStep + "\".  Displaying data..." );
-                __query_TableModel = new ColoradoHydroBaseRest_WaterClass_TableModel(ds, __query_JWorksheet, tslist );
-                ColoradoHydroBaseRest_WaterClass_CellRenderer cr = new ColoradoHydroBaseRest_WaterClass_CellRenderer(
-                    (ColoradoHydroBaseRest_WaterClass_TableModel)__query_TableModel);
-                __query_JWorksheet.setCellRenderer ( cr );
-                __query_JWorksheet.setModel(__query_TableModel);
-                __query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
-            }
-	        else {
-	            Message.printStatus ( 1, routine, "No ColoradoHydroBaseRest structure time series read." );
-	            queryResultsList_Clear ();
-	        }
+	        uiAction_GetTimeSeriesListClicked_ReadInBackground ( routine,
+	            () -> ds.getWaterClassesTimeSeriesCatalog(selectedDataType, selectedTimeStep, (ColoradoHydroBaseRest_Structure_InputFilter_JPanel)filterPanel ),
+	            (List<DiversionWaterClass> tslist) -> {
+	            // Make sure that size is set...
+	            int size = 0;
+	            if ( tslist != null ) {
+	                size = tslist.size();
+	            }
+	            // Now display the data in the worksheet...
+	            if ( size > 0 ) {
+	                Message.printStatus ( 1, routine, "" + size + " ColoradoHydroBaseRest structure time series read for data type \"" +
+                    selectedDataType + "\" and timestep \"" + selectedTimeStep + "\".  Displaying data..." );
+                    __query_TableModel = new ColoradoHydroBaseRest_WaterClass_TableModel(ds, __query_JWorksheet, tslist );
+                    ColoradoHydroBaseRest_WaterClass_CellRenderer cr = new ColoradoHydroBaseRest_WaterClass_CellRenderer(
+                        (ColoradoHydroBaseRest_WaterClass_TableModel)__query_TableModel);
+                    queryResultsList_SetCellRenderer ( cr );
+                    __query_JWorksheet.setModel(__query_TableModel);
+                    __query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
+                }
+	            else {
+	                Message.printStatus ( 1, routine, "No ColoradoHydroBaseRest structure time series read." );
+	                queryResultsList_Clear ();
+	            }
+	        });
     	}
         else if ( filterPanel instanceof ColoradoHydroBaseRest_TelemetryStation_InputFilter_JPanel ) {
-	        List<TelemetryStationDataTypes> tslist = ds.getTelemetryStationTimeSeriesCatalog(selectedDataType, selectedTimeStep, (ColoradoHydroBaseRest_TelemetryStation_InputFilter_JPanel)filterPanel );
-	        // Make sure that size is set...
-	        if ( tslist != null ) {
-	            size = tslist.size();
-	        }
-	        // Now display the data in the worksheet...
-	        if ( size > 0 ) {
-	            Message.printStatus ( 1, routine, "" + size + " ColoradoHydroBaseRest telemetry station time series read for data type \"" +
-                selectedDataType + "\" and timestep \"" + selectedTimeStep + "\".  Displaying data..." );
-                __query_TableModel = new ColoradoHydroBaseRest_TelemetryStation_TableModel(__query_JWorksheet, tslist );
-                ColoradoHydroBaseRest_TelemetryStation_CellRenderer cr = new ColoradoHydroBaseRest_TelemetryStation_CellRenderer(
-                    (ColoradoHydroBaseRest_TelemetryStation_TableModel)__query_TableModel);
-                __query_JWorksheet.setCellRenderer ( cr );
-                __query_JWorksheet.setModel(__query_TableModel);
-                __query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
-            }
-	        else {
-	            Message.printStatus ( 1, routine, "No ColoradoHydroBaseRest telemetry station time series read." );
-	            queryResultsList_Clear ();
-	        }
+	        uiAction_GetTimeSeriesListClicked_ReadInBackground ( routine,
+	            () -> ds.getTelemetryStationTimeSeriesCatalog(selectedDataType, selectedTimeStep, (ColoradoHydroBaseRest_TelemetryStation_InputFilter_JPanel)filterPanel ),
+	            (List<TelemetryStationDataTypes> tslist) -> {
+	            // Make sure that size is set...
+	            int size = 0;
+	            if ( tslist != null ) {
+	                size = tslist.size();
+	            }
+	            // Now display the data in the worksheet...
+	            if ( size > 0 ) {
+	                Message.printStatus ( 1, routine, "" + size + " ColoradoHydroBaseRest telemetry station time series read for data type \"" +
+                    selectedDataType + "\" and timestep \"" + selectedTimeStep + "\".  Displaying data..." );
+                    __query_TableModel = new ColoradoHydroBaseRest_TelemetryStation_TableModel(__query_JWorksheet, tslist );
+                    ColoradoHydroBaseRest_TelemetryStation_CellRenderer cr = new ColoradoHydroBaseRest_TelemetryStation_CellRenderer(
+                        (ColoradoHydroBaseRest_TelemetryStation_TableModel)__query_TableModel);
+                    queryResultsList_SetCellRenderer ( cr );
+                    __query_JWorksheet.setModel(__query_TableModel);
+                    __query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
+                }
+	            else {
+	                Message.printStatus ( 1, routine, "No ColoradoHydroBaseRest telemetry station time series read." );
+	                queryResultsList_Clear ();
+	            }
+	        });
     	}
         else if ( filterPanel instanceof ColoradoHydroBaseRest_Well_InputFilter_JPanel ) {
-	        List<WaterLevelsWell> tslist = ds.getWellTimeSeriesCatalog(selectedDataType, selectedTimeStep, (ColoradoHydroBaseRest_Well_InputFilter_JPanel)filterPanel );
-	        // Make sure that size is set...
-	        if ( tslist != null ) {
-	            size = tslist.size();
-	        }
-	        // Now display the data in the worksheet...
-	        if ( size > 0 ) {
-	            Message.printStatus ( 1, routine, "" + size + " ColoradoHydroBaseRest well time series read for data type \"" +
-                selectedDataType + "\" and timestep \"" + selectedTimeStep + "\".  Displaying data..." );
-                __query_TableModel = new ColoradoHydroBaseRest_Well_TableModel(__query_JWorksheet, tslist );
-                ColoradoHydroBaseRest_Well_CellRenderer cr = new ColoradoHydroBaseRest_Well_CellRenderer(
-                    (ColoradoHydroBaseRest_Well_TableModel)__query_TableModel);
-                __query_JWorksheet.setCellRenderer ( cr );
-                __query_JWorksheet.setModel(__query_TableModel);
-                __query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
-            }
-	        else {
-	            Message.printStatus ( 1, routine, "No ColoradoHydroBaseRest well time series read." );
-	            queryResultsList_Clear ();
-	        }
+	        uiAction_GetTimeSeriesListClicked_ReadInBackground ( routine,
+	            () -> ds.getWellTimeSeriesCatalog(selectedDataType, selectedTimeStep, (ColoradoHydroBaseRest_Well_InputFilter_JPanel)filterPanel ),
+	            (List<WaterLevelsWell> tslist) -> {
+	            // Make sure that size is set...
+	            int size = 0;
+	            if ( tslist != null ) {
+	                size = tslist.size();
+	            }
+	            // Now display the data in the worksheet...
+	            if ( size > 0 ) {
+	                Message.printStatus ( 1, routine, "" + size + " ColoradoHydroBaseRest well time series read for data type \"" +
+                    selectedDataType + "\" and timestep \"" + selectedTimeStep + "\".  Displaying data..." );
+                    __query_TableModel = new ColoradoHydroBaseRest_Well_TableModel(__query_JWorksheet, tslist );
+                    ColoradoHydroBaseRest_Well_CellRenderer cr = new ColoradoHydroBaseRest_Well_CellRenderer(
+                        (ColoradoHydroBaseRest_Well_TableModel)__query_TableModel);
+                    queryResultsList_SetCellRenderer ( cr );
+                    __query_JWorksheet.setModel(__query_TableModel);
+                    __query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
+                }
+	            else {
+	                Message.printStatus ( 1, routine, "No ColoradoHydroBaseRest well time series read." );
+	                queryResultsList_Clear ();
+	            }
+	        });
     	}
-        JGUIUtil.setWaitCursor ( this, false );
     }
     catch ( Exception e ) {
-        // Messages elsewhere but catch so we can get the cursor back...
+        // Messages elsewhere
         Message.printWarning ( 3, routine, e );
-        JGUIUtil.setWaitCursor ( this, false );
     }
 }
 
@@ -16080,7 +16879,7 @@ throws IOException
 			__query_TableModel = new TSTool_TS_TableModel (	tslist, true );
 			TSTool_TS_CellRenderer cr = new TSTool_TS_CellRenderer(	(TSTool_TS_TableModel)__query_TableModel);
 	
-			__query_JWorksheet.setCellRenderer ( cr );
+			queryResultsList_SetCellRenderer ( cr );
 			__query_JWorksheet.setModel ( __query_TableModel );
 			__query_JWorksheet.setColumnWidths (cr.getColumnWidths(), getGraphics() );
 
@@ -16232,7 +17031,6 @@ Read GenericDatabaseDatastore time series and list in the GUI.
 */
 private void uiAction_GetTimeSeriesListClicked_ReadGenericDatabaseDataStoreHeaders()
 {   String rtn = "TSTool_JFrame.uiAction_GetTimeSeriesListClicked_ReadGenericDatabaseDataStoreHeaders";
-    JGUIUtil.setWaitCursor ( this, true );
     Message.printStatus ( 1, rtn, "Please wait... retrieving data");
 
     // The headers are a list of TimeSeriesMeta
@@ -16244,50 +17042,47 @@ private void uiAction_GetTimeSeriesListClicked_ReadGenericDatabaseDataStoreHeade
         String timeStep = __timeStep_JComboBox.getSelected();
         if ( timeStep == null ) {
             Message.printWarning ( 1, rtn, "No time series are available for timestep." );
-            JGUIUtil.setWaitCursor ( this, false );
             return;
         }
-        else {
-            timeStep = timeStep.trim();
-        }
+        final String selectedTimeStep = timeStep.trim();
+        final InputFilter_JPanel filterPanel = __selectedInputFilter_JPanel;
 
-        List<TimeSeriesMeta> results = null;
         // Data type is shown with name so only use the first part of the choice
-        try {
-            results = ds.readTimeSeriesMetaList(dataType, timeStep,
-                (GenericDatabaseDataStore_TimeSeries_InputFilter_JPanel)__selectedInputFilter_JPanel);
-        }
-        catch ( Exception e ) {
-            results = null;
-        }
-
-        int size = 0;
-        if ( results != null ) {
-            size = results.size();
-            // TODO Does not work??
-            //__query_TableModel.setNewData ( results );
-            // Try brute force...
-            __query_TableModel = new GenericDatabaseDataStore_TS_TableModel ( results, ds );
-            GenericDatabaseDataStore_TS_CellRenderer cr =
-                new GenericDatabaseDataStore_TS_CellRenderer( (GenericDatabaseDataStore_TS_TableModel)__query_TableModel);
-
-            __query_JWorksheet.setCellRenderer ( cr );
-            __query_JWorksheet.setModel ( __query_TableModel );
-            __query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
-        }
-        if ( (results == null) || (size == 0) ) {
-            Message.printStatus ( 1, rtn, "Query complete.  No records returned." );
-        }
-        else {
-            Message.printStatus ( 1, rtn, "Query complete. " + size + " records returned." );
-        }
-        ui_UpdateStatus ( false );
-        JGUIUtil.setWaitCursor ( this, false );
+        uiAction_GetTimeSeriesListClicked_ReadInBackground ( rtn, () -> {
+                try {
+                    return ds.readTimeSeriesMetaList(dataType, selectedTimeStep,
+                        (GenericDatabaseDataStore_TimeSeries_InputFilter_JPanel)filterPanel);
+                }
+                catch ( Exception e ) {
+                    return null;
+                }
+            },
+            (List<TimeSeriesMeta> results) -> {
+                int size = 0;
+                if ( results != null ) {
+                    size = results.size();
+                    // TODO Does not work??
+                    //__query_TableModel.setNewData ( results );
+                    // Try brute force...
+                    __query_TableModel = new GenericDatabaseDataStore_TS_TableModel ( results, ds );
+                    GenericDatabaseDataStore_TS_CellRenderer cr =
+                        new GenericDatabaseDataStore_TS_CellRenderer( (GenericDatabaseDataStore_TS_TableModel)__query_TableModel);
+
+                    queryResultsList_SetCellRenderer ( cr );
+                    __query_JWorksheet.setModel ( __query_TableModel );
+                    __query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
+                }
+                if ( (results == null) || (size == 0) ) {
+                    Message.printStatus ( 1, rtn, "Query complete.  No records returned." );
+                }
+                else {
+                    Message.printStatus ( 1, rtn, "Query complete. " + size + " records returned." );
+                }
+            });
     }
     catch ( Exception e ) {
-        // Messages elsewhere but catch so we can get the cursor back...
+        // Messages elsewhere
         Message.printWarning ( 3, rtn, e );
-        JGUIUtil.setWaitCursor ( this, false );
     }
 }
 
@@ -16354,7 +17149,7 @@ throws IOException
             __query_TableModel = new TSTool_HecDss_TableModel ( tslist );
             TSTool_HecDss_CellRenderer cr = new TSTool_HecDss_CellRenderer( (TSTool_HecDss_TableModel)__query_TableModel);
 
-            __query_JWorksheet.setCellRenderer ( cr );
+            queryResultsList_SetCellRenderer ( cr );
             __query_JWorksheet.setModel ( __query_TableModel );
             // Turn off columns in the table model that do not apply...
             __query_JWorksheet.removeColumn (((TSTool_HecDss_TableModel)__query_TableModel).COL_SEQUENCE);
@@ -16390,14 +17185,15 @@ private void uiAction_GetTimeSeriesListClicked_ReadHydroBaseHeaders ( GRLimits g
 throws Exception
 {	String message, routine = "TSTool_JFrame.readHydroBaseHeaders";
 
-    JGUIUtil.setWaitCursor ( this, true );
-    String selectedDataType = ui_GetSelectedDataType();
-    String selectedTimeStep = ui_GetSelectedTimeStep();
+    final String selectedDataType = ui_GetSelectedDataType();
+    final String selectedTimeStep = ui_GetSelectedTimeStep();
 
     // Object type in list varies
 	int size = 0;
+	// Whether the list is being read in the background, in which case the results are displayed when read
+	boolean reading = false;
 	DataStore dataStore = ui_GetSelectedDataStore (); // Will be null if using HydroBase input type
-	HydroBaseDMI hbdmi = null;
+	final HydroBaseDMI hbdmi;
 	if ( dataStore == null ) {
 	    Message.printStatus ( 1, routine, "Please wait... retrieving data from HydroBase input type...");
 	    hbdmi = ui_GetHydroBaseDMILegacy(); // from input type - legacy
@@ -16407,11 +17203,12 @@ throws Exception
         HydroBaseDataStore hydroBaseDataStore = (HydroBaseDataStore)dataStore;
         hbdmi = (HydroBaseDMI)hydroBaseDataStore.getDMI();
 	}
-	InputFilter_JPanel selectedInputFilterJPanel = __selectedInputFilter_JPanel;
+	final InputFilter_JPanel selectedInputFilterJPanel = __selectedInputFilter_JPanel;
+	final int wdidLength = StringUtil.atoi(__props.getValue( "HydroBase.WDIDLength"));
 	// Convert TSTool conventions to HydroBase conventions
 	String [] hb_mt = HydroBase_Util.convertToHydroBaseMeasType ( selectedDataType, selectedTimeStep );
-	String meas_type = hb_mt[0];
-	String hbtime_step = hb_mt[2];
+	final String meas_type = hb_mt[0];
+	final String hbtime_step = hb_mt[2];
 	try {
 		// List the time series by major category.
 		// - old code had this logic in HydroBase_Util and returned List (no generics)
@@ -16419,170 +17216,225 @@ throws Exception
 		// Specific objects are read from HydroBase based on the data type
 		if ( HydroBase_Util.isAgriculturalCASSCropStatsTimeSeriesDataType ( hbdmi, selectedDataType ) ) {
 			// Data from agricultural_CASS_crop_statistics
-	    	List<HydroBase_AgriculturalCASSCropStats>dataList = hbdmi.readAgriculturalCASSCropStatsList (
-				selectedInputFilterJPanel,
-				null,		// county
-				null,		// commodity
-				null,		// practice
-				null,		// date1
-				null,		// date2,
-				true );		// Distinct
-	    	size = dataList.size();
-	    	if ( size > 0 ) {
-	    		Message.printStatus ( 1, routine, "" + size + " HydroBase CASS crop statistics time series were read.  Displaying data..." );
-	    		__query_TableModel = new
-				  		TSTool_HydroBase_Ag_CASS_TableModel ( __query_JWorksheet, dataList, selectedDataType );
-			  		TSTool_HydroBase_Ag_CASS_CellRenderer cr = new
-				  		TSTool_HydroBase_Ag_CASS_CellRenderer((TSTool_HydroBase_Ag_CASS_TableModel)__query_TableModel);
-			  		__query_JWorksheet.setCellRenderer ( cr );
-			  		__query_JWorksheet.setModel(__query_TableModel);
-			  		__query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
-	    	}
+			reading = true;
+			uiAction_GetTimeSeriesListClicked_ReadInBackground ( routine,
+				() -> hbdmi.readAgriculturalCASSCropStatsList (
+					selectedInputFilterJPanel,
+					null,		// county
+					null,		// commodity
+					null,		// practice
+					null,		// date1
+					null,		// date2,
+					true ),		// Distinct
+				(List<HydroBase_AgriculturalCASSCropStats> dataList) -> {
+				if ( dataList.size() > 0 ) {
+		    		Message.printStatus ( 1, routine, "" + dataList.size() + " HydroBase CASS crop statistics time series were read.  Displaying data..." );
+		    		__query_TableModel = new
+					  		TSTool_HydroBase_Ag_CASS_TableModel ( __query_JWorksheet, dataList, selectedDataType );
+				  		TSTool_HydroBase_Ag_CASS_CellRenderer cr = new
+					  		TSTool_HydroBase_Ag_CASS_CellRenderer((TSTool_HydroBase_Ag_CASS_TableModel)__query_TableModel);
+				  		queryResultsList_SetCellRenderer ( cr );
+				  		__query_JWorksheet.setModel(__query_TableModel);
+				  		__query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
+				}
+				else {
+					Message.printStatus ( 1, routine, "No HydroBase time series were read." );
+					queryResultsList_Clear ();
+				}
+			});
 		}
 		else if ( HydroBase_Util.isAgriculturalNASSCropStatsTimeSeriesDataType ( hbdmi, selectedDataType ) ) {
 			// Data from agricultural_NASS_crop_statistics
-	    	List<HydroBase_AgriculturalNASSCropStats>dataList = hbdmi.readAgriculturalNASSCropStatsList (
-				selectedInputFilterJPanel,
-				null,		// county
-				null,		// commodity
-				null,		// date1
-				null,		// date2,
-				true );		// Distinct
-	    	size = dataList.size();
-	    	if ( size > 0 ) {
-	    		Message.printStatus ( 1, routine, "" + size + " HydroBase NASS crop statistics time series were read.  Displaying data..." );
-	    		__query_TableModel = new
-				  		TSTool_HydroBase_Ag_NASS_TableModel ( __query_JWorksheet, dataList, selectedDataType );
-			  		TSTool_HydroBase_Ag_NASS_CellRenderer cr = new
-				  		TSTool_HydroBase_Ag_NASS_CellRenderer((TSTool_HydroBase_Ag_NASS_TableModel)__query_TableModel);
-			  		__query_JWorksheet.setCellRenderer ( cr );
-			  		__query_JWorksheet.setModel(__query_TableModel);
-			  		__query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
-	    	}
+			reading = true;
+			uiAction_GetTimeSeriesListClicked_ReadInBackground ( routine,
+				() -> hbdmi.readAgriculturalNASSCropStatsList (
+					selectedInputFilterJPanel,
+					null,		// county
+					null,		// commodity
+					null,		// date1
+					null,		// date2,
+					true ),		// Distinct
+				(List<HydroBase_AgriculturalNASSCropStats> dataList) -> {
+				if ( dataList.size() > 0 ) {
+		    		Message.printStatus ( 1, routine, "" + dataList.size() + " HydroBase NASS crop statistics time series were read.  Displaying data..." );
+		    		__query_TableModel = new
+					  		TSTool_HydroBase_Ag_NASS_TableModel ( __query_JWorksheet, dataList, selectedDataType );
+				  		TSTool_HydroBase_Ag_NASS_CellRenderer cr = new
+					  		TSTool_HydroBase_Ag_NASS_CellRenderer((TSTool_HydroBase_Ag_NASS_TableModel)__query_TableModel);
+				  		queryResultsList_SetCellRenderer ( cr );
+				  		__query_JWorksheet.setModel(__query_TableModel);
+				  		__query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
+				}
+				else {
+					Message.printStatus ( 1, routine, "No HydroBase time series were read." );
+					queryResultsList_Clear ();
+				}
+			});
 		}
 		else if (HydroBase_Util.isAgriculturalCASSLivestockStatsTimeSeriesDataType ( hbdmi, selectedDataType) ) {
 			// Data from CASS livestock stats...
-		    List<HydroBase_AgriculturalCASSLivestockStats> dataList = hbdmi.readAgriculturalCASSLivestockStatsList (
-				selectedInputFilterJPanel,	// From input filter
-				null,		// county
-				null,		// commodity
-				null,		// type
-				null,		// date1
-				null,		// date2,
-				true );		// Distinct
-	    	size = dataList.size();
-	    	if ( size > 0 ) {
-	    		Message.printStatus ( 1, routine, "" + size + " HydroBase CASS livestock statistics time series were read.  Displaying data..." );
-				__query_TableModel = new
-					TSTool_HydroBase_CASSLivestockStats_TableModel ( __query_JWorksheet, dataList, selectedDataType );
-				TSTool_HydroBase_CASSLivestockStats_CellRenderer cr = new
-					TSTool_HydroBase_CASSLivestockStats_CellRenderer(
-					(TSTool_HydroBase_CASSLivestockStats_TableModel)__query_TableModel);
-				__query_JWorksheet.setCellRenderer ( cr );
-				__query_JWorksheet.setModel(__query_TableModel);
-				__query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
-	    	}
+			reading = true;
+			uiAction_GetTimeSeriesListClicked_ReadInBackground ( routine,
+				() -> hbdmi.readAgriculturalCASSLivestockStatsList (
+					selectedInputFilterJPanel,	// From input filter
+					null,		// county
+					null,		// commodity
+					null,		// type
+					null,		// date1
+					null,		// date2,
+					true ),		// Distinct
+				(List<HydroBase_AgriculturalCASSLivestockStats> dataList) -> {
+				if ( dataList.size() > 0 ) {
+		    		Message.printStatus ( 1, routine, "" + dataList.size() + " HydroBase CASS livestock statistics time series were read.  Displaying data..." );
+					__query_TableModel = new
+						TSTool_HydroBase_CASSLivestockStats_TableModel ( __query_JWorksheet, dataList, selectedDataType );
+					TSTool_HydroBase_CASSLivestockStats_CellRenderer cr = new
+						TSTool_HydroBase_CASSLivestockStats_CellRenderer(
+						(TSTool_HydroBase_CASSLivestockStats_TableModel)__query_TableModel);
+					queryResultsList_SetCellRenderer ( cr );
+					__query_JWorksheet.setModel(__query_TableModel);
+					__query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
+				}
+				else {
+					Message.printStatus ( 1, routine, "No HydroBase time series were read." );
+					queryResultsList_Clear ();
+				}
+			});
 		}
 		else if ( HydroBase_Util.isCUPopulationTimeSeriesDataType( hbdmi, selectedDataType) ) {
-		    List<HydroBase_CUPopulation> dataList = hbdmi.readCUPopulationList (
-				selectedInputFilterJPanel,	// From input filter
-				null,		// county
-				null,		// commodity
-				null,		// type
-				null,		// date1
-				null,		// date2,
-				true );		// Distinct
-	    	size = dataList.size();
-	    	if ( size > 0 ) {
-	    		Message.printStatus ( 1, routine, "" + size + " HydroBase human population time series were read.  Displaying data..." );
-				// Data from CUPopulation...
-				__query_TableModel = new
-					TSTool_HydroBase_CUPopulation_TableModel ( __query_JWorksheet, dataList, selectedDataType );
-				TSTool_HydroBase_CUPopulation_CellRenderer cr =	new
-					TSTool_HydroBase_CUPopulation_CellRenderer(
-					(TSTool_HydroBase_CUPopulation_TableModel)__query_TableModel);
-				__query_JWorksheet.setCellRenderer ( cr );
-				__query_JWorksheet.setModel(__query_TableModel);
-				__query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
-	    	}
+			reading = true;
+			uiAction_GetTimeSeriesListClicked_ReadInBackground ( routine,
+				() -> hbdmi.readCUPopulationList (
+					selectedInputFilterJPanel,	// From input filter
+					null,		// county
+					null,		// commodity
+					null,		// type
+					null,		// date1
+					null,		// date2,
+					true ),		// Distinct
+				(List<HydroBase_CUPopulation> dataList) -> {
+				if ( dataList.size() > 0 ) {
+		    		Message.printStatus ( 1, routine, "" + dataList.size() + " HydroBase human population time series were read.  Displaying data..." );
+					// Data from CUPopulation...
+					__query_TableModel = new
+						TSTool_HydroBase_CUPopulation_TableModel ( __query_JWorksheet, dataList, selectedDataType );
+					TSTool_HydroBase_CUPopulation_CellRenderer cr =	new
+						TSTool_HydroBase_CUPopulation_CellRenderer(
+						(TSTool_HydroBase_CUPopulation_TableModel)__query_TableModel);
+					queryResultsList_SetCellRenderer ( cr );
+					__query_JWorksheet.setModel(__query_TableModel);
+					__query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
+				}
+				else {
+					Message.printStatus ( 1, routine, "No HydroBase time series were read." );
+					queryResultsList_Clear ();
+				}
+			});
 		}
 		else if ( HydroBase_Util.isIrrigSummaryTimeSeriesDataType( hbdmi, selectedDataType ) ) {
-			List<HydroBase_StructureIrrigSummaryTS> dataList = HydroBase_Util.readStructureIrrigSummaryTSCatalogList(
-				hbdmi,
-				selectedInputFilterJPanel,
-				null,	// orderby
-				HydroBase_Util.MISSING_INT,	// structure_num
-				HydroBase_Util.MISSING_INT,	// wd
-				HydroBase_Util.MISSING_INT,	// id
-				null,	// str_name
-				null,	// landuse
-				null,	// start
-				null,	// end
-				true);	// distinct
-	    	size = dataList.size();
-	    	if ( size > 0 ) {
-	    		Message.printStatus ( 1, routine, "" + size + " HydroBase structure irrigation summary time series were read.  Displaying data..." );
-				// Irrig summary TS...
-				__query_TableModel = new
-					TSTool_HydroBase_AgGIS_TableModel (	__query_JWorksheet, dataList, selectedDataType,
-					StringUtil.atoi(__props.getValue( "HydroBase.WDIDLength")) );
-				TSTool_HydroBase_AgGIS_CellRenderer cr = new
-					TSTool_HydroBase_AgGIS_CellRenderer( (TSTool_HydroBase_AgGIS_TableModel)__query_TableModel);
-				__query_JWorksheet.setCellRenderer ( cr );
-				__query_JWorksheet.setModel(__query_TableModel);
-				__query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
-			}
+			reading = true;
+			uiAction_GetTimeSeriesListClicked_ReadInBackground ( routine,
+				() -> HydroBase_Util.readStructureIrrigSummaryTSCatalogList(
+					hbdmi,
+					selectedInputFilterJPanel,
+					null,	// orderby
+					HydroBase_Util.MISSING_INT,	// structure_num
+					HydroBase_Util.MISSING_INT,	// wd
+					HydroBase_Util.MISSING_INT,	// id
+					null,	// str_name
+					null,	// landuse
+					null,	// start
+					null,	// end
+					true),	// distinct
+				(List<HydroBase_StructureIrrigSummaryTS> dataList) -> {
+				if ( dataList.size() > 0 ) {
+		    		Message.printStatus ( 1, routine, "" + dataList.size() + " HydroBase structure irrigation summary time series were read.  Displaying data..." );
+					// Irrig summary TS...
+					__query_TableModel = new
+						TSTool_HydroBase_AgGIS_TableModel (	__query_JWorksheet, dataList, selectedDataType,
+						wdidLength );
+					TSTool_HydroBase_AgGIS_CellRenderer cr = new
+						TSTool_HydroBase_AgGIS_CellRenderer( (TSTool_HydroBase_AgGIS_TableModel)__query_TableModel);
+					queryResultsList_SetCellRenderer ( cr );
+					__query_JWorksheet.setModel(__query_TableModel);
+					__query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
+				}
+				else {
+					Message.printStatus ( 1, routine, "No HydroBase time series were read." );
+					queryResultsList_Clear ();
+				}
+			});
 		}	
 		else if ( HydroBase_Util.isStationTimeSeriesDataType(hbdmi, meas_type) ) {
-			List<HydroBase_StationGeolocMeasType> dataList = HydroBase_Util.readStationGeolocMeasTypeCatalogList(
-				hbdmi, selectedInputFilterJPanel, selectedDataType, selectedTimeStep, grlimits );
-	    	size = dataList.size();
-	    	if ( size > 0 ) {
-	    		Message.printStatus ( 1, routine, "" + size + " HydroBase station time series series were read.  Displaying data..." );
-			    JWorksheet_DefaultTableCellRenderer cr = null;
-	            __query_TableModel = new TSTool_HydroBase_StationGeolocMeasType_TableModel(
-	                 __query_JWorksheet, dataList );
-                cr = new TSTool_HydroBase_StationGeolocMeasType_CellRenderer(
-                    (TSTool_HydroBase_StationGeolocMeasType_TableModel)__query_TableModel);
-				__query_JWorksheet.setCellRenderer ( cr );
-				__query_JWorksheet.setModel(__query_TableModel);
-				__query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
-	        }
+			reading = true;
+			uiAction_GetTimeSeriesListClicked_ReadInBackground ( routine,
+				() -> HydroBase_Util.readStationGeolocMeasTypeCatalogList(
+					hbdmi, selectedInputFilterJPanel, selectedDataType, selectedTimeStep, grlimits ),
+				(List<HydroBase_StationGeolocMeasType> dataList) -> {
+				if ( dataList.size() > 0 ) {
+		    		Message.printStatus ( 1, routine, "" + dataList.size() + " HydroBase station time series series were read.  Displaying data..." );
+				    JWorksheet_DefaultTableCellRenderer cr = null;
+		            __query_TableModel = new TSTool_HydroBase_StationGeolocMeasType_TableModel(
+		                 __query_JWorksheet, dataList );
+	                cr = new TSTool_HydroBase_StationGeolocMeasType_CellRenderer(
+	                    (TSTool_HydroBase_StationGeolocMeasType_TableModel)__query_TableModel);
+					queryResultsList_SetCellRenderer ( cr );
+					__query_JWorksheet.setModel(__query_TableModel);
+					__query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
+				}
+				else {
+					Message.printStatus ( 1, routine, "No HydroBase time series were read." );
+					queryResultsList_Clear ();
+				}
+			});
 		}
 		else if ( HydroBase_Util.isStructureTimeSeriesDataType(hbdmi, meas_type) ) {
-			List<HydroBase_StructureGeolocStructMeasType> dataList = hbdmi.readStructureGeolocStructMeasTypeCatalogList(
-				selectedInputFilterJPanel, selectedDataType, selectedTimeStep);
-	    	size = dataList.size();
-	    	if ( size > 0 ) {
-	    		Message.printStatus ( 1, routine, "" + size + " HydroBase structure time series were read.  Displaying list..." );
-			    JWorksheet_DefaultTableCellRenderer cr = null;
-	            __query_TableModel = new TSTool_HydroBase_StructureGeolocStructMeasType_TableModel (
-	                __query_JWorksheet, StringUtil.atoi(__props.getValue( "HydroBase.WDIDLength")), dataList );
-                cr = new TSTool_HydroBase_StructureGeolocStructMeasType_CellRenderer(
-                    (TSTool_HydroBase_StructureGeolocStructMeasType_TableModel)__query_TableModel);
-				__query_JWorksheet.setCellRenderer ( cr );
-				__query_JWorksheet.setModel(__query_TableModel);
-				__query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
-	        }
+			reading = true;
+			uiAction_GetTimeSeriesListClicked_ReadInBackground ( routine,
+				() -> hbdmi.readStructureGeolocStructMeasTypeCatalogList(
+					selectedInputFilterJPanel, selectedDataType, selectedTimeStep),
+				(List<HydroBase_StructureGeolocStructMeasType> dataList) -> {
+				if ( dataList.size() > 0 ) {
+		    		Message.printStatus ( 1, routine, "" + dataList.size() + " HydroBase structure time series were read.  Displaying list..." );
+				    JWorksheet_DefaultTableCellRenderer cr = null;
+		            __query_TableModel = new TSTool_HydroBase_StructureGeolocStructMeasType_TableModel (
+		                __query_JWorksheet, wdidLength, dataList );
+	                cr = new TSTool_HydroBase_StructureGeolocStructMeasType_CellRenderer(
+	                    (TSTool_HydroBase_StructureGeolocStructMeasType_TableModel)__query_TableModel);
+					queryResultsList_SetCellRenderer ( cr );
+					__query_JWorksheet.setModel(__query_TableModel);
+					__query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
+				}
+				else {
+					Message.printStatus ( 1, routine, "No HydroBase time series were read." );
+					queryResultsList_Clear ();
+				}
+			});
 		}
 		else if (selectedDataType.equalsIgnoreCase( "WellLevel") || selectedDataType.equalsIgnoreCase( "WellLevelElev")||
 		    selectedDataType.equalsIgnoreCase( "WellLevelDepth") ) {
 		    // Well level data...
    			if (selectedTimeStep.equalsIgnoreCase("Day")) {
-				List<HydroBase_GroundWaterWellsView> dataList =
-					HydroBase_Util.readGroundWaterWellsViewTSCatalogList(hbdmi, selectedInputFilterJPanel, meas_type, hbtime_step);
-	    		size = dataList.size();
-	    		if ( size > 0 ) {
-    				__query_TableModel = new TSTool_HydroBase_WellLevel_Day_TableModel (
-    				__query_JWorksheet, StringUtil.atoi( __props.getValue("HydroBase.WDIDLength")), dataList,
-    				"HydroBase" );
-    				TSTool_HydroBase_WellLevel_Day_CellRenderer cr =
-    				new TSTool_HydroBase_WellLevel_Day_CellRenderer(
-    				(TSTool_HydroBase_WellLevel_Day_TableModel)__query_TableModel);
-    				__query_JWorksheet.setCellRenderer ( cr );
-    				__query_JWorksheet.setModel(__query_TableModel);
-    				__query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
-	    		}
+				reading = true;
+				uiAction_GetTimeSeriesListClicked_ReadInBackground ( routine,
+					() -> HydroBase_Util.readGroundWaterWellsViewTSCatalogList(hbdmi, selectedInputFilterJPanel, meas_type, hbtime_step),
+					(List<HydroBase_GroundWaterWellsView> dataList) -> {
+					if ( dataList.size() > 0 ) {
+	    				__query_TableModel = new TSTool_HydroBase_WellLevel_Day_TableModel (
+	    				__query_JWorksheet, wdidLength, dataList,
+	    				"HydroBase" );
+	    				TSTool_HydroBase_WellLevel_Day_CellRenderer cr =
+	    				new TSTool_HydroBase_WellLevel_Day_CellRenderer(
+	    				(TSTool_HydroBase_WellLevel_Day_TableModel)__query_TableModel);
+	    				queryResultsList_SetCellRenderer ( cr );
+	    				__query_JWorksheet.setModel(__query_TableModel);
+	    				__query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
+					}
+					else {
+						Message.printStatus ( 1, routine, "No HydroBase time series were read." );
+						queryResultsList_Clear ();
+					}
+				});
     		}
     		else {
     			// Real-time well elevation as station
@@ -16594,7 +17446,7 @@ throws Exception
     				TSTool_HydroBase_StationGeolocMeasType_CellRenderer cr =
     					new TSTool_HydroBase_StationGeolocMeasType_CellRenderer(
     					    (TSTool_HydroBase_StationGeolocMeasType_TableModel)__query_TableModel);
-    				__query_JWorksheet.setCellRenderer ( cr );
+    				queryResultsList_SetCellRenderer ( cr );
     				__query_JWorksheet.setModel(__query_TableModel);
     				// TODO SAM 2012-09-05 Verify that Abbrev should be on since station
     				// Turn off columns in the table model that do not apply...
@@ -16603,17 +17455,15 @@ throws Exception
     			}
 			}
 		}
-		if ( size == 0 ) {
+		if ( !reading && (size == 0) ) {
 	  		Message.printStatus ( 1, routine, "No HydroBase time series were read." );
 	  		queryResultsList_Clear ();
 		}
-		JGUIUtil.setWaitCursor ( this, false );
 	}
 	catch ( Exception e ) {
 		message = "Error reading time series list from HydroBase (" + e + ").";
 		Message.printWarning ( 2, routine, message );
 		Message.printWarning ( 2, routine, e );
-		JGUIUtil.setWaitCursor ( this, false );
 		throw new Exception ( message );
 	}
 }
@@ -16673,7 +17523,7 @@ throws IOException
 			__query_TableModel = new TSTool_TS_TableModel ( tslist, true );
 			TSTool_TS_CellRenderer cr = new TSTool_TS_CellRenderer( (TSTool_TS_TableModel)__query_TableModel);
 	
-			__query_JWorksheet.setCellRenderer ( cr );
+			queryResultsList_SetCellRenderer ( cr );
 			__query_JWorksheet.setModel ( __query_TableModel );
 			// Do not include the alias in the display...
 			__query_JWorksheet.removeColumn ( ((TSTool_TS_TableModel)__query_TableModel).COL_ALIAS );
@@ -16755,7 +17605,7 @@ throws IOException
 		__query_TableModel = new TSTool_TS_TableModel ( tslist );
 		TSTool_TS_CellRenderer cr = new TSTool_TS_CellRenderer( (TSTool_TS_TableModel)__query_TableModel);
 
-		__query_JWorksheet.setCellRenderer ( cr );
+		queryResultsList_SetCellRenderer ( cr );
 		__query_JWorksheet.setModel ( __query_TableModel );
 		__query_JWorksheet.removeColumn ( ((TSTool_TS_TableModel)__query_TableModel).COL_ALIAS );
 		__query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
@@ -16820,7 +17670,7 @@ throws IOException
 			TSTool_ESPTraceEnsemble_CellRenderer cr =
 				new TSTool_ESPTraceEnsemble_CellRenderer( (TSTool_ESPTraceEnsemble_TableModel)__query_TableModel);
 
-			__query_JWorksheet.setCellRenderer ( cr );
+			queryResultsList_SetCellRenderer ( cr );
 			__query_JWorksheet.setModel ( __query_TableModel );
 			__query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
 		}
@@ -16895,7 +17745,7 @@ throws IOException
 			__query_TableModel = new TSTool_TS_TableModel (	tslist, true );
 			TSTool_TS_CellRenderer cr = new TSTool_TS_CellRenderer( (TSTool_TS_TableModel)__query_TableModel);
 	
-			__query_JWorksheet.setCellRenderer ( cr );
+			queryResultsList_SetCellRenderer ( cr );
 			__query_JWorksheet.setModel ( __query_TableModel );
 			// Do not include the alias in the display...
 			__query_JWorksheet.removeColumn (((TSTool_TS_TableModel)__query_TableModel).COL_ALIAS );
@@ -16926,7 +17776,6 @@ Read plugin datastore time series and list in the GUI.
 */
 private void uiAction_GetTimeSeriesListClicked_ReadPluginTimeSeriesCatalog()
 {   String rtn = getClass().getSimpleName() + ".uiAction_GetTimeSeriesListClicked_ReadPluginTimeSeriesCatalog";
-    JGUIUtil.setWaitCursor ( this, true );
     Message.printStatus ( 1, rtn, "Please wait... retrieving data");
 
     DataStore dataStore = ui_GetSelectedDataStore ();
@@ -16946,47 +17795,43 @@ private void uiAction_GetTimeSeriesListClicked_ReadPluginTimeSeriesCatalog()
         String dataType = __dataType_JComboBox.getSelected(); // May be "datatype" or "datatype - note", but generically can't know here
         String timeStep = __timeStep_JComboBox.getSelected(); // May be "interval" or "interval - note", but generically can't know here
 
-        List<Object> results = null;
-        if ( pds != null ) {
-	        // Data type is shown without name so use full choice
-	        try {
-	        	__query_TableModel = pds.createTimeSeriesListTableModel(dataType,timeStep,__selectedInputFilter_JPanel);
-	        	@SuppressWarnings("unchecked")
-				List<Object> results0 = __query_TableModel.getData();
-	        	results = results0;
-	            if ( results != null ) {
-	                // TODO Does not work??
-	                //__query_TableModel.setNewData ( results );
-	                // Try brute force...
-	            	JWorksheet_AbstractExcelCellRenderer cr = pds.getTimeSeriesListCellRenderer(__query_TableModel);
-	                __query_JWorksheet.setCellRenderer ( cr );
-	                __query_JWorksheet.setModel ( __query_TableModel );
-	                __query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
-	            }
-	        }
-	        catch ( Exception e ) {
-	        	Message.printWarning ( 1, rtn, "Error querying time series list (" + e + ")." );
-	        	Message.printWarning(2, rtn, e);
-	            results = null;
-	        }
-        }
-
-        int size = 0;
-        if ( results == null ) {
+        if ( pds == null ) {
             Message.printStatus ( 1, rtn, "Query complete.  No records returned." );
+            return;
         }
-        else {
-        	size = results.size();
-            Message.printStatus ( 1, rtn, "Query complete. " + size + " records returned." );
-        }
-        ui_UpdateStatus ( false );
-
-        JGUIUtil.setWaitCursor ( this, false );
+        final PluginDataStore selectedPluginDataStore = pds;
+        final InputFilter_JPanel filterPanel = __selectedInputFilter_JPanel;
+        // Data type is shown without name so use full choice
+        uiAction_GetTimeSeriesListClicked_ReadInBackground ( rtn,
+            () -> selectedPluginDataStore.createTimeSeriesListTableModel(dataType,timeStep,filterPanel),
+            (JWorksheet_AbstractRowTableModel tableModel) -> {
+                List<Object> results = null;
+                if ( tableModel != null ) {
+                    @SuppressWarnings("unchecked")
+                    List<Object> results0 = tableModel.getData();
+                    results = results0;
+                }
+                if ( results != null ) {
+                    // TODO Does not work??
+                    //__query_TableModel.setNewData ( results );
+                    // Try brute force...
+                    __query_TableModel = tableModel;
+                    JWorksheet_AbstractExcelCellRenderer cr = selectedPluginDataStore.getTimeSeriesListCellRenderer(__query_TableModel);
+                    queryResultsList_SetCellRenderer ( cr );
+                    __query_JWorksheet.setModel ( __query_TableModel );
+                    __query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
+                }
+                if ( results == null ) {
+                    Message.printStatus ( 1, rtn, "Query complete.  No records returned." );
+                }
+                else {
+                    Message.printStatus ( 1, rtn, "Query complete. " + results.size() + " records returned." );
+                }
+            });
     }
     catch ( Exception e ) {
-        // Messages elsewhere but catch so we can get the cursor back...
+        // Messages elsewhere
         Message.printWarning ( 3, rtn, e );
-        JGUIUtil.setWaitCursor ( this, false );
     }
 }
 
@@ -16995,7 +17840,6 @@ Read RCC ACIS time series and list in the GUI.
 */
 private void uiAction_GetTimeSeriesListClicked_ReadRccAcisHeaders()
 {   String rtn = "TSTool_JFrame.uiAction_GetTimeSeriesListClicked_ReadRccAcisHeaders";
-    JGUIUtil.setWaitCursor ( this, true );
     Message.printStatus ( 1, rtn, "Please wait... retrieving data");
 
     DataStore dataStore = ui_GetSelectedDataStore ();
@@ -17008,51 +17852,40 @@ private void uiAction_GetTimeSeriesListClicked_ReadRccAcisHeaders()
         String timeStep = ui_GetSelectedTimeStep();
         if ( timeStep == null ) {
             Message.printWarning ( 1, rtn, "No time series are available for timestep." );
-            JGUIUtil.setWaitCursor ( this, false );
             return;
         }
-        else {
-            timeStep = timeStep.trim();
-        }
+        final String selectedTimeStep = timeStep.trim();
+        final InputFilter_JPanel filterPanel = __selectedInputFilter_JPanel;
 
-        List<RccAcisStationTimeSeriesMetadata> results = null;
         // Data type is shown with name so only use the first part of the choice
-        try {
-            results = rccAcisDataStore.readStationTimeSeriesMetadataList(dataType, timeStep, __selectedInputFilter_JPanel);
-        }
-        catch ( Exception e ) {
-            Message.printWarning(1, rtn, "Error getting time series list from ACIS (" + e + ").");
-            Message.printWarning(3, rtn, e );
-            results = null;
-        }
-
-        int size = 0;
-        if ( results != null ) {
-            size = results.size();
-            // TODO Does not work??
-            //__query_TableModel.setNewData ( results );
-            // Try brute force...
-            __query_TableModel = new TSTool_RccAcis_TableModel ( rccAcisDataStore, results );
-            TSTool_RccAcis_CellRenderer cr =
-                new TSTool_RccAcis_CellRenderer( (TSTool_RccAcis_TableModel)__query_TableModel);
-
-            __query_JWorksheet.setCellRenderer ( cr );
-            __query_JWorksheet.setModel ( __query_TableModel );
-            __query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
-        }
-        if ( (results == null) || (size == 0) ) {
-            Message.printStatus ( 1, rtn, "Query complete.  No records returned." );
-        }
-        else {
-            Message.printStatus ( 1, rtn, "Query complete. " + size + " records returned." );
-        }
-        ui_UpdateStatus ( false );
-        JGUIUtil.setWaitCursor ( this, false );
+        uiAction_GetTimeSeriesListClicked_ReadInBackground ( rtn,
+            () -> rccAcisDataStore.readStationTimeSeriesMetadataList(dataType, selectedTimeStep, filterPanel),
+            (List<RccAcisStationTimeSeriesMetadata> results) -> {
+                int size = 0;
+                if ( results != null ) {
+                    size = results.size();
+                    // TODO Does not work??
+                    //__query_TableModel.setNewData ( results );
+                    // Try brute force...
+                    __query_TableModel = new TSTool_RccAcis_TableModel ( rccAcisDataStore, results );
+                    TSTool_RccAcis_CellRenderer cr =
+                        new TSTool_RccAcis_CellRenderer( (TSTool_RccAcis_TableModel)__query_TableModel);
+
+                    queryResultsList_SetCellRenderer ( cr );
+                    __query_JWorksheet.setModel ( __query_TableModel );
+                    __query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
+                }
+                if ( (results == null) || (size == 0) ) {
+                    Message.printStatus ( 1, rtn, "Query complete.  No records returned." );
+                }
+                else {
+                    Message.printStatus ( 1, rtn, "Query complete. " + size + " records returned." );
+                }
+            });
     }
     catch ( Exception e ) {
-        // Messages elsewhere but catch so we can get the cursor back...
+        // Messages elsewhere
         Message.printWarning ( 3, rtn, e );
-        JGUIUtil.setWaitCursor ( this, false );
     }
 }
 
@@ -17061,7 +17894,6 @@ Read ReclamationHDB time series and list in the GUI.
 */
 private void uiAction_GetTimeSeriesListClicked_ReadReclamationHDBHeaders()
 {   String rtn = "TSTool_JFrame.uiAction_GetTimeSeriesListClicked_ReadReclamationHDBHeaders";
-    JGUIUtil.setWaitCursor ( this, true );
     Message.printStatus ( 1, rtn, "Please wait... retrieving data");
 
     DataStore dataStore = ui_GetSelectedDataStore ();
@@ -17077,74 +17909,78 @@ private void uiAction_GetTimeSeriesListClicked_ReadReclamationHDBHeaders()
         String timeStep = __timeStep_JComboBox.getSelected();
         if ( timeStep == null ) {
             Message.printWarning ( 1, rtn, "No time series are available for timestep." );
-            JGUIUtil.setWaitCursor ( this, false );
             return;
         }
-        else {
-            timeStep = timeStep.trim();
-        }
+        final String selectedTimeStep = timeStep.trim();
 
-        List<ReclamationHDB_SiteTimeSeriesMetadata> results = null;
-        if ( timeStep.equals("*") ) {
-            // Read the time series for each of the major intervals and then concatenate the results
-            String [] timeSteps = { __TIMESTEP_HOUR, __TIMESTEP_DAY, __TIMESTEP_MONTH, __TIMESTEP_YEAR, __TIMESTEP_IRREGULAR };
-            results = new ArrayList<ReclamationHDB_SiteTimeSeriesMetadata>();
-            List<ReclamationHDB_SiteTimeSeriesMetadata> results2 = null;
+        // Problems for the timesteps that could not be read, reported on the event thread
+        final List<String> problems = new ArrayList<>();
+        // Read the time series for each of the major intervals and then concatenate the results
+        final String [] timeSteps = { __TIMESTEP_HOUR, __TIMESTEP_DAY, __TIMESTEP_MONTH, __TIMESTEP_YEAR, __TIMESTEP_IRREGULAR };
+        // Each read gets its own copy of the input filters so that the displayed panel is not used by the read threads
+        final InputFilter_JPanel filterPanel = TSToolReclamationHDBListReader.copyFilterPanel ( ds, __selectedInputFilter_JPanel );
+        final InputFilter_JPanel [] filterPanels = new InputFilter_JPanel[timeSteps.length];
+        if ( selectedTimeStep.equals("*") ) {
             for ( int i = 0; i < timeSteps.length; i++ ) {
-                try {
-                    results2 = dmi.readSiteTimeSeriesMetadataList(dataType, timeSteps[i], __selectedInputFilter_JPanel);
-                    if ( results2 != null ) {
-                        for ( ReclamationHDB_SiteTimeSeriesMetadata result : results2 ) {
-                            results.add ( result );
+                filterPanels[i] = (i == 0) ? filterPanel : TSToolReclamationHDBListReader.copyFilterPanel ( ds, __selectedInputFilter_JPanel );
+            }
+        }
+        uiAction_GetTimeSeriesListClicked_ReadInBackground ( rtn, () -> {
+                if ( selectedTimeStep.equals("*") ) {
+                    // The intervals are read at the same time on separate connections
+                    TSToolReclamationHDBListReader reader = new TSToolReclamationHDBListReader ( ds );
+                    List<ReclamationHDB_SiteTimeSeriesMetadata> results =
+                        reader.readSiteTimeSeriesMetadataList(dataType, timeSteps, filterPanels);
+                    problems.addAll ( reader.getProblems() );
+                    return results;
+                }
+                else {
+                    // Data type is shown with name so only use the first part of the choice
+                    try {
+                        // Lock the connection as TSToolReclamationHDBListReader does so that it is used by one query at a time
+                        synchronized ( dmi ) {
+                            return dmi.readSiteTimeSeriesMetadataList(dataType, selectedTimeStep, filterPanel);
                         }
                     }
+                    catch ( Exception e ) {
+                        return null;
+                    }
                 }
-                catch ( Exception e ) {
-                    // Just skip the timestep
+            },
+            (List<ReclamationHDB_SiteTimeSeriesMetadata> results) -> {
+                if ( problems.size() > 0 ) {
+                    StringBuilder b = new StringBuilder ( "Error reading time series for " + problems.size() + " of " +
+                        timeSteps.length + " timesteps (other timesteps are listed):" );
+                    for ( String problem : problems ) {
+                        b.append ( "\n" + problem );
+                    }
+                    Message.printWarning ( 1, rtn, b.toString() );
                 }
-            }
-            if ( results.size() == 0 ) {
-                results = null; // Handle warning below
-            }
-        }
-        else {
-            // Data type is shown with name so only use the first part of the choice
-            try {
-                results = dmi.readSiteTimeSeriesMetadataList(dataType, timeStep, __selectedInputFilter_JPanel);
-            }
-            catch ( Exception e ) {
-                results = null;
-            }
-        }
-
-        int size = 0;
-        if ( results != null ) {
-            size = results.size();
-            // TODO Does not work??
-            //__query_TableModel.setNewData ( results );
-            // Try brute force...
-            __query_TableModel = new TSTool_ReclamationHDB_TableModel ( ds, results );
-            TSTool_ReclamationHDB_CellRenderer cr =
-                new TSTool_ReclamationHDB_CellRenderer( (TSTool_ReclamationHDB_TableModel)__query_TableModel);
-
-            __query_JWorksheet.setCellRenderer ( cr );
-            __query_JWorksheet.setModel ( __query_TableModel );
-            __query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
-        }
-        if ( (results == null) || (size == 0) ) {
-            Message.printStatus ( 1, rtn, "Query complete.  No records returned." );
-        }
-        else {
-            Message.printStatus ( 1, rtn, "Query complete. " + size + " records returned." );
-        }
-        ui_UpdateStatus ( false );
-
-        JGUIUtil.setWaitCursor ( this, false );
+                int size = 0;
+                if ( (results != null) && (results.size() > 0) ) {
+                    size = results.size();
+                    // TODO Does not work??
+                    //__query_TableModel.setNewData ( results );
+                    // Try brute force...
+                    __query_TableModel = new TSTool_ReclamationHDB_TableModel ( ds, results );
+                    TSTool_ReclamationHDB_CellRenderer cr =
+                        new TSTool_ReclamationHDB_CellRenderer( (TSTool_ReclamationHDB_TableModel)__query_TableModel);
+
+                    queryResultsList_SetCellRenderer ( cr );
+                    __query_JWorksheet.setModel ( __query_TableModel );
+                    __query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
+                }
+                if ( size == 0 ) {
+                    Message.printStatus ( 1, rtn, "Query complete.  No records returned." );
+                }
+                else {
+                    Message.printStatus ( 1, rtn, "Query complete. " + size + " records returned." );
+                }
+            });
     }
     catch ( Exception e ) {
-        // Messages elsewhere but catch so we can get the cursor back...
+        // Messages elsewhere
         Message.printWarning ( 3, rtn, e );
-        JGUIUtil.setWaitCursor ( this, false );
     }
 }
 
@@ -17153,7 +17989,6 @@ Read ReclamationPisces time series and list in the GUI.
 */
 private void uiAction_GetTimeSeriesListClicked_ReadReclamationPiscesHeaders()
 {   String rtn = "TSTool_JFrame.uiAction_GetTimeSeriesListClicked_ReadReclamationPiscesHeaders";
-    JGUIUtil.setWaitCursor ( this, true );
     Message.printStatus ( 1, rtn, "Please wait... retrieving data");
 
     DataStore dataStore = ui_GetSelectedDataStore ();
@@ -17169,49 +18004,45 @@ private void uiAction_GetTimeSeriesListClicked_ReadReclamationPiscesHeaders()
         String timeStep = __timeStep_JComboBox.getSelected();
         if ( timeStep == null ) {
             Message.printWarning ( 1, rtn, "No time series are available for timestep." );
-            JGUIUtil.setWaitCursor ( this, false );
             return;
         }
-        else {
-            timeStep = timeStep.trim();
-        }
+        final String selectedTimeStep = timeStep.trim();
+        final InputFilter_JPanel filterPanel = __selectedInputFilter_JPanel;
 
-        List<ReclamationPisces_SiteCatalogSeriesCatalog> results = null;
         // Data type is shown without name so use full choice
-        try {
-            results = dmi.readSiteCatalogSeriesCatalogList(null, null, dataType, timeStep, __selectedInputFilter_JPanel);
-        }
-        catch ( Exception e ) {
-            results = null;
-        }
-
-        int size = 0;
-        if ( results != null ) {
-            size = results.size();
-            // TODO Does not work??
-            //__query_TableModel.setNewData ( results );
-            // Try brute force...
-            __query_TableModel = new TSTool_ReclamationPisces_TableModel ( ds, results );
-            TSTool_ReclamationPisces_CellRenderer cr =
-                new TSTool_ReclamationPisces_CellRenderer( (TSTool_ReclamationPisces_TableModel)__query_TableModel);
-            __query_JWorksheet.setCellRenderer ( cr );
-            __query_JWorksheet.setModel ( __query_TableModel );
-            __query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
-        }
-        if ( (results == null) || (size == 0) ) {
-            Message.printStatus ( 1, rtn, "Query complete.  No records returned." );
-        }
-        else {
-            Message.printStatus ( 1, rtn, "Query complete. " + size + " records returned." );
-        }
-        ui_UpdateStatus ( false );
-
-        JGUIUtil.setWaitCursor ( this, false );
+        uiAction_GetTimeSeriesListClicked_ReadInBackground ( rtn, () -> {
+                try {
+                    return dmi.readSiteCatalogSeriesCatalogList(null, null, dataType, selectedTimeStep, filterPanel);
+                }
+                catch ( Exception e ) {
+                    return null;
+                }
+            },
+            (List<ReclamationPisces_SiteCatalogSeriesCatalog> results) -> {
+                int size = 0;
+                if ( results != null ) {
+                    size = results.size();
+                    // TODO Does not work??
+                    //__query_TableModel.setNewData ( results );
+                    // Try brute force...
+                    __query_TableModel = new TSTool_ReclamationPisces_TableModel ( ds, results );
+                    TSTool_ReclamationPisces_CellRenderer cr =
+                        new TSTool_ReclamationPisces_CellRenderer( (TSTool_ReclamationPisces_TableModel)__query_TableModel);
+                    queryResultsList_SetCellRenderer ( cr );
+                    __query_JWorksheet.setModel ( __query_TableModel );
+                    __query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
+                }
+                if ( (results == null) || (size == 0) ) {
+                    Message.printStatus ( 1, rtn, "Query complete.  No records returned." );
+                }
+                else {
+                    Message.printStatus ( 1, rtn, "Query complete. " + size + " records returned." );
+                }
+            });
     }
     catch ( Exception e ) {
-        // Messages elsewhere but catch so we can get the cursor back...
+        // Messages elsewhere
         Message.printWarning ( 3, rtn, e );
-        JGUIUtil.setWaitCursor ( this, false );
     }
 }
 
@@ -17252,7 +18083,7 @@ throws IOException
 		__query_TableModel = new TSTool_TS_TableModel ( tslist );
 		TSTool_TS_CellRenderer cr = new TSTool_TS_CellRenderer( (TSTool_TS_TableModel)__query_TableModel);
 
-		__query_JWorksheet.setCellRenderer ( cr );
+		queryResultsList_SetCellRenderer ( cr );
 		__query_JWorksheet.setModel ( __query_TableModel );
 		__query_JWorksheet.removeColumn (((TSTool_TS_TableModel)__query_TableModel).COL_ALIAS );
 		__query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
@@ -17293,7 +18124,7 @@ throws Exception
 				__query_TableModel = new TSTool_TS_TableModel ( tslist );
 				TSTool_TS_CellRenderer cr =	new TSTool_TS_CellRenderer(	(TSTool_TS_TableModel)__query_TableModel);
 	
-				__query_JWorksheet.setCellRenderer ( cr );
+				queryResultsList_SetCellRenderer ( cr );
 				__query_JWorksheet.setModel(__query_TableModel);
 				// Turn off columns in the table model that do not apply...
 				__query_JWorksheet.removeColumn (((TSTool_TS_TableModel)__query_TableModel).COL_ALIAS );
@@ -17311,7 +18142,7 @@ throws Exception
 				__query_TableModel = new TSTool_TS_TableModel ( tslist );
 				TSTool_TS_CellRenderer cr = new TSTool_TS_CellRenderer(	(TSTool_TS_TableModel)__query_TableModel);
 	
-				__query_JWorksheet.setCellRenderer ( cr );
+				queryResultsList_SetCellRenderer ( cr );
 				__query_JWorksheet.setModel(__query_TableModel);
 				// Turn off columns in the table model that do not apply...
 				__query_JWorksheet.removeColumn (((TSTool_TS_TableModel)__query_TableModel).COL_ALIAS );
@@ -17330,7 +18161,7 @@ throws Exception
 				__query_TableModel = new TSTool_TS_TableModel ( tslist );
 				TSTool_TS_CellRenderer cr =	new TSTool_TS_CellRenderer(	(TSTool_TS_TableModel)__query_TableModel);
 	
-				__query_JWorksheet.setCellRenderer ( cr );
+				queryResultsList_SetCellRenderer ( cr );
 				__query_JWorksheet.setModel(__query_TableModel);
 				// Turn off columns in the table model that do not apply...
 				__query_JWorksheet.removeColumn (((TSTool_TS_TableModel)__query_TableModel).COL_ALIAS );
@@ -17367,7 +18198,7 @@ throws Exception
 				__query_TableModel = new TSTool_TS_TableModel ( tslist );
 				TSTool_TS_CellRenderer cr =	new TSTool_TS_CellRenderer(	(TSTool_TS_TableModel)__query_TableModel);
 	
-				__query_JWorksheet.setCellRenderer ( cr );
+				queryResultsList_SetCellRenderer ( cr );
 				__query_JWorksheet.setModel(__query_TableModel);
 				// Turn off columns in the table model that do not apply...
 				__query_JWorksheet.removeColumn (((TSTool_TS_TableModel)__query_TableModel).COL_ALIAS );
@@ -17423,7 +18254,7 @@ throws IOException
             __query_TableModel = new TSTool_TS_TableModel ( tslist );
             TSTool_TS_CellRenderer cr = new TSTool_TS_CellRenderer( (TSTool_TS_TableModel)__query_TableModel);
 
-            __query_JWorksheet.setCellRenderer ( cr );
+            queryResultsList_SetCellRenderer ( cr );
             __query_JWorksheet.setModel ( __query_TableModel );
             // Turn off columns in the table model that do not apply...
             __query_JWorksheet.removeColumn (((TSTool_TS_TableModel)__query_TableModel).COL_ALIAS );
@@ -17624,7 +18455,7 @@ throws Exception
 			    // Use a table model that has columns more specific than the general table model
 	            __query_TableModel = new StateMod_TS_TableModel ( tslist, "XOP" );
                 StateMod_TS_CellRenderer cr = new StateMod_TS_CellRenderer( (StateMod_TS_TableModel)__query_TableModel);
-                __query_JWorksheet.setCellRenderer ( cr );
+                queryResultsList_SetCellRenderer ( cr );
                 __query_JWorksheet.setModel(__query_TableModel);
 			}
 			else {
@@ -17632,7 +18463,7 @@ throws Exception
     			__query_TableModel = new TSTool_TS_TableModel ( tslist);
     			TSTool_TS_CellRenderer cr = new TSTool_TS_CellRenderer(	(TSTool_TS_TableModel)__query_TableModel);
     	
-    			__query_JWorksheet.setCellRenderer ( cr );
+    			queryResultsList_SetCellRenderer ( cr );
     			__query_JWorksheet.setModel(__query_TableModel);
     			// Turn off columns in the table model that do not apply...
     			__query_JWorksheet.removeColumn ( ((TSTool_TS_TableModel)__query_TableModel).COL_ALIAS );
@@ -17684,7 +18515,7 @@ throws IOException
 			__query_TableModel = new TSTool_TS_TableModel ( tslist );
 			TSTool_TS_CellRenderer cr =	new TSTool_TS_CellRenderer(	(TSTool_TS_TableModel)__query_TableModel);
 
-			__query_JWorksheet.setCellRenderer ( cr );
+			queryResultsList_SetCellRenderer ( cr );
 			__query_JWorksheet.setModel ( __query_TableModel );
 			// Turn off columns in the table model that do not apply...
 			__query_JWorksheet.removeColumn (((TSTool_TS_TableModel)__query_TableModel).COL_ALIAS );
@@ -17720,7 +18551,6 @@ Read USGS NWIS daily values web service time series and list in the GUI.
 */
 private void uiAction_GetTimeSeriesListClicked_ReadUsgsNwisDailyHeaders()
 {   String rtn = "TSTool_JFrame.uiAction_GetTimeSeriesListClicked_ReadUsgsNwisDailyHeaders";
-    JGUIUtil.setWaitCursor ( this, true );
     Message.printStatus ( 1, rtn, "Please wait... retrieving data");
 
     DataStore dataStore = ui_GetSelectedDataStore ();
@@ -17733,51 +18563,40 @@ private void uiAction_GetTimeSeriesListClicked_ReadUsgsNwisDailyHeaders()
         String timeStep = ui_GetSelectedTimeStep();
         if ( timeStep == null ) {
             Message.printWarning ( 1, rtn, "No time series are available for timestep." );
-            JGUIUtil.setWaitCursor ( this, false );
             return;
         }
-        else {
-            timeStep = timeStep.trim();
-        }
+        final String selectedTimeStep = timeStep.trim();
+        final InputFilter_JPanel filterPanel = __selectedInputFilter_JPanel;
 
-        List<UsgsNwisSiteTimeSeriesMetadata> results = null;
         // Data type is shown with name so only use the first part of the choice
-        try {
-            results = usgsNwisDailyDataStore.readSiteTimeSeriesMetadataList(dataType, timeStep, __selectedInputFilter_JPanel);
-        }
-        catch ( Exception e ) {
-            Message.printWarning(1, rtn, "Error getting time series list from USGS NWIS (" + e + ").");
-            Message.printWarning(3, rtn, e );
-            results = null;
-        }
-
-        int size = 0;
-        if ( results != null ) {
-            size = results.size();
-            // TODO Does not work??
-            //__query_TableModel.setNewData ( results );
-            // Try brute force...
-            __query_TableModel = new TSTool_UsgsNwisDaily_TableModel ( usgsNwisDailyDataStore, results );
-            TSTool_UsgsNwisDaily_CellRenderer cr =
-                new TSTool_UsgsNwisDaily_CellRenderer( (TSTool_UsgsNwisDaily_TableModel)__query_TableModel);
-
-            __query_JWorksheet.setCellRenderer ( cr );
-            __query_JWorksheet.setModel ( __query_TableModel );
-            __query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
-        }
-        if ( (results == null) || (size == 0) ) {
-            Message.printStatus ( 1, rtn, "Query complete.  No records returned." );
-        }
-        else {
-            Message.printStatus ( 1, rtn, "Query complete. " + size + " records returned." );
-        }
-        ui_UpdateStatus ( false );
-        JGUIUtil.setWaitCursor ( this, false );
+        uiAction_GetTimeSeriesListClicked_ReadInBackground ( rtn,
+            () -> usgsNwisDailyDataStore.readSiteTimeSeriesMetadataList(dataType, selectedTimeStep, filterPanel),
+            (List<UsgsNwisSiteTimeSeriesMetadata> results) -> {
+                int size = 0;
+                if ( results != null ) {
+                    size = results.size();
+                    // TODO Does not work??
+                    //__query_TableModel.setNewData ( results );
+                    // Try brute force...
+                    __query_TableModel = new TSTool_UsgsNwisDaily_TableModel ( usgsNwisDailyDataStore, results );
+                    TSTool_UsgsNwisDaily_CellRenderer cr =
+                        new TSTool_UsgsNwisDaily_CellRenderer( (TSTool_UsgsNwisDaily_TableModel)__query_TableModel);
+
+                    queryResultsList_SetCellRenderer ( cr );
+                    __query_JWorksheet.setModel ( __query_TableModel );
+                    __query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
+                }
+                if ( (results == null) || (size == 0) ) {
+                    Message.printStatus ( 1, rtn, "Query complete.  No records returned." );
+                }
+                else {
+                    Message.printStatus ( 1, rtn, "Query complete. " + size + " records returned." );
+                }
+            });
     }
     catch ( Exception e ) {
-        // Messages elsewhere but catch so we can get the cursor back...
+        // Messages elsewhere
         Message.printWarning ( 3, rtn, e );
-        JGUIUtil.setWaitCursor ( this, false );
     }
 }
 
@@ -17786,7 +18605,6 @@ Read USGS NWIS groundwater web service time series and list in the GUI.
 */
 private void uiAction_GetTimeSeriesListClicked_ReadUsgsNwisGroundwaterHeaders()
 {   String rtn = "TSTool_JFrame.uiAction_GetTimeSeriesListClicked_ReadUsgsNwisGroundwaterHeaders";
-    JGUIUtil.setWaitCursor ( this, true );
     Message.printStatus ( 1, rtn, "Please wait... retrieving data");
 
     DataStore dataStore = ui_GetSelectedDataStore ();
@@ -17799,51 +18617,40 @@ private void uiAction_GetTimeSeriesListClicked_ReadUsgsNwisGroundwaterHeaders()
         String timeStep = ui_GetSelectedTimeStep();
         if ( timeStep == null ) {
             Message.printWarning ( 1, rtn, "No time series are available for timestep." );
-            JGUIUtil.setWaitCursor ( this, false );
             return;
         }
-        else {
-            timeStep = timeStep.trim();
-        }
+        final String selectedTimeStep = timeStep.trim();
+        final InputFilter_JPanel filterPanel = __selectedInputFilter_JPanel;
 
-        List<UsgsNwisSiteTimeSeriesMetadata> results = null;
         // Data type is shown with name so only use the first part of the choice
-        try {
-            results = usgsNwisGroundwaterDataStore.readSiteTimeSeriesMetadataList(dataType, timeStep, __selectedInputFilter_JPanel);
-        }
-        catch ( Exception e ) {
-            Message.printWarning(1, rtn, "Error getting time series list from USGS NWIS groundwater (" + e + ").");
-            Message.printWarning(3, rtn, e );
-            results = null;
-        }
-
-        int size = 0;
-        if ( results != null ) {
-            size = results.size();
-            // TODO Does not work??
-            //__query_TableModel.setNewData ( results );
-            // Try brute force...
-            __query_TableModel = new TSTool_UsgsNwisGroundwater_TableModel ( usgsNwisGroundwaterDataStore, results );
-            TSTool_UsgsNwisGroundwater_CellRenderer cr =
-                new TSTool_UsgsNwisGroundwater_CellRenderer( (TSTool_UsgsNwisGroundwater_TableModel)__query_TableModel);
-
-            __query_JWorksheet.setCellRenderer ( cr );
-            __query_JWorksheet.setModel ( __query_TableModel );
-            __query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
-        }
-        if ( (results == null) || (size == 0) ) {
-            Message.printStatus ( 1, rtn, "Query complete.  No records returned." );
-        }
-        else {
-            Message.printStatus ( 1, rtn, "Query complete. " + size + " records returned." );
-        }
-        ui_UpdateStatus ( false );
-        JGUIUtil.setWaitCursor ( this, false );
+        uiAction_GetTimeSeriesListClicked_ReadInBackground ( rtn,
+            () -> usgsNwisGroundwaterDataStore.readSiteTimeSeriesMetadataList(dataType, selectedTimeStep, filterPanel),
+            (List<UsgsNwisSiteTimeSeriesMetadata> results) -> {
+                int size = 0;
+                if ( results != null ) {
+                    size = results.size();
+                    // TODO Does not work??
+                    //__query_TableModel.setNewData ( results );
+                    // Try brute force...
+                    __query_TableModel = new TSTool_UsgsNwisGroundwater_TableModel ( usgsNwisGroundwaterDataStore, results );
+                    TSTool_UsgsNwisGroundwater_CellRenderer cr =
+                        new TSTool_UsgsNwisGroundwater_CellRenderer( (TSTool_UsgsNwisGroundwater_TableModel)__query_TableModel);
+
+                    queryResultsList_SetCellRenderer ( cr );
+                    __query_JWorksheet.setModel ( __query_TableModel );
+                    __query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
+                }
+                if ( (results == null) || (size == 0) ) {
+                    Message.printStatus ( 1, rtn, "Query complete.  No records returned." );
+                }
+                else {
+                    Message.printStatus ( 1, rtn, "Query complete. " + size + " records returned." );
+                }
+            });
     }
     catch ( Exception e ) {
-        // Messages elsewhere but catch so we can get the cursor back...
+        // Messages elsewhere
         Message.printWarning ( 3, rtn, e );
-        JGUIUtil.setWaitCursor ( this, false );
     }
 }
 
@@ -17852,7 +18659,6 @@ Read USGS NWIS instantaneous values web service time series and list in the GUI.
 */
 private void uiAction_GetTimeSeriesListClicked_ReadUsgsNwisInstantaneousHeaders()
 {   String rtn = "TSTool_JFrame.uiAction_GetTimeSeriesListClicked_ReadUsgsNwisInstantaneousHeaders";
-    JGUIUtil.setWaitCursor ( this, true );
     Message.printStatus ( 1, rtn, "Please wait... retrieving data");
 
     DataStore dataStore = ui_GetSelectedDataStore ();
@@ -17865,51 +18671,40 @@ private void uiAction_GetTimeSeriesListClicked_ReadUsgsNwisInstantaneousHeaders(
         String timeStep = ui_GetSelectedTimeStep();
         if ( timeStep == null ) {
             Message.printWarning ( 1, rtn, "No time series are available for timestep." );
-            JGUIUtil.setWaitCursor ( this, false );
             return;
         }
-        else {
-            timeStep = timeStep.trim();
-        }
+        final String selectedTimeStep = timeStep.trim();
+        final InputFilter_JPanel filterPanel = __selectedInputFilter_JPanel;
 
-        List<UsgsNwisSiteTimeSeriesMetadata> results = null;
         // Data type is shown with name so only use the first part of the choice
-        try {
-            results = usgsNwisInstantaneousDataStore.readSiteTimeSeriesMetadataList(dataType, timeStep, __selectedInputFilter_JPanel);
-        }
-        catch ( Exception e ) {
-            Message.printWarning(1, rtn, "Error getting time series list from USGS NWIS (" + e + ").");
-            Message.printWarning(3, rtn, e );
-            results = null;
-        }
-
-        int size = 0;
-        if ( results != null ) {
-            size = results.size();
-            // TODO Does not work??
-            //__query_TableModel.setNewData ( results );
-            // Try brute force...
-            __query_TableModel = new TSTool_UsgsNwisInstantaneous_TableModel ( usgsNwisInstantaneousDataStore, results );
-            TSTool_UsgsNwisInstantaneous_CellRenderer cr =
-                new TSTool_UsgsNwisInstantaneous_CellRenderer( (TSTool_UsgsNwisInstantaneous_TableModel)__query_TableModel);
-
-            __query_JWorksheet.setCellRenderer ( cr );
-            __query_JWorksheet.setModel ( __query_TableModel );
-            __query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
-        }
-        if ( (results == null) || (size == 0) ) {
-            Message.printStatus ( 1, rtn, "Query complete.  No records returned." );
-        }
-        else {
-            Message.printStatus ( 1, rtn, "Query complete. " + size + " records returned." );
-        }
-        ui_UpdateStatus ( false );
-        JGUIUtil.setWaitCursor ( this, false );
+        uiAction_GetTimeSeriesListClicked_ReadInBackground ( rtn,
+            () -> usgsNwisInstantaneousDataStore.readSiteTimeSeriesMetadataList(dataType, selectedTimeStep, filterPanel),
+            (List<UsgsNwisSiteTimeSeriesMetadata> results) -> {
+                int size = 0;
+                if ( results != null ) {
+                    size = results.size();
+                    // TODO Does not work??
+                    //__query_TableModel.setNewData ( results );
+                    // Try brute force...
+                    __query_TableModel = new TSTool_UsgsNwisInstantaneous_TableModel ( usgsNwisInstantaneousDataStore, results );
+                    TSTool_UsgsNwisInstantaneous_CellRenderer cr =
+                        new TSTool_UsgsNwisInstantaneous_CellRenderer( (TSTool_UsgsNwisInstantaneous_TableModel)__query_TableModel);
+
+                    queryResultsList_SetCellRenderer ( cr );
+                    __query_JWorksheet.setModel ( __query_TableModel );
+                    __query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
+                }
+                if ( (results == null) || (size == 0) ) {
+                    Message.printStatus ( 1, rtn, "Query complete.  No records returned." );
+                }
+                else {
+                    Message.printStatus ( 1, rtn, "Query complete. " + size + " records returned." );
+                }
+            });
     }
     catch ( Exception e ) {
-        // Messages elsewhere but catch so we can get the cursor back...
+        // Messages elsewhere
         Message.printWarning ( 3, rtn, e );
-        JGUIUtil.setWaitCursor ( this, false );
     }
 }
 
@@ -17946,7 +18741,7 @@ throws IOException
 		__query_TableModel = new TSTool_TS_TableModel ( tslist );
 		TSTool_TS_CellRenderer cr = new TSTool_TS_CellRenderer(	(TSTool_TS_TableModel)__query_TableModel);
 
-		__query_JWorksheet.setCellRenderer ( cr );
+		queryResultsList_SetCellRenderer ( cr );
 		__query_JWorksheet.setModel ( __query_TableModel );
 		__query_JWorksheet.removeColumn (((TSTool_TS_TableModel)__query_TableModel).COL_ALIAS );
 		__query_JWorksheet.setColumnWidths ( cr.getColumnWidths(), getGraphics() );
@@ -18292,8 +19087,7 @@ private void uiAction_NewCommandFile ()
     // Clear the old results...
     results_Clear();
     ui_UpdateStatusTextFields ( 2, null, null, "Use Commands menu to insert commands", __STATUS_READY );
-    __processor_JProgressBar.setValue ( 0 );
-    __command_JProgressBar.setValue ( 0 );
+    __progress.reset();
 }
 
 /**
@@ -18928,6 +19722,11 @@ be viewed.  The former is suitable for batch files, both for the GUI.
 */
 private void uiAction_RunCommands ( boolean runAllCommands, boolean createOutput )
 {	String routine = "TSTool_JFrame.uiAction_RunCommands";
+	if ( __timeSeriesListReadsRunning > 0 ) {
+		// The read may be using the same database connection as the commands
+		Message.printWarning ( 1, routine, "Cannot run commands while the time series list is being read." );
+		return;
+	}
 	ui_UpdateStatusTextFields ( 1, routine, null, "Running commands...", __STATUS_BUSY);
 	results_Clear ();
 	System.gc();
@@ -18957,6 +19756,8 @@ private void uiAction_RunCommands_ShowResults()
             // layers of recursion can occur when running a command file)...
             TSCommandProcessorUtil.closeRegressionTestReportFile();
 			results_Clear();
+            // Read the processor results once for all of the results lists
+            __processorResults = TSToolProcessorResults.getSnapshot ( __tsProcessor );
             uiAction_RunCommands_ShowResultsEnsembles();
             uiAction_RunCommands_ShowResultsOutputFiles();
             uiAction_RunCommands_ShowResultsNetworks();
@@ -19205,97 +20006,37 @@ private void uiAction_RunCommands_ShowResultsTimeSeries ()
 {	String routine = "TSTool_JFrame.uiAction_RunCommands_ShowResultsTimeSeries";
 	//Message.printStatus ( 2, "uiAction_RunCommands_ShowResultsTimeSeries", "Entering method.");
 
-	// Fill the time series list with the descriptions of the in-memory time series...
-	int size = commandProcessor_GetTimeSeriesResultsListSize();
+	// Fill the time series list with the in-memory time series.
+	// The list is copied from the processor once and labels are formatted only for the rows that are shown.
+	List<TS> tslist = commandProcessor_GetTimeSeriesResultsList();
+	int size = (tslist == null) ? 0 : tslist.size();
 	Message.printStatus ( 2, routine, "Adding " + size + " time series to results." );
-	TS ts = null;
-	String desc = null;
-	String alias = null;
-	DateTime date1, date2;
-	boolean [] selected_boolean = new boolean[size];   // Size to results list
-	// HTML brackets to deal with data issues - is red OK or is that a problem for people that are color-blind?
-	String htmlStart = "<html><span style=\"color:red;font-weight:bold\">", htmlStart2;
-	String htmlEnd = "</span></html>", htmlEnd2;
-	for ( int i = 0; i < size; i++ ) {
-		selected_boolean[i] = false;
-		try {
-            ts = commandProcessor_GetTimeSeries(i);
-		}
-		catch ( Exception e ) {
-			results_TimeSeries_AddTimeSeriesToResults ( htmlStart + (i + 1) +
-			    ") - Error getting time series from processor." + htmlEnd );
-			Message.printWarning ( 3, routine, e );
-			continue;
-		}
-		if ( ts == null ) {
-			results_TimeSeries_AddTimeSeriesToResults ( htmlStart + (i + 1) +
-			    ") - Null time series from processor." + htmlEnd );
-			continue;
-		}
-		else {
-			// Have actual data to display...
-			desc = ts.getDescription();
-			alias = ts.getAlias();
-			if ( !alias.equals("") ) {
-				alias = alias + " - ";
-			}
-			if ( (desc == null) || (desc.length() == 0) ) {
-				desc = ts.getIdentifier().getLocation();
-			}
-			date1 = ts.getDate1();
-			date2 = ts.getDate2();
-			String dateString = null;
-			htmlStart2 = "";
-			htmlEnd2 = "";
-			if ( (date1 == null) || (date2 == null) ) {
-			    dateString = " (NO DATA)";
-			    htmlStart2 = htmlStart;
-			    htmlEnd2 = htmlEnd;
-			}
-			else if ( !ts.hasData() ) {
-			    dateString = " (" + ts.getDate1() + " to " + ts.getDate2() + " NO DATA)";
-	            htmlStart2 = htmlStart;
-	            htmlEnd2 = htmlEnd;
-			}
-			else {
-			    dateString = " (" + ts.getDate1() + " to " + ts.getDate2() + ")";
-			}
-			results_TimeSeries_AddTimeSeriesToResults ( htmlStart2 + (i + 1) + ") " + alias +
-			    desc + " - " + ts.getIdentifier() +	dateString + htmlEnd2 );
-			// Determine whether the time series was programmatically selected in the commands...
-			selected_boolean[i] = ts.isSelected();
-		}
-	}
+	__resultsTS_JListModel.setTimeSeriesList ( tslist );
+	results_TimeSeries_SetCellSize ();
 	// If no time series are selected programatically, then visually select all.
-	// If any are selected, then visually select only the ones that are
-	// selected.  First determine the number that have been selected programatically.
-	int num_selected = 0;
-	for ( int i = 0; i < size; i++ ) {
-		if ( selected_boolean[i] ) {
-			++num_selected;
-		}
-	}
-	// Now create the list of indices to use for visually selecting...
-	int [] selected = null;
-	if ( num_selected == 0 ) {
-		// All need to be selected in output
-		selected = new int[size];	// Whether visually selected
-		for ( int i = 0; i < size; i++ ) {
-			selected[i] = i;
-		}
-	}
-	else {
-        // Select the time series of interest.
-		selected = new int[num_selected];	// Whether visually selected
-		int selectedCount = 0;
-		for ( int i = 0; i < size; i++ ) {
-			if ( selected_boolean[i] ) {
-				selected[selectedCount++] = i;
+	// If any are selected, then visually select only the ones that are selected.
+	int [] selected = __resultsTS_JListModel.getSelectedIndices();
+	// Now actually select the time series in the visual output, as ranges of consecutive positions
+	// and ignoring the events for each range, because ui_UpdateStatus() is called below.
+	ui_SetIgnoreListSelectionEvent ( true );
+	try {
+		ListSelectionModel lsm = __resultsTS_JList.getSelectionModel();
+		lsm.setValueIsAdjusting ( true );
+		lsm.clearSelection();
+		int i = 0;
+		while ( i < selected.length ) {
+			int j = i;
+			while ( ((j + 1) < selected.length) && (selected[j + 1] == (selected[j] + 1)) ) {
+				++j;
 			}
+			lsm.addSelectionInterval ( selected[i], selected[j] );
+			i = j + 1;
 		}
+		lsm.setValueIsAdjusting ( false );
+	}
+	finally {
+		ui_SetIgnoreListSelectionEvent ( false );
 	}
-	// Now actually select the time series in the visual output...
-	__resultsTS_JList.setSelectedIndices ( selected );
 	ui_UpdateStatus ( false );
 	ui_UpdateStatusTextFields ( 1, routine, null, "Completed running commands.  Use Results and Tools menus.",
 			__STATUS_READY );
@@ -19367,7 +20108,7 @@ private void uiAction_RunCommandFile ()
 		ui_SetDir_LastExternalCommandFileRun(directory);
 		// TODO SAM 2007-11-02 Put in thread - but need to figure out how to show completion.
 		try {
-			TSCommandFileRunner runner = new TSCommandFileRunner(
+			TSCommandFileRunner runner = new TSToolCommandFileRunner(
 				this.__tsProcessor.getInitialPropList(),
 				this.__tsProcessor.getPluginCommandClasses());
 			JGUIUtil.setWaitCursor ( this, true );
@@ -19532,7 +20273,7 @@ throws Exception
     ColoradoHydroBaseRest_Structure_CellRenderer cr =
         new ColoradoHydroBaseRest_Structure_CellRenderer(
             (ColoradoHydroBaseRest_Structure_TableModel)__query_TableModel);
-    __query_JWorksheet.setCellRenderer ( cr );
+    queryResultsList_SetCellRenderer ( cr );
     __query_JWorksheet.setModel ( __query_TableModel );
     // Remove columns that are not appropriate...
     __query_JWorksheet.setColumnWidths ( cr.getColumnWidths() );
@@ -19584,7 +20325,7 @@ throws Exception
     __query_TableModel = new GenericDatabaseDataStore_TS_TableModel( null, ds );
     GenericDatabaseDataStore_TS_CellRenderer cr =
         new GenericDatabaseDataStore_TS_CellRenderer((GenericDatabaseDataStore_TS_TableModel)__query_TableModel);
-    __query_JWorksheet.setCellRenderer ( cr );
+    queryResultsList_SetCellRenderer ( cr );
     __query_JWorksheet.setModel ( __query_TableModel );
     __query_JWorksheet.setColumnWidths ( cr.getColumnWidths() );
 }
@@ -19628,7 +20369,7 @@ private void uiAction_SelectDataStore_HydroBase ( HydroBaseDataStore selectedDat
         TSTool_HydroBase_StationGeolocMeasType_CellRenderer cr =
             new TSTool_HydroBase_StationGeolocMeasType_CellRenderer(
                 (TSTool_HydroBase_StationGeolocMeasType_TableModel)__query_TableModel);
-        __query_JWorksheet.setCellRenderer ( cr );
+        queryResultsList_SetCellRenderer ( cr );
         __query_JWorksheet.setModel ( __query_TableModel );
         __query_JWorksheet.setColumnWidths (cr.getColumnWidths() );
     }
@@ -19687,7 +20428,7 @@ throws Exception
     List<Object> emptyData = new ArrayList<Object>();
     __query_TableModel = pds.getTimeSeriesListTableModel(emptyData);
     JWorksheet_AbstractExcelCellRenderer cr = pds.getTimeSeriesListCellRenderer(__query_TableModel);
-    __query_JWorksheet.setCellRenderer ( cr );
+    queryResultsList_SetCellRenderer ( cr );
     __query_JWorksheet.setModel ( __query_TableModel );
     __query_JWorksheet.setColumnWidths ( cr.getColumnWidths() );
 }
@@ -19713,7 +20454,7 @@ throws Exception
     // Initialize the time series list with blank data list...
     __query_TableModel = new TSTool_RccAcis_TableModel( dataStore, null);
     TSTool_RccAcis_CellRenderer cr = new TSTool_RccAcis_CellRenderer((TSTool_RccAcis_TableModel)__query_TableModel);
-    __query_JWorksheet.setCellRenderer ( cr );
+    queryResultsList_SetCellRenderer ( cr );
     __query_JWorksheet.setModel ( __query_TableModel );
     __query_JWorksheet.setColumnWidths ( cr.getColumnWidths() );
 }
@@ -19762,7 +20503,7 @@ throws Exception
     __query_TableModel = new TSTool_ReclamationHDB_TableModel( ds, null);
     TSTool_ReclamationHDB_CellRenderer cr =
         new TSTool_ReclamationHDB_CellRenderer((TSTool_ReclamationHDB_TableModel)__query_TableModel);
-    __query_JWorksheet.setCellRenderer ( cr );
+    queryResultsList_SetCellRenderer ( cr );
     __query_JWorksheet.setModel ( __query_TableModel );
     __query_JWorksheet.setColumnWidths ( cr.getColumnWidths() );
 }
@@ -19808,7 +20549,7 @@ throws Exception
     __query_TableModel = new TSTool_ReclamationPisces_TableModel( ds, null);
     TSTool_ReclamationPisces_CellRenderer cr =
         new TSTool_ReclamationPisces_CellRenderer((TSTool_ReclamationPisces_TableModel)__query_TableModel);
-    __query_JWorksheet.setCellRenderer ( cr );
+    queryResultsList_SetCellRenderer ( cr );
     __query_JWorksheet.setModel ( __query_TableModel );
     __query_JWorksheet.setColumnWidths ( cr.getColumnWidths() );
 }
@@ -19834,7 +20575,7 @@ throws Exception
     // Initialize the time series list with blank data list...
     __query_TableModel = new TSTool_UsgsNwisDaily_TableModel( dataStore, null);
     TSTool_UsgsNwisDaily_CellRenderer cr = new TSTool_UsgsNwisDaily_CellRenderer((TSTool_UsgsNwisDaily_TableModel)__query_TableModel);
-    __query_JWorksheet.setCellRenderer ( cr );
+    queryResultsList_SetCellRenderer ( cr );
     __query_JWorksheet.setModel ( __query_TableModel );
     __query_JWorksheet.setColumnWidths ( cr.getColumnWidths() );
 }
@@ -19860,7 +20601,7 @@ throws Exception
     // Initialize the time series list with blank data list...
     __query_TableModel = new TSTool_UsgsNwisGroundwater_TableModel( dataStore, null);
     TSTool_UsgsNwisGroundwater_CellRenderer cr = new TSTool_UsgsNwisGroundwater_CellRenderer((TSTool_UsgsNwisGroundwater_TableModel)__query_TableModel);
-    __query_JWorksheet.setCellRenderer ( cr );
+    queryResultsList_SetCellRenderer ( cr );
     __query_JWorksheet.setModel ( __query_TableModel );
     __query_JWorksheet.setColumnWidths ( cr.getColumnWidths() );
 }
@@ -19886,7 +20627,7 @@ throws Exception
     // Initialize the time series list with blank data list...
     __query_TableModel = new TSTool_UsgsNwisInstantaneous_TableModel( dataStore, null);
     TSTool_UsgsNwisInstantaneous_CellRenderer cr = new TSTool_UsgsNwisInstantaneous_CellRenderer((TSTool_UsgsNwisInstantaneous_TableModel)__query_TableModel);
-    __query_JWorksheet.setCellRenderer ( cr );
+    queryResultsList_SetCellRenderer ( cr );
     __query_JWorksheet.setModel ( __query_TableModel );
     __query_JWorksheet.setColumnWidths ( cr.getColumnWidths() );
 }
@@ -20005,7 +20746,7 @@ throws Exception
 
     __query_TableModel = new TSTool_HecDss_TableModel(null);
     TSTool_HecDss_CellRenderer cr = new TSTool_HecDss_CellRenderer((TSTool_HecDss_TableModel)__query_TableModel);
-    __query_JWorksheet.setCellRenderer ( cr );
+    queryResultsList_SetCellRenderer ( cr );
     __query_JWorksheet.setModel ( __query_TableModel );
     // Turn off columns in the table model that do not apply...
     __query_JWorksheet.removeColumn (((TSTool_HecDss_TableModel)__query_TableModel).COL_SEQUENCE);
@@ -20120,7 +20861,7 @@ throws Exception
 
     __query_TableModel = new TSTool_TS_TableModel(null);
     TSTool_TS_CellRenderer cr = new TSTool_TS_CellRenderer( (TSTool_TS_TableModel)__query_TableModel);
-    __query_JWorksheet.setCellRenderer ( cr );
+    queryResultsList_SetCellRenderer ( cr );
     __query_JWorksheet.setModel ( __query_TableModel );
     // Turn off columns in the table model that do not apply...
     __query_JWorksheet.removeColumn (((TSTool_TS_TableModel)__query_TableModel).COL_ALIAS );
@@ -20151,7 +20892,7 @@ throws Exception
     // TODO Seems to be null at startup?
     if ( __query_JWorksheet != null ) {
         try {
-            __query_JWorksheet.setCellRenderer ( cr );
+            queryResultsList_SetCellRenderer ( cr );
             __query_JWorksheet.setModel ( __query_TableModel );
             __query_JWorksheet.setColumnWidths ( cr.getColumnWidths() );
         }
@@ -20267,7 +21008,7 @@ throws Exception
 
     __query_TableModel = new TSTool_HecDss_TableModel ( null, true );
     TSTool_HecDss_CellRenderer cr = new TSTool_HecDss_CellRenderer( (TSTool_HecDss_TableModel)__query_TableModel);
-    __query_JWorksheet.setCellRenderer ( cr );
+    queryResultsList_SetCellRenderer ( cr );
     __query_JWorksheet.setModel ( __query_TableModel );
     __query_JWorksheet.setColumnWidths ( cr.getColumnWidths() );
 }
@@ -20311,7 +21052,7 @@ private void uiAction_SelectInputType_HydroBase ()
         TSTool_HydroBase_StationGeolocMeasType_CellRenderer cr =
             new TSTool_HydroBase_StationGeolocMeasType_CellRenderer(
                 (TSTool_HydroBase_StationGeolocMeasType_TableModel)__query_TableModel);
-        __query_JWorksheet.setCellRenderer ( cr );
+        queryResultsList_SetCellRenderer ( cr );
         __query_JWorksheet.setModel ( __query_TableModel );
         __query_JWorksheet.setColumnWidths (cr.getColumnWidths() );
     }
@@ -20340,7 +21081,7 @@ throws Exception
 
     __query_TableModel = new TSTool_TS_TableModel(null);
     TSTool_TS_CellRenderer cr = new TSTool_TS_CellRenderer((TSTool_TS_TableModel)__query_TableModel);
-    __query_JWorksheet.setCellRenderer ( cr );
+    queryResultsList_SetCellRenderer ( cr );
     __query_JWorksheet.setModel ( __query_TableModel );
     // Remove columns that are not appropriate...
     __query_JWorksheet.removeColumn ( ((TSTool_TS_TableModel)__query_TableModel).COL_SEQUENCE );
@@ -20366,7 +21107,7 @@ throws Exception
 
     __query_TableModel = new TSTool_TS_TableModel(null);
     TSTool_TS_CellRenderer cr = new TSTool_TS_CellRenderer( (TSTool_TS_TableModel)__query_TableModel);
-    __query_JWorksheet.setCellRenderer ( cr );
+    queryResultsList_SetCellRenderer ( cr );
     __query_JWorksheet.setModel ( __query_TableModel );
     // Remove columns that are not appropriate...
     __query_JWorksheet.removeColumn ( ((TSTool_TS_TableModel)__query_TableModel).COL_SEQUENCE );
@@ -20392,7 +21133,7 @@ throws Exception
 
     __query_TableModel = new TSTool_TS_TableModel ( null, true );
     TSTool_TS_CellRenderer cr = new TSTool_TS_CellRenderer( (TSTool_TS_TableModel)__query_TableModel);
-    __query_JWorksheet.setCellRenderer ( cr );
+    queryResultsList_SetCellRenderer ( cr );
     __query_JWorksheet.setModel ( __query_TableModel );
     __query_JWorksheet.setColumnWidths ( cr.getColumnWidths() );
 }
@@ -20469,7 +21210,7 @@ throws Exception
 
     __query_TableModel = new TSTool_TS_TableModel(null);
     TSTool_TS_CellRenderer cr = new TSTool_TS_CellRenderer( (TSTool_TS_TableModel)__query_TableModel);
-    __query_JWorksheet.setCellRenderer ( cr );
+    queryResultsList_SetCellRenderer ( cr );
     __query_JWorksheet.setModel ( __query_TableModel );
     // Remove columns that are not appropriate...
     __query_JWorksheet.removeColumn ( ((TSTool_TS_TableModel)__query_TableModel).COL_SEQUENCE );
@@ -20495,7 +21236,7 @@ throws Exception
 
     __query_TableModel = new TSTool_TS_TableModel(null);
     TSTool_TS_CellRenderer cr = new TSTool_TS_CellRenderer( (TSTool_TS_TableModel)__query_TableModel);
-    __query_JWorksheet.setCellRenderer ( cr );
+    queryResultsList_SetCellRenderer ( cr );
     __query_JWorksheet.setModel ( __query_TableModel );
     // Remove columns that are not appropriate...
     __query_JWorksheet.removeColumn ( ((TSTool_TS_TableModel)__query_TableModel).COL_SEQUENCE );
@@ -20633,7 +21374,7 @@ throws Exception
 
 	__query_TableModel = new TSTool_TS_TableModel(null);
 	TSTool_TS_CellRenderer cr = new TSTool_TS_CellRenderer((TSTool_TS_TableModel)__query_TableModel);
-	__query_JWorksheet.setCellRenderer ( cr );
+	queryResultsList_SetCellRenderer ( cr );
 	__query_JWorksheet.setModel ( __query_TableModel );
 	// Turn off columns in the table model that do not apply...
 	__query_JWorksheet.removeColumn (((TSTool_TS_TableModel)__query_TableModel).COL_ALIAS );
@@ -20777,7 +21518,7 @@ throws Exception
 
     __query_TableModel = new TSTool_TS_TableModel(null);
     TSTool_TS_CellRenderer cr = new TSTool_TS_CellRenderer((TSTool_TS_TableModel)__query_TableModel);
-    __query_JWorksheet.setCellRenderer ( cr );
+    queryResultsList_SetCellRenderer ( cr );
     __query_JWorksheet.setModel ( __query_TableModel );
     // Turn off columns in the table model that do not apply...
     __query_JWorksheet.removeColumn (((TSTool_TS_TableModel)__query_TableModel).COL_ALIAS );
@@ -20807,7 +21548,7 @@ throws Exception
     // The table model will be reset when actual data are read, for example, if an XOP file is picked.
     __query_TableModel = new TSTool_TS_TableModel(null);
     TSTool_TS_CellRenderer cr = new TSTool_TS_CellRenderer( (TSTool_TS_TableModel)__query_TableModel);
-    __query_JWorksheet.setCellRenderer ( cr );
+    queryResultsList_SetCellRenderer ( cr );
     __query_JWorksheet.setModel ( __query_TableModel );
     // Turn off columns in the table model that do not apply...
     __query_JWorksheet.removeColumn (((TSTool_TS_TableModel)__query_TableModel).COL_ALIAS );
@@ -20978,7 +21719,7 @@ throws Exception
 
 	__query_TableModel = new TSTool_TS_TableModel(null);
 	TSTool_TS_CellRenderer cr = new TSTool_TS_CellRenderer((TSTool_TS_TableModel)__query_TableModel);
-	__query_JWorksheet.setCellRenderer ( cr );
+	queryResultsList_SetCellRenderer ( cr );
 	__query_JWorksheet.setModel ( __query_TableModel );
 	// Turn off columns in the table model that do not apply...
 	__query_JWorksheet.removeColumn (((TSTool_TS_TableModel)__query_TableModel).COL_ALIAS );
@@ -21006,7 +21747,7 @@ throws Exception
 
     __query_TableModel = new TSTool_TS_TableModel(null);
     TSTool_TS_CellRenderer cr = new TSTool_TS_CellRenderer((TSTool_TS_TableModel)__query_TableModel);
-    __query_JWorksheet.setCellRenderer ( cr );
+    queryResultsList_SetCellRenderer ( cr );
     __query_JWorksheet.setModel ( __query_TableModel );
     // Turn off columns in the table model that do not apply...
     __query_JWorksheet.removeColumn (((TSTool_TS_TableModel)__query_TableModel).COL_ALIAS );
@@ -21310,7 +22051,7 @@ Show the datastores.
 private void uiAction_ShowDataStores ()
 {
     try {
-        new DataStores_JFrame ( "Datastores", this, __tsProcessor.getDataStores(), this.datastoreSubstituteMap );
+        new DataStores_JFrame ( "Datastores", this, ui_GetDataStores(), this.datastoreSubstituteMap );
     }
     catch ( Exception e ) {
 		String routine = getClass().getSimpleName() + "uiAction_ShowDataStores";
@@ -22458,24 +23199,20 @@ private void uiAction_TransferAllQueryResultsToCommandList()
 	int nrows = __query_TableModel.getRowCount();
 	Message.printStatus ( 1, routine, "Transferring all time series to commands (" + nrows + " in list)..." );
 	JGUIUtil.setWaitCursor ( this, true );
-	int iend = nrows - 1;
 	ui_SetIgnoreListSelectionEvent ( true ); // To increase performance during transfer...
 	ui_SetIgnoreItemEvent ( true );	// To increase performance
-	int numInserted = 0;
+	int [] rows = new int[nrows];
 	for ( int i = 0; i < nrows; i++ ) {
-		// Only force the GUI state to be updated if the last item.
-		if ( i == iend ) {
-			ui_SetIgnoreListSelectionEvent ( false );
-			__ignoreItemEvent = false;
-			numInserted += queryResultsList_TransferOneTSFromQueryResultsListToCommandList ( i, true, numInserted );
-		}
-		else {
-		    numInserted += queryResultsList_TransferOneTSFromQueryResultsListToCommandList ( i, false, numInserted );
-		}
+		rows[i] = i;
+	}
+	try {
+		queryResultsList_TransferRowsFromQueryResultsListToCommandList ( rows );
+	}
+	finally {
+		ui_SetIgnoreListSelectionEvent ( false );
+		ui_SetIgnoreItemEvent ( false );
+		JGUIUtil.setWaitCursor ( this, false );
 	}
-	ui_SetIgnoreListSelectionEvent ( false );
-	ui_SetIgnoreItemEvent ( false );
-	JGUIUtil.setWaitCursor ( this, false );
 
 	Message.printStatus ( 1, routine, "Selected all time series." );
 }
@@ -22489,17 +23226,19 @@ private void uiAction_TransferSelectedQueryResultsToCommandList ()
 	int nrows = __query_JWorksheet.getSelectedRowCount();
 	Message.printStatus ( 1, routine, "Transferring selected time series to commands (" + nrows + " in list)..." );
 	int [] selected = __query_JWorksheet.getSelectedRows();
-	int iend = nrows - 1;
-	int numInserted = 0;
-	for ( int i = 0; i < nrows; i++ ) {
-		// Only update the GUI state if transferring the last command...
-		if ( i == iend ) {
-			numInserted += queryResultsList_TransferOneTSFromQueryResultsListToCommandList (
-			    selected[i], true, numInserted ); 
+	if ( nrows == 1 ) {
+		// Transfer one time series the same as a double-click
+		queryResultsList_TransferOneTSFromQueryResultsListToCommandList ( selected[0], true, 0 );
+	}
+	else if ( nrows > 1 ) {
+		JGUIUtil.setWaitCursor ( this, true );
+		ui_SetIgnoreListSelectionEvent ( true ); // To increase performance during transfer...
+		try {
+			queryResultsList_TransferRowsFromQueryResultsListToCommandList ( selected );
 		}
-		else {
-		    numInserted += queryResultsList_TransferOneTSFromQueryResultsListToCommandList (
-		        selected[i], false, numInserted ); 
+		finally {
+			ui_SetIgnoreListSelectionEvent ( false );
+			JGUIUtil.setWaitCursor ( this, false );
 		}
 	}
 	Message.printStatus ( 1, routine, "Transferred selected time series." );
@@ -22847,6 +23586,29 @@ public void worksheetSetRowCount ( int count )
 {
 }
 
+/**
+Query results table model and cell renderer, saved in the query results cache.
+*/
+private static class QueryResults
+{
+	private JWorksheet_AbstractRowTableModel tableModel;
+	private JWorksheet_DefaultTableCellRenderer cellRenderer;
+
+	private QueryResults ( JWorksheet_AbstractRowTableModel tableModel, JWorksheet_DefaultTableCellRenderer cellRenderer )
+	{
+		this.tableModel = tableModel;
+		this.cellRenderer = cellRenderer;
+	}
+}
+
+/**
+Display a time series list that was read in the background, called on the Swing event dispatch thread.
+*/
+private interface TimeSeriesListDisplayer<T>
+{
+	public void display ( T results ) throws Exception;
+}
+
 /**
 Internal class to handle action events from ensemble results list.
 */
@@ -22919,7 +23681,7 @@ private class ActionListener_ResultsEnsembles implements ActionListener
 	    				// Command file in template is relative to the template folder
 	    				String preprocessCommandFile = IOUtil.verifyPathForOS(
 	    				    IOUtil.toAbsolutePath(userGraphTemplateFile.getParent(),propVal) );
-	    				runner = new TSCommandFileRunner(
+	    				runner = new TSToolCommandFileRunner(
 	    					parent.getProcessor().getInitialPropList(),
 	    					parent.getProcessor().getPluginCommandClasses());
 	    				Message.printStatus(2,"","Preprocess command file for graph template is \"" + preprocessCommandFile + "\"");
@@ -23,12 +23,13 @@ NoticeEnd */
 
 package DWR.DMI.tstool;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
-import java.net.URL;
 import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -37,45 +38,190 @@ import java.util.Map;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 
+import RTi.Util.IO.IOUtil;
+import RTi.Util.Message.Message;
+import rti.tscommandprocessor.core.TSCommandFileRunner;
+
 /**
- * Class to handle a URL request - test mode
- * @author sam
- *
+ * Class to handle a URL request to run a command file, used with the -httpServer command line option.
+ * The request is of the form:
+ * <pre>
+ * /tstool?CommandFile=path/to/commands.tstool&amp;Property1=Value1&amp;Property2=Value2
+ * </pre>
+ * The command file is required and can be relative to the command file folder for the server.
+ * Only command files in the command file folder (or its subfolders) are run, so that a request cannot run
+ * any file on the computer (see TSTool.HttpServerCommandFileFolder in TSToolMain).
+ * Other query parameters are set as processor properties for the run.
+ * The command file is run on a warm processor from the pool, which has datastores already open,
+ * and the response is JSON containing the status, per-command timing, and output files.
+ * The response is not sent until the run is complete, so long runs should instead be submitted
+ * with TSToolJobsHandler (/tstool/jobs).
  */
 public class UrlHandler implements HttpHandler {
+
+	/**
+	 * Query parameter for the command file to run.
+	 */
+	public static final String COMMAND_FILE_PARAMETER = "CommandFile";
+
 	/**
-	 * TODO SAM 2016-02-10 Enable this to a reasonable level:
-	 * - use the body of the URL to determine the command file to run.
-	 * - use the query parameters to set TSCommandProcessor properties
-	 * - similar to batchServer execution
-	 * - enable some way to exit so that Java process does not need to be killed
+	 * Pool of runners used to run command files.
+	 */
+	private TSToolCommandProcessorPool pool = null;
+
+	/**
+	 * Folder containing the command files that can be run, canonical path.
+	 */
+	private File commandFileFolder = null;
+
+	/**
+	 * Maximum number of milliseconds to wait for a runner before responding that the server is busy.
+	 */
+	private long waitMilliseconds = 60000;
+
+	/**
+	 * Constructor.
+	 * @param pool pool of runners used to run command files
+	 * @param commandFileFolder folder containing the command files that can be run (including subfolders)
+	 * @throws IOException if the canonical path for the folder cannot be determined
+	 */
+	public UrlHandler ( TSToolCommandProcessorPool pool, File commandFileFolder ) throws IOException {
+		this.pool = pool;
+		this.commandFileFolder = commandFileFolder.getCanonicalFile();
+	}
+
+	/**
+	 * Handle a request to run a command file.
 	 */
 	public void handle(HttpExchange t) throws IOException {
+		String routine = getClass().getSimpleName() + ".handle";
 		URI uri = t.getRequestURI();
-		String response = "TSTool response for " + uri;
-		// Get query parameters
-		//Map<String,List<String>> parameters = splitQuery(uri.toURL());
-		t.sendResponseHeaders(200,response.length());
-		OutputStream os = t.getResponseBody();
-		os.write(response.getBytes());
-		os.close();
+		Message.printStatus(2, routine, "Request from " + t.getRemoteAddress() + ": " + t.getRequestMethod() + " " + uri );
+		try {
+			if ( !t.getRequestMethod().equalsIgnoreCase("GET") && !t.getRequestMethod().equalsIgnoreCase("POST") ) {
+				sendError(t, 405, "Request method " + t.getRequestMethod() + " is not supported.");
+				return;
+			}
+			// Get query parameters
+			TSToolCommandFileRun run = createCommandFileRun(t, splitQuery(uri), this.commandFileFolder);
+			if ( run == null ) {
+				// Error response was sent
+				return;
+			}
+			TSCommandFileRunner runner = this.pool.acquire(this.waitMilliseconds);
+			if ( runner == null ) {
+				sendError(t, 503, "All " + this.pool.getSize() + " command processors are busy.  Try again later.");
+				return;
+			}
+			try {
+				run.run(runner);
+			}
+			finally {
+				this.pool.release(runner);
+			}
+			sendResponse(t, 200, run.toJSON());
+		}
+		catch ( InterruptedException e ) {
+			sendError(t, 503, "Interrupted waiting for a command processor.");
+		}
+		catch ( Exception e ) {
+			Message.printWarning(3, routine, e);
+			sendError(t, 500, "Error processing request (" + e + ").");
+		}
 	}
 
-	// TODO smalers 2019-06-01 evalaute why not used
 	/**
-	 * Split a URL string into parameters.  Do light-weight without external library.
+	 * Create a command file run from request parameters.
+	 * The CommandFile parameter is required and other parameters are set as processor properties.
+	 * @param t the exchange, used to send an error response if the parameters are invalid
+	 * @param parameters request parameters from splitQuery()
+	 * @param commandFileFolder folder containing the command files that can be run, canonical path
+	 * @return the run, or null if an error response was sent
+	 */
+	static TSToolCommandFileRun createCommandFileRun ( HttpExchange t, Map<String,List<String>> parameters,
+		File commandFileFolder ) throws IOException {
+		List<String> commandFileValues = parameters.remove(COMMAND_FILE_PARAMETER);
+		if ( (commandFileValues == null) || (commandFileValues.get(0) == null) || commandFileValues.get(0).isEmpty() ) {
+			sendError(t, 400, "The " + COMMAND_FILE_PARAMETER + " parameter must be specified.");
+			return null;
+		}
+		// Resolve links and ".." so that the check for the folder cannot be bypassed
+		File commandFile = new File(IOUtil.verifyPathForOS(
+			IOUtil.toAbsolutePath(commandFileFolder.getPath(), commandFileValues.get(0)))).getCanonicalFile();
+		if ( !commandFile.toPath().startsWith(commandFileFolder.toPath()) ) {
+			sendError(t, 403, "Command file \"" + commandFileValues.get(0) + "\" is not in the server command file folder.");
+			return null;
+		}
+		if ( !commandFile.isFile() ) {
+			sendError(t, 404, "Command file \"" + commandFile + "\" does not exist.");
+			return null;
+		}
+		// Remaining parameters are processor properties - use the last value if a property is repeated
+		Map<String,String> processorProperties = new LinkedHashMap<>();
+		for ( Map.Entry<String,List<String>> entry : parameters.entrySet() ) {
+			List<String> values = entry.getValue();
+			String value = values.get(values.size() - 1);
+			processorProperties.put(entry.getKey(), value == null ? "" : value);
+		}
+		return new TSToolCommandFileRun(commandFile, processorProperties);
+	}
+
+	/**
+	 * Send an error response as JSON.
+	 * @param t the exchange
+	 * @param httpStatus HTTP status code
+	 * @param message error message
+	 */
+	static void sendError ( HttpExchange t, int httpStatus, String message ) throws IOException {
+		String routine = UrlHandler.class.getSimpleName() + ".sendError";
+		Message.printWarning(2, routine, message);
+		sendResponse(t, httpStatus, "{\n  \"status\": \"ERROR\",\n  \"message\": " + TSToolCommandFileRun.toJSONString(message) + "\n}\n");
+	}
+
+	/**
+	 * Send a JSON response.
+	 * @param t the exchange
+	 * @param httpStatus HTTP status code
+	 * @param json response body
+	 */
+	static void sendResponse ( HttpExchange t, int httpStatus, String json ) throws IOException {
+		byte [] bytes = json.getBytes(StandardCharsets.UTF_8);
+		t.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+		t.sendResponseHeaders(httpStatus, bytes.length);
+		try ( OutputStream os = t.getResponseBody() ) {
+			os.write(bytes);
+		}
+	}
+
+	/**
+	 * Split a URL query string into parameters.  Do light-weight without external library.
 	 * See:  http://stackoverflow.com/questions/13592236/parse-a-uri-string-into-name-value-collection
-	 * @param url
-	 * @return
+	 * @param uri request URI
+	 * @return map of parameter names and values, in the order specified, empty if no query
 	 * @throws UnsupportedEncodingException
 	 */
-	@SuppressWarnings("unused")
-	private Map<String, List<String>> splitQuery(URL url) throws UnsupportedEncodingException {
+	private Map<String, List<String>> splitQuery(URI uri) throws UnsupportedEncodingException {
+	  return splitQuery(uri.getRawQuery());
+	}
+
+	/**
+	 * Split an encoded query string into parameters, also used for form request bodies.
+	 * @param query encoded query string, can be null
+	 * @return map of parameter names and values, in the order specified, empty if no query
+	 * @throws UnsupportedEncodingException
+	 */
+	static Map<String, List<String>> splitQuery(String query) throws UnsupportedEncodingException {
 	  final Map<String, List<String>> query_pairs = new LinkedHashMap<String, List<String>>();
-	  final String[] pairs = url.getQuery().split("&");
+	  if ( (query == null) || query.isEmpty() ) {
+	    return query_pairs;
+	  }
+	  final String[] pairs = query.split("&");
 	  for (String pair : pairs) {
+	    if ( pair.isEmpty() ) {
+	      continue;
+	    }
 	    final int idx = pair.indexOf("=");
-	    final String key = idx > 0 ? URLDecoder.decode(pair.substring(0, idx), "UTF-8") : pair;
+	    final String key = idx > 0 ? URLDecoder.decode(pair.substring(0, idx), "UTF-8") : URLDecoder.decode(pair, "UTF-8");
 	    if (!query_pairs.containsKey(key)) {
 	      query_pairs.put(key, new LinkedList<String>());
 	    }
@@ -33,6 +33,8 @@ import org.restlet.Router;
 import org.restlet.data.Parameter;
 import org.restlet.data.Protocol;
 
+import rti.tscommandprocessor.core.TSCommandProcessor;
+import RTi.TS.TS;
 import RTi.Util.Message.Message;
 
 /**
@@ -41,11 +43,31 @@ TSTool restlet server application.
 public class TSToolServer extends Application
 {
 
+/**
+Context attribute for the warm processor used to read time series.
+*/
+public static final String PROCESSOR_ATTRIBUTE = "TSCommandProcessor";
+
+/**
+Context attribute for the time series cache.
+*/
+public static final String TIME_SERIES_CACHE_ATTRIBUTE = "TimeSeriesCache";
+
 /**
 The application component, which contains properties for the application.
 */
 private Component __component = null;
 
+/**
+Warm processor with HydroBase and datastores open, used to read time series.
+*/
+private TSCommandProcessor __processor = null;
+
+/**
+Cache of recently read time series.
+*/
+private TimeSeriesCache<TS> __tsCache = null;
+
 /**
 Create a new TSTool restlet server application.
 @param port the port to use for the service (if null use 8182).
@@ -56,6 +78,19 @@ throws Exception
     // Initialization is done in startServer()
 }
 
+/**
+Create a new TSTool restlet server application that reads time series with a warm processor.
+@param processor processor with HydroBase and datastores open, used to read time series
+@param tsCacheSize maximum number of time series to cache
+@param tsCacheMaxAgeSeconds maximum age of a cached time series in seconds (<= 0 for no limit)
+*/
+public TSToolServer ( TSCommandProcessor processor, int tsCacheSize, int tsCacheMaxAgeSeconds )
+throws Exception
+{
+    __processor = processor;
+    __tsCache = new TimeSeriesCache<TS>(tsCacheSize, 1000L*tsCacheMaxAgeSeconds);
+}
+
 /**
 Create the root restlet to receive all calls.
 */
@@ -65,6 +100,11 @@ public Restlet createRoot()
     // Create a router to handle the URIs - the context allows access to system resources initialized
     // from the parent (main) application
     Router router = new Router(getContext());
+    // Resources are created for each request so share the processor and cache through the context
+    if ( __processor != null ) {
+        getContext().getAttributes().put(PROCESSOR_ATTRIBUTE, __processor);
+        getContext().getAttributes().put(TIME_SERIES_CACHE_ATTRIBUTE, __tsCache);
+    }
     // Template that allows using {name} syntax with a data model
     //Template template = null;
     
@@ -96,8 +136,10 @@ public Restlet createRoot()
     template = router.attach("/optional/{id}/{option}", OptionalArgumentResource.class).getTemplate();
     template.getVariables().put("option", new Variable(Variable.TYPE_ALPHA,"",false,false));
     */
+    // Time series data, for example:  /ts/09019500.USGS.Streamflow.Day~UsgsNwisDaily?start=2020-01-01&format=json
+    router.attach("/ts/{tsid}", TimeSeriesResource.class);
     // Fall through to other resources
-    //router.attachDefault(NotFoundResource.class );
+    router.attachDefault(NotFoundResource.class );
     return router;
 }
 
@@ -0,0 +1,124 @@
+// TimeSeriesCache - in-memory least recently used cache of time series read by the server.
+
+/* NoticeStart
+
+TSTool
+TSTool is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+TSTool is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TSTool is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TSTool.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package rti.app.tstoolrestlet;
+
+import DWR.DMI.tstool.TSToolLruCache;
+
+/**
+In-memory least recently used cache of time series read by the server, so that clients that request
+the same time series repeatedly (e.g., dashboards that refresh every few minutes) do not cause a read each time.
+Entries are keyed by TSID and requested period and expire after a maximum age so that new data are read.
+@param <T> type of object that is cached, normally RTi.TS.TS
+*/
+public class TimeSeriesCache<T>
+{
+
+/**
+Cached objects, limited by the number of entries.
+*/
+private final TSToolLruCache<T> cache;
+
+/**
+Create a cache.
+@param maxSize maximum number of time series to cache (must be > 0)
+@param maxAgeMilliseconds maximum age of a cached time series in milliseconds (<= 0 for no limit)
+*/
+public TimeSeriesCache ( int maxSize, long maxAgeMilliseconds )
+{
+	if ( maxSize <= 0 ) {
+		throw new IllegalArgumentException ( "Time series cache size (" + maxSize + ") must be > 0." );
+	}
+	this.cache = new TSToolLruCache<T> ( maxSize, 0, maxAgeMilliseconds );
+}
+
+/**
+Remove all entries from the cache.
+*/
+public void clear ()
+{
+	this.cache.clear();
+}
+
+/**
+Return a cached object.
+@param key key from getKey()
+@param now current time in milliseconds, used to check the age of the entry
+@return the cached object, or null if not cached or expired
+*/
+public T get ( String key, long now )
+{
+	return this.cache.get ( key, null, now );
+}
+
+/**
+Return the number of requests that were found in the cache.
+@return the number of cache hits
+*/
+public long getHitCount ()
+{
+	return this.cache.getHitCount();
+}
+
+/**
+Return the cache key for a time series request.
+@param tsid time series identifier
+@param start requested start (empty or null if not specified)
+@param end requested end (empty or null if not specified)
+@return the cache key
+*/
+public static String getKey ( String tsid, String start, String end )
+{
+	return tsid + "|" + ((start == null) ? "" : start) + "|" + ((end == null) ? "" : end);
+}
+
+/**
+Return the number of requests that were not found in the cache.
+@return the number of cache misses
+*/
+public long getMissCount ()
+{
+	return this.cache.getMissCount();
+}
+
+/**
+Add an object to the cache, removing the least recently used entry if the cache is full.
+@param key key from getKey()
+@param object object to cache
+@param readTime time that the object was read, in milliseconds
+*/
+public void put ( String key, T object, long readTime )
+{
+	this.cache.put ( key, null, object, 0, readTime, null );
+}
+
+/**
+Return the number of entries in the cache.
+@return the number of cached objects, including expired entries that have not been requested
+*/
+public int size ()
+{
+	return this.cache.size();
+}
+
+}
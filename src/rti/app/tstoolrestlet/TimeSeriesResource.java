@@ -0,0 +1,281 @@
+// TimeSeriesResource - resource to read a time series and return its data as CSV or JSON.
+
+/* NoticeStart
+
+TSTool
+TSTool is a part of Colorado's Decision Support Systems (CDSS)
+Copyright (C) 1994-2019 Colorado Department of Natural Resources
+
+TSTool is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TSTool is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TSTool.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package rti.app.tstoolrestlet;
+
+import org.restlet.Context;
+import org.restlet.data.Form;
+import org.restlet.data.MediaType;
+import org.restlet.data.Reference;
+import org.restlet.data.Request;
+import org.restlet.data.Response;
+import org.restlet.data.Status;
+import org.restlet.resource.Representation;
+import org.restlet.resource.Resource;
+import org.restlet.resource.ResourceException;
+import org.restlet.resource.StringRepresentation;
+import org.restlet.resource.Variant;
+
+import rti.tscommandprocessor.core.TSCommandProcessor;
+import DWR.DMI.tstool.TSToolCommandFileRun;
+import DWR.DMI.tstool.TSToolLazyDataStores;
+import RTi.TS.TS;
+import RTi.TS.TSData;
+import RTi.TS.TSIterator;
+import RTi.Util.IO.CommandProcessorRequestResultsBean;
+import RTi.Util.IO.PropList;
+import RTi.Util.Message.Message;
+import RTi.Util.Time.DateTime;
+
+/**
+Resource to read a time series and return its data, for URIs like:
+<pre>
+/ts/{tsid}?start=YYYY-MM-DD&end=YYYY-MM-DD&format=csv
+</pre>
+The TSID is resolved by the warm processor, which has HydroBase and datastores open.
+The start and end are optional and limit the period that is read and returned.
+The format is csv (default) or json.
+Recently read time series are returned from the server's time series cache.
+*/
+public class TimeSeriesResource extends Resource
+{
+
+/**
+Media type for CSV, which is not predefined in MediaType.
+*/
+private static final MediaType MEDIA_TYPE_CSV = MediaType.valueOf("text/csv");
+
+/**
+Time series identifier from the URI.
+*/
+private String tsid = "";
+
+/**
+Requested start, empty if not specified.
+*/
+private String start = "";
+
+/**
+Requested end, empty if not specified.
+*/
+private String end = "";
+
+/**
+Requested format, "csv" or "json".
+*/
+private String format = "csv";
+
+/**
+Create the resource for a request.
+*/
+public TimeSeriesResource ( Context context, Request request, Response response )
+{
+    super(context, request, response);
+    Object o = request.getAttributes().get("tsid");
+    if ( o != null ) {
+        // TSIDs can contain characters that must be encoded in the URI, such as spaces
+        this.tsid = Reference.decode(o.toString());
+    }
+    Form query = request.getResourceRef().getQueryAsForm();
+    this.start = query.getFirstValue("start", "").trim();
+    this.end = query.getFirstValue("end", "").trim();
+    this.format = query.getFirstValue("format", "csv").trim().toLowerCase();
+    if ( this.format.equals("json") ) {
+        getVariants().add(new Variant(MediaType.APPLICATION_JSON));
+    }
+    else {
+        getVariants().add(new Variant(MEDIA_TYPE_CSV));
+    }
+}
+
+/**
+Format the time series data as CSV, with a header and one row per date.  Missing values are empty.
+@param ts time series to format
+@param start first date to output, or null for the start of the time series
+@param end last date to output, or null for the end of the time series
+@return CSV text
+*/
+protected static String formatCSV ( TS ts, DateTime start, DateTime end )
+throws Exception
+{
+    StringBuilder b = new StringBuilder();
+    b.append("# TSID: ").append(ts.getIdentifierString()).append("\n");
+    b.append("# Units: ").append(ts.getDataUnits()).append("\n");
+    b.append("Date,Value\n");
+    TSIterator tsi = ts.iterator(start, end);
+    TSData data;
+    while ( (data = tsi.next()) != null ) {
+        b.append(data.getDate().toString()).append(",");
+        double value = data.getDataValue();
+        if ( !ts.isDataMissing(value) ) {
+            b.append(value);
+        }
+        b.append("\n");
+    }
+    return b.toString();
+}
+
+/**
+Format the time series data as JSON.  Missing values are null.
+@param ts time series to format
+@param start first date to output, or null for the start of the time series
+@param end last date to output, or null for the end of the time series
+@return JSON text
+*/
+protected static String formatJSON ( TS ts, DateTime start, DateTime end )
+throws Exception
+{
+    StringBuilder b = new StringBuilder();
+    b.append("{\n");
+    b.append("  \"tsid\": ").append(TSToolCommandFileRun.toJSONString(ts.getIdentifierString())).append(",\n");
+    b.append("  \"units\": ").append(TSToolCommandFileRun.toJSONString(ts.getDataUnits())).append(",\n");
+    b.append("  \"data\": [");
+    TSIterator tsi = ts.iterator(start, end);
+    TSData data;
+    int i = 0;
+    while ( (data = tsi.next()) != null ) {
+        b.append(i++ == 0 ? "\n" : ",\n");
+        b.append("    { \"date\": ").append(TSToolCommandFileRun.toJSONString(data.getDate().toString())).append(", \"value\": ");
+        double value = data.getDataValue();
+        if ( ts.isDataMissing(value) || Double.isNaN(value) || Double.isInfinite(value) ) {
+            b.append("null");
+        }
+        else {
+            b.append(value);
+        }
+        b.append(" }");
+    }
+    b.append(i == 0 ? "]\n" : "\n  ]\n");
+    b.append("}\n");
+    return b.toString();
+}
+
+/**
+Parse a requested date/time.
+@param s date/time string, or empty
+@param name parameter name, for messages
+@return the date/time, or null if empty
+@throws ResourceException with status 400 if the date/time cannot be parsed
+*/
+private DateTime parseDateTime ( String s, String name )
+throws ResourceException
+{
+    if ( s.isEmpty() ) {
+        return null;
+    }
+    try {
+        return DateTime.parse(s);
+    }
+    catch ( Exception e ) {
+        throw new ResourceException(Status.CLIENT_ERROR_BAD_REQUEST, "Invalid " + name + " \"" + s + "\".");
+    }
+}
+
+/**
+Read the time series using the processor, which handles the TSID input type and datastores.
+The processor is shared by all requests so requests are handled one at a time.
+@param processor warm processor with HydroBase and datastores open
+@param start input start, or null to read the full period
+@param end input end, or null to read the full period
+@return the time series, or null if not found
+*/
+protected TS readTimeSeries ( TSCommandProcessor processor, DateTime start, DateTime end )
+throws Exception
+{
+    synchronized ( processor ) {
+        // The input period is a processor property so set for the read and then restore
+        Object inputStart0 = processor.getPropContents("InputStart");
+        Object inputEnd0 = processor.getPropContents("InputEnd");
+        // Open the datastore for the TSID if it is opened on first use
+        TSToolLazyDataStores.openReferenced ( processor, this.tsid );
+        try {
+            processor.setPropContents("InputStart", start);
+            processor.setPropContents("InputEnd", end);
+            PropList requestParams = new PropList ( "" );
+            requestParams.set ( "TSID", this.tsid );
+            requestParams.setUsingObject ( "WarningLevel", Integer.valueOf(2) );
+            requestParams.set ( "CommandTag", "TimeSeriesResource" );
+            requestParams.set ( "HandleMissingTSHow", "IgnoreMissingTS" );
+            CommandProcessorRequestResultsBean bean = processor.processRequest( "ReadTimeSeries", requestParams );
+            return (TS)bean.getResultsPropList().getContents ( "TS" );
+        }
+        finally {
+            processor.setPropContents("InputStart", inputStart0);
+            processor.setPropContents("InputEnd", inputEnd0);
+        }
+    }
+}
+
+/**
+Return the time series data in the requested format.
+*/
+@Override
+public Representation represent ( Variant variant )
+throws ResourceException
+{   String routine = getClass().getSimpleName() + ".represent";
+    if ( this.tsid.isEmpty() ) {
+        throw new ResourceException(Status.CLIENT_ERROR_BAD_REQUEST, "No TSID specified.");
+    }
+    DateTime start = parseDateTime ( this.start, "start" );
+    DateTime end = parseDateTime ( this.end, "end" );
+    TSCommandProcessor processor = (TSCommandProcessor)getContext().getAttributes().get(TSToolServer.PROCESSOR_ATTRIBUTE);
+    @SuppressWarnings("unchecked")
+    TimeSeriesCache<TS> cache = (TimeSeriesCache<TS>)getContext().getAttributes().get(TSToolServer.TIME_SERIES_CACHE_ATTRIBUTE);
+    if ( processor == null ) {
+        throw new ResourceException(Status.SERVER_ERROR_SERVICE_UNAVAILABLE, "No processor is available to read time series.");
+    }
+    String key = TimeSeriesCache.getKey(this.tsid, this.start, this.end);
+    try {
+        TS ts = null;
+        if ( cache != null ) {
+            ts = cache.get(key, System.currentTimeMillis());
+        }
+        if ( ts == null ) {
+            long readTime = System.currentTimeMillis();
+            ts = readTimeSeries ( processor, start, end );
+            if ( ts == null ) {
+                throw new ResourceException(Status.CLIENT_ERROR_NOT_FOUND, "Time series \"" + this.tsid + "\" was not found.");
+            }
+            if ( cache != null ) {
+                cache.put(key, ts, readTime);
+            }
+        }
+        // The time series is shared with other requests through the cache so only read it here
+        if ( this.format.equals("json") ) {
+            return new StringRepresentation(formatJSON(ts, start, end), MediaType.APPLICATION_JSON);
+        }
+        else {
+            return new StringRepresentation(formatCSV(ts, start, end), MEDIA_TYPE_CSV);
+        }
+    }
+    catch ( ResourceException e ) {
+        throw e;
+    }
+    catch ( Exception e ) {
+        Message.printWarning ( 3, routine, "Error reading time series \"" + this.tsid + "\" (" + e + ")." );
+        Message.printWarning ( 3, routine, e );
+        throw new ResourceException(Status.SERVER_ERROR_INTERNAL, "Error reading time series \"" + this.tsid + "\".");
+    }
+}
+
+}
@@ -0,0 +1,103 @@
+package DWR.DMI.tstool;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import junit.framework.TestCase;
+
+/**
+Tests for TSToolBatchServerJob, which determines the priority and order of batch server jobs.
+*/
+public class TSToolBatchServerJobTest extends TestCase {
+
+    private File folder = null;
+
+    public TSToolBatchServerJobTest(String testname)
+    {
+        super(testname);
+    }
+
+    public TSToolBatchServerJobTest()
+    {
+    }
+
+    protected void setUp() throws Exception
+    {
+        folder = Files.createTempDirectory("TSToolBatchServerJobTest").toFile();
+    }
+
+    protected void tearDown()
+    {
+        File [] files = folder.listFiles();
+        if ( files != null ) {
+            for ( File file : files ) {
+                file.delete();
+            }
+        }
+        folder.delete();
+    }
+
+    private File createFile(String name, String contents) throws Exception
+    {
+        File file = new File(folder, name);
+        Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    public void testDefaultPriority() throws Exception
+    {
+        TSToolBatchServerJob job = new TSToolBatchServerJob(createFile("daily.tstool", "# Test\n"), 1000);
+        assertEquals(TSToolBatchServerJob.DEFAULT_PRIORITY, job.getPriority());
+    }
+
+    public void testFilenamePriority() throws Exception
+    {
+        assertEquals(1, new TSToolBatchServerJob(createFile("p1_daily.tstool", "# Test\n"), 1000).getPriority());
+        assertEquals(12, new TSToolBatchServerJob(createFile("P12-daily.tstool", "# Test\n"), 1000).getPriority());
+        // The prefix must be followed by _ or -
+        assertEquals(TSToolBatchServerJob.DEFAULT_PRIORITY,
+            new TSToolBatchServerJob(createFile("p1daily.tstool", "# Test\n"), 1000).getPriority());
+        // Too many digits for an integer
+        assertEquals(TSToolBatchServerJob.DEFAULT_PRIORITY,
+            new TSToolBatchServerJob(createFile("p99999999999_daily.tstool", "# Test\n"), 1000).getPriority());
+    }
+
+    public void testPriorityFile() throws Exception
+    {
+        File commandFile = createFile("p1_daily.tstool", "# Test\n");
+        // The sidecar file takes precedence over the filename
+        createFile("p1_daily.tstool" + TSToolBatchServerJob.PRIORITY_EXTENSION, " 3\n");
+        assertEquals(3, new TSToolBatchServerJob(commandFile, 1000).getPriority());
+        // An invalid sidecar file uses the filename
+        createFile("p1_daily.tstool" + TSToolBatchServerJob.PRIORITY_EXTENSION, "high\n");
+        assertEquals(1, new TSToolBatchServerJob(commandFile, 1000).getPriority());
+    }
+
+    public void testOrder() throws Exception
+    {
+        TSToolBatchServerJob low = new TSToolBatchServerJob(createFile("p9_low.tstool", "# Test\n"), 1000);
+        TSToolBatchServerJob high = new TSToolBatchServerJob(createFile("p1_high.tstool", "# Test\n"), 2000);
+        TSToolBatchServerJob early = new TSToolBatchServerJob(createFile("early.tstool", "# Test\n"), 1000);
+        TSToolBatchServerJob late = new TSToolBatchServerJob(createFile("late.tstool", "# Test\n"), 2000);
+        TSToolBatchServerJob same = new TSToolBatchServerJob(createFile("same.tstool", "# Test\n"), 2000);
+        // Priority first, then arrival time, then the order that the jobs were created
+        assertTrue(high.compareTo(low) < 0);
+        assertTrue(high.compareTo(early) < 0);
+        assertTrue(early.compareTo(late) < 0);
+        assertTrue(late.compareTo(same) < 0);
+        assertTrue(same.compareTo(late) > 0);
+    }
+
+    public void testJobKey() throws Exception
+    {
+        File commandFile = createFile("daily.tstool", "# Test\n");
+        TSToolBatchServerJob job = new TSToolBatchServerJob(commandFile, 1000);
+        assertEquals(TSToolBatchServerJob.getJobKey(commandFile.getAbsolutePath(), commandFile.length(), commandFile.lastModified()),
+            job.getJobKey());
+        // A changed command file with the same name is a different job
+        createFile("daily.tstool", "# Test\n# Changed\n");
+        assertFalse(job.getJobKey().equals(new TSToolBatchServerJob(commandFile, 1000).getJobKey()));
+    }
+
+}
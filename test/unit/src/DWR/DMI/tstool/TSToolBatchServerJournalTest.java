@@ -0,0 +1,100 @@
+package DWR.DMI.tstool;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+Tests for TSToolBatchServerJournal, which is used to resume the batch server after a restart.
+*/
+public class TSToolBatchServerJournalTest extends TestCase {
+
+    private File commandFile = null;
+
+    private File journalFile = null;
+
+    public TSToolBatchServerJournalTest(String testname)
+    {
+        super(testname);
+    }
+
+    public TSToolBatchServerJournalTest()
+    {
+    }
+
+    protected void setUp() throws Exception
+    {
+        commandFile = File.createTempFile("TSToolBatchServerJournalTest", ".tstool");
+        Files.write(commandFile.toPath(), "# Test command file\n".getBytes(StandardCharsets.UTF_8));
+        journalFile = File.createTempFile("TSToolBatchServerJournalTest", ".txt");
+        journalFile.delete();
+    }
+
+    protected void tearDown()
+    {
+        commandFile.delete();
+        journalFile.delete();
+    }
+
+    public void testFinishedJobIsDone() throws Exception
+    {
+        TSToolBatchServerJob job = new TSToolBatchServerJob(commandFile, System.currentTimeMillis());
+        TSToolBatchServerJournal journal = new TSToolBatchServerJournal(journalFile);
+        journal.open();
+        assertFalse(journal.isJobDone(job));
+        journal.recordStart(job);
+        assertFalse(journal.isJobDone(job));
+        journal.recordFinish(job, 0, 0, 0, 10);
+        assertTrue(journal.isJobDone(job));
+        journal.close();
+        // A restarted server reads the journal and does not run the job again
+        journal = new TSToolBatchServerJournal(journalFile);
+        journal.open();
+        assertTrue(journal.isJobDone(new TSToolBatchServerJob(commandFile, System.currentTimeMillis())));
+        assertTrue(journal.closeUnfinishedJobs().isEmpty());
+        journal.close();
+    }
+
+    public void testUnfinishedJobIsInterrupted() throws Exception
+    {
+        TSToolBatchServerJob job = new TSToolBatchServerJob(commandFile, System.currentTimeMillis());
+        TSToolBatchServerJournal journal = new TSToolBatchServerJournal(journalFile);
+        journal.open();
+        journal.recordStart(job);
+        journal.close();
+        // The server stopped before the job finished
+        journal = new TSToolBatchServerJournal(journalFile);
+        journal.open();
+        assertFalse(journal.isJobDone(job));
+        List<File> files = journal.closeUnfinishedJobs();
+        assertEquals(1, files.size());
+        assertEquals(commandFile.getAbsoluteFile(), files.get(0));
+        assertTrue(journal.isJobDone(job));
+        journal.close();
+        // The interrupted record is also read after another restart
+        journal = new TSToolBatchServerJournal(journalFile);
+        journal.open();
+        assertTrue(journal.isJobDone(job));
+        assertTrue(journal.closeUnfinishedJobs().isEmpty());
+        journal.close();
+    }
+
+    public void testChangedCommandFileIsNotDone() throws Exception
+    {
+        TSToolBatchServerJob job = new TSToolBatchServerJob(commandFile, System.currentTimeMillis());
+        TSToolBatchServerJournal journal = new TSToolBatchServerJournal(journalFile);
+        journal.open();
+        journal.recordStart(job);
+        journal.recordFinish(job, 0, 0, 0, 10);
+        journal.close();
+        // A new command file with the same name is a new job
+        Files.write(commandFile.toPath(), "# Changed test command file\n".getBytes(StandardCharsets.UTF_8));
+        journal = new TSToolBatchServerJournal(journalFile);
+        journal.open();
+        assertFalse(journal.isJobDone(new TSToolBatchServerJob(commandFile, System.currentTimeMillis())));
+        journal.close();
+    }
+}
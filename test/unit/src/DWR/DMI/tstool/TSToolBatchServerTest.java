@@ -0,0 +1,81 @@
+package DWR.DMI.tstool;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import riverside.datastore.DataStore;
+import rti.tscommandprocessor.core.TSCommandFileRunner;
+import RTi.Util.IO.PropList;
+
+/**
+Tests for TSToolBatchServer jobs.
+*/
+public class TSToolBatchServerTest extends TestCase {
+
+    private File folder;
+
+    /**
+    Names of the datastores that were opened, in order.
+    */
+    private List<String> openedNames = new ArrayList<String>();
+
+    public TSToolBatchServerTest(String testname)
+    {
+        super(testname);
+    }
+
+    public TSToolBatchServerTest()
+    {
+    }
+
+    protected void setUp() throws Exception
+    {
+        folder = Files.createTempDirectory("TSToolBatchServerTest").toFile();
+    }
+
+    protected void tearDown()
+    {
+        File [] files = folder.listFiles();
+        if ( files != null ) {
+            for ( File file : files ) {
+                file.delete();
+            }
+        }
+        folder.delete();
+    }
+
+    @SuppressWarnings("rawtypes")
+    public void testRunJobOpensLazyDataStore() throws Exception
+    {
+        TSCommandFileRunner runner = new TSCommandFileRunner(new PropList("Processor"), new ArrayList<Class>());
+        TSToolLazyDataStores lazyDataStores = TSToolLazyDataStores.getForProcessor ( runner.getProcessor(), (p, props) -> {
+            this.openedNames.add(props.getValue("Name"));
+            // The placeholder is used as the opened datastore because opening does not need a connection
+            DataStore dataStore = new TSToolLazyDataStore(props);
+            p.setPropContents("DataStore", dataStore);
+            return dataStore;
+        });
+        PropList props = new PropList("");
+        props.set("Name", "HydroBase");
+        props.set("Type", "HydroBaseDataStore");
+        lazyDataStores.add(props);
+        File commandFile = new File(folder, "job.tstool");
+        Files.write(commandFile.toPath(),
+            "# Read from the lazy datastore\nReadTimeSeries(TSID=\"A.B.C.Day~HydroBase\")\n".getBytes(StandardCharsets.UTF_8));
+        List<TSCommandFileRunner> runnerList = new ArrayList<>();
+        runnerList.add(runner);
+        TSToolBatchServer server = new TSToolBatchServer(folder, new File(folder, "journal.txt"), runnerList);
+        server.runJob(runner, new TSToolBatchServerJob(commandFile, 1000));
+        // The datastore is opened before the command file is read and is then in the processor
+        assertEquals("[HydroBase]", this.openedNames.toString());
+        assertFalse(lazyDataStores.hasPending());
+        assertNotNull(runner.getProcessor().getDataStoreForName("HydroBase", null));
+        // The job is removed from the hot folder when done
+        assertFalse(commandFile.exists());
+    }
+
+}
@@ -0,0 +1,125 @@
+package DWR.DMI.tstool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+Tests for TSToolColumnStore, which stores the displayed fields of query results by column.
+*/
+public class TSToolColumnStoreTest extends TestCase {
+
+    private static class Row {
+        private String name;
+        private int count;
+        private double value;
+
+        private Row(String name, int count, double value)
+        {
+            this.name = name;
+            this.count = count;
+            this.value = value;
+        }
+    }
+
+    private List<Row> data = new ArrayList<Row>();
+
+    public TSToolColumnStoreTest(String testname)
+    {
+        super(testname);
+    }
+
+    public TSToolColumnStoreTest()
+    {
+    }
+
+    protected void setUp() throws Exception
+    {
+        this.data.add(new Row(new String("Day"), 10, 1.5));
+        this.data.add(new Row(new String("Day"), -999, -999.0));
+        this.data.add(new Row(null, 3, 2.25));
+    }
+
+    private TSToolColumnStore createStore()
+    {
+        TSToolColumnStore store = new TSToolColumnStore(this.data.size(), 3);
+        store.setStringColumn(0, this.data, row -> row.name);
+        store.setIntColumn(1, this.data, row -> row.count, i -> i == -999);
+        store.setDoubleColumn(2, this.data, row -> row.value, d -> d == -999.0, "%.2f");
+        return store;
+    }
+
+    public void testStringColumn()
+    {
+        TSToolColumnStore store = createStore();
+        assertEquals(TSToolColumnStore.COLUMN_STRING, store.getColumnType(0));
+        assertEquals("Day", store.getValue(0, 0));
+        // Equal strings share an instance
+        assertTrue(store.getString(0, 0) == store.getString(1, 0));
+        assertNull(store.getValue(2, 0));
+        assertTrue(store.isMissing(2, 0));
+    }
+
+    public void testIntColumn()
+    {
+        TSToolColumnStore store = createStore();
+        assertEquals(10, store.getInt(0, 1));
+        assertEquals("10", store.getValue(0, 1));
+        assertTrue(store.isMissing(1, 1));
+        assertEquals("", store.getValue(1, 1));
+        assertFalse(store.isMissing(2, 1));
+    }
+
+    public void testDoubleColumn()
+    {
+        TSToolColumnStore store = createStore();
+        assertEquals("1.50", store.getValue(0, 2));
+        assertEquals("", store.getValue(1, 2));
+        assertEquals("2.25", store.getValue(2, 2));
+    }
+
+    public void testSortIndex()
+    {
+        TSToolColumnStore store = createStore();
+        // Missing values are last for both directions
+        assertEquals("[2, 0, 1]", Arrays.toString(store.getSortIndex(1, true)));
+        assertEquals("[0, 2, 1]", Arrays.toString(store.getSortIndex(1, false)));
+        // Stable ascending sort for equal strings, with null last, and descending keeps equal strings in order
+        assertEquals("[0, 1, 2]", Arrays.toString(store.getSortIndex(0, true)));
+        assertEquals("[0, 1, 2]", Arrays.toString(store.getSortIndex(0, false)));
+    }
+
+    public void testSortIndexDescendingTies()
+    {
+        TSToolColumnStore store = new TSToolColumnStore(5, 1);
+        store.setIntColumn(0, Arrays.asList(1, 2, 1, 2, 3), i -> i, i -> false);
+        assertEquals("[0, 2, 1, 3, 4]", Arrays.toString(store.getSortIndex(0, true)));
+        // Equal values keep their original order when descending
+        assertEquals("[4, 1, 3, 0, 2]", Arrays.toString(store.getSortIndex(0, false)));
+    }
+
+    public void testFilterRows()
+    {
+        TSToolColumnStore store = createStore();
+        int [] rows = store.filterRows(null, row -> store.contains(row, 0, "da"));
+        assertEquals("[0, 1]", Arrays.toString(rows));
+        // Filtering a sorted view keeps the sort order
+        rows = store.filterRows(store.getSortIndex(2, false), row -> store.isInRange(row, 2, 1.0, Double.NaN));
+        assertEquals("[2, 0]", Arrays.toString(rows));
+        assertFalse(store.isInRange(1, 1, Double.NaN, Double.NaN));
+        assertFalse(store.isInRange(0, 0, Double.NaN, Double.NaN));
+    }
+
+    public void testComputedStringColumn()
+    {
+        TSToolColumnStore store = createStore();
+        store.getSortIndex(0, true);
+        store.setStringColumn(0, row -> "R" + (3 - row));
+        assertEquals("R3", store.getValue(0, 0));
+        // The sort index is rebuilt after the column is set
+        assertEquals("[2, 1, 0]", Arrays.toString(store.getSortIndex(0, true)));
+    }
+
+}
@@ -0,0 +1,149 @@
+package DWR.DMI.tstool;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import riverside.datastore.DataStore;
+import rti.tscommandprocessor.core.TSCommandProcessor;
+import RTi.Util.IO.PropList;
+
+/**
+Tests for TSToolLazyDataStores, which opens datastores when they are referenced.
+*/
+public class TSToolLazyDataStoresTest extends TestCase {
+
+    public TSToolLazyDataStoresTest(String testname)
+    {
+        super(testname);
+    }
+
+    public TSToolLazyDataStoresTest()
+    {
+    }
+
+    /**
+    Names of the datastores that were opened, in order.
+    */
+    private List<String> openedNames = new ArrayList<String>();
+
+    /**
+    Create lazy datastores for a new processor, with datastores HDB, HydroBase, and NWIS,
+    which are recorded in openedNames when opened.
+    */
+    private TSToolLazyDataStores createLazyDataStores ( TSCommandProcessor processor )
+    {
+        TSToolLazyDataStores lazyDataStores = TSToolLazyDataStores.getForProcessor ( processor, (p, props) -> {
+            this.openedNames.add(props.getValue("Name"));
+            // The placeholder is used as the opened datastore because opening does not need a connection
+            DataStore dataStore = new TSToolLazyDataStore(props);
+            p.setPropContents("DataStore", dataStore);
+            return dataStore;
+        });
+        lazyDataStores.add(createProps("HDB", "ReclamationHDBDataStore"));
+        lazyDataStores.add(createProps("HydroBase", "HydroBaseDataStore"));
+        lazyDataStores.add(createProps("NWIS", "UsgsNwisDailyDataStore"));
+        return lazyDataStores;
+    }
+
+    private PropList createProps ( String name, String type )
+    {
+        PropList props = new PropList("");
+        props.set("Name", name);
+        props.set("Type", type);
+        return props;
+    }
+
+    public void testOpenReferencedOpensOnlyReferenced()
+    {
+        TSCommandProcessor processor = new TSCommandProcessor(null);
+        TSToolLazyDataStores lazyDataStores = createLazyDataStores(processor);
+        int openCount = TSToolLazyDataStores.openReferenced(processor, "ReadTimeSeries(TSID=\"A.B.C.Day~HydroBase\")");
+        assertEquals(1, openCount);
+        assertEquals("[HydroBase]", this.openedNames.toString());
+        assertNotNull(processor.getDataStoreForName("HydroBase", null));
+        // The other datastores are listed for the UI but are not in the processor
+        assertEquals(2, lazyDataStores.getPendingDataStores().size());
+        assertNull(processor.getDataStoreForName("HDB", null));
+    }
+
+    public void testOpenOnce()
+    {
+        TSCommandProcessor processor = new TSCommandProcessor(null);
+        createLazyDataStores(processor);
+        assertNotNull(TSToolLazyDataStores.open(processor, "hydrobase"));
+        // Already opened so not pending
+        assertNull(TSToolLazyDataStores.open(processor, "HydroBase"));
+        assertEquals(0, TSToolLazyDataStores.openReferenced(processor, "ReadTimeSeries(TSID=\"A.B.C.Day~HydroBase\")"));
+        assertEquals("[HydroBase]", this.openedNames.toString());
+    }
+
+    public void testPropertyOpensAll()
+    {
+        TSCommandProcessor processor = new TSCommandProcessor(null);
+        TSToolLazyDataStores lazyDataStores = createLazyDataStores(processor);
+        assertEquals(3, TSToolLazyDataStores.openReferenced(processor, "ReadTimeSeries(TSID=\"A.B.C.Day~${DataStore}\")"));
+        assertFalse(lazyDataStores.hasPending());
+        assertEquals(0, lazyDataStores.getPendingDataStores().size());
+    }
+
+    public void testRunCommandsInputFileIsChecked()
+    throws Exception
+    {
+        File dir = File.createTempFile("TSToolLazyDataStoresTest", "");
+        dir.delete();
+        dir.mkdir();
+        File childFile = new File(dir, "child.tstool");
+        File parentFile = new File(dir, "parent.tstool");
+        try {
+            FileWriter out = new FileWriter(childFile);
+            out.write("ReadTimeSeries(TSID=\"A.B.C.Day~NWIS\")\n");
+            out.close();
+            out = new FileWriter(parentFile);
+            out.write("# Run the child\nRunCommands(InputFile=\"child.tstool\")\n");
+            out.close();
+            TSCommandProcessor processor = new TSCommandProcessor(null);
+            createLazyDataStores(processor);
+            assertEquals(1, TSToolLazyDataStores.openReferenced(processor, parentFile));
+            assertEquals("[NWIS]", this.openedNames.toString());
+        }
+        finally {
+            childFile.delete();
+            parentFile.delete();
+            dir.delete();
+        }
+    }
+
+    public void testTypeIsReferenced()
+    {
+        TSCommandProcessor processor = new TSCommandProcessor(null);
+        createLazyDataStores(processor);
+        // The command can look up the datastore by type, without the name
+        assertEquals(1, TSToolLazyDataStores.openReferenced(processor, "ReadReclamationHDB(Interval=\"Day\")"));
+        assertEquals("[HDB]", this.openedNames.toString());
+        assertTrue(TSToolLazyDataStores.isTypeReferenced("ReadHydroBase(Alias=\"x\")", "HydroBaseDataStore"));
+        assertFalse(TSToolLazyDataStores.isTypeReferenced("# HydroBase comment", "HydroBaseDataStore"));
+    }
+
+    public void testTSIDInputNameIsReferenced()
+    {
+        assertTrue(TSToolLazyDataStores.isReferenced("08213500.DWR.Streamflow.Day~HydroBase", "HydroBase"));
+        assertTrue(TSToolLazyDataStores.isReferenced("ReadTimeSeries(TSID=\"A.B.C.Day~hydrobase\")", "HydroBase"));
+    }
+
+    public void testDataStoreParameterIsReferenced()
+    {
+        String commands = "# Read data\nReadReclamationHDB(DataStore=\"hdb\",Interval=\"Day\")\n";
+        assertTrue(TSToolLazyDataStores.isReferenced(commands, "hdb"));
+    }
+
+    public void testLongerNameIsNotReferenced()
+    {
+        assertFalse(TSToolLazyDataStores.isReferenced("ReadTimeSeries(TSID=\"A.B.C.Day~HydroBase2\")", "HydroBase"));
+        assertFalse(TSToolLazyDataStores.isReferenced("ReadTimeSeries(TSID=\"A.B.C.Day~My-HydroBase\")", "HydroBase"));
+        assertFalse(TSToolLazyDataStores.isReferenced("ReadTimeSeries(TSID=\"A.B.C.Day~NWIS\")", "HydroBase"));
+    }
+
+}
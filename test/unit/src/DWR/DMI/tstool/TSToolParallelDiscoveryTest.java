@@ -0,0 +1,61 @@
+package DWR.DMI.tstool;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+Tests for TSToolParallelDiscovery, which groups commands so that independent discovery can run in parallel.
+*/
+public class TSToolParallelDiscoveryTest extends TestCase {
+
+    public TSToolParallelDiscoveryTest(String testname)
+    {
+        super(testname);
+    }
+
+    public TSToolParallelDiscoveryTest()
+    {
+    }
+
+    private String toString(List<int[]> groups)
+    {
+        StringBuilder b = new StringBuilder();
+        for ( int [] group : groups ) {
+            b.append("[").append(group[0]).append("-").append(group[1]).append(group[2] == 1 ? " parallel" : "").append("]");
+        }
+        return b.toString();
+    }
+
+    public void testIsIndependent()
+    {
+        assertTrue(TSToolParallelDiscovery.isIndependent(null, "ABC.USGS.Streamflow.Day~HydroBase", true));
+        assertTrue(TSToolParallelDiscovery.isIndependent("ReadDateValue", "ReadDateValue(InputFile=\"a.dv\")", false));
+        assertFalse(TSToolParallelDiscovery.isIndependent("ReadDateValue", "ReadDateValue(InputFile=\"${Dir}/a.dv\")", false));
+        assertFalse(TSToolParallelDiscovery.isIndependent("ReadTimeSeriesFromDataStore", "ReadTimeSeriesFromDataStore()", false));
+        assertFalse(TSToolParallelDiscovery.isIndependent("ReadPropertiesFromFile", "ReadPropertiesFromFile()", false));
+        assertFalse(TSToolParallelDiscovery.isIndependent("Add", "Add(TSID=\"A\")", false));
+        // Database, web service, and native code reads share state that is not thread-safe
+        assertFalse(TSToolParallelDiscovery.isIndependent("ReadHydroBase", "ReadHydroBase(TSID=\"A\")", false));
+        assertFalse(TSToolParallelDiscovery.isIndependent("ReadReclamationHDB", "ReadReclamationHDB(DataStore=\"hdb\")", false));
+        assertFalse(TSToolParallelDiscovery.isIndependent("ReadTimeSeries", "ReadTimeSeries(TSID=\"A~HydroBase\")", false));
+        assertFalse(TSToolParallelDiscovery.isIndependent("ReadUsgsNwisDaily", "ReadUsgsNwisDaily(Sites=\"1\")", false));
+        assertFalse(TSToolParallelDiscovery.isIndependent("ReadHecDss", "ReadHecDss(InputFile=\"a.dss\")", false));
+        // File readers that use a datastore or input type parameter are not independent
+        assertFalse(TSToolParallelDiscovery.isIndependent("ReadDelimitedFile", "ReadDelimitedFile(InputType=\"X\")", false));
+        assertFalse(TSToolParallelDiscovery.isIndependent("ReadTableFromDelimitedFile",
+            "ReadTableFromDelimitedFile(DataStore=\"ds\")", false));
+        assertTrue(TSToolParallelDiscovery.isIndependent("ReadStateMod", "ReadStateMod(InputFile=\"a.stm\")", false));
+    }
+
+    public void testCreateGroups()
+    {
+        boolean [] independent = { false, true, true, true, false, true, true, false };
+        // Independent commands are grouped when there are enough of them, otherwise combined with the sequential commands
+        assertEquals("[0-0][1-3 parallel][4-7]", toString(TSToolParallelDiscovery.createGroups(independent, 3)));
+        assertEquals("[0-7]", toString(TSToolParallelDiscovery.createGroups(independent, 4)));
+        assertEquals("[0-1 parallel]", toString(TSToolParallelDiscovery.createGroups(new boolean[] { true, true }, 2)));
+        assertEquals("", toString(TSToolParallelDiscovery.createGroups(new boolean[0], 2)));
+    }
+
+}
@@ -0,0 +1,98 @@
+package DWR.DMI.tstool;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import junit.framework.TestCase;
+
+/**
+Tests for TSToolPluginIndex, which caches the classes listed in plugin jar file manifests.
+*/
+public class TSToolPluginIndexTest extends TestCase {
+
+    private File folder = null;
+
+    public TSToolPluginIndexTest(String testname)
+    {
+        super(testname);
+    }
+
+    public TSToolPluginIndexTest()
+    {
+    }
+
+    protected void setUp() throws Exception
+    {
+        this.folder = File.createTempFile("TSToolPluginIndexTest", "");
+        this.folder.delete();
+        this.folder.mkdirs();
+    }
+
+    protected void tearDown()
+    {
+        for ( File file : this.folder.listFiles() ) {
+            file.delete();
+        }
+        this.folder.delete();
+    }
+
+    private File writeJar(String name, String dataStoreClass, String commandClass) throws Exception
+    {
+        Manifest manifest = new Manifest();
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.putValue("Datastore-Class", dataStoreClass);
+        attributes.putValue("DatastoreFactory-Class", dataStoreClass + "Factory");
+        attributes.putValue("Command-Class1", commandClass);
+        File jarFile = new File(this.folder, name);
+        new JarOutputStream(new FileOutputStream(jarFile), manifest).close();
+        return jarFile;
+    }
+
+    public void testReadManifest() throws Exception
+    {
+        File jarFile = writeJar("plugin.jar", "a.ADataStore", "a.ReadA_Command");
+        TSToolPluginIndex index = new TSToolPluginIndex(new File(this.folder, "plugin-index.txt"));
+        TSToolPluginIndex.Entry entry = index.getEntry(jarFile);
+        assertEquals("a.ADataStore", entry.getDataStoreClass());
+        assertEquals("a.ADataStoreFactory", entry.getDataStoreFactoryClass());
+        assertEquals(1, entry.getCommandClassList().size());
+        assertEquals("a.ReadA_Command", entry.getCommandClassList().get(0));
+        assertEquals(1, index.getReadCount());
+    }
+
+    public void testIndexIsReused() throws Exception
+    {
+        File jarFile = writeJar("plugin.jar", "a.ADataStore", "a.ReadA_Command");
+        File indexFile = new File(this.folder, "plugin-index.txt");
+        TSToolPluginIndex index = new TSToolPluginIndex(indexFile);
+        index.getEntry(jarFile);
+        index.write();
+        TSToolPluginIndex index2 = new TSToolPluginIndex(indexFile);
+        index2.read();
+        TSToolPluginIndex.Entry entry = index2.getEntry(jarFile);
+        assertEquals("a.ADataStore", entry.getDataStoreClass());
+        assertEquals("a.ReadA_Command", entry.getCommandClassList().get(0));
+        assertEquals(1, index2.getHitCount());
+        assertEquals(0, index2.getReadCount());
+    }
+
+    public void testChangedJarIsRead() throws Exception
+    {
+        File jarFile = writeJar("plugin.jar", "a.ADataStore", "a.ReadA_Command");
+        File indexFile = new File(this.folder, "plugin-index.txt");
+        TSToolPluginIndex index = new TSToolPluginIndex(indexFile);
+        index.getEntry(jarFile);
+        index.write();
+        writeJar("plugin.jar", "b.BDataStore", "b.ReadB_Command");
+        jarFile.setLastModified(jarFile.lastModified() + 2000);
+        TSToolPluginIndex index2 = new TSToolPluginIndex(indexFile);
+        index2.read();
+        assertEquals("b.BDataStore", index2.getEntry(jarFile).getDataStoreClass());
+        assertEquals(1, index2.getReadCount());
+    }
+
+}
@@ -0,0 +1,87 @@
+package DWR.DMI.tstool;
+
+import junit.framework.TestCase;
+
+/**
+Tests for TSToolQueryResultsCache, which caches time series lists for repeated queries.
+*/
+public class TSToolQueryResultsCacheTest extends TestCase {
+
+    /**
+    Cache with a settable time.
+    */
+    private static class TestCache extends TSToolQueryResultsCache<String> {
+        private long time = 0;
+
+        public TestCache(int ttlSeconds, int maxEntries, int maxRows)
+        {
+            super(ttlSeconds, maxEntries, maxRows);
+        }
+
+        protected long currentTimeMillis()
+        {
+            return this.time;
+        }
+    }
+
+    private Object source = new Object();
+
+    public TSToolQueryResultsCacheTest(String testname)
+    {
+        super(testname);
+    }
+
+    public TSToolQueryResultsCacheTest()
+    {
+    }
+
+    public void testGet()
+    {
+        TestCache cache = new TestCache(60, 10, 1000);
+        cache.put("a", this.source, "A", 10);
+        assertEquals("A", cache.get("a", this.source));
+        assertNull(cache.get("b", this.source));
+        assertEquals(1, cache.getHitCount());
+    }
+
+    public void testExpired()
+    {
+        TestCache cache = new TestCache(60, 10, 1000);
+        cache.put("a", this.source, "A", 10);
+        cache.time = 61000;
+        assertNull(cache.get("a", this.source));
+        assertEquals(0, cache.size());
+    }
+
+    public void testDifferentSource()
+    {
+        TestCache cache = new TestCache(60, 10, 1000);
+        cache.put("a", this.source, "A", 10);
+        assertNull(cache.get("a", new Object()));
+    }
+
+    public void testLimits()
+    {
+        TestCache cache = new TestCache(60, 2, 100);
+        cache.put("a", this.source, "A", 10);
+        cache.put("b", this.source, "B", 10);
+        cache.get("a", this.source);
+        cache.put("c", this.source, "C", 10);
+        // b was least recently used
+        assertNull(cache.get("b", this.source));
+        assertEquals("A", cache.get("a", this.source));
+        cache.put("d", this.source, "D", 95);
+        // Only d fits in the row limit
+        assertEquals(1, cache.size());
+        cache.put("e", this.source, "E", 101);
+        assertNull(cache.get("e", this.source));
+    }
+
+    public void testDisabled()
+    {
+        TestCache cache = new TestCache(0, 10, 1000);
+        cache.put("a", this.source, "A", 10);
+        assertNull(cache.get("a", this.source));
+    }
+
+}
@@ -0,0 +1,122 @@
+package DWR.DMI.tstool;
+
+import java.io.File;
+import java.io.FileWriter;
+
+import junit.framework.TestCase;
+
+/**
+Tests for TSToolTimeSeriesReadCache, which caches time series that have been read.
+*/
+public class TSToolTimeSeriesReadCacheTest extends TestCase {
+
+    private File file;
+
+    private long now = 0;
+
+    public TSToolTimeSeriesReadCacheTest(String testname)
+    {
+        super(testname);
+    }
+
+    public TSToolTimeSeriesReadCacheTest()
+    {
+    }
+
+    protected void setUp() throws Exception
+    {
+        this.file = File.createTempFile("TSToolTimeSeriesReadCacheTest", ".dv");
+    }
+
+    protected void tearDown() throws Exception
+    {
+        this.file.delete();
+    }
+
+    private TSToolTimeSeriesReadCache<String> createCache ( long maxBytes, int ttlSeconds )
+    {
+        return new TSToolTimeSeriesReadCache<String>(maxBytes, ttlSeconds) {
+            @Override
+            protected long currentTimeMillis () {
+                return now;
+            }
+        };
+    }
+
+    public void testEvictLeastRecentlyUsedByBytes() throws Exception
+    {
+        TSToolTimeSeriesReadCache<String> cache = createCache(100, 60);
+        cache.put("a", null, "A", 40, null);
+        cache.put("b", null, "B", 40, null);
+        assertEquals("A", cache.get("a", null));
+        // "b" is least recently used
+        cache.put("c", null, "C", 40, null);
+        assertEquals(2, cache.size());
+        assertEquals(80, cache.getBytes());
+        assertNull(cache.get("b", null));
+        assertEquals("A", cache.get("a", null));
+        assertEquals("C", cache.get("c", null));
+        // Too big to cache
+        cache.put("d", null, "D", 200, null);
+        assertNull(cache.get("d", null));
+        assertEquals(3, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    public void testTimeToLive() throws Exception
+    {
+        TSToolTimeSeriesReadCache<String> cache = createCache(100, 60);
+        cache.put("a", null, "A", 10, null);
+        this.now = 60000;
+        assertEquals("A", cache.get("a", null));
+        this.now = 60001;
+        assertNull(cache.get("a", null));
+        assertEquals(0, cache.getBytes());
+    }
+
+    public void testFileChanged() throws Exception
+    {
+        TSToolTimeSeriesReadCache<String> cache = createCache(100, 60);
+        cache.put("a", null, "A", 10, new TSToolLruCache.FileState(this.file));
+        // Time to live is not used for files
+        this.now = 3600000;
+        assertEquals("A", cache.get("a", null));
+        FileWriter fw = new FileWriter(this.file);
+        fw.write("# DateValue");
+        fw.close();
+        assertNull(cache.get("a", null));
+    }
+
+    public void testFileChangedDuringRead() throws Exception
+    {
+        TSToolTimeSeriesReadCache<String> cache = createCache(100, 60);
+        // The file state is captured before the read so a change during the read is detected
+        TSToolLruCache.FileState fileState = new TSToolLruCache.FileState(this.file);
+        FileWriter fw = new FileWriter(this.file);
+        fw.write("# DateValue");
+        fw.close();
+        cache.put("a", null, "A", 10, fileState);
+        assertNull(cache.get("a", null));
+        assertEquals(0, cache.size());
+    }
+
+    public void testSourceChanged() throws Exception
+    {
+        TSToolTimeSeriesReadCache<String> cache = createCache(100, 60);
+        Object dataStore = new Object();
+        cache.put("a", dataStore, "A", 10, null);
+        assertEquals("A", cache.get("a", dataStore));
+        // For example a new datastore instance after logging in again
+        assertNull(cache.get("a", new Object()));
+        assertEquals(0, cache.size());
+    }
+
+    public void testKey() throws Exception
+    {
+        assertFalse(TSToolTimeSeriesReadCache.getKey("A.B.C.Day", "x.dv", null, null, "ReadData=True").equals(
+            TSToolTimeSeriesReadCache.getKey("A.B.C.Day", "x.dv", "2000-01-01", null, "ReadData=True")));
+        assertEquals(TSToolTimeSeriesReadCache.getKey("A.B.C.Day", null, null, null, null),
+            TSToolTimeSeriesReadCache.getKey("A.B.C.Day", "", "", "", ""));
+    }
+
+}
@@ -0,0 +1,52 @@
+package rti.app.tstoolrestlet;
+
+import junit.framework.TestCase;
+
+/**
+Tests for TimeSeriesCache, which caches time series read by the REST server.
+*/
+public class TimeSeriesCacheTest extends TestCase {
+
+    public TimeSeriesCacheTest(String testname)
+    {
+        super(testname);
+    }
+
+    public TimeSeriesCacheTest()
+    {
+    }
+
+    public void testKeyIncludesPeriod()
+    {
+        String key1 = TimeSeriesCache.getKey("A.USGS.Streamflow.Day", "2020-01-01", null);
+        String key2 = TimeSeriesCache.getKey("A.USGS.Streamflow.Day", "2020-01-01", "2020-12-31");
+        assertFalse(key1.equals(key2));
+        assertEquals(key1, TimeSeriesCache.getKey("A.USGS.Streamflow.Day", "2020-01-01", ""));
+    }
+
+    public void testLeastRecentlyUsedIsEvicted()
+    {
+        TimeSeriesCache<String> cache = new TimeSeriesCache<String>(2, 0);
+        cache.put("a", "A", 0);
+        cache.put("b", "B", 0);
+        // Use "a" so that "b" is the least recently used
+        assertEquals("A", cache.get("a", 0));
+        cache.put("c", "C", 0);
+        assertEquals(2, cache.size());
+        assertNull(cache.get("b", 0));
+        assertEquals("A", cache.get("a", 0));
+        assertEquals("C", cache.get("c", 0));
+        assertEquals(3, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    public void testExpiredEntryIsRemoved()
+    {
+        TimeSeriesCache<String> cache = new TimeSeriesCache<String>(10, 1000);
+        cache.put("a", "A", 5000);
+        assertEquals("A", cache.get("a", 6000));
+        assertNull(cache.get("a", 6001));
+        assertEquals(0, cache.size());
+    }
+
+}